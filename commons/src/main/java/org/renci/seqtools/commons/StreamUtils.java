@@ -0,0 +1,103 @@
+package org.renci.seqtools.commons;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorInputStream;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorInputStream;
+import org.apache.commons.io.input.CloseShieldInputStream;
+import org.apache.commons.io.output.CloseShieldOutputStream;
+import org.renci.seqtools.commons.metrics.InputProgress;
+import org.renci.seqtools.commons.metrics.MetricsRegistry;
+import org.renci.seqtools.commons.metrics.ProgressInputStream;
+import org.renci.seqtools.commons.metrics.TimedInputStream;
+import org.renci.seqtools.commons.metrics.TimedOutputStream;
+
+public class StreamUtils {
+
+    public static final String STANDARD_STREAM = "-";
+
+    public static final int BUFFER_SIZE = 64 * 1024;
+
+    private StreamUtils() {
+        super();
+    }
+
+    public static boolean isStandardStream(String path) {
+        return STANDARD_STREAM.equals(path);
+    }
+
+    public static boolean isStandardStream(File file) {
+        return file != null && isStandardStream(file.getPath());
+    }
+
+    public static boolean exists(File file) {
+        return isStandardStream(file) || file.exists();
+    }
+
+    /**
+     * Opens a file, or stdin for "-", and decompresses it if it starts with a gzip (including bgzip) or bzip2 header, whatever its
+     * name. Time spent reading and decompressing is charged to the read and decompress stages, and the position reached is
+     * reported to the file's {@link InputProgress}.
+     */
+    public static InputStream openInputStream(File file) throws IOException {
+        MetricsRegistry metrics = MetricsRegistry.getInstance();
+        InputStream is = isStandardStream(file) ? new CloseShieldInputStream(System.in) : new FileInputStream(file);
+        InputProgress progress = InputProgress.acquire(file);
+        is = new ProgressInputStream(is, progress, true);
+        BufferedInputStream bis = new BufferedInputStream(
+                new TimedInputStream(is, metrics.timer(MetricsRegistry.READ), metrics.counter("read.bytes")), BUFFER_SIZE);
+
+        bis.mark(3);
+        int first = bis.read();
+        int second = bis.read();
+        int third = bis.read();
+        bis.reset();
+
+        if (first == 0x1f && second == 0x8b) {
+            // bgzip files are a series of gzip members
+            return decompressed(new GzipCompressorInputStream(bis, true), progress);
+        }
+        if (first == 'B' && second == 'Z' && third == 'h') {
+            return decompressed(new BZip2CompressorInputStream(bis, true), progress);
+        }
+        return bis;
+    }
+
+    private static InputStream decompressed(InputStream is, InputProgress progress) {
+        MetricsRegistry metrics = MetricsRegistry.getInstance();
+        return new BufferedInputStream(new ProgressInputStream(
+                new TimedInputStream(is, metrics.timer(MetricsRegistry.DECOMPRESS), metrics.counter("decompress.bytes")), progress, false),
+                BUFFER_SIZE);
+    }
+
+    public static BufferedReader newBufferedReader(File file) throws IOException {
+        return new BufferedReader(new InputStreamReader(openInputStream(file)), BUFFER_SIZE);
+    }
+
+    /**
+     * Opens a file, or stdout for "-"; closing the stream flushes stdout but leaves it open. Time spent writing is charged to the
+     * write stage.
+     */
+    public static OutputStream openOutputStream(File file) throws IOException {
+        MetricsRegistry metrics = MetricsRegistry.getInstance();
+        OutputStream os = isStandardStream(file) ? new CloseShieldOutputStream(System.out) : new FileOutputStream(file);
+        return new BufferedOutputStream(
+                new TimedOutputStream(os, metrics.timer(MetricsRegistry.WRITE), metrics.counter("write.bytes")), BUFFER_SIZE);
+    }
+
+    public static BufferedWriter newBufferedWriter(File file) throws IOException {
+        return new BufferedWriter(new OutputStreamWriter(openOutputStream(file)), BUFFER_SIZE);
+    }
+
+}
@@ -0,0 +1,30 @@
+package org.renci.seqtools.commons.jfr;
+
+/**
+ * Creates and commits the flight recorder events. Each begin method returns null when its event type isn't being recorded, and
+ * every commit method ignores a null event, so call sites pay for a null check when recording is off.
+ */
+public interface EventSink {
+
+    Object beginParseBatch();
+
+    void commitParseBatch(Object event, String source, long siteGroups, long lines, long parseNanos);
+
+    Object beginCompressFlush();
+
+    void commitCompressFlush(Object event, String stream, long bytesIn, long bytesOut);
+
+    Object beginBAMQuery();
+
+    void commitBAMQuery(Object event, String bam, String contig, int position, long recordsScanned, boolean repositioned,
+            boolean matched);
+
+    Object beginIntervalLookup();
+
+    void commitIntervalLookup(Object event, String contig, int position, int intervals, boolean included);
+
+    Object beginBlockWrite();
+
+    void commitBlockWrite(Object event, String file, long bytes);
+
+}
@@ -0,0 +1,122 @@
+package org.renci.seqtools.commons.jfr;
+
+/**
+ * Java Flight Recorder events for the converter and filter hot paths. The event types are all disabled by default; enable them in
+ * a recording with the settings in src/main/jfr/seqtools.jfc or by turning on the "SeqTools" category in JMC. The event classes are
+ * only built on JDK 11 and later and only loaded when the running jvm has the jdk.jfr API; otherwise every method here is a no-op.
+ */
+public final class FlightEvents {
+
+    private static final String JFR_SINK = "org.renci.seqtools.commons.jfr.JFREventSink";
+
+    private static final EventSink sink = loadSink();
+
+    private FlightEvents() {
+        super();
+    }
+
+    private static EventSink loadSink() {
+        try {
+            Class.forName("jdk.jfr.Event");
+            return (EventSink) Class.forName(JFR_SINK).newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return new NoOpEventSink();
+        }
+    }
+
+    public static boolean isAvailable() {
+        return !(sink instanceof NoOpEventSink);
+    }
+
+    public static Object beginParseBatch() {
+        return sink.beginParseBatch();
+    }
+
+    public static void commitParseBatch(Object event, String source, long siteGroups, long lines, long parseNanos) {
+        sink.commitParseBatch(event, source, siteGroups, lines, parseNanos);
+    }
+
+    public static Object beginCompressFlush() {
+        return sink.beginCompressFlush();
+    }
+
+    public static void commitCompressFlush(Object event, String stream, long bytesIn, long bytesOut) {
+        sink.commitCompressFlush(event, stream, bytesIn, bytesOut);
+    }
+
+    public static Object beginBAMQuery() {
+        return sink.beginBAMQuery();
+    }
+
+    public static void commitBAMQuery(Object event, String bam, String contig, int position, long recordsScanned, boolean repositioned,
+            boolean matched) {
+        sink.commitBAMQuery(event, bam, contig, position, recordsScanned, repositioned, matched);
+    }
+
+    public static Object beginIntervalLookup() {
+        return sink.beginIntervalLookup();
+    }
+
+    public static void commitIntervalLookup(Object event, String contig, int position, int intervals, boolean included) {
+        sink.commitIntervalLookup(event, contig, position, intervals, included);
+    }
+
+    public static Object beginBlockWrite() {
+        return sink.beginBlockWrite();
+    }
+
+    public static void commitBlockWrite(Object event, String file, long bytes) {
+        sink.commitBlockWrite(event, file, bytes);
+    }
+
+    private static class NoOpEventSink implements EventSink {
+
+        @Override
+        public Object beginParseBatch() {
+            return null;
+        }
+
+        @Override
+        public void commitParseBatch(Object event, String source, long siteGroups, long lines, long parseNanos) {
+        }
+
+        @Override
+        public Object beginCompressFlush() {
+            return null;
+        }
+
+        @Override
+        public void commitCompressFlush(Object event, String stream, long bytesIn, long bytesOut) {
+        }
+
+        @Override
+        public Object beginBAMQuery() {
+            return null;
+        }
+
+        @Override
+        public void commitBAMQuery(Object event, String bam, String contig, int position, long recordsScanned, boolean repositioned,
+                boolean matched) {
+        }
+
+        @Override
+        public Object beginIntervalLookup() {
+            return null;
+        }
+
+        @Override
+        public void commitIntervalLookup(Object event, String contig, int position, int intervals, boolean included) {
+        }
+
+        @Override
+        public Object beginBlockWrite() {
+            return null;
+        }
+
+        @Override
+        public void commitBlockWrite(Object event, String file, long bytes) {
+        }
+
+    }
+
+}
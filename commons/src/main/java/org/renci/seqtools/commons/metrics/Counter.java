@@ -0,0 +1,36 @@
+package org.renci.seqtools.commons.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+public class Counter {
+
+    private final String name;
+
+    private final LongAdder value = new LongAdder();
+
+    Counter(String name) {
+        super();
+        this.name = name;
+    }
+
+    public void increment() {
+        value.increment();
+    }
+
+    public void add(long amount) {
+        value.add(amount);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long get() {
+        return value.sum();
+    }
+
+    void reset() {
+        value.reset();
+    }
+
+}
@@ -0,0 +1,53 @@
+package org.renci.seqtools.commons.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A level that goes up and down, such as the number of batches waiting in a queue, along with the highest level seen.
+ */
+public class Gauge {
+
+    private final String name;
+
+    private final AtomicLong value = new AtomicLong();
+
+    private final AtomicLong max = new AtomicLong();
+
+    Gauge(String name) {
+        super();
+        this.name = name;
+    }
+
+    public void increment() {
+        add(1);
+    }
+
+    public void decrement() {
+        add(-1);
+    }
+
+    public void add(long amount) {
+        long current = value.addAndGet(amount);
+        long highest = max.get();
+        while (current > highest && !max.compareAndSet(highest, current)) {
+            highest = max.get();
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long get() {
+        return value.get();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    void reset() {
+        max.set(value.get());
+    }
+
+}
@@ -0,0 +1,82 @@
+package org.renci.seqtools.commons.metrics;
+
+import java.io.File;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * How far into an input file the tools have read, in file (compressed) bytes and in decompressed bytes. Every stream opened on the
+ * same path shares one entry and the entry keeps the furthest position any of them reached, so a short header read followed by the
+ * full pass still reports the full pass. Entries live while a stream or a progress reporter holds them.
+ */
+public class InputProgress {
+
+    private static final ConcurrentMap<String, InputProgress> inputs = new ConcurrentHashMap<>();
+
+    private final String path;
+
+    private final long size;
+
+    private final AtomicLong compressedBytes = new AtomicLong();
+
+    private final AtomicLong uncompressedBytes = new AtomicLong();
+
+    private final AtomicInteger holders = new AtomicInteger();
+
+    private InputProgress(String path, long size) {
+        super();
+        this.path = path;
+        this.size = size;
+    }
+
+    /**
+     * Returns the entry for a file, creating it if needed; stdin ("-") has an unknown size. Pair every call with {@link #release()}.
+     */
+    public static InputProgress acquire(File file) {
+        String path = "-".equals(file.getPath()) ? file.getPath() : file.getAbsolutePath();
+        while (true) {
+            InputProgress progress = inputs.computeIfAbsent(path, a -> new InputProgress(a, "-".equals(a) ? -1L : new File(a).length()));
+            int held = progress.holders.get();
+            // a released entry may be on its way out of the map; take a fresh one
+            if (held >= 0 && progress.holders.compareAndSet(held, held + 1)) {
+                return progress;
+            }
+        }
+    }
+
+    public void release() {
+        if (holders.decrementAndGet() == 0 && holders.compareAndSet(0, -1)) {
+            inputs.remove(path, this);
+        }
+    }
+
+    public void advanceCompressed(long position) {
+        compressedBytes.accumulateAndGet(position, Math::max);
+    }
+
+    public void advanceUncompressed(long position) {
+        uncompressedBytes.accumulateAndGet(position, Math::max);
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * Returns the file size in bytes, or -1 when it isn't known.
+     */
+    public long getSize() {
+        return size;
+    }
+
+    public long getCompressedBytes() {
+        return compressedBytes.get();
+    }
+
+    public long getUncompressedBytes() {
+        return uncompressedBytes.get();
+    }
+
+}
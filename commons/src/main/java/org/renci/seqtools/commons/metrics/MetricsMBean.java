@@ -0,0 +1,110 @@
+package org.renci.seqtools.commons.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.MBeanParameterInfo;
+
+/**
+ * Exposes every timer, counter and gauge of a registry as a read-only long attribute. Timers show up as "name.nanos" and
+ * "name.count", gauges as "name" and "name.max"; attributes appear as the tools create the metrics.
+ */
+class MetricsMBean implements DynamicMBean {
+
+    private final MetricsRegistry registry;
+
+    MetricsMBean(MetricsRegistry registry) {
+        super();
+        this.registry = registry;
+    }
+
+    @Override
+    public Object getAttribute(String attribute) throws AttributeNotFoundException {
+        if (attribute.endsWith(".nanos") || attribute.endsWith(".count")) {
+            StageTimer timer = registry.getTimers().get(attribute.substring(0, attribute.lastIndexOf('.')));
+            if (timer != null) {
+                return attribute.endsWith(".nanos") ? timer.getNanos() : timer.getCount();
+            }
+        }
+        if (attribute.endsWith(".max")) {
+            Gauge gauge = registry.getGauges().get(attribute.substring(0, attribute.lastIndexOf('.')));
+            if (gauge != null) {
+                return gauge.getMax();
+            }
+        }
+        Gauge gauge = registry.getGauges().get(attribute);
+        if (gauge != null) {
+            return gauge.get();
+        }
+        Counter counter = registry.getCounters().get(attribute);
+        if (counter != null) {
+            return counter.get();
+        }
+        throw new AttributeNotFoundException(attribute);
+    }
+
+    @Override
+    public AttributeList getAttributes(String[] attributes) {
+        AttributeList list = new AttributeList();
+        for (String attribute : attributes) {
+            try {
+                list.add(new Attribute(attribute, getAttribute(attribute)));
+            } catch (AttributeNotFoundException e) {
+                continue;
+            }
+        }
+        return list;
+    }
+
+    @Override
+    public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+        throw new AttributeNotFoundException(attribute.getName() + " is read-only");
+    }
+
+    @Override
+    public AttributeList setAttributes(AttributeList attributes) {
+        return new AttributeList();
+    }
+
+    @Override
+    public Object invoke(String actionName, Object[] params, String[] signature) {
+        if ("reset".equals(actionName)) {
+            registry.reset();
+            return null;
+        }
+        throw new UnsupportedOperationException(actionName);
+    }
+
+    @Override
+    public MBeanInfo getMBeanInfo() {
+        List<MBeanAttributeInfo> attributes = new ArrayList<>();
+        for (String name : registry.getTimers().keySet()) {
+            attributes.add(attribute(name + ".nanos", "nanoseconds spent in " + name));
+            attributes.add(attribute(name + ".count", "times " + name + " was entered"));
+        }
+        for (String name : registry.getCounters().keySet()) {
+            attributes.add(attribute(name, name));
+        }
+        for (String name : registry.getGauges().keySet()) {
+            attributes.add(attribute(name, "current " + name));
+            attributes.add(attribute(name + ".max", "highest " + name));
+        }
+        return new MBeanInfo(MetricsRegistry.class.getName(), "seqtools stage timings and throughput",
+                attributes.toArray(new MBeanAttributeInfo[attributes.size()]), null,
+                new MBeanOperationInfo[] { new MBeanOperationInfo("reset", "zero the timers and counters", new MBeanParameterInfo[0],
+                        "void", MBeanOperationInfo.ACTION) },
+                null);
+    }
+
+    private static MBeanAttributeInfo attribute(String name, String description) {
+        return new MBeanAttributeInfo(name, "long", description, true, false, false);
+    }
+
+}
@@ -0,0 +1,211 @@
+package org.renci.seqtools.commons.metrics;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Stage timers, counters and queue gauges shared by every tool in the jvm. The registry is published as a JMX MBean while the tool
+ * runs and can be written out as a JSON run report when it exits.
+ */
+public class MetricsRegistry {
+
+    public static final String READ = "read";
+
+    public static final String DECOMPRESS = "decompress";
+
+    public static final String PARSE = "parse";
+
+    public static final String CLASSIFY = "classify";
+
+    public static final String BAM_LOOKUP = "bam-lookup";
+
+    public static final String BAM_INFLATE = "bam-inflate";
+
+    public static final String FILTER = "filter";
+
+    public static final String ENCODE = "encode";
+
+    public static final String COMPRESS = "compress";
+
+    public static final String WRITE = "write";
+
+    public static final String OBJECT_NAME = "org.renci.seqtools:type=Metrics";
+
+    private static final MetricsRegistry instance = new MetricsRegistry();
+
+    private final ConcurrentMap<String, StageTimer> timers = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<String, Counter> counters = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<String, Gauge> gauges = new ConcurrentHashMap<>();
+
+    private volatile long started = System.currentTimeMillis();
+
+    MetricsRegistry() {
+        super();
+    }
+
+    public static MetricsRegistry getInstance() {
+        return instance;
+    }
+
+    public StageTimer timer(String name) {
+        return timers.computeIfAbsent(name, StageTimer::new);
+    }
+
+    public Counter counter(String name) {
+        return counters.computeIfAbsent(name, Counter::new);
+    }
+
+    public Gauge gauge(String name) {
+        return gauges.computeIfAbsent(name, Gauge::new);
+    }
+
+    public Map<String, StageTimer> getTimers() {
+        return new TreeMap<>(timers);
+    }
+
+    public Map<String, Counter> getCounters() {
+        return new TreeMap<>(counters);
+    }
+
+    public Map<String, Gauge> getGauges() {
+        return new TreeMap<>(gauges);
+    }
+
+    public long getStarted() {
+        return started;
+    }
+
+    /**
+     * Zeroes the timers and counters; gauges keep their current level.
+     */
+    public void reset() {
+        timers.values().forEach(StageTimer::reset);
+        counters.values().forEach(Counter::reset);
+        gauges.values().forEach(Gauge::reset);
+        started = System.currentTimeMillis();
+    }
+
+    /**
+     * Publishes the registry on the platform MBean server. Calling it again is harmless.
+     */
+    public void registerMBean() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            server.registerMBean(new MetricsMBean(this), new ObjectName(OBJECT_NAME));
+        } catch (InstanceAlreadyExistsException e) {
+            return;
+        } catch (JMException e) {
+            throw new IllegalStateException("could not register " + OBJECT_NAME, e);
+        }
+    }
+
+    /**
+     * Writes the run report when the jvm exits, including exits through System.exit.
+     */
+    public void writeReportOnExit(String tool, File report) {
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                writeReport(tool, report);
+            } catch (IOException e) {
+                System.err.println("could not write run report " + report + ": " + e.getMessage());
+            }
+        }, "run-report"));
+    }
+
+    public void writeReport(String tool, File report) throws IOException {
+        try (Writer writer = new BufferedWriter(new FileWriter(report))) {
+            writer.write(toJSON(tool));
+            writer.write(System.lineSeparator());
+        }
+    }
+
+    public String toJSON(String tool) {
+        long finished = System.currentTimeMillis();
+        long elapsedMillis = Math.max(1, finished - started);
+        double elapsedSeconds = elapsedMillis / 1000D;
+
+        long stageNanos = 0;
+        for (StageTimer timer : timers.values()) {
+            stageNanos += timer.getNanos();
+        }
+
+        StringBuilder sb = new StringBuilder();
+        sb.append("{\n");
+        sb.append("  \"tool\": ").append(quote(tool)).append(",\n");
+        sb.append("  \"started\": ").append(started).append(",\n");
+        sb.append("  \"finished\": ").append(finished).append(",\n");
+        sb.append("  \"elapsedMillis\": ").append(elapsedMillis).append(",\n");
+
+        sb.append("  \"stages\": {");
+        String separator = "\n";
+        for (StageTimer timer : getTimers().values()) {
+            sb.append(separator).append("    ").append(quote(timer.getName())).append(": {");
+            sb.append("\"count\": ").append(timer.getCount());
+            sb.append(", \"nanos\": ").append(timer.getNanos());
+            sb.append(", \"millis\": ").append(TimeUnit.NANOSECONDS.toMillis(timer.getNanos()));
+            sb.append(", \"share\": ").append(format(stageNanos == 0 ? 0D : (double) timer.getNanos() / stageNanos));
+            sb.append("}");
+            separator = ",\n";
+        }
+        sb.append("\n  },\n");
+
+        sb.append("  \"counters\": {");
+        separator = "\n";
+        for (Counter counter : getCounters().values()) {
+            sb.append(separator).append("    ").append(quote(counter.getName())).append(": {");
+            sb.append("\"value\": ").append(counter.get());
+            sb.append(", \"perSecond\": ").append(format(counter.get() / elapsedSeconds));
+            sb.append("}");
+            separator = ",\n";
+        }
+        sb.append("\n  },\n");
+
+        sb.append("  \"gauges\": {");
+        separator = "\n";
+        for (Gauge gauge : getGauges().values()) {
+            sb.append(separator).append("    ").append(quote(gauge.getName())).append(": {");
+            sb.append("\"value\": ").append(gauge.get());
+            sb.append(", \"max\": ").append(gauge.getMax());
+            sb.append("}");
+            separator = ",\n";
+        }
+        sb.append("\n  }\n");
+        sb.append("}");
+        return sb.toString();
+    }
+
+    private static String format(double value) {
+        return String.format("%.3f", value);
+    }
+
+    private static String quote(String value) {
+        StringBuilder sb = new StringBuilder("\"");
+        for (char c : String.valueOf(value).toCharArray()) {
+            if (c == '"' || c == '\\') {
+                sb.append('\\').append(c);
+            } else if (c < 0x20) {
+                sb.append(String.format("\\u%04x", (int) c));
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.append('"').toString();
+    }
+
+}
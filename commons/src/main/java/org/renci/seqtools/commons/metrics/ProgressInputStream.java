@@ -0,0 +1,80 @@
+package org.renci.seqtools.commons.metrics;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reports the position of the wrapped stream to an {@link InputProgress}, either as the compressed position (the stream reads the
+ * file itself) or as the decompressed one. The compressed side releases the progress entry when it is closed.
+ */
+public class ProgressInputStream extends FilterInputStream {
+
+    private final InputProgress progress;
+
+    private final boolean compressed;
+
+    private long position = 0;
+
+    private boolean closed = false;
+
+    public ProgressInputStream(InputStream in, InputProgress progress, boolean compressed) {
+        super(in);
+        this.progress = progress;
+        this.compressed = compressed;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = in.read();
+        if (b >= 0) {
+            advance(1);
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int n = in.read(b, off, len);
+        if (n > 0) {
+            advance(n);
+        }
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = in.skip(n);
+        if (skipped > 0) {
+            advance(skipped);
+        }
+        return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            in.close();
+        } finally {
+            if (compressed && !closed) {
+                progress.release();
+            }
+            closed = true;
+        }
+    }
+
+    private void advance(long n) {
+        position += n;
+        if (compressed) {
+            progress.advanceCompressed(position);
+        } else {
+            progress.advanceUncompressed(position);
+        }
+    }
+
+}
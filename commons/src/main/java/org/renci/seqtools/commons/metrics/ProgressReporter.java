@@ -0,0 +1,170 @@
+package org.renci.seqtools.commons.metrics;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Prints a progress line for a set of input files at a fixed interval from its own thread, so the read loops only pay for updating
+ * their stream positions. Each line is a series of key=value pairs that a scheduler can parse:
+ *
+ * <pre>
+ * progress tool=converter percent=42.1 bytes=1073741824 totalBytes=2550136832 records=1200000 recordsPerSecond=20000.0
+ *   mbPerSecond=17.5 uncompressedMbPerSecond=96.3 elapsedSeconds=60 etaSeconds=84
+ * </pre>
+ *
+ * Rates are averages since the reporter was created and the ETA assumes the file byte rate holds. percent and etaSeconds are -1
+ * when the size of an input, such as stdin, is unknown.
+ */
+public class ProgressReporter implements Closeable {
+
+    private static final double BYTES_PER_MB = 1024D * 1024D;
+
+    private final String tool;
+
+    private final List<InputProgress> inputs = new ArrayList<>();
+
+    private final Counter records;
+
+    private final long started = System.currentTimeMillis();
+
+    private final long startRecords;
+
+    private final PrintStream out;
+
+    private ScheduledExecutorService scheduler;
+
+    private boolean closed = false;
+
+    /**
+     * @param recordCounter
+     *            name of the registry counter holding the records processed, or null when the tool has no record count
+     */
+    public ProgressReporter(String tool, List<File> files, String recordCounter, PrintStream out) {
+        super();
+        this.tool = tool;
+        for (File file : files) {
+            inputs.add(InputProgress.acquire(file));
+        }
+        this.records = recordCounter != null ? MetricsRegistry.getInstance().counter(recordCounter) : null;
+        this.startRecords = records != null ? records.get() : 0;
+        this.out = out;
+    }
+
+    /**
+     * Starts printing every intervalSeconds; an interval of zero or less prints nothing until {@link #close()}.
+     */
+    public synchronized ProgressReporter start(long intervalSeconds) {
+        if (intervalSeconds > 0 && scheduler == null) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "progress-" + tool);
+                thread.setDaemon(true);
+                return thread;
+            });
+            scheduler.scheduleAtFixedRate(() -> out.println(format()), intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+        }
+        return this;
+    }
+
+    public long getBytes() {
+        long bytes = 0;
+        for (InputProgress input : inputs) {
+            bytes += input.getCompressedBytes();
+        }
+        return bytes;
+    }
+
+    public long getUncompressedBytes() {
+        long bytes = 0;
+        for (InputProgress input : inputs) {
+            bytes += Math.max(input.getUncompressedBytes(), input.getCompressedBytes());
+        }
+        return bytes;
+    }
+
+    /**
+     * Returns the combined size of the inputs, or -1 if any of them is unknown.
+     */
+    public long getTotalBytes() {
+        long total = 0;
+        for (InputProgress input : inputs) {
+            if (input.getSize() < 0) {
+                return -1;
+            }
+            total += input.getSize();
+        }
+        return total;
+    }
+
+    public double getPercent() {
+        long total = getTotalBytes();
+        if (total < 0) {
+            return -1;
+        }
+        return total == 0 ? 100D : Math.min(100D, 100D * getBytes() / total);
+    }
+
+    public long getRecords() {
+        return records != null ? records.get() - startRecords : 0;
+    }
+
+    public long getElapsedMillis() {
+        return Math.max(1, System.currentTimeMillis() - started);
+    }
+
+    public double getBytesPerSecond() {
+        return getBytes() * 1000D / getElapsedMillis();
+    }
+
+    /**
+     * Returns the estimated seconds left, or -1 if the total size is unknown or nothing has been read yet.
+     */
+    public long getEtaSeconds() {
+        long total = getTotalBytes();
+        double rate = getBytesPerSecond();
+        if (total < 0 || rate <= 0) {
+            return -1;
+        }
+        return (long) Math.ceil(Math.max(0, total - getBytes()) / rate);
+    }
+
+    public String format() {
+        double elapsedSeconds = getElapsedMillis() / 1000D;
+        StringBuilder sb = new StringBuilder("progress");
+        sb.append(" tool=").append(tool);
+        sb.append(" percent=").append(String.format("%.1f", getPercent()));
+        sb.append(" bytes=").append(getBytes());
+        sb.append(" totalBytes=").append(getTotalBytes());
+        if (records != null) {
+            sb.append(" records=").append(getRecords());
+            sb.append(" recordsPerSecond=").append(String.format("%.1f", getRecords() / elapsedSeconds));
+        }
+        sb.append(" mbPerSecond=").append(String.format("%.1f", getBytesPerSecond() / BYTES_PER_MB));
+        sb.append(" uncompressedMbPerSecond=").append(String.format("%.1f", getUncompressedBytes() / BYTES_PER_MB / elapsedSeconds));
+        sb.append(" elapsedSeconds=").append((long) elapsedSeconds);
+        sb.append(" etaSeconds=").append(getEtaSeconds());
+        return sb.toString();
+    }
+
+    /**
+     * Stops the reporter and, if it was printing, prints a last line.
+     */
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            out.println(format());
+        }
+        inputs.forEach(InputProgress::release);
+    }
+
+}
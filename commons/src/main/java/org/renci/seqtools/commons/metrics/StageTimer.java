@@ -0,0 +1,90 @@
+package org.renci.seqtools.commons.metrics;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Accumulates the wall time a thread spends in one stage. Stages nest on a thread: time spent in a stage started inside another is
+ * charged to the inner stage only, so the stage totals add up to the time the thread was busy instead of counting it twice. Always
+ * stop in a finally block.
+ */
+public class StageTimer {
+
+    private static final ThreadLocal<Frames> frames = ThreadLocal.withInitial(Frames::new);
+
+    private final String name;
+
+    private final LongAdder nanos = new LongAdder();
+
+    private final LongAdder count = new LongAdder();
+
+    StageTimer(String name) {
+        super();
+        this.name = name;
+    }
+
+    public void start() {
+        frames.get().push(System.nanoTime());
+    }
+
+    public void stop() {
+        long elapsed = frames.get().pop(System.nanoTime());
+        if (elapsed >= 0) {
+            nanos.add(elapsed);
+            count.increment();
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getNanos() {
+        return nanos.sum();
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    void reset() {
+        nanos.reset();
+        count.reset();
+    }
+
+    private static class Frames {
+
+        private long[] starts = new long[16];
+
+        private long[] children = new long[16];
+
+        private int depth = 0;
+
+        void push(long now) {
+            if (depth == starts.length) {
+                starts = Arrays.copyOf(starts, depth * 2);
+                children = Arrays.copyOf(children, depth * 2);
+            }
+            starts[depth] = now;
+            children[depth] = 0;
+            depth++;
+        }
+
+        /**
+         * Returns the time spent in the innermost stage outside its own nested stages, or -1 on a stop without a start.
+         */
+        long pop(long now) {
+            if (depth == 0) {
+                return -1;
+            }
+            depth--;
+            long elapsed = now - starts[depth];
+            if (depth > 0) {
+                children[depth - 1] += elapsed;
+            }
+            return elapsed - children[depth];
+        }
+
+    }
+
+}
@@ -0,0 +1,60 @@
+package org.renci.seqtools.commons.metrics;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Charges the time spent reading the wrapped stream to a stage and counts the bytes it returns.
+ */
+public class TimedInputStream extends FilterInputStream {
+
+    private final StageTimer timer;
+
+    private final Counter bytes;
+
+    public TimedInputStream(InputStream in, StageTimer timer, Counter bytes) {
+        super(in);
+        this.timer = timer;
+        this.bytes = bytes;
+    }
+
+    @Override
+    public int read() throws IOException {
+        timer.start();
+        try {
+            int b = in.read();
+            if (b >= 0) {
+                bytes.increment();
+            }
+            return b;
+        } finally {
+            timer.stop();
+        }
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        timer.start();
+        try {
+            int n = in.read(b, off, len);
+            if (n > 0) {
+                bytes.add(n);
+            }
+            return n;
+        } finally {
+            timer.stop();
+        }
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        timer.start();
+        try {
+            return in.skip(n);
+        } finally {
+            timer.stop();
+        }
+    }
+
+}
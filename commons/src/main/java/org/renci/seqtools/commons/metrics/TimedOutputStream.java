@@ -0,0 +1,65 @@
+package org.renci.seqtools.commons.metrics;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Charges the time spent writing to, flushing and closing the wrapped stream to a stage and counts the bytes written to it.
+ */
+public class TimedOutputStream extends FilterOutputStream {
+
+    private final StageTimer timer;
+
+    private final Counter bytes;
+
+    public TimedOutputStream(OutputStream out, StageTimer timer, Counter bytes) {
+        super(out);
+        this.timer = timer;
+        this.bytes = bytes;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        timer.start();
+        try {
+            out.write(b);
+            bytes.increment();
+        } finally {
+            timer.stop();
+        }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        timer.start();
+        try {
+            out.write(b, off, len);
+            bytes.add(len);
+        } finally {
+            timer.stop();
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        timer.start();
+        try {
+            out.flush();
+        } finally {
+            timer.stop();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        // compressors write their last block on close
+        timer.start();
+        try {
+            out.close();
+        } finally {
+            timer.stop();
+        }
+    }
+
+}
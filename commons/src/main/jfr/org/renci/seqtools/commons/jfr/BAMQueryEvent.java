@@ -0,0 +1,37 @@
+package org.renci.seqtools.commons.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("org.renci.seqtools.BAMQuery")
+@Label("BAM Region Query")
+@Category({ "SeqTools", "Converter" })
+@Description("Positioning a bam cursor on a vcf site and collecting the reads that overlap it")
+@Enabled(false)
+@StackTrace(false)
+class BAMQueryEvent extends jdk.jfr.Event {
+
+    @Label("BAM")
+    String bam;
+
+    @Label("Contig")
+    String contig;
+
+    @Label("Position")
+    int position;
+
+    @Label("Records Scanned")
+    long recordsScanned;
+
+    @Label("Repositioned")
+    @Description("The cursor was moved with an index query instead of streaming forward")
+    boolean repositioned;
+
+    @Label("Matched")
+    boolean matched;
+
+}
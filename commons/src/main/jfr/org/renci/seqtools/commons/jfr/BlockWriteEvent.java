@@ -0,0 +1,26 @@
+package org.renci.seqtools.commons.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("org.renci.seqtools.BlockWrite")
+@Label("Output Block Write")
+@Category({ "SeqTools", "Converter" })
+@Description("A block of compressed output written to a file")
+@Enabled(false)
+@StackTrace(false)
+class BlockWriteEvent extends jdk.jfr.Event {
+
+    @Label("File")
+    String file;
+
+    @Label("Bytes")
+    @DataAmount
+    long bytes;
+
+}
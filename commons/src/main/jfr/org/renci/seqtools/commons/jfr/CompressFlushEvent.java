@@ -0,0 +1,30 @@
+package org.renci.seqtools.commons.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("org.renci.seqtools.CompressFlush")
+@Label("Compress Flush")
+@Category({ "SeqTools", "Converter" })
+@Description("Buffered output handed to an output compressor, including the final block written on close")
+@Enabled(false)
+@StackTrace(false)
+class CompressFlushEvent extends jdk.jfr.Event {
+
+    @Label("Stream")
+    String stream;
+
+    @Label("Bytes In")
+    @DataAmount
+    long bytesIn;
+
+    @Label("Bytes Out")
+    @DataAmount
+    long bytesOut;
+
+}
@@ -0,0 +1,31 @@
+package org.renci.seqtools.commons.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("org.renci.seqtools.IntervalLookup")
+@Label("Interval Lookup")
+@Category({ "SeqTools", "Filter" })
+@Description("Looking up a vcf record position in the interval list")
+@Enabled(false)
+@StackTrace(false)
+class IntervalLookupEvent extends jdk.jfr.Event {
+
+    @Label("Contig")
+    String contig;
+
+    @Label("Position")
+    int position;
+
+    @Label("Intervals")
+    @Description("Intervals on the contig")
+    int intervals;
+
+    @Label("Included")
+    boolean included;
+
+}
@@ -0,0 +1,153 @@
+package org.renci.seqtools.commons.jfr;
+
+/**
+ * The flight recorder backed sink. The probes are never committed; they only answer whether their event type is enabled in a running
+ * recording.
+ */
+public class JFREventSink implements EventSink {
+
+    private final ParseBatchEvent parseBatchProbe = new ParseBatchEvent();
+
+    private final CompressFlushEvent compressFlushProbe = new CompressFlushEvent();
+
+    private final BAMQueryEvent bamQueryProbe = new BAMQueryEvent();
+
+    private final IntervalLookupEvent intervalLookupProbe = new IntervalLookupEvent();
+
+    private final BlockWriteEvent blockWriteProbe = new BlockWriteEvent();
+
+    public JFREventSink() {
+        super();
+    }
+
+    @Override
+    public Object beginParseBatch() {
+        if (!parseBatchProbe.isEnabled()) {
+            return null;
+        }
+        ParseBatchEvent event = new ParseBatchEvent();
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public void commitParseBatch(Object event, String source, long siteGroups, long lines, long parseNanos) {
+        if (event == null) {
+            return;
+        }
+        ParseBatchEvent e = (ParseBatchEvent) event;
+        e.end();
+        if (e.shouldCommit()) {
+            e.source = source;
+            e.siteGroups = siteGroups;
+            e.lines = lines;
+            e.parseNanos = parseNanos;
+            e.commit();
+        }
+    }
+
+    @Override
+    public Object beginCompressFlush() {
+        if (!compressFlushProbe.isEnabled()) {
+            return null;
+        }
+        CompressFlushEvent event = new CompressFlushEvent();
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public void commitCompressFlush(Object event, String stream, long bytesIn, long bytesOut) {
+        if (event == null) {
+            return;
+        }
+        CompressFlushEvent e = (CompressFlushEvent) event;
+        e.end();
+        if (e.shouldCommit()) {
+            e.stream = stream;
+            e.bytesIn = bytesIn;
+            e.bytesOut = bytesOut;
+            e.commit();
+        }
+    }
+
+    @Override
+    public Object beginBAMQuery() {
+        if (!bamQueryProbe.isEnabled()) {
+            return null;
+        }
+        BAMQueryEvent event = new BAMQueryEvent();
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public void commitBAMQuery(Object event, String bam, String contig, int position, long recordsScanned, boolean repositioned,
+            boolean matched) {
+        if (event == null) {
+            return;
+        }
+        BAMQueryEvent e = (BAMQueryEvent) event;
+        e.end();
+        if (e.shouldCommit()) {
+            e.bam = bam;
+            e.contig = contig;
+            e.position = position;
+            e.recordsScanned = recordsScanned;
+            e.repositioned = repositioned;
+            e.matched = matched;
+            e.commit();
+        }
+    }
+
+    @Override
+    public Object beginIntervalLookup() {
+        if (!intervalLookupProbe.isEnabled()) {
+            return null;
+        }
+        IntervalLookupEvent event = new IntervalLookupEvent();
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public void commitIntervalLookup(Object event, String contig, int position, int intervals, boolean included) {
+        if (event == null) {
+            return;
+        }
+        IntervalLookupEvent e = (IntervalLookupEvent) event;
+        e.end();
+        if (e.shouldCommit()) {
+            e.contig = contig;
+            e.position = position;
+            e.intervals = intervals;
+            e.included = included;
+            e.commit();
+        }
+    }
+
+    @Override
+    public Object beginBlockWrite() {
+        if (!blockWriteProbe.isEnabled()) {
+            return null;
+        }
+        BlockWriteEvent event = new BlockWriteEvent();
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public void commitBlockWrite(Object event, String file, long bytes) {
+        if (event == null) {
+            return;
+        }
+        BlockWriteEvent e = (BlockWriteEvent) event;
+        e.end();
+        if (e.shouldCommit()) {
+            e.file = file;
+            e.bytes = bytes;
+            e.commit();
+        }
+    }
+
+}
@@ -0,0 +1,33 @@
+package org.renci.seqtools.commons.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+@Name("org.renci.seqtools.ParseBatch")
+@Label("VCF Parse Batch")
+@Category({ "SeqTools", "Converter" })
+@Description("A batch of vcf site groups read and tokenized by the converter; the duration spans the batch, parseNanos is the time "
+        + "spent parsing")
+@Enabled(false)
+@StackTrace(false)
+class ParseBatchEvent extends jdk.jfr.Event {
+
+    @Label("Source")
+    String source;
+
+    @Label("Site Groups")
+    long siteGroups;
+
+    @Label("Lines")
+    long lines;
+
+    @Label("Parse Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long parseNanos;
+
+}
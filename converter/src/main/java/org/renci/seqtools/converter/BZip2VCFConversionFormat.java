@@ -3,7 +3,6 @@ package org.renci.seqtools.converter;
 import java.io.BufferedWriter;
 import java.io.DataOutputStream;
 import java.io.IOException;
-import java.nio.ByteBuffer;
 
 import org.renci.seqtools.converter.genotypemap.GenotypeMap;
 
@@ -92,22 +91,13 @@ public class BZip2VCFConversionFormat implements IConversionFormat {
             this.tMasterOutputStream.flush();
             this.tDetailOutputStream.flush();
 
-            String sStrand = tRecordIn.isReverseStrand() ? BZip2VCFConversionFormat.REVERSE_STRAND_LABEL
-                    : BZip2VCFConversionFormat.FORWARD_STRAND_LABEL;
-
             int iCurrentDetailPosition = this.tDetailOutputStream.size();
 
-            String tBasesAndQualityScoresAndIndelData = sStrand + "\t" + tRecordIn.getReadbases() + "\t" + tRecordIn.getReadqualityScores()
-                    + "|";
-
-            ByteBuffer tBuffer = null;
-            tBuffer = ByteBuffer.wrap(tBasesAndQualityScoresAndIndelData.getBytes());
-            byte[] tBArray = new byte[tBuffer.remaining()];
-
-            tBuffer.get(tBArray);
-
             if (tTestModeWriterIn != null && this.bIsTestMode) {
 
+                String sStrand = tRecordIn.isReverseStrand() ? BZip2VCFConversionFormat.REVERSE_STRAND_LABEL
+                        : BZip2VCFConversionFormat.FORWARD_STRAND_LABEL;
+
                 this.tTestModeWriter.write(tRecordIn.getPosition());
                 this.tTestModeWriter.write("\t");
                 this.tTestModeWriter.write(tRecordIn.getGenotype());
@@ -120,7 +110,9 @@ public class BZip2VCFConversionFormat implements IConversionFormat {
                 this.tTestModeWriter.write("\t");
                 this.tTestModeWriter.write(tRecordIn.getReaddepth());
                 this.tTestModeWriter.write("\t");
-                this.tTestModeWriter.write(new String(tBArray));
+                String sAlleles = tRecordIn.isNoCall() ? tRecordIn.getReferenceGenotype() : tRecordIn.getReadbases();
+                this.tTestModeWriter.write(sStrand + "\t" + sAlleles + "\t" + tRecordIn.getPileupSummary().getBaseCountsText() + "\t"
+                        + tRecordIn.getPileupSummary().getQualityText() + "|");
                 this.tTestModeWriter.write(System.getProperty("line.separator"));
 
             } else {
@@ -132,7 +124,9 @@ public class BZip2VCFConversionFormat implements IConversionFormat {
                 this.tMasterOutputStream.writeInt(Integer.parseInt(tRecordIn.getReaddepth()));
                 this.tMasterOutputStream.writeLong(iCurrentDetailPosition);
 
-                this.tDetailOutputStream.write(tBArray);
+                // an indel carries its alleles as read bases; a no-call has none, so its detail record takes the reference allele
+                this.tDetailOutputStream.writeUTF(tRecordIn.isNoCall() ? tRecordIn.getReferenceGenotype() : tRecordIn.getReadbases());
+                tRecordIn.getPileupSummary().write(this.tDetailOutputStream);
 
                 this.tDetailOutputStream.flush();
                 this.tMasterOutputStream.flush();
@@ -156,22 +150,13 @@ public class BZip2VCFConversionFormat implements IConversionFormat {
             this.tMasterOutputStream.flush();
             this.tDetailOutputStream.flush();
 
-            String sStrand = tRecordIn.isReverseStrand() ? BZip2VCFConversionFormat.REVERSE_STRAND_LABEL
-                    : BZip2VCFConversionFormat.FORWARD_STRAND_LABEL;
-
             int iCurrentDetailPosition = this.tDetailOutputStream.size();
 
-            String tBasesAndQualityScoresAndIndelData = sStrand + "\t" + tRecordIn.getReferenceGenotype() + "\t" + tRecordIn.getReadbases()
-                    + "\t" + tRecordIn.getReadqualityScores() + "|";
-
-            ByteBuffer tBuffer = null;
-            tBuffer = ByteBuffer.wrap(tBasesAndQualityScoresAndIndelData.getBytes());
-            byte[] tBArray = new byte[tBuffer.remaining()];
-
-            tBuffer.get(tBArray);
-
             if (this.tTestModeWriter != null && this.bIsTestMode) {
 
+                String sStrand = tRecordIn.isReverseStrand() ? BZip2VCFConversionFormat.REVERSE_STRAND_LABEL
+                        : BZip2VCFConversionFormat.FORWARD_STRAND_LABEL;
+
                 this.tTestModeWriter.write(tRecordIn.getPosition());
                 this.tTestModeWriter.write("\t");
                 this.tTestModeWriter.write(tRecordIn.getGenotype());
@@ -184,7 +169,8 @@ public class BZip2VCFConversionFormat implements IConversionFormat {
                 this.tTestModeWriter.write("\t");
                 this.tTestModeWriter.write(tRecordIn.getReaddepth());
                 this.tTestModeWriter.write("\t");
-                this.tTestModeWriter.write(new String(tBArray));
+                this.tTestModeWriter.write(sStrand + "\t" + tRecordIn.getReferenceGenotype() + "\t"
+                        + tRecordIn.getPileupSummary().getBaseCountsText() + "\t" + tRecordIn.getPileupSummary().getQualityText() + "|");
                 this.tTestModeWriter.write(System.getProperty("line.separator"));
 
             } else {
@@ -195,7 +181,8 @@ public class BZip2VCFConversionFormat implements IConversionFormat {
                 this.tMasterOutputStream.writeInt(Integer.parseInt(tRecordIn.getReaddepth()));
                 this.tMasterOutputStream.writeLong(iCurrentDetailPosition);
 
-                this.tDetailOutputStream.write(tBArray);
+                this.tDetailOutputStream.writeUTF(tRecordIn.getReferenceGenotype());
+                tRecordIn.getPileupSummary().write(this.tDetailOutputStream);
 
                 this.tDetailOutputStream.flush();
                 this.tMasterOutputStream.flush();
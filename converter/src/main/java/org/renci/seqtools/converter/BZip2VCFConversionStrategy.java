@@ -3,28 +3,48 @@ package org.renci.seqtools.converter;
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.FileWriter;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 
-import org.apache.commons.compress.compressors.gzip.GzipCompressorInputStream;
 import org.apache.commons.compress.compressors.gzip.GzipCompressorOutputStream;
+import org.apache.commons.io.output.CloseShieldOutputStream;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.text.StrTokenizer;
+import org.renci.seqtools.commons.jfr.FlightEvents;
+import org.renci.seqtools.commons.metrics.Counter;
+import org.renci.seqtools.commons.metrics.MetricsRegistry;
+import org.renci.seqtools.commons.metrics.StageTimer;
+import org.renci.seqtools.commons.metrics.TimedOutputStream;
 
 public class BZip2VCFConversionStrategy extends AbstractPileupConversionStrategy implements IConversionStrategy, Runnable {
 
-    private String VERSION_STRING = "Converter 0.1";
+    static final String VERSION_STRING = "Converter 0.1";
+
+    private static final StageTimer PARSE_TIMER = MetricsRegistry.getInstance().timer(MetricsRegistry.PARSE);
+
+    private static final StageTimer CLASSIFY_TIMER = MetricsRegistry.getInstance().timer(MetricsRegistry.CLASSIFY);
+
+    private static final StageTimer ENCODE_TIMER = MetricsRegistry.getInstance().timer(MetricsRegistry.ENCODE);
+
+    private static final Counter SITES_COUNTER = MetricsRegistry.getInstance().counter("converter.sites");
+
+    private static final Counter RECORDS_COUNTER = MetricsRegistry.getInstance().counter("converter.records");
+
+    private static final int INT_PARSE_EVENT_SITE_GROUPS = 1024;
 
     private File tInputVCFFile;
 
@@ -40,6 +60,16 @@ public class BZip2VCFConversionStrategy extends AbstractPileupConversionStrategy
 
     private VCFBAMQueryTool tBAMQueryTool;
 
+    private VCFBAMReaderPool tBAMReaderPool;
+
+    private ExecutorService tInflaterPool;
+
+    private VCFReadWindowCache tReadCache;
+
+    private VCFBAMQueryToolCache tBAMQueryToolCache;
+
+    private boolean bBAMQueryToolReturned = false;
+
     private int iNumberOfFilePairs;
 
     private boolean bSeenVCFHeaders = false;
@@ -76,6 +106,26 @@ public class BZip2VCFConversionStrategy extends AbstractPileupConversionStrategy
 
     private File tVariantVCFOutFile;
 
+    private FileOutputStream tVariantsFileOutputStream;
+
+    private boolean bWriteVariantsHeaders = true;
+
+    private String sCheckpointFileName = "checkpoint.txt";
+
+    private VCFConversionCheckpoint tCheckpoint;
+
+    private String sCurrentContig;
+
+    private Object tParseBatchEvent;
+
+    private int iParseBatchSiteGroups = 0;
+
+    private long lParseBatchLines = 0;
+
+    private long lParseBatchNanos = 0;
+
+    private Map<String, VCFMasterDetailFileStreamManager> tCurrentContigManagers;
+
     private String[] sColumnNamesArray;
 
     private Map<String, VCFMasterDetailFileStreamManager> tMapOfOutputFiles;
@@ -88,37 +138,71 @@ public class BZip2VCFConversionStrategy extends AbstractPileupConversionStrategy
 
     private Map<String, VCFMetricsManager> tMapOfMetricsData;
 
-    private List<String> tPreviousPositionList;
-
-    private VCFLineHolder tLineHolder;
-
-    private TreeMap<Long, List<String>> tMapOfLeftoverLines = new TreeMap<Long, List<String>>();
-
     private BufferedWriter tBufferedWriterVariantsOnly;
 
+    private ConversionSettings tSettings;
+
     public BZip2VCFConversionStrategy(IConversionFormat tFormatIn, File tVCFFileIn, File tBAMFileIn, File tOutputDirIn, String valueOf,
             GenomeType tGenomeTypeIn, File tMetricsFileIn, File tVariantVCFFileOutIn) {
+        this(tFormatIn, tVCFFileIn, tBAMFileIn, tOutputDirIn, valueOf, tGenomeTypeIn, tMetricsFileIn, tVariantVCFFileOutIn,
+                ConversionSettings.getInstance());
+    }
 
+    public BZip2VCFConversionStrategy(IConversionFormat tFormatIn, File tVCFFileIn, File tBAMFileIn, File tOutputDirIn, String valueOf,
+            GenomeType tGenomeTypeIn, File tMetricsFileIn, File tVariantVCFFileOutIn, ConversionSettings tSettingsIn) {
+
+        this.tSettings = tSettingsIn;
         this.tInputVCFFile = tVCFFileIn;
         this.tOutputDir = tOutputDirIn;
         this.tMetricsFile = tMetricsFileIn;
         this.tVariantVCFOutFile = tVariantVCFFileOutIn;
         this.sName = valueOf;
         this.tConversionFormat = tFormatIn;
-        this.tBAMQueryTool = VCFBAMQueryTool.getInstance(tBAMFileIn);
+        this.tBAMQueryToolCache = this.tSettings.getBAMQueryToolCache();
+        if (this.tBAMQueryToolCache != null) {
+            // a long-lived caller lends its warm readers and inflater threads, which outlive this conversion
+            this.tInflaterPool = this.tBAMQueryToolCache.getInflaterPool();
+            this.tBAMQueryTool = this.tBAMQueryToolCache.checkOut(tBAMFileIn);
+        } else {
+            if (this.tSettings.getBAMDecodeThreads() > 0) {
+                this.tInflaterPool = Executors.newFixedThreadPool(this.tSettings.getBAMDecodeThreads(), new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable tRunnableIn) {
+                        Thread tThread = new Thread(tRunnableIn, "bgzf-inflater");
+                        tThread.setDaemon(true);
+                        return tThread;
+                    }
+                });
+            }
+            this.tBAMQueryTool = VCFBAMQueryTool.getInstance(tBAMFileIn, this.tInflaterPool, this.tSettings.getBAMReadAheadBlocks());
+        }
+
+        if (this.tSettings.getSharedReadCache() != null) {
+            this.tReadCache = this.tSettings.getSharedReadCache();
+            this.tBAMQueryTool.setReadCache(this.tReadCache);
+        } else if (this.tSettings.getReadCacheMemoryBytes() > 0) {
+            this.tReadCache = VCFReadWindowCache.getInstance(this.tSettings.getReadCacheMemoryBytes());
+            this.tBAMQueryTool.setReadCache(this.tReadCache);
+        }
+
+        if (this.tSettings.getBAMManifestFile() != null) {
+            try {
+                this.tBAMReaderPool = VCFBAMReaderPool.getInstance(this.tSettings.getBAMManifestFile(),
+                        this.tSettings.getBAMReaderPoolMemoryBytes());
+                this.tBAMReaderPool.setInflaterPool(this.tInflaterPool, this.tSettings.getBAMReadAheadBlocks());
+                this.tBAMReaderPool.setReadCache(this.tReadCache);
+                this.tBAMReaderPool.setToolCache(this.tBAMQueryToolCache);
+            } catch (IOException e) {
+                throw new ConverterException("Could not read the bam manifest " + this.tSettings.getBAMManifestFile(), e);
+            }
+        }
 
         this.tMapOfOutputFiles = new HashMap<String, VCFMasterDetailFileStreamManager>();
+        this.tCurrentContigManagers = new LinkedHashMap<String, VCFMasterDetailFileStreamManager>();
         this.tLDProcessor = VCFLineDataProcessor.getInstance();
 
         this.tMapOfMetricsData = new HashMap<String, VCFMetricsManager>();
 
-        this.tPreviousPositionList = new ArrayList<String>();
-        this.tPreviousPositionList.add("mychrom");
-        this.tPreviousPositionList.add("0");
-
-        this.tLineHolder = VCFLineHolder.getInstance(this.tPreviousPositionList, new ArrayList<String>(), new ArrayList<String>(), "", "",
-                "");
-
     }
 
     @Override
@@ -139,6 +223,8 @@ public class BZip2VCFConversionStrategy extends AbstractPileupConversionStrategy
             System.out.println("\tConverter: Writing master file(s) ...");
             System.out.println("\tConverter: Writing detail file(s) ...");
 
+            this.openCheckpoint();
+
             if (this.tMetricsFile != null) {
                 this.makeMetricsFile(this.tMetricsFile);
             }
@@ -147,7 +233,8 @@ public class BZip2VCFConversionStrategy extends AbstractPileupConversionStrategy
                 this.makeVariantsVCFOutFile(this.tVariantVCFOutFile);
             }
 
-            this.sErrorFileName = Thread.currentThread().getName() + "errorFile.txt";
+            // named for the vcf, like the checkpoint whose error offsets it has to match on resume
+            this.sErrorFileName = this.tInputVCFFile.getName() + this.DASH + "errorFile.txt";
             this.makeErrorFile(this.sErrorFileName);
 
             this.makePositionMapFile(this.sPositionMapFileName);
@@ -157,21 +244,36 @@ public class BZip2VCFConversionStrategy extends AbstractPileupConversionStrategy
             File tVCFFileToRead = this.tInputVCFFile;
 
             BufferedReader tBufferedReader = null;
-            if (tVCFFileToRead.getName().toLowerCase().endsWith(".gz")) {
-                tBufferedReader = new BufferedReader(
-                        new InputStreamReader(new GzipCompressorInputStream(new FileInputStream(tVCFFileToRead))));
+            if (this.tSettings.getInputSource() != null) {
+                tBufferedReader = this.tCheckpoint.openInputReader(this.tSettings.getInputSource().openReader());
             } else {
-                tBufferedReader = new BufferedReader(new InputStreamReader(new FileInputStream(tVCFFileToRead)));
+                tBufferedReader = this.tCheckpoint.openInputReader(tVCFFileToRead);
             }
 
-            java.util.Date tMyDate = new java.util.Date();
-            this.tErrorWriter.write("# Error File for " + this.tInputVCFFile.getAbsolutePath() + " run at: " + tMyDate.toString()
-                    + System.getProperty("line.separator"));
-            this.tErrorWriter.flush();
+            if (this.tSettings.isSortInput()) {
+                System.out.println("\tConverter: Sorting vcf records into bam sequence dictionary order ...");
+                File tSortTempDir = this.tSettings.getTempDir() != null ? this.tSettings.getTempDir() : this.tOutputDir;
+                tBufferedReader = VCFExternalSorter
+                        .getInstance(this.tBAMQueryTool.getSequenceDictionary(), tSortTempDir, this.tSettings.getSortMaxRecordsInRam())
+                        .sort(tBufferedReader);
+            }
+
+            // a resumed run keeps the header already in the error file, so its offsets match an uninterrupted run
+            if (!this.isResuming()) {
+                java.util.Date tMyDate = new java.util.Date();
+                this.tErrorWriter.write("# Error File for " + this.tInputVCFFile.getAbsolutePath() + " run at: " + tMyDate.toString()
+                        + System.getProperty("line.separator"));
+                this.tErrorWriter.flush();
+            }
+
+            if (this.tBAMReaderPool != null) {
+                System.out.println("\tConverter: Using per-sample bams for " + this.tBAMReaderPool.getSampleCount()
+                        + " sample(s), at most " + this.tBAMReaderPool.getMaxOpenReaders() + " open at once ...");
+            }
 
             this.loopOverData(tBufferedReader);
 
-            this.writePositionMap(this.tMapOfOutputFiles);
+            this.writePositionMap(this.tCheckpoint.getShards());
 
             if (this.tMetricsFile != null) {
 
@@ -179,36 +281,104 @@ public class BZip2VCFConversionStrategy extends AbstractPileupConversionStrategy
             }
 
             tBufferedReader.close();
+            this.closeBAMReaders();
+            if (this.tBAMReaderPool != null) {
+                System.out.println("\tConverter: Per-sample bam readers opened: " + this.tBAMReaderPool.getReadersOpened() + ", evicted: "
+                        + this.tBAMReaderPool.getReadersEvicted());
+            }
+            if (this.tReadCache != null) {
+                System.out.println("\tConverter: " + this.tReadCache.getStatistics());
+            }
             this.tErrorWriter.close();
             this.tPositionMapFileWriter.close();
             this.tErrorWriter.close();
 
             this.tBufferedWriterVariantsOnly.flush();
             this.tBufferedWriterVariantsOnly.close();
+            this.tVariantsFileOutputStream.close();
+            this.tCheckpoint.close();
 
             System.out.println("\tConverter: Finished writing master file(s). ");
             System.out.println("\tConverter: Finished writing detail file(s). ");
 
-        } catch (FileNotFoundException e) {
-            e.printStackTrace();
-        } catch (IOException e) {
-            e.printStackTrace();
+        } catch (ConverterException e) {
+            this.closeBAMReaders();
+            this.closeCheckpoint();
+            throw e;
         } catch (Exception e) {
             e.printStackTrace();
+            this.closeBAMReaders();
+            this.closeCheckpoint();
+            throw new ConverterException("Could not convert " + this.tInputVCFFile, e);
         }
 
     }
 
+    private void closeBAMReaders() {
+        if (this.tBAMQueryToolCache != null) {
+            if (!this.bBAMQueryToolReturned) {
+                this.bBAMQueryToolReturned = true;
+                this.tBAMQueryToolCache.checkIn(this.tBAMQueryTool);
+            }
+        } else {
+            this.tBAMQueryTool.close();
+        }
+        if (this.tBAMReaderPool != null) {
+            this.tBAMReaderPool.close();
+        }
+        if (this.tInflaterPool != null && this.tBAMQueryToolCache == null) {
+            this.tInflaterPool.shutdown();
+        }
+    }
+
+    private void closeCheckpoint() {
+        if (this.tCheckpoint != null) {
+            this.tCheckpoint.close();
+        }
+    }
+
+    private void openCheckpoint() throws IOException {
+
+        this.tCheckpoint = VCFConversionCheckpoint.getInstance(
+                new File(this.tOutputDir, this.tInputVCFFile.getName() + this.DASH + this.sCheckpointFileName));
+
+        if (this.tSettings.isResume()) {
+            int iCompletedContigs = this.tCheckpoint.load(this.tOutputDir, true);
+            System.out.println("\tConverter: Resuming after " + iCompletedContigs + " completed contig(s) ...");
+            for (VCFShardCheckpoint tShard : this.tCheckpoint.getShards()) {
+                this.tMapOfMetricsData.put(tShard.getMetricsKey(), tShard.getMetrics());
+            }
+        }
+
+        this.tCheckpoint.open(this.tInputVCFFile.getName());
+    }
+
+    private boolean isResuming() {
+        return this.tCheckpoint != null && this.tCheckpoint.getCompletedContigCount() > 0;
+    }
+
+    private void truncateForResume(File tFileIn, long lLengthIn) throws IOException {
+        if (tFileIn.length() < lLengthIn) {
+            throw new ConverterException("Cannot resume: " + tFileIn + " is shorter than its checkpoint, rerun without --resume");
+        }
+        VCFConversionCheckpoint.truncate(tFileIn, lLengthIn);
+    }
+
     private void makeVariantsVCFOutFile(File tVariantVCFOutFile2) {
         try {
             this.tVariantVCFOutFile = tVariantVCFOutFile2;
-            if (this.tVariantVCFOutFile.exists()) {
-                this.tVariantVCFOutFile.delete();
+            if (this.isResuming()) {
+                this.truncateForResume(this.tVariantVCFOutFile, this.tCheckpoint.getVariantsBytes());
+                this.bWriteVariantsHeaders = false;
+            } else {
+                if (this.tVariantVCFOutFile.exists()) {
+                    this.tVariantVCFOutFile.delete();
+                }
+                this.tVariantVCFOutFile.createNewFile();
             }
-            this.tVariantVCFOutFile.createNewFile();
 
-            this.tBufferedWriterVariantsOnly = new BufferedWriter(
-                    new OutputStreamWriter(new GzipCompressorOutputStream(new FileOutputStream(this.tVariantVCFOutFile))));
+            this.tVariantsFileOutputStream = new FileOutputStream(this.tVariantVCFOutFile, this.isResuming());
+            this.tBufferedWriterVariantsOnly = this.makeVariantsWriter();
 
         } catch (IOException e) {
             e.printStackTrace();
@@ -216,6 +386,14 @@ public class BZip2VCFConversionStrategy extends AbstractPileupConversionStrategy
 
     }
 
+    private BufferedWriter makeVariantsWriter() throws IOException {
+        MetricsRegistry tMetrics = MetricsRegistry.getInstance();
+        OutputStream tFileStream = new TimedOutputStream(new CloseShieldOutputStream(this.tVariantsFileOutputStream),
+                tMetrics.timer(MetricsRegistry.WRITE), tMetrics.counter("write.bytes"));
+        return new BufferedWriter(new OutputStreamWriter(new TimedOutputStream(new GzipCompressorOutputStream(tFileStream),
+                tMetrics.timer(MetricsRegistry.COMPRESS), tMetrics.counter("compress.bytes"))));
+    }
+
     private void makeMetricsFile(File tMetricsFileIn) {
         try {
             this.tMetricsFile = tMetricsFileIn;
@@ -234,163 +412,156 @@ public class BZip2VCFConversionStrategy extends AbstractPileupConversionStrategy
 
         try {
 
-            String tCurrentLine = null;
-
-            String tNextLine = null;
-
-            List<String> tDupFirstList = new ArrayList<String>();
-            List<String> tDupSecondList = new ArrayList<String>();
-
-            List<String> tVCFLineList = new ArrayList<String>();
+            List<String> tHeaderVCFLineList = new ArrayList<String>();
 
             StrTokenizer tSTokenizer = new StrTokenizer();
 
             tSTokenizer.setDelimiterString("\t");
 
-            while ((tCurrentLine = tReaderIn.readLine()) != null && (tNextLine = tReaderIn.readLine()) != null) {
+            String tLine = null;
 
-                handleTwoLines(tCurrentLine, tNextLine, this.tInputVCFFile, tSTokenizer, tVCFLineList, tDupFirstList, tDupSecondList);
+            try {
+                while (!this.bSeenVCFHeaders && (tLine = tReaderIn.readLine()) != null) {
+                    tSTokenizer.reset(tLine);
+                    this.processHeaders(tLine, tSTokenizer, tHeaderVCFLineList);
+                }
+            } catch (Exception e) {
+                throw new ConverterException("Could not read the vcf headers of " + this.tInputVCFFile, e);
+            }
 
-                tVCFLineList.clear();
-                tDupFirstList.clear();
-                tDupSecondList.clear();
+            VCFSiteGroupIterator tSiteGroupIter = VCFSiteGroupIterator.getInstance(tReaderIn);
 
+            VCFSiteGroup tSiteGroup = null;
+
+            while ((tSiteGroup = this.nextSiteGroup(tSiteGroupIter)) != null) {
+                if (!tSiteGroup.getChromosome().equals(this.sCurrentContig)) {
+                    this.completeContig();
+                    this.startContig(tSiteGroup.getChromosome());
+                }
+                this.handleSiteGroup(tSiteGroup);
             }
 
-            tVCFLineList.clear();
-            tDupFirstList.clear();
-            tDupSecondList.clear();
+            this.completeContig();
 
-            List<String> tTempList = new ArrayList<String>();
-            Long tPosition;
-            tVCFLineList.clear();
-            this.tMapOfLeftoverLines.clear();
+        } catch (UncheckedIOException e) {
+            throw new ConverterException("Could not read " + this.tInputVCFFile, e);
+        } catch (ConverterException e) {
+            throw e;
+        } catch (Exception e) {
+
+            e.printStackTrace();
+        }
+    }
 
-            tSTokenizer.reset(tCurrentLine);
+    private VCFSiteGroup nextSiteGroup(VCFSiteGroupIterator tSiteGroupIterIn) {
 
-            if (tCurrentLine != null) {
-                tTempList = this.parseLine(tCurrentLine, tTempList, tSTokenizer);
-                tPosition = new Long(this.getPositionFromList(tTempList));
-                this.tMapOfLeftoverLines.put(tPosition, tTempList);
-            }
+        if (this.tParseBatchEvent == null) {
+            this.tParseBatchEvent = FlightEvents.beginParseBatch();
+        }
+        long lStartNanos = this.tParseBatchEvent != null ? System.nanoTime() : 0L;
 
-            tVCFLineList.clear();
-            tSTokenizer.reset(tNextLine);
-            if (tNextLine != null) {
-                tVCFLineList = this.parseLine(tNextLine, tVCFLineList, tSTokenizer);
-                this.tMapOfLeftoverLines.put(new Long(this.getPositionFromList(tVCFLineList)), tVCFLineList);
-            }
+        VCFSiteGroup tSiteGroup = null;
 
-            if (this.getPositionFromList(this.tLineHolder.getPreviousLineList()) > this
-                    .getPositionFromList(this.tLineHolder.getLastProcessedLineList())) {
-                this.tMapOfLeftoverLines.put(new Long(this.getPositionFromList(this.tLineHolder.getPreviousLineList())),
-                        this.tLineHolder.getPreviousLineList());
-            }
-            if (this.getPositionFromList(this.tLineHolder.getCurrentLineList()) > this
-                    .getPositionFromList(this.tLineHolder.getLastProcessedLineList())) {
-                this.tMapOfLeftoverLines.put(new Long(this.getPositionFromList(this.tLineHolder.getCurrentLineList())),
-                        this.tLineHolder.getCurrentLineList());
-            }
-            if (this.getPositionFromList(this.tLineHolder.getNextLineList()) > this
-                    .getPositionFromList(this.tLineHolder.getLastProcessedLineList())) {
-                this.tMapOfLeftoverLines.put(new Long(this.getPositionFromList(this.tLineHolder.getNextLineList())),
-                        this.tLineHolder.getNextLineList());
-            }
+        PARSE_TIMER.start();
+        try {
+            tSiteGroup = tSiteGroupIterIn.hasNext() ? tSiteGroupIterIn.next() : null;
+        } finally {
+            PARSE_TIMER.stop();
+        }
 
-            for (Map.Entry<Long, List<String>> tLoopEntry : this.tMapOfLeftoverLines.entrySet()) {
-                this.processLineOfVCFData(tLoopEntry.getValue(), false);
+        if (this.tParseBatchEvent != null) {
+            this.lParseBatchNanos += System.nanoTime() - lStartNanos;
+            if (tSiteGroup != null) {
+                this.iParseBatchSiteGroups++;
+                this.lParseBatchLines += tSiteGroup.size();
             }
-
-            for (Map.Entry<String, VCFMasterDetailFileStreamManager> tEntry : this.tMapOfOutputFiles.entrySet()) {
-                VCFMasterDetailFileStreamManager tManager = tEntry.getValue();
-                tManager.closeStreams();
+            if (tSiteGroup == null || this.iParseBatchSiteGroups == INT_PARSE_EVENT_SITE_GROUPS) {
+                FlightEvents.commitParseBatch(this.tParseBatchEvent, this.tInputVCFFile.getName(), this.iParseBatchSiteGroups,
+                        this.lParseBatchLines, this.lParseBatchNanos);
+                this.tParseBatchEvent = null;
+                this.iParseBatchSiteGroups = 0;
+                this.lParseBatchLines = 0;
+                this.lParseBatchNanos = 0;
             }
+        }
 
-        } catch (IOException e) {
-            e.printStackTrace();
+        return tSiteGroup;
+    }
 
-            System.exit(1);
-        } catch (Exception e) {
+    private void startContig(String sContigIn) {
 
-            e.printStackTrace();
+        if (this.tCheckpoint.isContigComplete(sContigIn)) {
+            throw new ConverterException("Contig " + sContigIn + " appears again after its shards were completed; " + this.tInputVCFFile
+                    + " is not grouped by contig, convert it with --sort");
         }
-    }
 
-    private void handleTwoLines(String tCurrentLineOfDataIn, String tNextLineOfDataIn, File tInputVCFFile, StrTokenizer tSTokenizer,
-            List<String> tHeaderVCFListToFill, List<String> tCurrentLineListIn, List<String> tNextLineListIn) {
+        this.sCurrentContig = sContigIn;
+    }
 
-        boolean bArePositionsEqual = false;
+    private void completeContig() {
 
-        List<String> tParsedHeaderVCFLineList = tHeaderVCFListToFill;
+        if (this.sCurrentContig == null) {
+            return;
+        }
 
-        this.iNumberOfFilePairs = 0;
+        try {
 
-        if (!this.bSeenVCFHeaders) {
+            List<VCFShardCheckpoint> tShards = new ArrayList<VCFShardCheckpoint>();
 
-            try {
-                tSTokenizer.reset(tCurrentLineOfDataIn);
-                this.processHeaders(tCurrentLineOfDataIn, tSTokenizer, tParsedHeaderVCFLineList);
-                tSTokenizer.reset(tNextLineOfDataIn);
-                this.processHeaders(tNextLineOfDataIn, tSTokenizer, tParsedHeaderVCFLineList);
-            } catch (Exception e) {
-                e.printStackTrace();
-                System.exit(1);
+            for (Map.Entry<String, VCFMasterDetailFileStreamManager> tEntry : this.tCurrentContigManagers.entrySet()) {
+                String sShardKey = BZip2VCFConversionStrategy.sanitizeFilename(this.sCurrentContig + DASH + tEntry.getKey());
+                VCFMasterDetailFileStreamManager tManager = tEntry.getValue();
+                tManager.closeStreams();
+                this.tMapOfOutputFiles.remove(sShardKey);
+                tShards.add(VCFShardCheckpoint.getInstance(this.sCurrentContig, tEntry.getKey(), sShardKey, tManager,
+                        this.tMapOfMetricsData.get(this.sCurrentContig + DASH + tEntry.getKey())));
+            }
+            this.tCurrentContigManagers.clear();
+
+            // end the gzip member here so a resumed run can cut the variants file back to this contig
+            long lVariantsBytes = 0;
+            if (this.tBufferedWriterVariantsOnly != null) {
+                this.tBufferedWriterVariantsOnly.close();
+                this.tVariantsFileOutputStream.getFD().sync();
+                lVariantsBytes = this.tVariantsFileOutputStream.getChannel().position();
+                this.tBufferedWriterVariantsOnly = this.makeVariantsWriter();
             }
 
-        } else {
+            this.tErrorWriter.flush();
 
-            if (((tCurrentLineOfDataIn == null) || (tCurrentLineOfDataIn.isEmpty()))
-                    || ((tNextLineOfDataIn == null) || (tNextLineOfDataIn.isEmpty()))) {
+            this.tCheckpoint.recordContig(this.sCurrentContig, tShards, lVariantsBytes, this.tErrorFile.length());
 
-            } else {
+        } catch (IOException e) {
+            throw new ConverterException("Could not checkpoint contig " + this.sCurrentContig + " of " + this.tInputVCFFile, e);
+        }
+
+        this.sCurrentContig = null;
+    }
 
-                try {
-
-                    tSTokenizer.reset(tCurrentLineOfDataIn);
-                    tCurrentLineListIn = parseLine(tCurrentLineOfDataIn, tCurrentLineListIn, tSTokenizer);
-                    tSTokenizer.reset(tNextLineOfDataIn);
-                    tNextLineListIn = parseLine(tNextLineOfDataIn, tNextLineListIn, tSTokenizer);
-
-                    this.tLineHolder.setCurrentLineList(tCurrentLineListIn);
-                    this.tLineHolder.setCurrentLine(tCurrentLineOfDataIn);
-                    this.tLineHolder.setNextLineList(tNextLineListIn);
-                    this.tLineHolder.setNextLine(tNextLineOfDataIn);
-
-                    this.tPreviousPositionList = tCurrentLineListIn;
-                    if (this.tLineHolder.areCurrentAndNextPositionsEqual()) {
-                        bArePositionsEqual = true;
-                        this.processLineOfVCFData(this.tLineHolder.getNextLineList(), bArePositionsEqual);
-                        this.tLineHolder.setLastProcessedLine(this.tLineHolder.getNextLine());
-                        this.tLineHolder.setLastProcessedLineList(this.tLineHolder.getNextLineList());
-                    } else if (this.tLineHolder.arePreviousAndCurrentLinePositionsEqual()) {
-                        bArePositionsEqual = true;
-                        this.processLineOfVCFData(this.tLineHolder.getCurrentLineList(), bArePositionsEqual);
-                        this.tLineHolder.setLastProcessedLine(this.tLineHolder.getCurrentLine());
-                        this.tLineHolder.setLastProcessedLineList(this.tLineHolder.getCurrentLineList());
-
-                    } else if (this.tLineHolder.arePreviousAndNextLinePositionsEqual()) {
-                        bArePositionsEqual = true;
-                        this.processLineOfVCFData(this.tLineHolder.getNextLineList(), bArePositionsEqual);
-                        this.tLineHolder.setLastProcessedLine(this.tLineHolder.getNextLine());
-                        this.tLineHolder.setLastProcessedLineList(this.tLineHolder.getNextLineList());
-                    } else {
-                        bArePositionsEqual = false;
-                        this.processLineOfVCFData(this.tLineHolder.getPreviousLineList(), bArePositionsEqual);
-                        this.processLineOfVCFData(this.tLineHolder.getCurrentLineList(), bArePositionsEqual);
-
-                        this.tLineHolder.setLastProcessedLine(this.tLineHolder.getCurrentLine());
-                        this.tLineHolder.setLastProcessedLineList(this.tLineHolder.getCurrentLineList());
+    private void handleSiteGroup(VCFSiteGroup tSiteGroupIn) {
 
-                    }
+        List<List<String>> tLines = tSiteGroupIn.getLines();
+
+        try {
 
-                    this.tLineHolder.setPreviousLineList(tNextLineListIn);
-                    this.tLineHolder.setPreviousLine(tNextLineListIn.toString());
+            if (tSiteGroupIn.hasDuplicatePositions()) {
 
-                } catch (Exception e) {
-                    e.printStackTrace();
-                    this.writeError("Could not process this line: ", tCurrentLineOfDataIn + " " + e.getMessage());
+                for (int ii = 0; ii < tLines.size() - 1; ii++) {
+                    this.writeError("Duplicate position, superseded by a later line at the same position:", tLines.get(ii));
                 }
+
+                this.processLineOfVCFData(tSiteGroupIn.getLastLine(), true);
+
+            } else {
+
+                this.processLineOfVCFData(tSiteGroupIn.getLastLine(), false);
             }
+
+        } catch (ConverterException e) {
+            throw e;
+        } catch (Exception e) {
+            e.printStackTrace();
+            this.writeError("Could not process this line: " + e.getMessage(), tSiteGroupIn.getLastLine());
         }
 
     }
@@ -401,13 +572,17 @@ public class BZip2VCFConversionStrategy extends AbstractPileupConversionStrategy
 
             this.bSeenDoublePoundHeader = true;
 
-            this.tBufferedWriterVariantsOnly.write(tLineOfDataIn);
-            this.tBufferedWriterVariantsOnly.write(System.getProperty("line.separator"));
+            if (this.bWriteVariantsHeaders) {
+                this.tBufferedWriterVariantsOnly.write(tLineOfDataIn);
+                this.tBufferedWriterVariantsOnly.write(System.getProperty("line.separator"));
+            }
 
         } else if (tLineOfDataIn.startsWith("#")) {
 
-            this.tBufferedWriterVariantsOnly.write(tLineOfDataIn);
-            this.tBufferedWriterVariantsOnly.write(System.getProperty("line.separator"));
+            if (this.bWriteVariantsHeaders) {
+                this.tBufferedWriterVariantsOnly.write(tLineOfDataIn);
+                this.tBufferedWriterVariantsOnly.write(System.getProperty("line.separator"));
+            }
 
             List<String> tHeaderList = parseLine(tLineOfDataIn, tVCFListToFill, tSTokenizer);
 
@@ -422,7 +597,18 @@ public class BZip2VCFConversionStrategy extends AbstractPileupConversionStrategy
                 this.writeError(
                         "BZip2VCFConversionStrategy: processHeaders: this.sColumnNamesArray.length == 0; no individual or sample data in the VCF file",
                         tLineOfDataIn);
-                System.exit(1);
+                throw new ConverterException("Found no individual or sample data column names in " + this.tInputVCFFile);
+            }
+
+            // every site visits every sample in column order, so a pool smaller than the samples would evict on each lookup
+            if (this.tBAMReaderPool != null) {
+                int iActiveSamples = this.tBAMReaderPool.getActiveSampleCount(this.sColumnNamesArray);
+                if (iActiveSamples > this.tBAMReaderPool.getMaxOpenReaders()) {
+                    long lRequiredMB = iActiveSamples * VCFBAMReaderPool.ESTIMATED_BYTES_PER_READER / (1024L * 1024L);
+                    throw new ConverterException(this.tInputVCFFile.getName() + " has " + iActiveSamples
+                            + " sample(s) in the bam manifest but the bam reader pool holds " + this.tBAMReaderPool.getMaxOpenReaders()
+                            + "; raise --bam-pool-memory to at least " + lRequiredMB);
+                }
             }
 
             this.bSeenSinglePoundHeader = true;
@@ -450,64 +636,85 @@ public class BZip2VCFConversionStrategy extends AbstractPileupConversionStrategy
 
                 if (this.iVCFElementsPerLine == this.iVCFHeaderColumnCount) {
 
-                    this.tBAMQueryTool.setInputs(sChromosomeName, sStartPosition);
+                    SITES_COUNTER.increment();
+
+                    CLASSIFY_TIMER.start();
+                    try {
 
-                    this.tLDProcessor = this.getLineDataProcessor();
-                    this.tLDProcessor.setInputs(tParsedVCFLineList, iNumberOfFilePairs, this.tBAMQueryTool,
-                            tParsedVCFLineList.get(VCFLineDataProcessor.INT_POSITION_COLUMN_POSITION),
-                            tParsedVCFLineList.get(VCFLineDataProcessor.INT_POSITION_COLUMN_POSITION));
+                        this.tBAMQueryTool.setInputs(sChromosomeName, sStartPosition);
 
-                    this.tLDProcessor.loadParsedVCFDataIntoMap();
+                        this.tLDProcessor = this.getLineDataProcessor();
+                        this.tLDProcessor.setInputs(tParsedVCFLineList, iNumberOfFilePairs, this.tBAMQueryTool,
+                                tParsedVCFLineList.get(VCFLineDataProcessor.INT_POSITION_COLUMN_POSITION),
+                                tParsedVCFLineList.get(VCFLineDataProcessor.INT_POSITION_COLUMN_POSITION));
+
+                        if (this.tBAMReaderPool != null) {
+                            this.tLDProcessor.setColumnPileupSummaries(this.getColumnPileupSummaries(sChromosomeName, sStartPosition));
+                        }
+
+                        this.tLDProcessor.loadParsedVCFDataIntoMap();
+
+                    } finally {
+                        CLASSIFY_TIMER.stop();
+                    }
 
                     Iterator<VCFRecord> tRecordIter;
 
-                    for (int ii = 0; ii < sColumnNamesArray.length; ii++) {
+                    ENCODE_TIMER.start();
+                    try {
 
-                        List<VCFRecord> tRecordList = this.tLDProcessor.getVCFRecordListForColumn(ii);
+                        for (int ii = 0; ii < sColumnNamesArray.length; ii++) {
 
-                        tRecordIter = tRecordList.iterator();
+                            List<VCFRecord> tRecordList = this.tLDProcessor.getVCFRecordListForColumn(ii);
 
-                        this.tManager = this.checkOrCreateFiles(sChromosomeName, this.sColumnNamesArray[ii], this.tInputVCFFile);
+                            tRecordIter = tRecordList.iterator();
 
-                        while (tRecordIter.hasNext()) {
+                            this.tManager = this.checkOrCreateFiles(sChromosomeName, this.sColumnNamesArray[ii], this.tInputVCFFile);
 
-                            VCFRecord tRecord = (VCFRecord) tRecordIter.next();
+                            while (tRecordIter.hasNext()) {
 
-                            if (tRecord.isIndel()) {
-                                this.tManager.writeIndelData(tRecord);
+                                VCFRecord tRecord = (VCFRecord) tRecordIter.next();
 
-                                this.tBufferedWriterVariantsOnly.write(StringUtils.join(tParsedVCFLineList, "\t"));
-                                this.tBufferedWriterVariantsOnly.write(System.getProperty("line.separator"));
+                                if (tRecord.isIndel()) {
+                                    this.tManager.writeIndelData(tRecord);
 
-                            } else if (tRecord.isSNP() && bArePositionsEqualIn) {
-                                bSNPError = true;
-                                throw new Exception("SNP duplicate positions detected: " + StringUtils.join(tParsedVCFLineList, "\t"));
+                                    this.tBufferedWriterVariantsOnly.write(StringUtils.join(tParsedVCFLineList, "\t"));
+                                    this.tBufferedWriterVariantsOnly.write(System.getProperty("line.separator"));
 
-                            } else if (tRecord.isNoCall()) {
+                                } else if (tRecord.isSNP() && bArePositionsEqualIn) {
+                                    bSNPError = true;
+                                    throw new Exception("SNP duplicate positions detected: " + StringUtils.join(tParsedVCFLineList, "\t"));
 
-                                this.tManager.writeIndelData(tRecord);
+                                } else if (tRecord.isNoCall()) {
 
-                                this.tBufferedWriterVariantsOnly.write(StringUtils.join(tParsedVCFLineList, "\t"));
-                                this.tBufferedWriterVariantsOnly.write(System.getProperty("line.separator"));
-                            }
+                                    this.tManager.writeIndelData(tRecord);
 
-                            else if (tRecord.isSNP() && !bArePositionsEqualIn) {
+                                    this.tBufferedWriterVariantsOnly.write(StringUtils.join(tParsedVCFLineList, "\t"));
+                                    this.tBufferedWriterVariantsOnly.write(System.getProperty("line.separator"));
+                                }
 
-                                this.tManager.writeSNPData(tRecord);
+                                else if (tRecord.isSNP() && !bArePositionsEqualIn) {
 
-                                this.tBufferedWriterVariantsOnly.write(StringUtils.join(tParsedVCFLineList, "\t"));
-                                this.tBufferedWriterVariantsOnly.write(System.getProperty("line.separator"));
+                                    this.tManager.writeSNPData(tRecord);
 
-                            } else if (tRecord.hasNoReferenceData()) {
-                                this.tManager.writeNoReferenceData(tRecord);
-                            } else {
-                                this.tManager.writeGenomicData(tRecord);
-                            }
+                                    this.tBufferedWriterVariantsOnly.write(StringUtils.join(tParsedVCFLineList, "\t"));
+                                    this.tBufferedWriterVariantsOnly.write(System.getProperty("line.separator"));
+
+                                } else if (tRecord.hasNoReferenceData()) {
+                                    this.tManager.writeNoReferenceData(tRecord);
+                                } else {
+                                    this.tManager.writeGenomicData(tRecord);
+                                }
 
-                            this.collectMetrics(sChromosomeName + DASH + sColumnNamesArray[ii], tRecord.isSNP(), tRecord.isIndel(), true,
-                                    Long.parseLong(tRecord.getReaddepth()));
+                                this.collectMetrics(sChromosomeName + DASH + sColumnNamesArray[ii], tRecord.isSNP(), tRecord.isIndel(),
+                                        true, Long.parseLong(tRecord.getReaddepth()));
 
+                                RECORDS_COUNTER.increment();
+                            }
                         }
+
+                    } finally {
+                        ENCODE_TIMER.stop();
                     }
 
                     this.iMetricsGenomeLocationsConvertedCount++;
@@ -526,11 +733,26 @@ public class BZip2VCFConversionStrategy extends AbstractPileupConversionStrategy
             e.printStackTrace();
             if (bSNPError) {
                 System.out.println("Converter exiting from caught SNP duplicate position exception");
-                System.exit(1);
+                throw new ConverterException(e.getMessage(), e);
             }
         }
     }
 
+    private VCFPileupSummary[] getColumnPileupSummaries(String sChromosomeIn, String sPositionIn) {
+
+        VCFPileupSummary[] tSummaries = new VCFPileupSummary[this.sColumnNamesArray.length];
+
+        for (int ii = 0; ii < this.sColumnNamesArray.length; ii++) {
+            VCFBAMQueryTool tTool = this.tBAMReaderPool.getTool(this.sColumnNamesArray[ii]);
+            if (tTool != null) {
+                tTool.setInputs(sChromosomeIn, sPositionIn);
+                tSummaries[ii] = tTool.getPileupSummary();
+            }
+        }
+
+        return tSummaries;
+    }
+
     private int getElementsPerLineCount(List<String> tOutputList) {
         int iElementsPerLine = tOutputList.size();
         return iElementsPerLine;
@@ -563,6 +785,7 @@ public class BZip2VCFConversionStrategy extends AbstractPileupConversionStrategy
             tManager = VCFMasterDetailFileStreamManager.getInstance(sProspectName, 0, tVCFFileIn, this.tOutputDir, this.tConversionFormat);
             tManager.createFilesAndStreams2(sProspectName);
             this.tMapOfOutputFiles.put(sProspectName, tManager);
+            this.tCurrentContigManagers.put(sColumnName, tManager);
         } else {
             tManager = this.tMapOfOutputFiles.get(sProspectName);
         }
@@ -622,7 +845,7 @@ public class BZip2VCFConversionStrategy extends AbstractPileupConversionStrategy
         return sFiles;
     }
 
-    private List<String> parseLine(String sLineOfDataIn, List<String> tLineOfVCFDataIn, StrTokenizer tSTokenizerIn) throws Exception {
+    static List<String> parseLine(String sLineOfDataIn, List<String> tLineOfVCFDataIn, StrTokenizer tSTokenizerIn) throws Exception {
 
         List<String> tList = tLineOfVCFDataIn;
         tList.clear();
@@ -650,6 +873,12 @@ public class BZip2VCFConversionStrategy extends AbstractPileupConversionStrategy
 
             this.tErrorFile = new File(sErrorPathAndFile);
 
+            if (this.isResuming()) {
+                this.truncateForResume(this.tErrorFile, this.tCheckpoint.getErrorBytes());
+                this.tErrorWriter = new FileWriter(tErrorFile, true);
+                return;
+            }
+
             if (this.tErrorFile.exists()) {
                 this.tErrorFile.delete();
             }
@@ -696,34 +925,25 @@ public class BZip2VCFConversionStrategy extends AbstractPileupConversionStrategy
         }
     }
 
-    private void writePositionMap(Map<String, VCFMasterDetailFileStreamManager> tMapIn) {
+    private void writePositionMap(List<VCFShardCheckpoint> tShardsIn) {
         try {
-
-            Iterator tIter = tMapIn.entrySet().iterator();
-            VCFMasterDetailFileStreamManager tManager = null;
-            String sFirstPosition = null, sLastPosition = null;
-            File tFileName = null;
-            while (tIter.hasNext()) {
-                Map.Entry<String, VCFMasterDetailFileStreamManager> tEntry = (Map.Entry) tIter.next();
-                tManager = tEntry.getValue();
-                if (tManager != null) {
-                    sFirstPosition = tManager.getFirstPositionInFile();
-                    sLastPosition = tManager.getLastPositionInFile();
-                    tFileName = tManager.getMasterFile();
-                    this.tPositionMapFileWriter.write(tFileName.getName() + ":" + tEntry.getKey() + ":" + sFirstPosition + ":"
-                            + sLastPosition + System.getProperty("line.separator"));
-                }
-            }
-
+            BZip2VCFConversionStrategy.writePositionMapEntries(this.tPositionMapFileWriter, tShardsIn);
             this.tPositionMapFileWriter.flush();
         } catch (IOException e) {
             e.printStackTrace();
         }
     }
 
+    static void writePositionMapEntries(Writer tWriterIn, List<VCFShardCheckpoint> tShardsIn) throws IOException {
+        for (VCFShardCheckpoint tShard : tShardsIn) {
+            tWriterIn.write(tShard.getMasterFileName() + ":" + tShard.getShardKey() + ":" + tShard.getFirstPosition() + ":"
+                    + tShard.getLastPosition() + System.getProperty("line.separator"));
+        }
+    }
+
     private void writePositionMapHeader() {
         try {
-            this.tPositionMapFileWriter.write(this.VERSION_STRING + System.getProperty("line.separator"));
+            this.tPositionMapFileWriter.write(BZip2VCFConversionStrategy.VERSION_STRING + System.getProperty("line.separator"));
             this.tPositionMapFileWriter.flush();
         } catch (IOException e) {
             e.printStackTrace();
@@ -732,45 +952,48 @@ public class BZip2VCFConversionStrategy extends AbstractPileupConversionStrategy
 
     private void writeMetricsData(Map<String, VCFMetricsManager> tMapIn, String sVCFFileNameIn) {
         try {
+            BZip2VCFConversionStrategy.writeMetricsData(this.tMetricsFileWriter, tMapIn, sVCFFileNameIn);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
 
-            long iTotalFilePosition = 0;
-            long iTotalSNPFile = 0;
-            long iTotalIndelFile = 0;
-            long lTotalReadDepth = 0;
-            long lAvgTotalReadDepth = 0;
-            long lCounter = 0;
-            Iterator tIter = tMapIn.entrySet().iterator();
-            VCFMetricsManager tManager = null;
-
-            while (tIter.hasNext()) {
-                lCounter++;
-                Map.Entry<String, VCFMetricsManager> tEntry = (Map.Entry) tIter.next();
-                tManager = tEntry.getValue();
-                if (tManager != null) {
-                    this.tMetricsFileWriter.write(tEntry.getKey() + ":\tTotal Indels:" + tManager.getIndelCount() + "\tTotal SNPs: "
-                            + tManager.getSNPCount() + "\t\tTotal Positions: " + tManager.getTotalPositionsCount()
-                            + "\t\tAverage Read Depth:" + tManager.getAverageReadDepth() + System.getProperty("line.separator"));
-                    iTotalFilePosition = iTotalFilePosition + tManager.getTotalPositionsCount();
-                    iTotalSNPFile = iTotalSNPFile + tManager.getSNPCount();
-                    iTotalIndelFile = iTotalIndelFile + tManager.getIndelCount();
-                    lTotalReadDepth += tManager.getAverageReadDepth();
-                }
-            }
-
-            if (lCounter > 0) {
-                lAvgTotalReadDepth = lTotalReadDepth / lCounter;
-            } else {
-                lAvgTotalReadDepth = 0;
+    static void writeMetricsData(Writer tWriterIn, Map<String, VCFMetricsManager> tMapIn, String sVCFFileNameIn) throws IOException {
+        long iTotalFilePosition = 0;
+        long iTotalSNPFile = 0;
+        long iTotalIndelFile = 0;
+        long lTotalReadDepth = 0;
+        long lAvgTotalReadDepth = 0;
+        long lCounter = 0;
+        Iterator tIter = tMapIn.entrySet().iterator();
+        VCFMetricsManager tManager = null;
+
+        while (tIter.hasNext()) {
+            lCounter++;
+            Map.Entry<String, VCFMetricsManager> tEntry = (Map.Entry) tIter.next();
+            tManager = tEntry.getValue();
+            if (tManager != null) {
+                tWriterIn.write(tEntry.getKey() + ":\tTotal Indels:" + tManager.getIndelCount() + "\tTotal SNPs: "
+                        + tManager.getSNPCount() + "\t\tTotal Positions: " + tManager.getTotalPositionsCount()
+                        + "\t\tAverage Read Depth:" + tManager.getAverageReadDepth() + System.getProperty("line.separator"));
+                iTotalFilePosition = iTotalFilePosition + tManager.getTotalPositionsCount();
+                iTotalSNPFile = iTotalSNPFile + tManager.getSNPCount();
+                iTotalIndelFile = iTotalIndelFile + tManager.getIndelCount();
+                lTotalReadDepth += tManager.getAverageReadDepth();
             }
-            this.tMetricsFileWriter.write(System.getProperty("line.separator"));
-            this.tMetricsFileWriter.write("File: " + sVCFFileNameIn + "\tTotal Indels:" + iTotalIndelFile + "\tTotal SNPs: " + iTotalSNPFile
-                    + "\t\tTotal Positions: " + iTotalFilePosition + "\t\tTotal Average Read Depth: " + lAvgTotalReadDepth
-                    + System.getProperty("line.separator"));
+        }
 
-            this.tMetricsFileWriter.flush();
-        } catch (IOException e) {
-            e.printStackTrace();
+        if (lCounter > 0) {
+            lAvgTotalReadDepth = lTotalReadDepth / lCounter;
+        } else {
+            lAvgTotalReadDepth = 0;
         }
+        tWriterIn.write(System.getProperty("line.separator"));
+        tWriterIn.write("File: " + sVCFFileNameIn + "\tTotal Indels:" + iTotalIndelFile + "\tTotal SNPs: " + iTotalSNPFile
+                + "\t\tTotal Positions: " + iTotalFilePosition + "\t\tTotal Average Read Depth: " + lAvgTotalReadDepth
+                + System.getProperty("line.separator"));
+
+        tWriterIn.flush();
     }
 
     public long getPositionFromList(List<String> tListOfVCFElementsIn) {
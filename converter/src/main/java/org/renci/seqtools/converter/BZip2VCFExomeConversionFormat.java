@@ -3,7 +3,6 @@ package org.renci.seqtools.converter;
 import java.io.BufferedWriter;
 import java.io.DataOutputStream;
 import java.io.IOException;
-import java.nio.ByteBuffer;
 import java.util.List;
 
 import org.renci.seqtools.converter.genotypemap.GenotypeMap;
@@ -68,14 +67,6 @@ public class BZip2VCFExomeConversionFormat implements IConversionFormat {
 
             int iCurrentDetailPosition = this.tDetailOutputStream.size();
 
-            String tBasesAndQualityScoresAndIndelData = tRecordIn.getReadbases() + "\t" + tRecordIn.getReadqualityScores() + "|";
-
-            ByteBuffer tBuffer = null;
-            tBuffer = ByteBuffer.wrap(tBasesAndQualityScoresAndIndelData.getBytes());
-            byte[] tBArray = new byte[tBuffer.remaining()];
-
-            tBuffer.get(tBArray);
-
             this.tMasterOutputStream.writeLong(Long.parseLong(tRecordIn.getPosition()));
 
             this.tMasterOutputStream.writeByte(this.getGenotype(tRecordIn.getGenotype()));
@@ -85,7 +76,9 @@ public class BZip2VCFExomeConversionFormat implements IConversionFormat {
             this.tMasterOutputStream.writeInt(Integer.parseInt(tRecordIn.getReaddepth()));
             this.tMasterOutputStream.writeLong(iCurrentDetailPosition);
 
-            this.tDetailOutputStream.write(tBArray);
+            // an indel carries its alleles as read bases; a no-call has none, so its detail record takes the reference allele
+            this.tDetailOutputStream.writeUTF(tRecordIn.isNoCall() ? tRecordIn.getReferenceGenotype() : tRecordIn.getReadbases());
+            tRecordIn.getPileupSummary().write(this.tDetailOutputStream);
 
             this.tDetailOutputStream.flush();
             this.tMasterOutputStream.flush();
@@ -110,15 +103,6 @@ public class BZip2VCFExomeConversionFormat implements IConversionFormat {
 
             int iCurrentDetailPosition = this.tDetailOutputStream.size();
 
-            String tBasesAndQualityScoresAndIndelData = tRecordIn.getReferenceGenotype() + "\t" + tRecordIn.getReadbases() + "\t"
-                    + tRecordIn.getReadqualityScores() + "|";
-
-            ByteBuffer tBuffer = null;
-            tBuffer = ByteBuffer.wrap(tBasesAndQualityScoresAndIndelData.getBytes());
-            byte[] tBArray = new byte[tBuffer.remaining()];
-
-            tBuffer.get(tBArray);
-
             this.tMasterOutputStream.writeLong(Long.parseLong(tRecordIn.getPosition()));
 
             this.tMasterOutputStream.writeByte(this.getGenotype(tRecordIn.getGenotype()));
@@ -128,7 +112,8 @@ public class BZip2VCFExomeConversionFormat implements IConversionFormat {
             this.tMasterOutputStream.writeInt(Integer.parseInt(tRecordIn.getReaddepth()));
             this.tMasterOutputStream.writeLong(iCurrentDetailPosition);
 
-            this.tDetailOutputStream.write(tBArray);
+            this.tDetailOutputStream.writeUTF(tRecordIn.getReferenceGenotype());
+            tRecordIn.getPileupSummary().write(this.tDetailOutputStream);
 
             this.tDetailOutputStream.flush();
             this.tMasterOutputStream.flush();
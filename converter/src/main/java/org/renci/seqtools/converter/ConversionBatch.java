@@ -0,0 +1,285 @@
+package org.renci.seqtools.converter;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+import org.renci.seqtools.commons.metrics.ProgressReporter;
+
+public class ConversionBatch {
+
+    public static final String SUMMARY_FILE_NAME = "batch-summary.txt";
+
+    private static final String STATUS_OK = "OK";
+
+    private static final String STATUS_FAILED = "FAILED";
+
+    private static final String STATUS_SKIPPED = "SKIPPED";
+
+    private static final String[] VCF_SUFFIXES = { ".vcf.gz", ".vcf" };
+
+    private static final int BYTES_PER_MB = 1024 * 1024;
+
+    private File tBatchSource;
+
+    private File tOutputDir;
+
+    private boolean bIsGenome;
+
+    private boolean bIsTestMode;
+
+    private boolean bWriteMetrics;
+
+    private ConversionSettings tSettings;
+
+    private int iThreads;
+
+    private long lMemoryBudgetBytes;
+
+    private int iOpenFileBudget;
+
+    private List<ConversionJob> tJobs = new ArrayList<ConversionJob>();
+
+    private List<String> tSkippedLines = new ArrayList<String>();
+
+    private Set<String> tUsedOutputNames = new HashSet<String>();
+
+    private ConversionBatch(File tBatchSourceIn, File tOutputDirIn, boolean bIsGenomeIn, boolean bIsTestModeIn, boolean bWriteMetricsIn,
+            ConversionSettings tSettingsIn, int iThreadsIn, long lMemoryBudgetBytesIn, int iOpenFileBudgetIn) {
+        this.tBatchSource = tBatchSourceIn;
+        this.tOutputDir = tOutputDirIn;
+        this.bIsGenome = bIsGenomeIn;
+        this.bIsTestMode = bIsTestModeIn;
+        this.bWriteMetrics = bWriteMetricsIn;
+        this.tSettings = tSettingsIn;
+        this.iThreads = Math.max(1, iThreadsIn);
+        this.lMemoryBudgetBytes = Math.max(BYTES_PER_MB, lMemoryBudgetBytesIn);
+        this.iOpenFileBudget = Math.max(1, iOpenFileBudgetIn);
+    }
+
+    public static ConversionBatch getInstance(File tBatchSourceIn, File tOutputDirIn, boolean bIsGenomeIn, boolean bIsTestModeIn,
+            boolean bWriteMetricsIn, ConversionSettings tSettingsIn, int iThreadsIn, long lMemoryBudgetBytesIn, int iOpenFileBudgetIn) {
+        return new ConversionBatch(tBatchSourceIn, tOutputDirIn, bIsGenomeIn, bIsTestModeIn, bWriteMetricsIn, tSettingsIn, iThreadsIn,
+                lMemoryBudgetBytesIn, iOpenFileBudgetIn);
+    }
+
+    public boolean run() throws IOException {
+
+        if (this.tBatchSource.isDirectory()) {
+            this.findPairsInDirectory();
+        } else {
+            this.readPairsFromManifest();
+        }
+
+        // start the largest pairs first so a long tail job doesn't begin last
+        Collections.sort(this.tJobs, new Comparator<ConversionJob>() {
+            @Override
+            public int compare(ConversionJob tJob1, ConversionJob tJob2) {
+                return Long.compare(tJob2.getInputBytes(), tJob1.getInputBytes());
+            }
+        });
+
+        int iMemoryPermits = (int) Math.min(Integer.MAX_VALUE, this.lMemoryBudgetBytes / BYTES_PER_MB);
+        // not fair: a fair semaphore queues a small job behind a large one that is waiting for permits the small one could use
+        Semaphore tMemorySemaphore = new Semaphore(iMemoryPermits);
+        Semaphore tOpenFileSemaphore = new Semaphore(this.iOpenFileBudget);
+
+        System.out.println("\tConverter: Batch of " + this.tJobs.size() + " vcf/bam pairs on " + this.iThreads + " threads, "
+                + iMemoryPermits + "MB memory budget, " + this.iOpenFileBudget + " open file budget");
+
+        // jobs block on the budgets, so they run on plain threads rather than a fork/join pool
+        ExecutorService tExecutor = Executors.newFixedThreadPool(this.iThreads);
+
+        List<Future<ConversionJobResult>> tFutures = new ArrayList<Future<ConversionJobResult>>();
+        for (ConversionJob tJob : this.tJobs) {
+            tJob.setBudgets(tMemorySemaphore, iMemoryPermits, tOpenFileSemaphore, this.iOpenFileBudget);
+            tFutures.add(tExecutor.submit(tJob));
+        }
+
+        List<File> tVCFFiles = new ArrayList<File>();
+        for (ConversionJob tJob : this.tJobs) {
+            tVCFFiles.add(tJob.getVCFFile());
+        }
+        ProgressReporter tProgress = new ProgressReporter("converter-batch", tVCFFiles, Converter.PROGRESS_RECORD_COUNTER, System.err)
+                .start(this.tSettings.getProgressIntervalSeconds());
+
+        List<ConversionJobResult> tResults = new ArrayList<ConversionJobResult>();
+        try {
+            for (int ii = 0; ii < tFutures.size(); ii++) {
+                try {
+                    tResults.add(tFutures.get(ii).get());
+                } catch (ExecutionException e) {
+                    e.printStackTrace();
+                    ConversionJob tJob = this.tJobs.get(ii);
+                    tResults.add(ConversionJobResult.getInstance(tJob.getVCFFile(), tJob.getBAMFile(), null, false, 0,
+                            tJob.getInputBytes(), String.valueOf(e.getCause())));
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            tExecutor.shutdownNow();
+            throw new ConverterException("Interrupted while waiting for batch conversions", e);
+        } finally {
+            tProgress.close();
+        }
+
+        tExecutor.shutdown();
+
+        return this.writeSummary(tResults);
+    }
+
+    private void findPairsInDirectory() {
+
+        File[] tFiles = this.tBatchSource.listFiles();
+        if (tFiles == null) {
+            throw new ConverterException("Could not list the batch directory " + this.tBatchSource);
+        }
+
+        List<File> tSortedFiles = new ArrayList<File>();
+        Collections.addAll(tSortedFiles, tFiles);
+        Collections.sort(tSortedFiles);
+
+        for (File tFile : tSortedFiles) {
+            String sBaseName = ConversionBatch.getVCFBaseName(tFile.getName());
+            if (sBaseName == null || !tFile.isFile()) {
+                continue;
+            }
+            File tBAMFile = new File(this.tBatchSource, sBaseName + ".bam");
+            if (tBAMFile.isFile()) {
+                this.addJob(tFile, tBAMFile);
+            } else {
+                this.tSkippedLines.add(ConversionBatch.getSummaryLine(STATUS_SKIPPED, tFile, tBAMFile, null, 0, 0, "no matching bam"));
+            }
+        }
+    }
+
+    private void readPairsFromManifest() throws IOException {
+
+        File tBaseDir = this.tBatchSource.getAbsoluteFile().getParentFile();
+
+        BufferedReader tReader = new BufferedReader(new FileReader(this.tBatchSource));
+        try {
+            String sLine = null;
+            int iLineNumber = 0;
+            while ((sLine = tReader.readLine()) != null) {
+                iLineNumber++;
+                sLine = sLine.trim();
+                if (sLine.isEmpty() || sLine.startsWith("#")) {
+                    continue;
+                }
+                String[] sFields = sLine.split("\t");
+                if (sFields.length < 2) {
+                    throw new ConverterException("Malformed batch manifest line " + iLineNumber + " in "
+                            + this.tBatchSource.getAbsolutePath() + ", expected <vcf path>\\t<bam path>: " + sLine);
+                }
+                File tVCFFile = ConversionBatch.resolve(tBaseDir, sFields[0].trim());
+                File tBAMFile = ConversionBatch.resolve(tBaseDir, sFields[1].trim());
+                if (tVCFFile.isFile() && tBAMFile.isFile()) {
+                    this.addJob(tVCFFile, tBAMFile);
+                } else {
+                    this.tSkippedLines
+                            .add(ConversionBatch.getSummaryLine(STATUS_SKIPPED, tVCFFile, tBAMFile, null, 0, 0, "input file not found"));
+                }
+            }
+        } finally {
+            tReader.close();
+        }
+    }
+
+    private void addJob(File tVCFFileIn, File tBAMFileIn) {
+
+        // each pair gets its own directory so the per-sample streams of two jobs never collide
+        String sOutputName = ConversionBatch.getVCFBaseName(tVCFFileIn.getName());
+        if (sOutputName == null) {
+            sOutputName = tVCFFileIn.getName();
+        }
+        String sUniqueName = sOutputName;
+        for (int ii = 2; !this.tUsedOutputNames.add(sUniqueName); ii++) {
+            sUniqueName = sOutputName + "-" + ii;
+        }
+
+        this.tJobs.add(ConversionJob.getInstance(tVCFFileIn, tBAMFileIn, new File(this.tOutputDir, sUniqueName), this.bIsGenome,
+                this.bIsTestMode, this.bWriteMetrics, this.tSettings));
+    }
+
+    private boolean writeSummary(List<ConversionJobResult> tResultsIn) throws IOException {
+
+        int iSucceeded = 0;
+        int iFailed = 0;
+        long lInputBytes = 0;
+        long lJobMillis = 0;
+
+        File tSummaryFile = new File(this.tOutputDir, SUMMARY_FILE_NAME);
+        BufferedWriter tWriter = new BufferedWriter(new FileWriter(tSummaryFile));
+        try {
+            tWriter.write("#status\tvcf\tbam\toutput\telapsed_ms\tinput_bytes\tmessage");
+            tWriter.newLine();
+
+            for (ConversionJobResult tResult : tResultsIn) {
+                tWriter.write(ConversionBatch.getSummaryLine(tResult.isSucceeded() ? STATUS_OK : STATUS_FAILED, tResult.getVCFFile(),
+                        tResult.getBAMFile(), tResult.getOutputDir(), tResult.getElapsedMillis(), tResult.getInputBytes(),
+                        tResult.getMessage()));
+                tWriter.newLine();
+
+                if (tResult.isSucceeded()) {
+                    iSucceeded++;
+                } else {
+                    iFailed++;
+                }
+                lInputBytes += tResult.getInputBytes();
+                lJobMillis += tResult.getElapsedMillis();
+            }
+
+            for (String sSkippedLine : this.tSkippedLines) {
+                tWriter.write(sSkippedLine);
+                tWriter.newLine();
+            }
+
+            tWriter.write("#total\t" + tResultsIn.size() + "\tok\t" + iSucceeded + "\tfailed\t" + iFailed + "\tskipped\t"
+                    + this.tSkippedLines.size() + "\tinput_bytes\t" + lInputBytes + "\tjob_ms\t" + lJobMillis);
+            tWriter.newLine();
+        } finally {
+            tWriter.close();
+        }
+
+        System.out.println("\tConverter: Batch finished, " + iSucceeded + " ok, " + iFailed + " failed, " + this.tSkippedLines.size()
+                + " skipped; summary in " + tSummaryFile);
+
+        return iFailed == 0;
+    }
+
+    private static String getSummaryLine(String sStatusIn, File tVCFFileIn, File tBAMFileIn, File tOutputDirIn, long lElapsedMillisIn,
+            long lInputBytesIn, String sMessageIn) {
+        return sStatusIn + "\t" + tVCFFileIn + "\t" + tBAMFileIn + "\t" + (tOutputDirIn == null ? "-" : tOutputDirIn.toString()) + "\t"
+                + lElapsedMillisIn + "\t" + lInputBytesIn + "\t" + (sMessageIn == null ? "" : sMessageIn.replace('\t', ' ').replace('\n', ' '));
+    }
+
+    private static String getVCFBaseName(String sFileNameIn) {
+        for (String sSuffix : VCF_SUFFIXES) {
+            if (sFileNameIn.toLowerCase().endsWith(sSuffix)) {
+                return sFileNameIn.substring(0, sFileNameIn.length() - sSuffix.length());
+            }
+        }
+        return null;
+    }
+
+    private static File resolve(File tBaseDirIn, String sPathIn) {
+        File tFile = new File(sPathIn);
+        return tFile.isAbsolute() ? tFile : new File(tBaseDirIn, sPathIn);
+    }
+
+}
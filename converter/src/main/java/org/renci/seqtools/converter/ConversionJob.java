@@ -0,0 +1,191 @@
+package org.renci.seqtools.converter;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Semaphore;
+
+import org.renci.seqtools.commons.StreamUtils;
+
+public class ConversionJob implements Callable<ConversionJobResult> {
+
+    private static final long BASE_JOB_MEMORY_BYTES = 64L * 1024L * 1024L;
+
+    private static final long SINGLE_BAM_READER_BYTES = VCFBAMReaderPool.ESTIMATED_BYTES_PER_READER;
+
+    private static final long SORT_BYTES_PER_RECORD = 512L;
+
+    private static final long BGZF_BLOCK_BYTES = 64L * 1024L;
+
+    private static final int BASE_JOB_OPEN_FILES = 8;
+
+    private static final int BYTES_PER_MB = 1024 * 1024;
+
+    private File tVCFFile;
+
+    private File tBAMFile;
+
+    private File tOutputDir;
+
+    private boolean bIsGenome;
+
+    private boolean bIsTestMode;
+
+    private boolean bWriteMetrics;
+
+    private ConversionSettings tSettings;
+
+    private Semaphore tMemorySemaphore;
+
+    private Semaphore tOpenFileSemaphore;
+
+    private int iMemoryPermits;
+
+    private int iOpenFilePermits;
+
+    private ConversionJob(File tVCFFileIn, File tBAMFileIn, File tOutputDirIn, boolean bIsGenomeIn, boolean bIsTestModeIn,
+            boolean bWriteMetricsIn, ConversionSettings tSettingsIn) {
+        this.tVCFFile = tVCFFileIn;
+        this.tBAMFile = tBAMFileIn;
+        this.tOutputDir = tOutputDirIn;
+        this.bIsGenome = bIsGenomeIn;
+        this.bIsTestMode = bIsTestModeIn;
+        this.bWriteMetrics = bWriteMetricsIn;
+        this.tSettings = tSettingsIn;
+    }
+
+    public static ConversionJob getInstance(File tVCFFileIn, File tBAMFileIn, File tOutputDirIn, boolean bIsGenomeIn,
+            boolean bIsTestModeIn, boolean bWriteMetricsIn, ConversionSettings tSettingsIn) {
+        return new ConversionJob(tVCFFileIn, tBAMFileIn, tOutputDirIn, bIsGenomeIn, bIsTestModeIn, bWriteMetricsIn, tSettingsIn);
+    }
+
+    public void setBudgets(Semaphore tMemorySemaphoreIn, int iMaxMemoryPermitsIn, Semaphore tOpenFileSemaphoreIn,
+            int iMaxOpenFilePermitsIn) {
+        this.tMemorySemaphore = tMemorySemaphoreIn;
+        this.tOpenFileSemaphore = tOpenFileSemaphoreIn;
+        this.iMemoryPermits = (int) Math.min(iMaxMemoryPermitsIn, Math.max(1L, this.getEstimatedMemoryBytes() / BYTES_PER_MB));
+        this.iOpenFilePermits = Math.min(iMaxOpenFilePermitsIn, this.getEstimatedOpenFiles());
+    }
+
+    public File getVCFFile() {
+        return this.tVCFFile;
+    }
+
+    public File getBAMFile() {
+        return this.tBAMFile;
+    }
+
+    public long getInputBytes() {
+        return this.tVCFFile.length() + this.tBAMFile.length();
+    }
+
+    public long getEstimatedMemoryBytes() {
+
+        long lBytes = BASE_JOB_MEMORY_BYTES;
+
+        if (this.tSettings.isSortInput()) {
+            lBytes += this.tSettings.getSortMaxRecordsInRam() * SORT_BYTES_PER_RECORD;
+        }
+
+        lBytes += this.tSettings.getBAMManifestFile() != null ? this.tSettings.getBAMReaderPoolMemoryBytes() : SINGLE_BAM_READER_BYTES;
+        lBytes += this.tSettings.getReadCacheMemoryBytes();
+
+        if (this.tSettings.getBAMDecodeThreads() > 0) {
+            // compressed and inflated copies of every block in flight
+            lBytes += 2L * this.tSettings.getBAMReadAheadBlocks() * BGZF_BLOCK_BYTES;
+        }
+
+        return lBytes;
+    }
+
+    public int getEstimatedOpenFiles() {
+        // master, detail and text-mode streams per sample; shards close when their contig completes
+        return BASE_JOB_OPEN_FILES + 3 * this.countSampleColumns();
+    }
+
+    @Override
+    public ConversionJobResult call() {
+
+        long lStart = System.currentTimeMillis();
+
+        boolean bAcquiredMemory = false;
+        boolean bAcquiredOpenFiles = false;
+
+        try {
+
+            if (this.tMemorySemaphore != null) {
+                this.tMemorySemaphore.acquire(this.iMemoryPermits);
+                bAcquiredMemory = true;
+            }
+            if (this.tOpenFileSemaphore != null) {
+                this.tOpenFileSemaphore.acquire(this.iOpenFilePermits);
+                bAcquiredOpenFiles = true;
+            }
+
+            if (!this.tOutputDir.isDirectory() && !this.tOutputDir.mkdirs()) {
+                throw new ConverterException("Could not create the output directory " + this.tOutputDir);
+            }
+
+            System.out.println("\tConverter: Starting " + this.tVCFFile.getName() + " -> " + this.tOutputDir);
+
+            GenomeType tGenomeType = this.bIsGenome ? GenomeType.WHOLE_GENOME : GenomeType.EXOMIC_GENOME;
+            IConversionFormat tFormat = ConversionFormatFactory.makeVCFFormat(tGenomeType, this.bIsTestMode);
+
+            File tMetricsFile = this.bWriteMetrics ? new File(this.tOutputDir, this.tVCFFile.getName() + ".metrics") : null;
+            File tVariantsFile = new File(this.tOutputDir, this.tVCFFile.getName() + ".variants-only.gz");
+
+            IConversionStrategy tStrategy = ConversionStrategyFactory.makeStrategy(tFormat, ConversionType.VCF, tGenomeType, 1,
+                    this.tVCFFile, this.tBAMFile, this.tOutputDir, tMetricsFile, tVariantsFile, this.tSettings);
+            tStrategy.convert();
+
+            return ConversionJobResult.getInstance(this.tVCFFile, this.tBAMFile, this.tOutputDir, true,
+                    System.currentTimeMillis() - lStart, this.getInputBytes(), "");
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return ConversionJobResult.getInstance(this.tVCFFile, this.tBAMFile, this.tOutputDir, false,
+                    System.currentTimeMillis() - lStart, this.getInputBytes(), "interrupted");
+        } catch (Exception e) {
+            e.printStackTrace();
+            return ConversionJobResult.getInstance(this.tVCFFile, this.tBAMFile, this.tOutputDir, false,
+                    System.currentTimeMillis() - lStart, this.getInputBytes(), String.valueOf(e.getMessage()));
+        } finally {
+            if (bAcquiredOpenFiles) {
+                this.tOpenFileSemaphore.release(this.iOpenFilePermits);
+            }
+            if (bAcquiredMemory) {
+                this.tMemorySemaphore.release(this.iMemoryPermits);
+            }
+        }
+    }
+
+    private int countSampleColumns() {
+
+        BufferedReader tReader = null;
+        try {
+            tReader = StreamUtils.newBufferedReader(this.tVCFFile);
+
+            String sLine = null;
+            while ((sLine = tReader.readLine()) != null && sLine.startsWith("#")) {
+                if (sLine.startsWith("#CHROM")) {
+                    int iColumns = sLine.split("\t").length;
+                    return Math.max(0, iColumns - VCFLineDataProcessor.INT_VCF_DATA_COLUMN_POSITION);
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        } finally {
+            if (tReader != null) {
+                try {
+                    tReader.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+
+        return 1;
+    }
+
+}
@@ -0,0 +1,65 @@
+package org.renci.seqtools.converter;
+
+import java.io.File;
+
+public class ConversionJobResult {
+
+    private File tVCFFile;
+
+    private File tBAMFile;
+
+    private File tOutputDir;
+
+    private boolean bSucceeded;
+
+    private long lElapsedMillis;
+
+    private long lInputBytes;
+
+    private String sMessage;
+
+    private ConversionJobResult(File tVCFFileIn, File tBAMFileIn, File tOutputDirIn, boolean bSucceededIn, long lElapsedMillisIn,
+            long lInputBytesIn, String sMessageIn) {
+        this.tVCFFile = tVCFFileIn;
+        this.tBAMFile = tBAMFileIn;
+        this.tOutputDir = tOutputDirIn;
+        this.bSucceeded = bSucceededIn;
+        this.lElapsedMillis = lElapsedMillisIn;
+        this.lInputBytes = lInputBytesIn;
+        this.sMessage = sMessageIn;
+    }
+
+    public static ConversionJobResult getInstance(File tVCFFileIn, File tBAMFileIn, File tOutputDirIn, boolean bSucceededIn,
+            long lElapsedMillisIn, long lInputBytesIn, String sMessageIn) {
+        return new ConversionJobResult(tVCFFileIn, tBAMFileIn, tOutputDirIn, bSucceededIn, lElapsedMillisIn, lInputBytesIn, sMessageIn);
+    }
+
+    public File getVCFFile() {
+        return this.tVCFFile;
+    }
+
+    public File getBAMFile() {
+        return this.tBAMFile;
+    }
+
+    public File getOutputDir() {
+        return this.tOutputDir;
+    }
+
+    public boolean isSucceeded() {
+        return this.bSucceeded;
+    }
+
+    public long getElapsedMillis() {
+        return this.lElapsedMillis;
+    }
+
+    public long getInputBytes() {
+        return this.lInputBytes;
+    }
+
+    public String getMessage() {
+        return this.sMessage;
+    }
+
+}
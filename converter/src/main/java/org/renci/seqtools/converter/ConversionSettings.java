@@ -0,0 +1,179 @@
+package org.renci.seqtools.converter;
+
+import java.io.File;
+
+public class ConversionSettings {
+
+    public static final int DEFAULT_SORT_MAX_RECORDS_IN_RAM = 500000;
+
+    public static final long DEFAULT_BAM_READER_POOL_MEMORY_BYTES = 1024L * 1024L * 1024L;
+
+    public static final int DEFAULT_BAM_READ_AHEAD_BLOCKS = 64;
+
+    private boolean bSortInput = false;
+
+    private int iSortMaxRecordsInRam = DEFAULT_SORT_MAX_RECORDS_IN_RAM;
+
+    private File tTempDir;
+
+    private File tBAMManifestFile;
+
+    private long lBAMReaderPoolMemoryBytes = DEFAULT_BAM_READER_POOL_MEMORY_BYTES;
+
+    private int iBAMDecodeThreads = 0;
+
+    private long lReadCacheMemoryBytes = 0;
+
+    private int iBAMReadAheadBlocks = DEFAULT_BAM_READ_AHEAD_BLOCKS;
+
+    private boolean bResume = false;
+
+    private File tDeltaVCFFile;
+
+    private VCFBAMQueryToolCache tBAMQueryToolCache;
+
+    private VCFReadWindowCache tSharedReadCache;
+
+    private IVCFInputSource tInputSource;
+
+    private long lProgressIntervalSeconds = 0;
+
+    private ConversionSettings() {
+    }
+
+    public static ConversionSettings getInstance() {
+        return new ConversionSettings();
+    }
+
+    public ConversionSettings copy() {
+        ConversionSettings tCopy = new ConversionSettings();
+        tCopy.bSortInput = this.bSortInput;
+        tCopy.iSortMaxRecordsInRam = this.iSortMaxRecordsInRam;
+        tCopy.tTempDir = this.tTempDir;
+        tCopy.tBAMManifestFile = this.tBAMManifestFile;
+        tCopy.lBAMReaderPoolMemoryBytes = this.lBAMReaderPoolMemoryBytes;
+        tCopy.iBAMDecodeThreads = this.iBAMDecodeThreads;
+        tCopy.lReadCacheMemoryBytes = this.lReadCacheMemoryBytes;
+        tCopy.iBAMReadAheadBlocks = this.iBAMReadAheadBlocks;
+        tCopy.bResume = this.bResume;
+        tCopy.tDeltaVCFFile = this.tDeltaVCFFile;
+        tCopy.tBAMQueryToolCache = this.tBAMQueryToolCache;
+        tCopy.tSharedReadCache = this.tSharedReadCache;
+        tCopy.tInputSource = this.tInputSource;
+        tCopy.lProgressIntervalSeconds = this.lProgressIntervalSeconds;
+        return tCopy;
+    }
+
+    public boolean isSortInput() {
+        return this.bSortInput;
+    }
+
+    public void setSortInput(boolean bSortInputIn) {
+        this.bSortInput = bSortInputIn;
+    }
+
+    public int getSortMaxRecordsInRam() {
+        return this.iSortMaxRecordsInRam;
+    }
+
+    public void setSortMaxRecordsInRam(int iSortMaxRecordsInRamIn) {
+        this.iSortMaxRecordsInRam = iSortMaxRecordsInRamIn;
+    }
+
+    public File getTempDir() {
+        return this.tTempDir;
+    }
+
+    public void setTempDir(File tTempDirIn) {
+        this.tTempDir = tTempDirIn;
+    }
+
+    public File getBAMManifestFile() {
+        return this.tBAMManifestFile;
+    }
+
+    public void setBAMManifestFile(File tBAMManifestFileIn) {
+        this.tBAMManifestFile = tBAMManifestFileIn;
+    }
+
+    public long getBAMReaderPoolMemoryBytes() {
+        return this.lBAMReaderPoolMemoryBytes;
+    }
+
+    public void setBAMReaderPoolMemoryBytes(long lBAMReaderPoolMemoryBytesIn) {
+        this.lBAMReaderPoolMemoryBytes = lBAMReaderPoolMemoryBytesIn;
+    }
+
+    public int getBAMDecodeThreads() {
+        return this.iBAMDecodeThreads;
+    }
+
+    public void setBAMDecodeThreads(int iBAMDecodeThreadsIn) {
+        this.iBAMDecodeThreads = iBAMDecodeThreadsIn;
+    }
+
+    public int getBAMReadAheadBlocks() {
+        return this.iBAMReadAheadBlocks;
+    }
+
+    public void setBAMReadAheadBlocks(int iBAMReadAheadBlocksIn) {
+        this.iBAMReadAheadBlocks = iBAMReadAheadBlocksIn;
+    }
+
+    public long getReadCacheMemoryBytes() {
+        return this.lReadCacheMemoryBytes;
+    }
+
+    public void setReadCacheMemoryBytes(long lReadCacheMemoryBytesIn) {
+        this.lReadCacheMemoryBytes = lReadCacheMemoryBytesIn;
+    }
+
+    public boolean isResume() {
+        return this.bResume;
+    }
+
+    public void setResume(boolean bResumeIn) {
+        this.bResume = bResumeIn;
+    }
+
+    public File getDeltaVCFFile() {
+        return this.tDeltaVCFFile;
+    }
+
+    public void setDeltaVCFFile(File tDeltaVCFFileIn) {
+        this.tDeltaVCFFile = tDeltaVCFFileIn;
+    }
+
+    public VCFBAMQueryToolCache getBAMQueryToolCache() {
+        return this.tBAMQueryToolCache;
+    }
+
+    public void setBAMQueryToolCache(VCFBAMQueryToolCache tBAMQueryToolCacheIn) {
+        this.tBAMQueryToolCache = tBAMQueryToolCacheIn;
+    }
+
+    public VCFReadWindowCache getSharedReadCache() {
+        return this.tSharedReadCache;
+    }
+
+    public void setSharedReadCache(VCFReadWindowCache tSharedReadCacheIn) {
+        this.tSharedReadCache = tSharedReadCacheIn;
+    }
+
+    public IVCFInputSource getInputSource() {
+        return this.tInputSource;
+    }
+
+    public void setInputSource(IVCFInputSource tInputSourceIn) {
+        this.tInputSource = tInputSourceIn;
+    }
+
+    public long getProgressIntervalSeconds() {
+        return this.lProgressIntervalSeconds;
+    }
+
+    public void setProgressIntervalSeconds(long lProgressIntervalSecondsIn) {
+        this.lProgressIntervalSeconds = lProgressIntervalSecondsIn;
+    }
+
+}
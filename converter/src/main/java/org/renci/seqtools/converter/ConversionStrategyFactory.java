@@ -9,18 +9,28 @@ public class ConversionStrategyFactory {
 
     public static IConversionStrategy makeStrategy(IConversionFormat tFormatIn, ConversionType tConversionTypeIn, GenomeType tGenomeTypeIn,
             int iFileNumberIn, File tVCFOrPileupFileIn, File tBAMFileIn, File tOutputDirIn, File tMetricsFileIn, File tVariantOutVCFFile) {
+        return ConversionStrategyFactory.makeStrategy(tFormatIn, tConversionTypeIn, tGenomeTypeIn, iFileNumberIn, tVCFOrPileupFileIn,
+                tBAMFileIn, tOutputDirIn, tMetricsFileIn, tVariantOutVCFFile, ConversionSettings.getInstance());
+    }
+
+    public static IConversionStrategy makeStrategy(IConversionFormat tFormatIn, ConversionType tConversionTypeIn, GenomeType tGenomeTypeIn,
+            int iFileNumberIn, File tVCFOrPileupFileIn, File tBAMFileIn, File tOutputDirIn, File tMetricsFileIn, File tVariantOutVCFFile,
+            ConversionSettings tSettingsIn) {
         IConversionStrategy tStrategy = null;
 
         if (tConversionTypeIn == ConversionType.PILEUP) {
             tStrategy = new BZip2PileupConversionStrategy(tFormatIn, tVCFOrPileupFileIn, String.valueOf(iFileNumberIn), tGenomeTypeIn);
+        } else if (tConversionTypeIn == ConversionType.VCF && tSettingsIn.getDeltaVCFFile() != null) {
+            tStrategy = new VCFDeltaConversionStrategy(tFormatIn, tVCFOrPileupFileIn, tSettingsIn.getDeltaVCFFile(), tBAMFileIn,
+                    tOutputDirIn, tGenomeTypeIn, tMetricsFileIn, tSettingsIn);
         } else if (tConversionTypeIn == ConversionType.VCF) {
             if (tMetricsFileIn == null) {
                 File tBlankMetricsFile = null;
                 tStrategy = new BZip2VCFConversionStrategy(tFormatIn, tVCFOrPileupFileIn, tBAMFileIn, tOutputDirIn,
-                        String.valueOf(iFileNumberIn), tGenomeTypeIn, tBlankMetricsFile, tVariantOutVCFFile);
+                        String.valueOf(iFileNumberIn), tGenomeTypeIn, tBlankMetricsFile, tVariantOutVCFFile, tSettingsIn);
             } else {
                 tStrategy = new BZip2VCFConversionStrategy(tFormatIn, tVCFOrPileupFileIn, tBAMFileIn, tOutputDirIn,
-                        String.valueOf(iFileNumberIn), tGenomeTypeIn, tMetricsFileIn, tVariantOutVCFFile);
+                        String.valueOf(iFileNumberIn), tGenomeTypeIn, tMetricsFileIn, tVariantOutVCFFile, tSettingsIn);
             }
         } else {
             tStrategy = new BZip2PileupConversionStrategy(tFormatIn, tVCFOrPileupFileIn, String.valueOf(iFileNumberIn), tGenomeTypeIn);
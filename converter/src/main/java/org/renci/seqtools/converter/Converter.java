@@ -1,6 +1,9 @@
 package org.renci.seqtools.converter;
 
+import java.io.BufferedReader;
 import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ThreadPoolExecutor;
@@ -14,11 +17,20 @@ import org.apache.commons.cli.OptionGroup;
 import org.apache.commons.cli.Options;
 import org.apache.commons.cli.ParseException;
 import org.apache.commons.cli.PosixParser;
+import org.renci.seqtools.commons.StreamUtils;
+import org.renci.seqtools.commons.metrics.MetricsRegistry;
+import org.renci.seqtools.commons.metrics.ProgressReporter;
 
 public class Converter {
 
     private static final String ERROR_MESSAGE_NO_FILES_FOUND = "Could not find the input files: ";
 
+    private static final int DEFAULT_BATCH_OPEN_FILES = 512;
+
+    private static final String STDIN_VCF_NAME = "stdin.vcf";
+
+    static final String PROGRESS_RECORD_COUNTER = "converter.sites";
+
     private static File tVCFFile;
 
     private static File tBAMFile;
@@ -45,7 +57,8 @@ public class Converter {
         OptionGroup tOGroup = new OptionGroup();
 
         tOptions.addOption("t", "test", false, "output a text-based consensus file for verifying output");
-        tOptions.addOption("v", "vcf", true, "vcf file name and path");
+        tOptions.addOption("v", "vcf", true, "vcf file name and path, or - to read it from stdin (outputs are then named after "
+                + STDIN_VCF_NAME + ")");
         tOptions.addOption("b", "bam", true, "bam file name and path");
 
         Option tOutputOption = new Option("o", true, "output directory");
@@ -62,6 +75,37 @@ public class Converter {
         Option tMetricsFileOption = new Option("m", "metrics", false, "generate metrics file");
         tOptions.addOption(tMetricsFileOption);
 
+        tOptions.addOption("s", "sort", false, "sort vcf records into the bam sequence dictionary order before converting");
+        tOptions.addOption(null, "sort-max-records", true,
+                "vcf records held in memory per sorted run before spilling to a temp file (default "
+                        + ConversionSettings.DEFAULT_SORT_MAX_RECORDS_IN_RAM + ")");
+        tOptions.addOption(null, "tmp-dir", true, "directory for temporary files (default: the output directory)");
+        tOptions.addOption(null, "bam-manifest", true,
+                "tab-separated file of <sample>\t<bam path>; samples not listed use the -b bam");
+        tOptions.addOption(null, "bam-pool-memory", true, "memory budget in MB for open per-sample bam readers (default "
+                + (ConversionSettings.DEFAULT_BAM_READER_POOL_MEMORY_BYTES / (1024L * 1024L)) + ")");
+        tOptions.addOption(null, "bam-threads", true,
+                "threads for inflating bam bgzf blocks, decoding records on a separate thread (default 0: read on the conversion thread)");
+        tOptions.addOption(null, "bam-read-ahead", true, "bgzf blocks to inflate ahead of the bam cursor (default "
+                + ConversionSettings.DEFAULT_BAM_READ_AHEAD_BLOCKS + ")");
+        tOptions.addOption(null, "read-cache-memory", true,
+                "memory budget in MB for decoded bam read windows shared across samples and sites (default 0: no cache)");
+        tOptions.addOption(null, "resume", false,
+                "skip contigs whose shards an earlier run of this conversion completed and checksummed, redoing only the rest");
+        tOptions.addOption(null, "delta", true,
+                "vcf of new or re-called records to merge into an existing conversion of -v in the output directory,"
+                        + " rebuilding only the contig/sample shards it touches");
+        tOptions.addOption(null, "batch", true,
+                "directory of <name>.vcf[.gz]/<name>.bam pairs, or a tab-separated manifest of <vcf path>\t<bam path>, to convert together");
+        tOptions.addOption(null, "batch-threads", true, "concurrent conversions in batch mode (default: available processors)");
+        tOptions.addOption(null, "batch-memory", true, "memory budget in MB shared by batch conversions (default 3/4 of the max heap)");
+        tOptions.addOption(null, "batch-open-files", true, "open file budget shared by batch conversions (default "
+                + DEFAULT_BATCH_OPEN_FILES + ")");
+        tOptions.addOption(null, "progress-interval", true,
+                "print percent done, records/s, MB/s and the ETA to stderr every this many seconds (default 0: off)");
+        tOptions.addOption(null, "run-report", true,
+                "write a json report of per-stage timings, record and byte counts and queue depths to this file at exit");
+
         tOGroup.setRequired(true);
         tOptions.addOptionGroup(tOGroup);
 
@@ -70,6 +114,11 @@ public class Converter {
             CommandLineParser tParser = new PosixParser();
             CommandLine tCommandLine = tParser.parse(tOptions, args);
 
+            MetricsRegistry.getInstance().registerMBean();
+            if (tCommandLine.hasOption("run-report")) {
+                MetricsRegistry.getInstance().writeReportOnExit("converter", new File(tCommandLine.getOptionValue("run-report").trim()));
+            }
+
             if (tCommandLine.hasOption("o")) {
                 String sOutputDirectory = tCommandLine.getOptionValue("o");
                 if (!Converter.isValidOutputDirectory(sOutputDirectory)) {
@@ -81,6 +130,14 @@ public class Converter {
 
             if (tCommandLine.getOptions().length == 0) {
                 tHelpFormatter.printHelp("converter", getHelpHeader(), tOptions, getHelpFooter());
+            } else if (tCommandLine.hasOption("batch") && (tCommandLine.hasOption("x") || tCommandLine.hasOption("g"))) {
+
+                System.out.println("starting batch...");
+
+                if (!startBatch(tCommandLine)) {
+                    System.exit(1);
+                }
+
             } else if ((tCommandLine.hasOption("v") && tCommandLine.hasOption("b") && tCommandLine.hasOption("x"))
                     || (tCommandLine.hasOption("v") && tCommandLine.hasOption("b") && tCommandLine.hasOption("g"))) {
 
@@ -133,9 +190,21 @@ public class Converter {
 
         ConversionType tCType = getConversionTypeForOptions(tCommandLine);
 
+        ConversionSettings tSettings = Converter.getSettingsForOptions(tCommandLine);
+
         if (Converter.doFilesExist(sVCFFilePath, sBAMFilePath)) {
 
-            Converter.tVCFFile = Converter.getVCFFile(sVCFFilePath);
+            if (StreamUtils.isStandardStream(sVCFFilePath)) {
+                Converter.tVCFFile = Converter.getVCFFile(STDIN_VCF_NAME);
+                tSettings.setInputSource(new IVCFInputSource() {
+                    @Override
+                    public BufferedReader openReader() throws IOException {
+                        return StreamUtils.newBufferedReader(new File(StreamUtils.STANDARD_STREAM));
+                    }
+                });
+            } else {
+                Converter.tVCFFile = Converter.getVCFFile(sVCFFilePath);
+            }
             Converter.tBAMFile = Converter.getBAMFile(sBAMFilePath);
 
             if (tCommandLine.hasOption("m")) {
@@ -146,8 +215,14 @@ public class Converter {
             Converter.tVariantsOnlyVCFOutputFile = Converter.getVariantsVCFOutputFile(Converter.tOutputDir.getCanonicalPath(),
                     Converter.tVCFFile.getName());
 
-            Converter.runLoop(Converter.tVCFFile, Converter.tBAMFile, Converter.tOutputDir, bIsGenomeOption, bHasTestOption, tCType,
-                    tThreadPoolExecutor, Converter.tMetricsFile, Converter.tVariantsOnlyVCFOutputFile);
+            ProgressReporter tProgress = new ProgressReporter("converter", Collections.singletonList(new File(sVCFFilePath)),
+                    PROGRESS_RECORD_COUNTER, System.err).start(tSettings.getProgressIntervalSeconds());
+            try {
+                Converter.runLoop(Converter.tVCFFile, Converter.tBAMFile, Converter.tOutputDir, bIsGenomeOption, bHasTestOption, tCType,
+                        tThreadPoolExecutor, Converter.tMetricsFile, Converter.tVariantsOnlyVCFOutputFile, tSettings);
+            } finally {
+                tProgress.close();
+            }
         } else {
             String msg = ERROR_MESSAGE_NO_FILES_FOUND + " " + sVCFFilePath + " " + sBAMFilePath;
             System.err.println(msg);
@@ -156,6 +231,36 @@ public class Converter {
 
     }
 
+    private static boolean startBatch(CommandLine tCommandLine) throws Exception {
+
+        File tBatchSource = new File(tCommandLine.getOptionValue("batch").trim());
+        if (!tBatchSource.exists()) {
+            System.err.println(ERROR_MESSAGE_NO_FILES_FOUND + " " + tBatchSource);
+            return false;
+        }
+
+        int iThreads = Runtime.getRuntime().availableProcessors();
+        if (tCommandLine.hasOption("batch-threads")) {
+            iThreads = Integer.parseInt(tCommandLine.getOptionValue("batch-threads").trim());
+        }
+
+        long lMemoryBudgetBytes = Runtime.getRuntime().maxMemory() / 4L * 3L;
+        if (tCommandLine.hasOption("batch-memory")) {
+            lMemoryBudgetBytes = Long.parseLong(tCommandLine.getOptionValue("batch-memory").trim()) * 1024L * 1024L;
+        }
+
+        int iOpenFileBudget = DEFAULT_BATCH_OPEN_FILES;
+        if (tCommandLine.hasOption("batch-open-files")) {
+            iOpenFileBudget = Integer.parseInt(tCommandLine.getOptionValue("batch-open-files").trim());
+        }
+
+        ConversionBatch tBatch = ConversionBatch.getInstance(tBatchSource, Converter.tOutputDir, tCommandLine.hasOption("g"),
+                tCommandLine.hasOption("t"), tCommandLine.hasOption("m"), Converter.getSettingsForOptions(tCommandLine), iThreads,
+                lMemoryBudgetBytes, iOpenFileBudget);
+
+        return tBatch.run();
+    }
+
     private static File getMetricsFile(String sOutputDir, String sVCFFileNameIn) throws Exception {
         return new File(sOutputDir, sVCFFileNameIn + ".metrics");
     }
@@ -165,7 +270,8 @@ public class Converter {
     }
 
     private static void runLoop(File tVCFFileIn, File tBAMFileIn, File tOutputDirIn, boolean bIsGenomeOption, boolean bHasTestOption,
-            ConversionType tCTypeIn, ThreadPoolExecutor tExecutor, File tMetricsFileIn, File tVariantsVCFOutFileIn) {
+            ConversionType tCTypeIn, ThreadPoolExecutor tExecutor, File tMetricsFileIn, File tVariantsVCFOutFileIn,
+            ConversionSettings tSettingsIn) {
 
         IConversionFormat tFormat = null;
         if (tCTypeIn == ConversionType.PILEUP && bIsGenomeOption) {
@@ -182,15 +288,15 @@ public class Converter {
 
         if (bIsGenomeOption) {
             tStrategy = ConversionStrategyFactory.makeStrategy(tFormat, tCTypeIn, GenomeType.WHOLE_GENOME, 1, tVCFFileIn, tBAMFileIn,
-                    tOutputDirIn, tMetricsFileIn, tVariantsVCFOutFileIn);
+                    tOutputDirIn, tMetricsFileIn, tVariantsVCFOutFileIn, tSettingsIn);
         } else {
             tStrategy = ConversionStrategyFactory.makeStrategy(tFormat, tCTypeIn, GenomeType.EXOMIC_GENOME, 1, tVCFFileIn, tBAMFileIn,
-                    tOutputDirIn, tMetricsFileIn, tVariantsVCFOutFileIn);
+                    tOutputDirIn, tMetricsFileIn, tVariantsVCFOutFileIn, tSettingsIn);
         }
 
         try {
 
-            tStrategy.run();
+            tStrategy.convert();
 
         } catch (Exception e) {
             e.printStackTrace();
@@ -199,6 +305,53 @@ public class Converter {
 
     }
 
+    private static ConversionSettings getSettingsForOptions(CommandLine tCommandLine) {
+
+        ConversionSettings tSettings = ConversionSettings.getInstance();
+
+        tSettings.setSortInput(tCommandLine.hasOption("s"));
+
+        if (tCommandLine.hasOption("sort-max-records")) {
+            tSettings.setSortMaxRecordsInRam(Integer.parseInt(tCommandLine.getOptionValue("sort-max-records").trim()));
+        }
+
+        if (tCommandLine.hasOption("tmp-dir")) {
+            tSettings.setTempDir(new File(tCommandLine.getOptionValue("tmp-dir").trim()));
+        }
+
+        if (tCommandLine.hasOption("bam-manifest")) {
+            tSettings.setBAMManifestFile(new File(tCommandLine.getOptionValue("bam-manifest").trim()));
+        }
+
+        if (tCommandLine.hasOption("bam-pool-memory")) {
+            tSettings.setBAMReaderPoolMemoryBytes(Long.parseLong(tCommandLine.getOptionValue("bam-pool-memory").trim()) * 1024L * 1024L);
+        }
+
+        if (tCommandLine.hasOption("bam-threads")) {
+            tSettings.setBAMDecodeThreads(Integer.parseInt(tCommandLine.getOptionValue("bam-threads").trim()));
+        }
+
+        if (tCommandLine.hasOption("read-cache-memory")) {
+            tSettings.setReadCacheMemoryBytes(Long.parseLong(tCommandLine.getOptionValue("read-cache-memory").trim()) * 1024L * 1024L);
+        }
+
+        if (tCommandLine.hasOption("bam-read-ahead")) {
+            tSettings.setBAMReadAheadBlocks(Integer.parseInt(tCommandLine.getOptionValue("bam-read-ahead").trim()));
+        }
+
+        tSettings.setResume(tCommandLine.hasOption("resume"));
+
+        if (tCommandLine.hasOption("progress-interval")) {
+            tSettings.setProgressIntervalSeconds(Long.parseLong(tCommandLine.getOptionValue("progress-interval").trim()));
+        }
+
+        if (tCommandLine.hasOption("delta")) {
+            tSettings.setDeltaVCFFile(new File(tCommandLine.getOptionValue("delta").trim()));
+        }
+
+        return tSettings;
+    }
+
     private static ThreadPoolExecutor getExecutor() {
 
         BlockingQueue<Runnable> tQueue = new ArrayBlockingQueue<Runnable>(100, true);
@@ -221,7 +374,7 @@ public class Converter {
 
         File tVCFFileInFile = new File(tVCFFileIn);
         File tBAMFileInFile = new File(tBAMFileIn);
-        if (tVCFFileInFile.exists() && tBAMFileInFile.exists()) {
+        if (StreamUtils.exists(tVCFFileInFile) && tBAMFileInFile.exists()) {
             bFilesExist = true;
         }
 
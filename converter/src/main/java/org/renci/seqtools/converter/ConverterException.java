@@ -0,0 +1,23 @@
+package org.renci.seqtools.converter;
+
+public class ConverterException extends RuntimeException {
+
+    private static final long serialVersionUID = 4630846236406721939L;
+
+    public ConverterException() {
+        super();
+    }
+
+    public ConverterException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    public ConverterException(String message) {
+        super(message);
+    }
+
+    public ConverterException(Throwable cause) {
+        super(cause);
+    }
+
+}
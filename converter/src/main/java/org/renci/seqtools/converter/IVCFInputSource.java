@@ -0,0 +1,10 @@
+package org.renci.seqtools.converter;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+
+public interface IVCFInputSource {
+
+    public BufferedReader openReader() throws IOException;
+
+}
@@ -0,0 +1,259 @@
+package org.renci.seqtools.converter;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.util.ArrayDeque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import org.renci.seqtools.commons.metrics.Gauge;
+import org.renci.seqtools.commons.metrics.MetricsRegistry;
+import org.renci.seqtools.commons.metrics.StageTimer;
+
+public class ParallelBGZFInputStream extends InputStream {
+
+    private static final int INT_FIXED_HEADER_LENGTH = 12;
+
+    private static final int INT_FOOTER_LENGTH = 8;
+
+    private static final StageTimer INFLATE_TIMER = MetricsRegistry.getInstance().timer(MetricsRegistry.BAM_INFLATE);
+
+    private static final Gauge PENDING_BLOCKS_GAUGE = MetricsRegistry.getInstance().gauge("queue.bgzf-blocks");
+
+    private static final ThreadLocal<Inflater> INFLATERS = new ThreadLocal<Inflater>() {
+        @Override
+        protected Inflater initialValue() {
+            return new Inflater(true);
+        }
+    };
+
+    private File tFile;
+
+    private RandomAccessFile tRandomAccessFile;
+
+    private ExecutorService tInflaterPool;
+
+    private int iReadAheadBlocks;
+
+    private ArrayDeque<Future<byte[]>> tPendingBlocks;
+
+    private byte[] bCurrentBlock;
+
+    private int iCurrentOffset = 0;
+
+    private boolean bSeenLastBlock = false;
+
+    private byte[] bFixedHeader = new byte[INT_FIXED_HEADER_LENGTH];
+
+    private ParallelBGZFInputStream(File tFileIn, ExecutorService tInflaterPoolIn, int iReadAheadBlocksIn) throws IOException {
+        this.tFile = tFileIn;
+        this.tRandomAccessFile = new RandomAccessFile(tFileIn, "r");
+        this.tInflaterPool = tInflaterPoolIn;
+        this.iReadAheadBlocks = Math.max(1, iReadAheadBlocksIn);
+        this.tPendingBlocks = new ArrayDeque<Future<byte[]>>(this.iReadAheadBlocks);
+    }
+
+    public static ParallelBGZFInputStream getInstance(File tFileIn, ExecutorService tInflaterPoolIn, int iReadAheadBlocksIn)
+            throws IOException {
+        return new ParallelBGZFInputStream(tFileIn, tInflaterPoolIn, iReadAheadBlocksIn);
+    }
+
+    public void seek(long lVirtualOffsetIn) throws IOException {
+
+        this.cancelPendingBlocks();
+        this.bCurrentBlock = null;
+        this.iCurrentOffset = 0;
+        this.bSeenLastBlock = false;
+
+        this.tRandomAccessFile.seek(lVirtualOffsetIn >>> 16);
+
+        int iOffsetInBlock = (int) (lVirtualOffsetIn & 0xFFFF);
+        if (iOffsetInBlock > 0) {
+            if (!this.nextBlock() || iOffsetInBlock > this.bCurrentBlock.length) {
+                throw new IOException("Virtual offset " + lVirtualOffsetIn + " is past the end of its block in " + this.tFile);
+            }
+            this.iCurrentOffset = iOffsetInBlock;
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!this.ensureAvailable()) {
+            return -1;
+        }
+        return this.bCurrentBlock[this.iCurrentOffset++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] bBufferIn, int iOffsetIn, int iLengthIn) throws IOException {
+
+        if (iLengthIn == 0) {
+            return 0;
+        }
+
+        int iRead = 0;
+        while (iRead < iLengthIn && this.ensureAvailable()) {
+            int iToCopy = Math.min(iLengthIn - iRead, this.bCurrentBlock.length - this.iCurrentOffset);
+            System.arraycopy(this.bCurrentBlock, this.iCurrentOffset, bBufferIn, iOffsetIn + iRead, iToCopy);
+            this.iCurrentOffset += iToCopy;
+            iRead += iToCopy;
+        }
+
+        return iRead == 0 ? -1 : iRead;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return this.bCurrentBlock == null ? 0 : this.bCurrentBlock.length - this.iCurrentOffset;
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.cancelPendingBlocks();
+        this.tRandomAccessFile.close();
+    }
+
+    private boolean ensureAvailable() throws IOException {
+        while (this.bCurrentBlock == null || this.iCurrentOffset == this.bCurrentBlock.length) {
+            if (!this.nextBlock()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean nextBlock() throws IOException {
+
+        this.fillReadAhead();
+
+        Future<byte[]> tFuture = this.tPendingBlocks.pollFirst();
+        if (tFuture == null) {
+            this.bCurrentBlock = null;
+            return false;
+        }
+        PENDING_BLOCKS_GAUGE.decrement();
+
+        try {
+            this.bCurrentBlock = tFuture.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while inflating " + this.tFile, e);
+        } catch (ExecutionException e) {
+            throw new IOException("Could not inflate a bgzf block of " + this.tFile, e.getCause());
+        }
+        this.iCurrentOffset = 0;
+
+        this.fillReadAhead();
+
+        return true;
+    }
+
+    private void fillReadAhead() throws IOException {
+        while (!this.bSeenLastBlock && this.tPendingBlocks.size() < this.iReadAheadBlocks) {
+            final byte[] bCompressedBlock = this.readCompressedBlock();
+            if (bCompressedBlock == null) {
+                this.bSeenLastBlock = true;
+                break;
+            }
+            this.tPendingBlocks.addLast(this.tInflaterPool.submit(new Callable<byte[]>() {
+                @Override
+                public byte[] call() throws Exception {
+                    INFLATE_TIMER.start();
+                    try {
+                        return ParallelBGZFInputStream.inflateBlock(bCompressedBlock);
+                    } finally {
+                        INFLATE_TIMER.stop();
+                    }
+                }
+            }));
+            PENDING_BLOCKS_GAUGE.increment();
+        }
+    }
+
+    private byte[] readCompressedBlock() throws IOException {
+
+        int iFirst = this.tRandomAccessFile.read();
+        if (iFirst < 0) {
+            return null;
+        }
+        this.bFixedHeader[0] = (byte) iFirst;
+        this.tRandomAccessFile.readFully(this.bFixedHeader, 1, INT_FIXED_HEADER_LENGTH - 1);
+
+        if ((this.bFixedHeader[0] & 0xFF) != 31 || (this.bFixedHeader[1] & 0xFF) != 139 || (this.bFixedHeader[3] & 4) == 0) {
+            throw new IOException("Not a bgzf block at offset " + (this.tRandomAccessFile.getFilePointer() - INT_FIXED_HEADER_LENGTH)
+                    + " in " + this.tFile);
+        }
+
+        int iExtraLength = ParallelBGZFInputStream.readUnsignedShort(this.bFixedHeader, 10);
+        byte[] bExtra = new byte[iExtraLength];
+        this.tRandomAccessFile.readFully(bExtra);
+
+        int iBlockSize = -1;
+        for (int ii = 0; ii + 4 <= iExtraLength;) {
+            int iSubfieldLength = ParallelBGZFInputStream.readUnsignedShort(bExtra, ii + 2);
+            if (bExtra[ii] == 'B' && bExtra[ii + 1] == 'C' && iSubfieldLength == 2) {
+                iBlockSize = ParallelBGZFInputStream.readUnsignedShort(bExtra, ii + 4) + 1;
+                break;
+            }
+            ii += 4 + iSubfieldLength;
+        }
+        if (iBlockSize < 0) {
+            throw new IOException("Missing BC subfield in bgzf block of " + this.tFile);
+        }
+
+        byte[] bBody = new byte[iBlockSize - INT_FIXED_HEADER_LENGTH - iExtraLength];
+        try {
+            this.tRandomAccessFile.readFully(bBody);
+        } catch (EOFException e) {
+            throw new IOException("Truncated bgzf block in " + this.tFile, e);
+        }
+
+        return bBody;
+    }
+
+    private static byte[] inflateBlock(byte[] bBodyIn) throws DataFormatException {
+
+        int iCompressedLength = bBodyIn.length - INT_FOOTER_LENGTH;
+        int iUncompressedLength = ParallelBGZFInputStream.readInt(bBodyIn, bBodyIn.length - 4);
+
+        byte[] bUncompressed = new byte[iUncompressedLength];
+        if (iUncompressedLength == 0) {
+            return bUncompressed;
+        }
+
+        Inflater tInflater = INFLATERS.get();
+        tInflater.reset();
+        tInflater.setInput(bBodyIn, 0, iCompressedLength);
+        int iInflated = tInflater.inflate(bUncompressed, 0, iUncompressedLength);
+        if (iInflated != iUncompressedLength) {
+            throw new DataFormatException("Inflated " + iInflated + " bytes, expected " + iUncompressedLength);
+        }
+
+        return bUncompressed;
+    }
+
+    private void cancelPendingBlocks() {
+        for (Future<byte[]> tFuture : this.tPendingBlocks) {
+            tFuture.cancel(false);
+        }
+        PENDING_BLOCKS_GAUGE.add(-this.tPendingBlocks.size());
+        this.tPendingBlocks.clear();
+    }
+
+    private static int readUnsignedShort(byte[] bBufferIn, int iOffsetIn) {
+        return (bBufferIn[iOffsetIn] & 0xFF) | ((bBufferIn[iOffsetIn + 1] & 0xFF) << 8);
+    }
+
+    private static int readInt(byte[] bBufferIn, int iOffsetIn) {
+        return (bBufferIn[iOffsetIn] & 0xFF) | ((bBufferIn[iOffsetIn + 1] & 0xFF) << 8) | ((bBufferIn[iOffsetIn + 2] & 0xFF) << 16)
+                | ((bBufferIn[iOffsetIn + 3] & 0xFF) << 24);
+    }
+
+}
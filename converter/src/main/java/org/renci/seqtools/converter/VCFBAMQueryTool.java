@@ -1,17 +1,42 @@
 package org.renci.seqtools.converter;
 
 import java.io.File;
+import java.lang.reflect.Method;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+
+import org.renci.seqtools.commons.jfr.FlightEvents;
+import org.renci.seqtools.commons.metrics.Counter;
+import org.renci.seqtools.commons.metrics.MetricsRegistry;
+import org.renci.seqtools.commons.metrics.StageTimer;
 
 import htsjdk.samtools.SAMFileHeader;
 import htsjdk.samtools.SAMFileReader;
+import htsjdk.samtools.SAMFileSpan;
 import htsjdk.samtools.SAMRecord;
-import htsjdk.samtools.SAMRecordIterator;
 import htsjdk.samtools.SAMSequenceDictionary;
 import htsjdk.samtools.SAMSequenceRecord;
 import htsjdk.samtools.ValidationStringency;
+import htsjdk.samtools.util.CloseableIterator;
 
 public class VCFBAMQueryTool {
 
+    private static final int WHOLE_FILE_ITERATOR = -2;
+
+    private static final int NO_ITERATOR = -1;
+
+    private static final long NO_READS = -1L;
+
+    private static final StageTimer BAM_LOOKUP_TIMER = MetricsRegistry.getInstance().timer(MetricsRegistry.BAM_LOOKUP);
+
+    private static final Counter MATCHED_COUNTER = MetricsRegistry.getInstance().counter("bam.matched");
+
+    private static final Counter UNMATCHED_COUNTER = MetricsRegistry.getInstance().counter("bam.unmatched");
+
     private SAMFileReader tInputBAMReader;
 
     private String sChromosome;
@@ -20,49 +45,127 @@ public class VCFBAMQueryTool {
 
     private String sEndPos;
 
-    private SAMRecord tSAMRecord;
-
-    private SAMRecordIterator tIterator;
+    private CloseableIterator<SAMRecord> tIterator;
 
     private SAMFileHeader tHeader;
 
     private SAMSequenceDictionary tDict;
 
-    private SAMSequenceRecord tARecord;
+    private Map<String, Integer> tMapOfContigIndexes;
+
+    private boolean bHasIndex;
+
+    private int iIteratorContigIndex = NO_ITERATOR;
+
+    private int iSiteContigIndex = -1;
+
+    private int iSitePosition = 0;
 
-    private boolean bKeepCurrentRecord = false;
+    private int iLastSiteContigIndex = -1;
+
+    private int iLastSitePosition = 0;
+
+    private boolean bSitePositioned = false;
+
+    private ArrayDeque<SAMRecord> tWindow;
+
+    private SAMRecord tPendingRecord;
+
+    private VCFPileupSummary tPileupSummary;
+
+    private boolean bIteratorExhausted = false;
 
     private int iMatched = 0;
 
     private int iUnmatched = 0;
 
+    private long lScannedRecords = 0;
+
+    private boolean bScanRepositioned = false;
+
+    private int iContigJumps = 0;
+
+    private File tInputBAMFile;
+
+    private ExecutorService tInflaterPool;
+
+    private int iReadAheadBlocks;
+
+    private VCFReadWindowCache tReadCache;
+
+    private long lBAMLastModified;
+
+    private long lBAMLength;
+
+    private Method tCoordinateArrayMethod;
+
     private VCFBAMQueryTool(File tInputBAMFileIn, String sChromosomeIn, String sStartPosIn, String sEndPosIn) {
+        this(tInputBAMFileIn, null, 0);
+        this.sEndPos = sEndPosIn;
+        this.setInputs(sChromosomeIn, sStartPosIn);
+    }
+
+    private VCFBAMQueryTool(File tInputBAMFileIn, ExecutorService tInflaterPoolIn, int iReadAheadBlocksIn) {
+        this.tInputBAMFile = tInputBAMFileIn;
+        this.lBAMLastModified = tInputBAMFileIn.lastModified();
+        this.lBAMLength = tInputBAMFileIn.length();
         this.tInputBAMReader = new SAMFileReader(tInputBAMFileIn, true);
         this.tInputBAMReader.setValidationStringency(ValidationStringency.SILENT);
-        this.sChromosome = sChromosomeIn;
-        this.sStartPos = sStartPosIn;
-        this.sEndPos = sEndPosIn;
         this.tHeader = this.tInputBAMReader.getFileHeader();
-
         this.tDict = this.tHeader.getSequenceDictionary();
-        this.tARecord = this.tDict.getSequence(this.sChromosome);
+        this.bHasIndex = this.tInputBAMReader.hasIndex();
+        this.tMapOfContigIndexes = new HashMap<String, Integer>();
+        this.tWindow = new ArrayDeque<SAMRecord>();
+        if (tInflaterPoolIn != null && this.tInputBAMReader.isBinary()) {
+            this.tInflaterPool = tInflaterPoolIn;
+            this.iReadAheadBlocks = iReadAheadBlocksIn;
+            if (this.bHasIndex) {
+                this.tCoordinateArrayMethod = VCFBAMQueryTool.getCoordinateArrayMethod();
+                if (this.tCoordinateArrayMethod == null) {
+                    this.fallBackToSingleThreaded();
+                }
+            }
+        }
+    }
+
+    public File getBAMFile() {
+        return this.tInputBAMFile;
+    }
 
-        this.tIterator = this.tInputBAMReader.iterator();
+    public ExecutorService getInflaterPool() {
+        return this.tInflaterPool;
+    }
 
+    public boolean isStale() {
+        return this.tInputBAMFile.lastModified() != this.lBAMLastModified || this.tInputBAMFile.length() != this.lBAMLength;
     }
 
-    private VCFBAMQueryTool(File tInputBAMFileIn) {
-        this.tInputBAMReader = new SAMFileReader(tInputBAMFileIn, true);
-        this.tInputBAMReader.setValidationStringency(ValidationStringency.SILENT);
-        this.tIterator = this.tInputBAMReader.iterator();
+    public SAMSequenceDictionary getSequenceDictionary() {
+        return this.tDict;
     }
 
     public String getMatchUnmatchCount() {
         return "Matched: " + this.iMatched + " Unmatched: " + this.iUnmatched + System.getProperty("line.separator");
     }
 
+    public int getMatchedCount() {
+        return this.iMatched;
+    }
+
+    public int getUnmatchedCount() {
+        return this.iUnmatched;
+    }
+
+    public int getContigJumpCount() {
+        return this.iContigJumps;
+    }
+
     public static VCFBAMQueryTool getInstance(File tInputBAMFileIn) {
-        return new VCFBAMQueryTool(tInputBAMFileIn);
+        return new VCFBAMQueryTool(tInputBAMFileIn, null, 0);
+    }
+
+    public static VCFBAMQueryTool getInstance(File tInputBAMFileIn, ExecutorService tInflaterPoolIn, int iReadAheadBlocksIn) {
+        return new VCFBAMQueryTool(tInputBAMFileIn, tInflaterPoolIn, iReadAheadBlocksIn);
     }
 
     public static VCFBAMQueryTool getInstance(File tInputBAMFileIn, String sChromosomeIn, String sStartPosIn, String sEndPosIn) {
@@ -70,104 +173,374 @@ public class VCFBAMQueryTool {
     }
 
     public void setInputs(String sChromosomeIn, String sStartPosIn) {
+        if (!sChromosomeIn.equals(this.sChromosome)) {
+            this.iSiteContigIndex = this.getContigIndex(sChromosomeIn);
+        }
         this.sChromosome = sChromosomeIn;
         this.sStartPos = sStartPosIn;
-        this.tHeader = this.tInputBAMReader.getFileHeader();
-        this.tDict = this.tHeader.getSequenceDictionary();
-        this.tARecord = this.tDict.getSequence(this.sChromosome);
-
+        this.iSitePosition = Integer.parseInt(sStartPosIn);
+        this.bSitePositioned = false;
+        this.tPileupSummary = null;
     }
 
     public SAMRecord getRecord() {
 
-        if (this.tSAMRecord == null) {
-            if (this.tIterator.hasNext()) {
-                this.tSAMRecord = this.tIterator.next();
+        this.positionAtSite();
+
+        return this.tWindow.peekFirst();
+    }
+
+    public List<SAMRecord> getOverlappingRecords() {
+
+        this.positionAtSite();
+
+        List<SAMRecord> tOverlapping = new ArrayList<SAMRecord>(this.tWindow.size());
+        for (SAMRecord tRecord : this.tWindow) {
+            if (tRecord.getAlignmentEnd() >= this.iSitePosition) {
+                tOverlapping.add(tRecord);
+            }
+        }
+        return tOverlapping;
+    }
+
+    public void setReadCache(VCFReadWindowCache tReadCacheIn) {
+        this.tReadCache = tReadCacheIn;
+    }
+
+    public VCFPileupSummary getPileupSummary() {
+
+        if (this.tPileupSummary == null) {
+            if (this.tReadCache != null && this.bHasIndex && this.iSiteContigIndex >= 0) {
+                List<VCFDecodedRead> tOverlapping = this.getCachedWindow().getReadsOverlapping(this.iSitePosition);
+                this.tPileupSummary = tOverlapping.isEmpty() ? VCFPileupSummary.getEmptyInstance()
+                        : VCFPileupSummary.getInstanceForDecodedReads(tOverlapping, this.iSitePosition);
             } else {
-                this.tIterator.close();
+                List<SAMRecord> tOverlapping = this.getOverlappingRecords();
+                this.tPileupSummary = tOverlapping.isEmpty() ? VCFPileupSummary.getEmptyInstance()
+                        : VCFPileupSummary.getInstance(tOverlapping, this.iSitePosition);
             }
         }
 
-        int iStartPos = Integer.parseInt(this.sStartPos);
+        return this.tPileupSummary;
+    }
 
-        if ((this.isSameChromosome(this.sChromosome, this.tSAMRecord.getReferenceName()))
-                && (this.isVCFPosInSAMRecord(this.tSAMRecord, iStartPos))) {
+    private VCFReadWindow getCachedWindow() {
 
-            this.bKeepCurrentRecord = true;
-            this.iMatched++;
+        int iWindowIndex = VCFReadWindowCache.getWindowIndex(this.iSitePosition);
+        String sKey = VCFReadWindowCache.makeKey(this.tInputBAMFile, this.lBAMLastModified, this.iSiteContigIndex, iWindowIndex);
 
-        } else if ((this.isSameChromosome(this.sChromosome, this.tSAMRecord.getReferenceName()))
-                && ((this.isVCFPosGTSAMRecord(this.tSAMRecord, iStartPos)))) {
-            this.bKeepCurrentRecord = false;
-            this.iUnmatched++;
+        VCFReadWindow tWindow = this.tReadCache.get(sKey);
+        if (tWindow == null) {
+            tWindow = this.loadWindow(iWindowIndex);
+            this.tReadCache.put(sKey, tWindow);
+        }
+
+        return tWindow;
+    }
+
+    private VCFReadWindow loadWindow(int iWindowIndexIn) {
+
+        int iStart = VCFReadWindowCache.getWindowStart(iWindowIndexIn);
+        int iEnd = VCFReadWindowCache.getWindowEnd(iWindowIndexIn);
+
+        VCFReadWindow tWindow = VCFReadWindow.getInstance(iStart, iEnd);
 
-        } else if ((this.isSameChromosome(this.sChromosome, this.tSAMRecord.getReferenceName()))
-                && ((this.isVCFPosLTSAMRecord(this.tSAMRecord, iStartPos)))) {
-            this.bKeepCurrentRecord = true;
+        CloseableIterator<SAMRecord> tRegionIter = this.openRegionIterator(this.tDict.getSequence(this.iSiteContigIndex), iStart, iEnd);
+        if (tRegionIter == null) {
+            return tWindow;
+        }
+
+        try {
+            while (tRegionIter.hasNext()) {
+                SAMRecord tRecord = tRegionIter.next();
+                if (tRecord.getReadUnmappedFlag()) {
+                    continue;
+                }
+                if (tRecord.getReferenceIndex().intValue() != this.iSiteContigIndex || tRecord.getAlignmentStart() > iEnd) {
+                    break;
+                }
+                if (tRecord.getAlignmentEnd() >= iStart) {
+                    tWindow.addRead(VCFDecodedRead.getInstance(tRecord));
+                }
+            }
+        } finally {
+            tRegionIter.close();
+        }
+
+        return tWindow;
+    }
+
+    public void reset() {
+        this.closeIterator();
+        this.tWindow.clear();
+        this.tPendingRecord = null;
+        this.tPileupSummary = null;
+        this.tReadCache = null;
+        this.bIteratorExhausted = false;
+        this.bSitePositioned = false;
+        this.sChromosome = null;
+        this.iSiteContigIndex = -1;
+        this.iSitePosition = 0;
+        this.iLastSiteContigIndex = -1;
+        this.iLastSitePosition = 0;
+        this.iMatched = 0;
+        this.iUnmatched = 0;
+        this.iContigJumps = 0;
+    }
+
+    public void close() {
+        this.closeIterator();
+        this.tWindow.clear();
+        this.tPendingRecord = null;
+        this.tInputBAMReader.close();
+    }
+
+    private void positionAtSite() {
+
+        if (this.bSitePositioned) {
+            return;
+        }
+        this.bSitePositioned = true;
+
+        Object tEvent = FlightEvents.beginBAMQuery();
+
+        BAM_LOOKUP_TIMER.start();
+        try {
+            this.scanToSite();
+        } finally {
+            BAM_LOOKUP_TIMER.stop();
+        }
+
+        FlightEvents.commitBAMQuery(tEvent, this.tInputBAMFile.getName(), this.sChromosome, this.iSitePosition, this.lScannedRecords,
+                this.bScanRepositioned, !this.tWindow.isEmpty());
+    }
+
+    private void scanToSite() {
+
+        this.lScannedRecords = 0;
+        this.bScanRepositioned = false;
+
+        if (this.iSiteContigIndex < 0) {
+            this.tWindow.clear();
             this.iUnmatched++;
+            UNMATCHED_COUNTER.increment();
+            return;
+        }
+
+        if (this.needsReposition()) {
+            this.reposition();
+            this.bScanRepositioned = true;
+        }
+
+        this.iLastSiteContigIndex = this.iSiteContigIndex;
+        this.iLastSitePosition = this.iSitePosition;
+
+        while (!this.tWindow.isEmpty() && !this.isOnSiteContigAndNotBehind(this.tWindow.peekFirst())) {
+            this.tWindow.pollFirst();
+        }
+
+        SAMRecord tRecord = null;
+        while ((tRecord = this.nextRecord()) != null) {
+
+            this.lScannedRecords++;
+
+            int iRecordContigIndex = tRecord.getReferenceIndex().intValue();
+
+            if (iRecordContigIndex < this.iSiteContigIndex) {
+                continue;
+            }
+
+            if (iRecordContigIndex > this.iSiteContigIndex || tRecord.getAlignmentStart() > this.iSitePosition) {
+                this.tPendingRecord = tRecord;
+                break;
+            }
+
+            if (tRecord.getAlignmentEnd() >= this.iSitePosition) {
+                this.tWindow.addLast(tRecord);
+            }
+        }
 
-        } else if (!this.isSameChromosome(this.sChromosome, this.tSAMRecord.getReferenceName())) {
-            this.bKeepCurrentRecord = false;
+        if (this.tWindow.isEmpty()) {
             this.iUnmatched++;
+            UNMATCHED_COUNTER.increment();
+        } else {
+            this.iMatched++;
+            MATCHED_COUNTER.increment();
         }
+    }
 
-        if (this.keepCurrentRecord() && this.tSAMRecord != null) {
-            return this.tSAMRecord;
+    private boolean needsReposition() {
+
+        if (this.iIteratorContigIndex == NO_ITERATOR) {
+            return true;
+        }
+
+        boolean bIsBehindLastSite = this.iSiteContigIndex < this.iLastSiteContigIndex
+                || (this.iSiteContigIndex == this.iLastSiteContigIndex && this.iSitePosition < this.iLastSitePosition);
+
+        if (this.bHasIndex) {
+            // one indexed query per contig, or a fresh one when an unsorted vcf steps backwards
+            return this.iIteratorContigIndex != this.iSiteContigIndex || bIsBehindLastSite;
+        }
+
+        // without an index the whole-file cursor can only move forward
+        return false;
+    }
+
+    private void reposition() {
+
+        this.closeIterator();
+        this.tWindow.clear();
+        this.tPendingRecord = null;
+        this.bIteratorExhausted = false;
+
+        if (this.bHasIndex) {
+            SAMSequenceRecord tSequence = this.tDict.getSequence(this.iSiteContigIndex);
+            this.tIterator = this.openRegionIterator(tSequence, this.iSitePosition, 0);
+            this.bIteratorExhausted = this.tIterator == null;
+            this.iIteratorContigIndex = this.iSiteContigIndex;
+            this.iContigJumps++;
         } else {
-            if (this.tIterator.hasNext()) {
-                this.tSAMRecord = this.tIterator.next();
-                return this.tSAMRecord;
+            if (this.tInflaterPool != null) {
+                this.tIterator = VCFBAMRecordProducer.getInstance(this.tInputBAMFile, this.tHeader, this.tInflaterPool,
+                        this.iReadAheadBlocks, VCFBAMRecordProducer.START_AFTER_HEADER);
             } else {
-                this.tIterator.close();
+                this.tIterator = this.tInputBAMReader.iterator();
+            }
+            this.iIteratorContigIndex = WHOLE_FILE_ITERATOR;
+        }
+    }
+
+    private CloseableIterator<SAMRecord> openRegionIterator(SAMSequenceRecord tSequenceIn, int iStartIn, int iEndIn) {
+
+        long lVirtualOffset = this.tInflaterPool != null ? this.getFirstVirtualOffset(tSequenceIn, iStartIn, iEndIn) : NO_READS;
+
+        if (this.tInflaterPool == null) {
+            return this.tInputBAMReader.query(tSequenceIn.getSequenceName(), iStartIn, iEndIn, false);
+        } else if (lVirtualOffset == NO_READS) {
+            return null;
+        }
+
+        return VCFBAMRecordProducer.getInstance(this.tInputBAMFile, this.tHeader, this.tInflaterPool, this.iReadAheadBlocks,
+                lVirtualOffset);
+    }
+
+    private long getFirstVirtualOffset(SAMSequenceRecord tSequenceIn, int iStartIn, int iEndIn) {
+
+        SAMFileSpan tSpan = this.tInputBAMReader.getIndex().getSpanOverlapping(tSequenceIn.getSequenceIndex(), iStartIn,
+                iEndIn > 0 ? iEndIn : tSequenceIn.getSequenceLength());
+        if (tSpan == null || tSpan.isEmpty()) {
+            return NO_READS;
+        }
+
+        try {
+            long[] lCoordinates = (long[]) this.tCoordinateArrayMethod.invoke(tSpan);
+            return lCoordinates.length == 0 ? NO_READS : lCoordinates[0];
+        } catch (Exception e) {
+            this.fallBackToSingleThreaded();
+            return NO_READS;
+        }
+    }
+
+    private void fallBackToSingleThreaded() {
+        System.out.println("\tConverter: Falling back to single-threaded bam queries for " + this.tInputBAMFile.getName());
+        this.tInflaterPool = null;
+    }
+
+    private static Method getCoordinateArrayMethod() {
+        try {
+            // htsjdk keeps the chunk coordinates of a span behind a protected accessor
+            Method tMethod = Class.forName("htsjdk.samtools.BAMFileSpan").getDeclaredMethod("toCoordinateArray");
+            tMethod.setAccessible(true);
+            return tMethod;
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private SAMRecord nextRecord() {
+
+        if (this.tPendingRecord != null) {
+            SAMRecord tRecord = this.tPendingRecord;
+            this.tPendingRecord = null;
+            return tRecord;
+        }
 
-                return this.tSAMRecord;
+        while (!this.bIteratorExhausted && this.tIterator.hasNext()) {
+            SAMRecord tRecord = this.tIterator.next();
+            if (!tRecord.getReadUnmappedFlag() && tRecord.getReferenceIndex().intValue() >= 0) {
+                return tRecord;
             }
         }
 
+        this.bIteratorExhausted = true;
+        return null;
     }
 
-    public String getReadBases() {
-        String sReadBases = null;
-        if (this.tSAMRecord != null) {
-            sReadBases = new String(this.getRecord().getReadBases());
-        } else {
-            sReadBases = null;
+    private boolean isOnSiteContigAndNotBehind(SAMRecord tRecordIn) {
+        return tRecordIn.getReferenceIndex().intValue() == this.iSiteContigIndex && tRecordIn.getAlignmentEnd() >= this.iSitePosition;
+    }
+
+    private void closeIterator() {
+        if (this.tIterator != null) {
+            this.tIterator.close();
+            this.tIterator = null;
         }
+        this.iIteratorContigIndex = NO_ITERATOR;
+    }
+
+    private int getContigIndex(String sChromosomeIn) {
 
+        Integer tIndex = this.tMapOfContigIndexes.get(sChromosomeIn);
+
+        if (tIndex == null) {
+            int iIndex = this.tDict.getSequenceIndex(sChromosomeIn);
+            if (iIndex < 0) {
+                for (SAMSequenceRecord tSequence : this.tDict.getSequences()) {
+                    if (this.isSameChromosome(sChromosomeIn, tSequence.getSequenceName())) {
+                        iIndex = tSequence.getSequenceIndex();
+                        break;
+                    }
+                }
+            }
+            tIndex = Integer.valueOf(iIndex);
+            this.tMapOfContigIndexes.put(sChromosomeIn, tIndex);
+        }
+
+        return tIndex.intValue();
+    }
+
+    public String getReadBases() {
+        SAMRecord tRecord = this.getRecord();
+        String sReadBases = tRecord != null ? new String(tRecord.getReadBases()) : null;
         return sReadBases != null ? sReadBases : "0";
     }
 
     public String getReadQualityScores() {
 
         String sRQScore = null;
-        if (this.tSAMRecord != null) {
+        SAMRecord tRecord = this.getRecord();
+        if (tRecord != null) {
             try {
 
-                sRQScore = this.getRecord().getBaseQualityString();
+                sRQScore = tRecord.getBaseQualityString();
             } catch (Exception e) {
                 e.printStackTrace();
             }
 
-        } else {
-
-            sRQScore = null;
         }
 
         return sRQScore != null ? sRQScore : "0";
     }
 
     public short getMappingQuality() {
-        short tMappingQuality = 0;
-
-        if (this.tSAMRecord != null) {
-            tMappingQuality = (short) this.getRecord().getMappingQuality();
-
-        } else {
-
-            tMappingQuality = 0;
-        }
+        SAMRecord tRecord = this.getRecord();
+        return tRecord != null ? (short) tRecord.getMappingQuality() : 0;
+    }
 
-        return tMappingQuality != 0 ? tMappingQuality : 0;
+    public boolean isReverseStrand() {
+        SAMRecord tRecord = this.getRecord();
+        return tRecord != null ? tRecord.getReadNegativeStrandFlag() : false;
     }
 
     public VCFRecord getVCFRecord() {
@@ -218,7 +591,7 @@ public class VCFBAMQueryTool {
     }
 
     public boolean keepCurrentRecord() {
-        return this.bKeepCurrentRecord;
+        return this.getRecord() != null;
     }
 
 }
@@ -0,0 +1,134 @@
+package org.renci.seqtools.converter;
+
+import java.io.File;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+
+public class VCFBAMQueryToolCache {
+
+    private LinkedHashMap<String, ArrayDeque<VCFBAMQueryTool>> tMapOfIdleTools;
+
+    private ExecutorService tInflaterPool;
+
+    private int iReadAheadBlocks;
+
+    private int iMaxIdleTools;
+
+    private int iIdleTools = 0;
+
+    private long lCheckOuts = 0;
+
+    private long lReuses = 0;
+
+    private long lEvictions = 0;
+
+    private VCFBAMQueryToolCache(int iMaxIdleToolsIn, ExecutorService tInflaterPoolIn, int iReadAheadBlocksIn) {
+        this.iMaxIdleTools = Math.max(0, iMaxIdleToolsIn);
+        this.tInflaterPool = tInflaterPoolIn;
+        this.iReadAheadBlocks = iReadAheadBlocksIn;
+        this.tMapOfIdleTools = new LinkedHashMap<String, ArrayDeque<VCFBAMQueryTool>>(16, 0.75f, true);
+    }
+
+    public static VCFBAMQueryToolCache getInstance(int iMaxIdleToolsIn, ExecutorService tInflaterPoolIn, int iReadAheadBlocksIn) {
+        return new VCFBAMQueryToolCache(iMaxIdleToolsIn, tInflaterPoolIn, iReadAheadBlocksIn);
+    }
+
+    public ExecutorService getInflaterPool() {
+        return this.tInflaterPool;
+    }
+
+    public int getReadAheadBlocks() {
+        return this.iReadAheadBlocks;
+    }
+
+    public VCFBAMQueryTool checkOut(File tBAMFileIn) {
+
+        VCFBAMQueryTool tTool = null;
+
+        synchronized (this) {
+            this.lCheckOuts++;
+            ArrayDeque<VCFBAMQueryTool> tIdle = this.tMapOfIdleTools.get(VCFBAMQueryToolCache.makeKey(tBAMFileIn));
+            while (tIdle != null && !tIdle.isEmpty()) {
+                VCFBAMQueryTool tCandidate = tIdle.pollLast();
+                this.iIdleTools--;
+                if (!tCandidate.isStale()) {
+                    tTool = tCandidate;
+                    this.lReuses++;
+                    break;
+                }
+                tCandidate.close();
+                this.lEvictions++;
+            }
+        }
+
+        if (tTool == null) {
+            // opening the reader and loading its index happens outside the lock
+            tTool = VCFBAMQueryTool.getInstance(tBAMFileIn, this.tInflaterPool, this.iReadAheadBlocks);
+        }
+
+        return tTool;
+    }
+
+    public void checkIn(VCFBAMQueryTool tToolIn) {
+
+        tToolIn.reset();
+
+        synchronized (this) {
+
+            if (this.iMaxIdleTools == 0 || tToolIn.isStale()) {
+                tToolIn.close();
+                this.lEvictions++;
+                return;
+            }
+
+            String sKey = VCFBAMQueryToolCache.makeKey(tToolIn.getBAMFile());
+            ArrayDeque<VCFBAMQueryTool> tIdle = this.tMapOfIdleTools.get(sKey);
+            if (tIdle == null) {
+                tIdle = new ArrayDeque<VCFBAMQueryTool>();
+                this.tMapOfIdleTools.put(sKey, tIdle);
+            }
+            tIdle.addLast(tToolIn);
+            this.iIdleTools++;
+
+            Iterator<Map.Entry<String, ArrayDeque<VCFBAMQueryTool>>> tIter = this.tMapOfIdleTools.entrySet().iterator();
+            while (this.iIdleTools > this.iMaxIdleTools && tIter.hasNext()) {
+                ArrayDeque<VCFBAMQueryTool> tEldest = tIter.next().getValue();
+                while (this.iIdleTools > this.iMaxIdleTools && !tEldest.isEmpty()) {
+                    tEldest.pollFirst().close();
+                    this.iIdleTools--;
+                    this.lEvictions++;
+                }
+                if (tEldest.isEmpty()) {
+                    tIter.remove();
+                }
+            }
+        }
+    }
+
+    public synchronized int getIdleToolCount() {
+        return this.iIdleTools;
+    }
+
+    public synchronized String getStatistics() {
+        return "Bam reader cache check-outs: " + this.lCheckOuts + ", reuses: " + this.lReuses + ", evictions: " + this.lEvictions
+                + ", idle: " + this.iIdleTools;
+    }
+
+    public synchronized void close() {
+        for (ArrayDeque<VCFBAMQueryTool> tIdle : this.tMapOfIdleTools.values()) {
+            for (VCFBAMQueryTool tTool : tIdle) {
+                tTool.close();
+            }
+        }
+        this.tMapOfIdleTools.clear();
+        this.iIdleTools = 0;
+    }
+
+    private static String makeKey(File tBAMFileIn) {
+        return tBAMFileIn.getAbsolutePath();
+    }
+
+}
@@ -0,0 +1,169 @@
+package org.renci.seqtools.converter;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+
+public class VCFBAMReaderPool {
+
+    public static final long ESTIMATED_BYTES_PER_READER = 16L * 1024L * 1024L;
+
+    private Map<String, File> tMapOfSampleBAMFiles;
+
+    private LinkedHashMap<String, VCFBAMQueryTool> tMapOfOpenTools;
+
+    private int iMaxOpenReaders;
+
+    private int iReadersOpened = 0;
+
+    private int iReadersEvicted = 0;
+
+    private ExecutorService tInflaterPool;
+
+    private int iReadAheadBlocks;
+
+    private VCFReadWindowCache tReadCache;
+
+    private VCFBAMQueryToolCache tToolCache;
+
+    private VCFBAMReaderPool(Map<String, File> tMapOfSampleBAMFilesIn, int iMaxOpenReadersIn) {
+        this.tMapOfSampleBAMFiles = tMapOfSampleBAMFilesIn;
+        this.iMaxOpenReaders = Math.max(1, iMaxOpenReadersIn);
+        this.tMapOfOpenTools = new LinkedHashMap<String, VCFBAMQueryTool>(16, 0.75f, true);
+    }
+
+    public static VCFBAMReaderPool getInstance(Map<String, File> tMapOfSampleBAMFilesIn, int iMaxOpenReadersIn) {
+        return new VCFBAMReaderPool(tMapOfSampleBAMFilesIn, iMaxOpenReadersIn);
+    }
+
+    public static VCFBAMReaderPool getInstance(File tManifestFileIn, long lMemoryBudgetBytesIn) throws IOException {
+        int iMaxOpenReaders = (int) Math.min(Integer.MAX_VALUE, lMemoryBudgetBytesIn / ESTIMATED_BYTES_PER_READER);
+        return new VCFBAMReaderPool(VCFBAMReaderPool.readManifest(tManifestFileIn), iMaxOpenReaders);
+    }
+
+    public static Map<String, File> readManifest(File tManifestFileIn) throws IOException {
+
+        Map<String, File> tMapOfSampleBAMFiles = new LinkedHashMap<String, File>();
+
+        BufferedReader tReader = new BufferedReader(new FileReader(tManifestFileIn));
+        try {
+            String sLine = null;
+            int iLineNumber = 0;
+            while ((sLine = tReader.readLine()) != null) {
+                iLineNumber++;
+                sLine = sLine.trim();
+                if (sLine.isEmpty() || sLine.startsWith("#")) {
+                    continue;
+                }
+                String[] sFields = sLine.split("\t");
+                if (sFields.length < 2) {
+                    throw new IOException("Malformed bam manifest line " + iLineNumber + " in " + tManifestFileIn.getAbsolutePath()
+                            + ", expected <sample>\\t<bam path>: " + sLine);
+                }
+                File tBAMFile = new File(sFields[1].trim());
+                if (!tBAMFile.isAbsolute()) {
+                    tBAMFile = new File(tManifestFileIn.getAbsoluteFile().getParentFile(), sFields[1].trim());
+                }
+                tMapOfSampleBAMFiles.put(sFields[0].trim(), tBAMFile);
+            }
+        } finally {
+            tReader.close();
+        }
+
+        return tMapOfSampleBAMFiles;
+    }
+
+    public void setInflaterPool(ExecutorService tInflaterPoolIn, int iReadAheadBlocksIn) {
+        this.tInflaterPool = tInflaterPoolIn;
+        this.iReadAheadBlocks = iReadAheadBlocksIn;
+    }
+
+    public void setReadCache(VCFReadWindowCache tReadCacheIn) {
+        this.tReadCache = tReadCacheIn;
+    }
+
+    public void setToolCache(VCFBAMQueryToolCache tToolCacheIn) {
+        this.tToolCache = tToolCacheIn;
+    }
+
+    public boolean hasSample(String sSampleIn) {
+        return this.tMapOfSampleBAMFiles.containsKey(sSampleIn);
+    }
+
+    public int getSampleCount() {
+        return this.tMapOfSampleBAMFiles.size();
+    }
+
+    public int getActiveSampleCount(String[] sSamplesIn) {
+        int iActive = 0;
+        for (String sSample : sSamplesIn) {
+            if (this.tMapOfSampleBAMFiles.containsKey(sSample)) {
+                iActive++;
+            }
+        }
+        return iActive;
+    }
+
+    public int getMaxOpenReaders() {
+        return this.iMaxOpenReaders;
+    }
+
+    public int getReadersOpened() {
+        return this.iReadersOpened;
+    }
+
+    public int getReadersEvicted() {
+        return this.iReadersEvicted;
+    }
+
+    public VCFBAMQueryTool getTool(String sSampleIn) {
+
+        VCFBAMQueryTool tTool = this.tMapOfOpenTools.get(sSampleIn);
+
+        if (tTool == null) {
+
+            File tBAMFile = this.tMapOfSampleBAMFiles.get(sSampleIn);
+            if (tBAMFile == null) {
+                return null;
+            }
+
+            if (this.tMapOfOpenTools.size() >= this.iMaxOpenReaders) {
+                Map.Entry<String, VCFBAMQueryTool> tEldest = this.tMapOfOpenTools.entrySet().iterator().next();
+                this.tMapOfOpenTools.remove(tEldest.getKey());
+                this.releaseTool(tEldest.getValue());
+                this.iReadersEvicted++;
+            }
+
+            if (this.tToolCache != null) {
+                tTool = this.tToolCache.checkOut(tBAMFile);
+            } else {
+                tTool = VCFBAMQueryTool.getInstance(tBAMFile, this.tInflaterPool, this.iReadAheadBlocks);
+            }
+            tTool.setReadCache(this.tReadCache);
+            this.tMapOfOpenTools.put(sSampleIn, tTool);
+            this.iReadersOpened++;
+        }
+
+        return tTool;
+    }
+
+    public void close() {
+        for (VCFBAMQueryTool tTool : this.tMapOfOpenTools.values()) {
+            this.releaseTool(tTool);
+        }
+        this.tMapOfOpenTools.clear();
+    }
+
+    private void releaseTool(VCFBAMQueryTool tToolIn) {
+        if (this.tToolCache != null) {
+            this.tToolCache.checkIn(tToolIn);
+        } else {
+            tToolIn.close();
+        }
+    }
+
+}
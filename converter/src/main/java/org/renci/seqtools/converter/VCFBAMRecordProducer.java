@@ -0,0 +1,227 @@
+package org.renci.seqtools.converter;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+
+import org.renci.seqtools.commons.metrics.Gauge;
+import org.renci.seqtools.commons.metrics.MetricsRegistry;
+
+import htsjdk.samtools.BAMRecordCodec;
+import htsjdk.samtools.SAMFileHeader;
+import htsjdk.samtools.SAMRecord;
+import htsjdk.samtools.util.CloseableIterator;
+
+public class VCFBAMRecordProducer implements CloseableIterator<SAMRecord>, Runnable {
+
+    public static final long START_AFTER_HEADER = -1L;
+
+    private static final int INT_BATCH_SIZE = 512;
+
+    private static final int INT_QUEUED_BATCHES = 8;
+
+    private static final List<SAMRecord> END_OF_RECORDS = Collections.emptyList();
+
+    private static final Gauge QUEUED_BATCHES_GAUGE = MetricsRegistry.getInstance().gauge("queue.bam-record-batches");
+
+    private File tBAMFile;
+
+    private SAMFileHeader tHeader;
+
+    private ExecutorService tInflaterPool;
+
+    private int iReadAheadBlocks;
+
+    private long lStartVirtualOffset;
+
+    private BlockingQueue<List<SAMRecord>> tQueue;
+
+    private List<SAMRecord> tCurrentBatch;
+
+    private int iCurrentIndex = 0;
+
+    private boolean bFinished = false;
+
+    private volatile boolean bClosed = false;
+
+    private volatile Throwable tFailure;
+
+    private Thread tThread;
+
+    private VCFBAMRecordProducer(File tBAMFileIn, SAMFileHeader tHeaderIn, ExecutorService tInflaterPoolIn, int iReadAheadBlocksIn,
+            long lStartVirtualOffsetIn) {
+        this.tBAMFile = tBAMFileIn;
+        this.tHeader = tHeaderIn;
+        this.tInflaterPool = tInflaterPoolIn;
+        this.iReadAheadBlocks = iReadAheadBlocksIn;
+        this.lStartVirtualOffset = lStartVirtualOffsetIn;
+        this.tQueue = new ArrayBlockingQueue<List<SAMRecord>>(INT_QUEUED_BATCHES);
+    }
+
+    public static VCFBAMRecordProducer getInstance(File tBAMFileIn, SAMFileHeader tHeaderIn, ExecutorService tInflaterPoolIn,
+            int iReadAheadBlocksIn, long lStartVirtualOffsetIn) {
+        VCFBAMRecordProducer tProducer = new VCFBAMRecordProducer(tBAMFileIn, tHeaderIn, tInflaterPoolIn, iReadAheadBlocksIn,
+                lStartVirtualOffsetIn);
+        tProducer.tThread = new Thread(tProducer, "bam-decoder-" + tBAMFileIn.getName());
+        tProducer.tThread.setDaemon(true);
+        tProducer.tThread.start();
+        return tProducer;
+    }
+
+    @Override
+    public void run() {
+
+        ParallelBGZFInputStream tInputStream = null;
+
+        try {
+
+            tInputStream = ParallelBGZFInputStream.getInstance(this.tBAMFile, this.tInflaterPool, this.iReadAheadBlocks);
+
+            if (this.lStartVirtualOffset == START_AFTER_HEADER) {
+                VCFBAMRecordProducer.skipHeader(tInputStream);
+            } else {
+                tInputStream.seek(this.lStartVirtualOffset);
+            }
+
+            BAMRecordCodec tCodec = new BAMRecordCodec(this.tHeader);
+            tCodec.setInputStream(tInputStream, this.tBAMFile.getPath());
+
+            List<SAMRecord> tBatch = new ArrayList<SAMRecord>(INT_BATCH_SIZE);
+            SAMRecord tRecord = null;
+            while (!this.bClosed && (tRecord = tCodec.decode()) != null) {
+
+                // decode the lazily parsed fields here rather than on the conversion thread
+                tRecord.getAlignmentEnd();
+                tRecord.getReadBases();
+                tRecord.getBaseQualities();
+
+                tBatch.add(tRecord);
+                if (tBatch.size() == INT_BATCH_SIZE) {
+                    this.putBatch(tBatch);
+                    tBatch = new ArrayList<SAMRecord>(INT_BATCH_SIZE);
+                }
+            }
+
+            if (!tBatch.isEmpty()) {
+                this.putBatch(tBatch);
+            }
+
+        } catch (InterruptedException e) {
+            return;
+        } catch (Throwable e) {
+            // an Error too has to reach the conversion thread, or it waits forever for the end of the records
+            this.tFailure = e;
+        } finally {
+            if (tInputStream != null) {
+                try {
+                    tInputStream.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+
+        try {
+            this.putBatch(END_OF_RECORDS);
+        } catch (InterruptedException e) {
+            return;
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+
+        while (!this.bFinished && (this.tCurrentBatch == null || this.iCurrentIndex == this.tCurrentBatch.size())) {
+
+            try {
+                this.tCurrentBatch = this.tQueue.take();
+                QUEUED_BATCHES_GAUGE.decrement();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for bam records from " + this.tBAMFile, e);
+            }
+            this.iCurrentIndex = 0;
+
+            if (this.tCurrentBatch == END_OF_RECORDS) {
+                this.bFinished = true;
+                if (this.tFailure != null) {
+                    if (this.tFailure instanceof IOException) {
+                        throw new UncheckedIOException((IOException) this.tFailure);
+                    }
+                    throw new IllegalStateException("Could not decode bam records from " + this.tBAMFile, this.tFailure);
+                }
+            }
+        }
+
+        return !this.bFinished;
+    }
+
+    @Override
+    public SAMRecord next() {
+        if (!this.hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return this.tCurrentBatch.get(this.iCurrentIndex++);
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void close() {
+        this.bClosed = true;
+        this.tThread.interrupt();
+        QUEUED_BATCHES_GAUGE.add(-this.tQueue.drainTo(new ArrayList<List<SAMRecord>>()));
+    }
+
+    private void putBatch(List<SAMRecord> tBatchIn) throws InterruptedException {
+        this.tQueue.put(tBatchIn);
+        QUEUED_BATCHES_GAUGE.increment();
+    }
+
+    private static void skipHeader(ParallelBGZFInputStream tInputStreamIn) throws IOException {
+
+        DataInputStream tDataInput = new DataInputStream(tInputStreamIn);
+
+        byte[] bMagic = new byte[4];
+        tDataInput.readFully(bMagic);
+        if (bMagic[0] != 'B' || bMagic[1] != 'A' || bMagic[2] != 'M' || bMagic[3] != 1) {
+            throw new IOException("Not a bam file: bad magic number");
+        }
+
+        VCFBAMRecordProducer.skipFully(tDataInput, VCFBAMRecordProducer.readInt(tDataInput));
+
+        int iReferenceCount = VCFBAMRecordProducer.readInt(tDataInput);
+        for (int ii = 0; ii < iReferenceCount; ii++) {
+            VCFBAMRecordProducer.skipFully(tDataInput, VCFBAMRecordProducer.readInt(tDataInput));
+            VCFBAMRecordProducer.skipFully(tDataInput, 4);
+        }
+    }
+
+    private static int readInt(DataInputStream tDataInputIn) throws IOException {
+        return Integer.reverseBytes(tDataInputIn.readInt());
+    }
+
+    private static void skipFully(DataInputStream tDataInputIn, int iBytesIn) throws IOException {
+        int iSkipped = 0;
+        while (iSkipped < iBytesIn) {
+            int iStep = tDataInputIn.skipBytes(iBytesIn - iSkipped);
+            if (iStep <= 0) {
+                tDataInputIn.readByte();
+                iStep = 1;
+            }
+            iSkipped += iStep;
+        }
+    }
+
+}
@@ -0,0 +1,174 @@
+package org.renci.seqtools.converter;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.Predicate;
+
+import org.renci.seqtools.commons.StreamUtils;
+
+import htsjdk.tribble.readers.TabixReader;
+
+public class VCFContigReaderFactory {
+
+    private static final String TABIX_INDEX_SUFFIX = ".tbi";
+
+    private VCFContigReaderFactory() {
+    }
+
+    public static BufferedReader makeReader(File tVCFFileIn, final Predicate<String> tContigFilterIn) throws IOException {
+
+        File tIndexFile = new File(tVCFFileIn.getPath() + TABIX_INDEX_SUFFIX);
+
+        if (tContigFilterIn != null && tVCFFileIn.getName().toLowerCase().endsWith(".gz") && tIndexFile.isFile()) {
+            return VCFContigReaderFactory.makeTabixReader(tVCFFileIn, tIndexFile, tContigFilterIn);
+        }
+
+        // compression is detected from the stream header, so an unsuffixed gzip or bzip2 vcf reads as well
+        return VCFContigReaderFactory.filterReader(StreamUtils.newBufferedReader(tVCFFileIn), tContigFilterIn);
+    }
+
+    public static BufferedReader filterReader(final BufferedReader tReaderIn, final Predicate<String> tContigFilterIn) {
+
+        if (tContigFilterIn == null) {
+            return tReaderIn;
+        }
+
+        Iterator<String> tLineIter = new Iterator<String>() {
+
+            private String sNextLine = null;
+
+            @Override
+            public boolean hasNext() {
+                try {
+                    while (this.sNextLine == null) {
+                        String sLine = tReaderIn.readLine();
+                        if (sLine == null) {
+                            return false;
+                        }
+                        if (sLine.startsWith("#") || tContigFilterIn.test(VCFContigReaderFactory.getContig(sLine))) {
+                            this.sNextLine = sLine;
+                        }
+                    }
+                    return true;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+
+            @Override
+            public String next() {
+                if (!this.hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                String sLine = this.sNextLine;
+                this.sNextLine = null;
+                return sLine;
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+
+        return new BufferedReader(VCFLineIteratorReader.getInstance(tLineIter, tReaderIn));
+    }
+
+    private static BufferedReader makeTabixReader(File tVCFFileIn, File tIndexFileIn, Predicate<String> tContigFilterIn)
+            throws IOException {
+
+        final TabixReader tTabixReader = new TabixReader(tVCFFileIn.getPath(), tIndexFileIn.getPath());
+
+        final List<String> tHeaderLines = new ArrayList<String>();
+        String sLine = null;
+        while ((sLine = tTabixReader.readLine()) != null && sLine.startsWith("#")) {
+            tHeaderLines.add(sLine);
+        }
+
+        final List<String> tSelectedContigs = new ArrayList<String>();
+        for (String sContig : tTabixReader.getChromosomes()) {
+            if (tContigFilterIn.test(sContig)) {
+                tSelectedContigs.add(sContig);
+            }
+        }
+        Collections.sort(tSelectedContigs, new Comparator<String>() {
+            @Override
+            public int compare(String sContig1, String sContig2) {
+                return Integer.compare(tTabixReader.chr2tid(sContig1), tTabixReader.chr2tid(sContig2));
+            }
+        });
+
+        System.out.println("\tConverter: Seeking to " + tSelectedContigs.size() + " contig(s) through " + tIndexFileIn.getName());
+
+        Iterator<String> tLineIter = new Iterator<String>() {
+
+            private Iterator<String> tHeaderIter = tHeaderLines.iterator();
+
+            private Iterator<String> tContigIter = tSelectedContigs.iterator();
+
+            private TabixReader.Iterator tQueryIter = null;
+
+            private String sNextLine = null;
+
+            @Override
+            public boolean hasNext() {
+                try {
+                    while (this.sNextLine == null) {
+                        if (this.tHeaderIter.hasNext()) {
+                            this.sNextLine = this.tHeaderIter.next();
+                        } else if (this.tQueryIter != null) {
+                            this.sNextLine = this.tQueryIter.next();
+                            if (this.sNextLine == null) {
+                                this.tQueryIter = null;
+                            }
+                        } else if (this.tContigIter.hasNext()) {
+                            this.tQueryIter = tTabixReader.query(tTabixReader.chr2tid(this.tContigIter.next()), 0, Integer.MAX_VALUE);
+                        } else {
+                            return false;
+                        }
+                    }
+                    return true;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+
+            @Override
+            public String next() {
+                if (!this.hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                String sLine = this.sNextLine;
+                this.sNextLine = null;
+                return sLine;
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+
+        return new BufferedReader(VCFLineIteratorReader.getInstance(tLineIter, new Closeable() {
+            @Override
+            public void close() {
+                tTabixReader.close();
+            }
+        }));
+    }
+
+    public static String getContig(String sLineIn) {
+        int iTab = sLineIn.indexOf('\t');
+        return iTab < 0 ? sLineIn : sLineIn.substring(0, iTab);
+    }
+
+}
@@ -0,0 +1,244 @@
+package org.renci.seqtools.converter;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+public class VCFConversionCheckpoint {
+
+    private static final String HEADER_TAG = "#Converter checkpoint";
+
+    private static final String CONTIG_TAG = "contig";
+
+    private File tCheckpointFile;
+
+    private Map<String, List<VCFShardCheckpoint>> tMapOfCompletedContigs;
+
+    private Map<String, long[]> tMapOfContigOffsets;
+
+    private long lVariantsBytes = 0;
+
+    private long lErrorBytes = 0;
+
+    private FileOutputStream tOutputStream;
+
+    private Writer tWriter;
+
+    private VCFConversionCheckpoint(File tCheckpointFileIn) {
+        this.tCheckpointFile = tCheckpointFileIn;
+        this.tMapOfCompletedContigs = new LinkedHashMap<String, List<VCFShardCheckpoint>>();
+        this.tMapOfContigOffsets = new LinkedHashMap<String, long[]>();
+    }
+
+    public static VCFConversionCheckpoint getInstance(File tCheckpointFileIn) {
+        return new VCFConversionCheckpoint(tCheckpointFileIn);
+    }
+
+    public int load(File tOutputDirIn, boolean bVerifyIn) throws IOException {
+
+        this.tMapOfCompletedContigs.clear();
+        this.tMapOfContigOffsets.clear();
+
+        if (!this.tCheckpointFile.isFile()) {
+            return 0;
+        }
+
+        BufferedReader tReader = new BufferedReader(new FileReader(this.tCheckpointFile));
+        try {
+            List<VCFShardCheckpoint> tPendingShards = new ArrayList<VCFShardCheckpoint>();
+            String sLine = null;
+            while ((sLine = tReader.readLine()) != null) {
+
+                if (sLine.startsWith("#") || sLine.isEmpty()) {
+                    continue;
+                }
+
+                if (sLine.startsWith(VCFShardCheckpoint.LINE_TAG + "\t")) {
+                    VCFShardCheckpoint tShard = VCFShardCheckpoint.getInstanceForLine(sLine);
+                    if (tShard == null) {
+                        break;
+                    }
+                    tPendingShards.add(tShard);
+                    continue;
+                }
+
+                // a contig only counts once its closing line made it to disk and every shard still matches its checksum
+                String[] sFields = sLine.split("\t", -1);
+                if (sFields.length != 5 || !CONTIG_TAG.equals(sFields[0])
+                        || (bVerifyIn && !this.areIntact(sFields[1], tPendingShards, tOutputDirIn))
+                        || Integer.parseInt(sFields[2]) != tPendingShards.size()) {
+                    break;
+                }
+
+                this.lVariantsBytes = Long.parseLong(sFields[3]);
+                this.lErrorBytes = Long.parseLong(sFields[4]);
+                this.tMapOfCompletedContigs.put(sFields[1], tPendingShards);
+                this.tMapOfContigOffsets.put(sFields[1], new long[] { this.lVariantsBytes, this.lErrorBytes });
+                tPendingShards = new ArrayList<VCFShardCheckpoint>();
+            }
+        } catch (NumberFormatException e) {
+            e.printStackTrace();
+        } finally {
+            tReader.close();
+        }
+
+        return this.tMapOfCompletedContigs.size();
+    }
+
+    public void open(String sVCFFileNameIn) throws IOException {
+
+        // rewrite the verified prefix so later appends never follow a torn line
+        this.tOutputStream = new FileOutputStream(this.tCheckpointFile, false);
+        this.tWriter = new OutputStreamWriter(this.tOutputStream);
+        this.tWriter.write(HEADER_TAG + "\t" + sVCFFileNameIn + System.getProperty("line.separator"));
+        for (Map.Entry<String, List<VCFShardCheckpoint>> tEntry : this.tMapOfCompletedContigs.entrySet()) {
+            long[] lOffsets = this.tMapOfContigOffsets.get(tEntry.getKey());
+            this.writeContig(tEntry.getKey(), tEntry.getValue(), lOffsets[0], lOffsets[1]);
+        }
+        this.sync();
+    }
+
+    public void recordContig(String sContigIn, List<VCFShardCheckpoint> tShardsIn, long lVariantsBytesIn, long lErrorBytesIn)
+            throws IOException {
+
+        this.lVariantsBytes = lVariantsBytesIn;
+        this.lErrorBytes = lErrorBytesIn;
+        this.tMapOfCompletedContigs.put(sContigIn, tShardsIn);
+        this.tMapOfContigOffsets.put(sContigIn, new long[] { lVariantsBytesIn, lErrorBytesIn });
+
+        this.writeContig(sContigIn, tShardsIn, lVariantsBytesIn, lErrorBytesIn);
+        this.sync();
+    }
+
+    public void replaceShards(List<VCFShardCheckpoint> tShardsIn) {
+
+        for (VCFShardCheckpoint tShard : tShardsIn) {
+
+            List<VCFShardCheckpoint> tContigShards = this.tMapOfCompletedContigs.get(tShard.getContig());
+            if (tContigShards == null) {
+                tContigShards = new ArrayList<VCFShardCheckpoint>();
+                this.tMapOfCompletedContigs.put(tShard.getContig(), tContigShards);
+                this.tMapOfContigOffsets.put(tShard.getContig(), new long[] { this.lVariantsBytes, this.lErrorBytes });
+            }
+
+            boolean bReplaced = false;
+            for (int ii = 0; ii < tContigShards.size() && !bReplaced; ii++) {
+                if (tContigShards.get(ii).getSample().equals(tShard.getSample())) {
+                    tContigShards.set(ii, tShard);
+                    bReplaced = true;
+                }
+            }
+            if (!bReplaced) {
+                tContigShards.add(tShard);
+            }
+        }
+    }
+
+    public boolean isContigComplete(String sContigIn) {
+        return this.tMapOfCompletedContigs.containsKey(sContigIn);
+    }
+
+    public int getCompletedContigCount() {
+        return this.tMapOfCompletedContigs.size();
+    }
+
+    public List<VCFShardCheckpoint> getShards() {
+        List<VCFShardCheckpoint> tShards = new ArrayList<VCFShardCheckpoint>();
+        for (List<VCFShardCheckpoint> tContigShards : this.tMapOfCompletedContigs.values()) {
+            tShards.addAll(tContigShards);
+        }
+        return tShards;
+    }
+
+    public long getVariantsBytes() {
+        return this.lVariantsBytes;
+    }
+
+    public long getErrorBytes() {
+        return this.lErrorBytes;
+    }
+
+    public void close() {
+        if (this.tWriter != null) {
+            try {
+                this.tWriter.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    public BufferedReader openInputReader(File tVCFFileIn) throws IOException {
+
+        if (this.tMapOfCompletedContigs.isEmpty()) {
+            return VCFContigReaderFactory.makeReader(tVCFFileIn, null);
+        }
+
+        return VCFContigReaderFactory.makeReader(tVCFFileIn, new Predicate<String>() {
+            @Override
+            public boolean test(String sContigIn) {
+                return !VCFConversionCheckpoint.this.isContigComplete(sContigIn);
+            }
+        });
+    }
+
+    public BufferedReader openInputReader(BufferedReader tReaderIn) {
+
+        if (this.tMapOfCompletedContigs.isEmpty()) {
+            return tReaderIn;
+        }
+
+        // a streamed source can't seek, so completed contigs are read and dropped
+        return VCFContigReaderFactory.filterReader(tReaderIn, new Predicate<String>() {
+            @Override
+            public boolean test(String sContigIn) {
+                return !VCFConversionCheckpoint.this.isContigComplete(sContigIn);
+            }
+        });
+    }
+
+    public static void truncate(File tFileIn, long lLengthIn) throws IOException {
+        RandomAccessFile tRandomAccessFile = new RandomAccessFile(tFileIn, "rw");
+        try {
+            tRandomAccessFile.setLength(lLengthIn);
+        } finally {
+            tRandomAccessFile.close();
+        }
+    }
+
+    private boolean areIntact(String sContigIn, List<VCFShardCheckpoint> tShardsIn, File tOutputDirIn) {
+        for (VCFShardCheckpoint tShard : tShardsIn) {
+            if (!sContigIn.equals(tShard.getContig()) || !tShard.isIntact(tOutputDirIn)) {
+                System.out.println("\tConverter: Shard " + tShard.getShardKey() + " does not match its checkpoint, redoing contig "
+                        + sContigIn);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void writeContig(String sContigIn, List<VCFShardCheckpoint> tShardsIn, long lVariantsBytesIn, long lErrorBytesIn)
+            throws IOException {
+        String sEnder = System.getProperty("line.separator");
+        for (VCFShardCheckpoint tShard : tShardsIn) {
+            this.tWriter.write(tShard.toLine() + sEnder);
+        }
+        this.tWriter.write(CONTIG_TAG + "\t" + sContigIn + "\t" + tShardsIn.size() + "\t" + lVariantsBytesIn + "\t" + lErrorBytesIn + sEnder);
+    }
+
+    private void sync() throws IOException {
+        this.tWriter.flush();
+        this.tOutputStream.getFD().sync();
+    }
+
+}
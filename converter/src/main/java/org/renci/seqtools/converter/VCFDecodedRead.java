@@ -0,0 +1,101 @@
+package org.renci.seqtools.converter;
+
+import java.util.List;
+
+import htsjdk.samtools.AlignmentBlock;
+import htsjdk.samtools.SAMRecord;
+
+public class VCFDecodedRead {
+
+    private static final int INT_OBJECT_OVERHEAD_BYTES = 96;
+
+    private int iAlignmentStart;
+
+    private int iAlignmentEnd;
+
+    private byte[] bBases;
+
+    private byte[] bQualities;
+
+    private short sMappingQuality;
+
+    private boolean bIsReverseStrand;
+
+    private boolean bIsCounted;
+
+    private int[] iBlockReferenceStarts;
+
+    private int[] iBlockReadStarts;
+
+    private int[] iBlockLengths;
+
+    private VCFDecodedRead(SAMRecord tRecordIn) {
+        this.iAlignmentStart = tRecordIn.getAlignmentStart();
+        this.iAlignmentEnd = tRecordIn.getAlignmentEnd();
+        this.bBases = tRecordIn.getReadBases();
+        this.bQualities = tRecordIn.getBaseQualities();
+        this.sMappingQuality = (short) tRecordIn.getMappingQuality();
+        this.bIsReverseStrand = tRecordIn.getReadNegativeStrandFlag();
+        this.bIsCounted = VCFPileupSummary.isCounted(tRecordIn);
+
+        List<AlignmentBlock> tBlocks = tRecordIn.getAlignmentBlocks();
+        this.iBlockReferenceStarts = new int[tBlocks.size()];
+        this.iBlockReadStarts = new int[tBlocks.size()];
+        this.iBlockLengths = new int[tBlocks.size()];
+        for (int ii = 0; ii < tBlocks.size(); ii++) {
+            AlignmentBlock tBlock = tBlocks.get(ii);
+            this.iBlockReferenceStarts[ii] = tBlock.getReferenceStart();
+            this.iBlockReadStarts[ii] = tBlock.getReadStart();
+            this.iBlockLengths[ii] = tBlock.getLength();
+        }
+    }
+
+    public static VCFDecodedRead getInstance(SAMRecord tRecordIn) {
+        return new VCFDecodedRead(tRecordIn);
+    }
+
+    public int getAlignmentStart() {
+        return this.iAlignmentStart;
+    }
+
+    public int getAlignmentEnd() {
+        return this.iAlignmentEnd;
+    }
+
+    public byte[] getBases() {
+        return this.bBases;
+    }
+
+    public byte[] getQualities() {
+        return this.bQualities;
+    }
+
+    public short getMappingQuality() {
+        return this.sMappingQuality;
+    }
+
+    public boolean isReverseStrand() {
+        return this.bIsReverseStrand;
+    }
+
+    public boolean isCounted() {
+        return this.bIsCounted;
+    }
+
+    public int getReadOffset(int iPositionIn) {
+        for (int ii = 0; ii < this.iBlockReferenceStarts.length; ii++) {
+            if (iPositionIn < this.iBlockReferenceStarts[ii]) {
+                break;
+            }
+            if (iPositionIn < this.iBlockReferenceStarts[ii] + this.iBlockLengths[ii]) {
+                return this.iBlockReadStarts[ii] - 1 + (iPositionIn - this.iBlockReferenceStarts[ii]);
+            }
+        }
+        return -1;
+    }
+
+    public long getEstimatedBytes() {
+        return INT_OBJECT_OVERHEAD_BYTES + this.bBases.length + this.bQualities.length + 12L * this.iBlockLengths.length;
+    }
+
+}
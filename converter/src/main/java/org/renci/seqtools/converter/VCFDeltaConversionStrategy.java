@@ -0,0 +1,369 @@
+package org.renci.seqtools.converter;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Predicate;
+
+import org.apache.commons.compress.compressors.gzip.GzipCompressorOutputStream;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.StringUtils;
+
+public class VCFDeltaConversionStrategy implements IConversionStrategy {
+
+    private static final int INT_FIXED_COLUMN_COUNT = VCFLineDataProcessor.INT_VCF_DATA_COLUMN_POSITION;
+
+    private static final String DASH = "-";
+
+    private IConversionFormat tConversionFormat;
+
+    private File tBaseVCFFile;
+
+    private File tDeltaVCFFile;
+
+    private File tBAMFile;
+
+    private File tOutputDir;
+
+    private GenomeType tGenomeType;
+
+    private File tMetricsFile;
+
+    private ConversionSettings tSettings;
+
+    private String[] sDeltaSampleNames;
+
+    private Map<String, TreeMap<Long, String>> tMapOfDeltaLines;
+
+    public VCFDeltaConversionStrategy(IConversionFormat tFormatIn, File tBaseVCFFileIn, File tDeltaVCFFileIn, File tBAMFileIn,
+            File tOutputDirIn, GenomeType tGenomeTypeIn, File tMetricsFileIn, ConversionSettings tSettingsIn) {
+        this.tConversionFormat = tFormatIn;
+        this.tBaseVCFFile = tBaseVCFFileIn;
+        this.tDeltaVCFFile = tDeltaVCFFileIn;
+        this.tBAMFile = tBAMFileIn;
+        this.tOutputDir = tOutputDirIn;
+        this.tGenomeType = tGenomeTypeIn;
+        this.tMetricsFile = tMetricsFileIn;
+        this.tSettings = tSettingsIn;
+        this.tMapOfDeltaLines = new LinkedHashMap<String, TreeMap<Long, String>>();
+    }
+
+    @Override
+    public void run() {
+        try {
+            this.convert();
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    @Override
+    public void convert() throws Exception {
+
+        String sVCFFileName = this.tBaseVCFFile.getName();
+
+        VCFConversionCheckpoint tCheckpoint = VCFConversionCheckpoint
+                .getInstance(new File(this.tOutputDir, sVCFFileName + DASH + "checkpoint.txt"));
+        if (tCheckpoint.load(this.tOutputDir, false) == 0) {
+            throw new ConverterException("No completed checkpoint for " + sVCFFileName + " in " + this.tOutputDir
+                    + "; convert the base vcf once before applying a delta");
+        }
+
+        this.readDeltaVCF();
+
+        System.out.println("\tConverter: Delta " + this.tDeltaVCFFile.getName() + " touches " + this.tMapOfDeltaLines.size()
+                + " contig(s) for " + this.sDeltaSampleNames.length + " sample(s) ...");
+
+        File tWorkDir = Files.createTempDirectory(this.tOutputDir.toPath(), "delta-").toFile();
+
+        try {
+
+            // the merged vcf keeps the base name so its shards land on the same file names as the ones they replace
+            File tMergedVCFFile = new File(tWorkDir, sVCFFileName);
+            this.writeMergedVCF(tMergedVCFFile);
+
+            // the merged vcf is read as a plain file in base order, into a fresh work dir
+            ConversionSettings tMergeSettings = this.tSettings.copy();
+            tMergeSettings.setResume(false);
+            tMergeSettings.setSortInput(false);
+            tMergeSettings.setInputSource(null);
+            tMergeSettings.setDeltaVCFFile(null);
+
+            BZip2VCFConversionStrategy tStrategy = new BZip2VCFConversionStrategy(this.tConversionFormat, tMergedVCFFile, this.tBAMFile,
+                    tWorkDir, "1", this.tGenomeType, null, new File(this.tOutputDir, this.tDeltaVCFFile.getName() + ".variants-only.gz"),
+                    tMergeSettings);
+            tStrategy.convert();
+
+            VCFConversionCheckpoint tDeltaCheckpoint = VCFConversionCheckpoint
+                    .getInstance(new File(tWorkDir, sVCFFileName + DASH + "checkpoint.txt"));
+            tDeltaCheckpoint.load(tWorkDir, false);
+            List<VCFShardCheckpoint> tNewShards = tDeltaCheckpoint.getShards();
+
+            for (VCFShardCheckpoint tShard : tNewShards) {
+                VCFDeltaConversionStrategy.moveInto(tWorkDir, this.tOutputDir, tShard.getMasterFileName());
+                VCFDeltaConversionStrategy.moveInto(tWorkDir, this.tOutputDir, tShard.getDetailFileName());
+                VCFDeltaConversionStrategy.moveInto(tWorkDir, this.tOutputDir, tShard.getTextModeFileName());
+            }
+
+            File[] tErrorFiles = tWorkDir.listFiles();
+            for (File tFile : tErrorFiles) {
+                if (tFile.getName().endsWith("errorFile.txt")) {
+                    Files.move(tFile.toPath(), new File(this.tOutputDir, this.tDeltaVCFFile.getName() + DASH + "errorFile.txt").toPath(),
+                            StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+
+            tCheckpoint.replaceShards(tNewShards);
+            tCheckpoint.open(sVCFFileName);
+            tCheckpoint.close();
+
+            this.writePositionMap(tCheckpoint.getShards(), new File(this.tOutputDir, sVCFFileName + DASH + "positionmap.txt"));
+
+            if (this.tMetricsFile != null) {
+                this.writeMetrics(tCheckpoint.getShards(), sVCFFileName);
+            }
+
+            System.out.println("\tConverter: Rebuilt " + tNewShards.size() + " shard(s) from " + this.tDeltaVCFFile.getName());
+
+        } finally {
+            FileUtils.deleteQuietly(tWorkDir);
+        }
+    }
+
+    private void readDeltaVCF() throws IOException {
+
+        BufferedReader tReader = VCFContigReaderFactory.makeReader(this.tDeltaVCFFile, null);
+        try {
+            String sLine = null;
+            while ((sLine = tReader.readLine()) != null) {
+
+                if (sLine.startsWith("##")) {
+                    continue;
+                }
+
+                if (sLine.startsWith("#")) {
+                    String[] sColumns = sLine.split("\t");
+                    this.sDeltaSampleNames = Arrays.copyOfRange(sColumns, Math.min(INT_FIXED_COLUMN_COUNT, sColumns.length),
+                            sColumns.length);
+                    continue;
+                }
+
+                if (sLine.isEmpty()) {
+                    continue;
+                }
+
+                String[] sFields = sLine.split("\t", 3);
+                if (this.sDeltaSampleNames == null || sFields.length < 3) {
+                    throw new ConverterException("Malformed delta vcf line in " + this.tDeltaVCFFile + ": " + sLine);
+                }
+
+                TreeMap<Long, String> tContigLines = this.tMapOfDeltaLines.get(sFields[0]);
+                if (tContigLines == null) {
+                    tContigLines = new TreeMap<Long, String>();
+                    this.tMapOfDeltaLines.put(sFields[0], tContigLines);
+                }
+                // a later line for the same position supersedes an earlier one, as in a full conversion
+                tContigLines.put(Long.valueOf(sFields[1]), sLine);
+            }
+        } catch (NumberFormatException e) {
+            throw new ConverterException("Bad position in delta vcf " + this.tDeltaVCFFile, e);
+        } finally {
+            tReader.close();
+        }
+
+        if (this.sDeltaSampleNames == null || this.sDeltaSampleNames.length == 0) {
+            throw new ConverterException("Found no sample columns in delta vcf " + this.tDeltaVCFFile);
+        }
+    }
+
+    private void writeMergedVCF(File tMergedVCFFileIn) throws IOException {
+
+        // the map loses each contig as the merge reaches it, and a streamed reader tests lines as they are read, so it gets a copy
+        final Set<String> tDeltaContigs = Collections.unmodifiableSet(new HashSet<String>(this.tMapOfDeltaLines.keySet()));
+        BufferedReader tReader = VCFContigReaderFactory.makeReader(this.tBaseVCFFile, new Predicate<String>() {
+            @Override
+            public boolean test(String sContigIn) {
+                return tDeltaContigs.contains(sContigIn);
+            }
+        });
+
+        OutputStream tOutputStream = new FileOutputStream(tMergedVCFFileIn);
+        if (tMergedVCFFileIn.getName().toLowerCase().endsWith(".gz")) {
+            tOutputStream = new GzipCompressorOutputStream(tOutputStream);
+        }
+        BufferedWriter tWriter = new BufferedWriter(new OutputStreamWriter(tOutputStream));
+
+        try {
+
+            int[] iBaseColumns = null;
+            String sCurrentContig = null;
+            Iterator<Map.Entry<Long, String>> tDeltaIter = null;
+            Map.Entry<Long, String> tPendingDelta = null;
+
+            String sLine = null;
+            while ((sLine = tReader.readLine()) != null) {
+
+                if (sLine.startsWith("##")) {
+                    VCFDeltaConversionStrategy.writeLine(tWriter, sLine);
+                    continue;
+                }
+
+                if (sLine.startsWith("#")) {
+                    iBaseColumns = this.getBaseColumnsForDeltaSamples(sLine.split("\t"));
+                    String[] sHeader = Arrays.copyOf(sLine.split("\t"), INT_FIXED_COLUMN_COUNT + this.sDeltaSampleNames.length);
+                    System.arraycopy(this.sDeltaSampleNames, 0, sHeader, INT_FIXED_COLUMN_COUNT, this.sDeltaSampleNames.length);
+                    VCFDeltaConversionStrategy.writeLine(tWriter, StringUtils.join(sHeader, "\t"));
+                    continue;
+                }
+
+                if (iBaseColumns == null || sLine.isEmpty()) {
+                    continue;
+                }
+
+                String[] sFields = sLine.split("\t", -1);
+                long lPosition = Long.parseLong(sFields[1]);
+
+                if (!sFields[0].equals(sCurrentContig)) {
+                    VCFDeltaConversionStrategy.writeRemaining(tWriter, tPendingDelta, tDeltaIter);
+                    sCurrentContig = sFields[0];
+                    TreeMap<Long, String> tContigLines = this.tMapOfDeltaLines.remove(sCurrentContig);
+                    tDeltaIter = tContigLines == null ? null : tContigLines.entrySet().iterator();
+                    tPendingDelta = tDeltaIter != null && tDeltaIter.hasNext() ? tDeltaIter.next() : null;
+                }
+
+                while (tPendingDelta != null && tPendingDelta.getKey().longValue() < lPosition) {
+                    VCFDeltaConversionStrategy.writeLine(tWriter, tPendingDelta.getValue());
+                    tPendingDelta = tDeltaIter.hasNext() ? tDeltaIter.next() : null;
+                }
+
+                if (tPendingDelta != null && tPendingDelta.getKey().longValue() == lPosition) {
+                    VCFDeltaConversionStrategy.writeLine(tWriter, tPendingDelta.getValue());
+                    tPendingDelta = tDeltaIter.hasNext() ? tDeltaIter.next() : null;
+                } else {
+                    VCFDeltaConversionStrategy.writeLine(tWriter, VCFDeltaConversionStrategy.project(sFields, iBaseColumns));
+                }
+            }
+
+            if (iBaseColumns == null) {
+                throw new ConverterException("Found no #CHROM header line in " + this.tBaseVCFFile);
+            }
+
+            VCFDeltaConversionStrategy.writeRemaining(tWriter, tPendingDelta, tDeltaIter);
+
+            // contigs that only the delta has
+            for (TreeMap<Long, String> tContigLines : this.tMapOfDeltaLines.values()) {
+                for (String sDeltaLine : tContigLines.values()) {
+                    VCFDeltaConversionStrategy.writeLine(tWriter, sDeltaLine);
+                }
+            }
+
+        } catch (NumberFormatException e) {
+            throw new ConverterException("Bad position in " + this.tBaseVCFFile, e);
+        } finally {
+            tWriter.close();
+            tReader.close();
+        }
+    }
+
+    private int[] getBaseColumnsForDeltaSamples(String[] sBaseHeaderIn) {
+
+        int[] iBaseColumns = new int[this.sDeltaSampleNames.length];
+
+        for (int ii = 0; ii < this.sDeltaSampleNames.length; ii++) {
+            iBaseColumns[ii] = -1;
+            for (int jj = INT_FIXED_COLUMN_COUNT; jj < sBaseHeaderIn.length; jj++) {
+                if (sBaseHeaderIn[jj].equals(this.sDeltaSampleNames[ii])) {
+                    iBaseColumns[ii] = jj;
+                    break;
+                }
+            }
+            if (iBaseColumns[ii] < 0) {
+                throw new ConverterException("Delta sample " + this.sDeltaSampleNames[ii] + " is not a sample of " + this.tBaseVCFFile);
+            }
+        }
+
+        return iBaseColumns;
+    }
+
+    private static String project(String[] sFieldsIn, int[] iBaseColumnsIn) {
+
+        StringBuilder tBuilder = new StringBuilder();
+        for (int ii = 0; ii < INT_FIXED_COLUMN_COUNT && ii < sFieldsIn.length; ii++) {
+            if (ii > 0) {
+                tBuilder.append('\t');
+            }
+            tBuilder.append(sFieldsIn[ii]);
+        }
+        for (int iColumn : iBaseColumnsIn) {
+            tBuilder.append('\t');
+            if (iColumn < sFieldsIn.length) {
+                tBuilder.append(sFieldsIn[iColumn]);
+            }
+        }
+
+        return tBuilder.toString();
+    }
+
+    private static void writeRemaining(BufferedWriter tWriterIn, Map.Entry<Long, String> tPendingIn,
+            Iterator<Map.Entry<Long, String>> tIterIn) throws IOException {
+        if (tPendingIn != null) {
+            VCFDeltaConversionStrategy.writeLine(tWriterIn, tPendingIn.getValue());
+        }
+        while (tIterIn != null && tIterIn.hasNext()) {
+            VCFDeltaConversionStrategy.writeLine(tWriterIn, tIterIn.next().getValue());
+        }
+    }
+
+    private static void writeLine(BufferedWriter tWriterIn, String sLineIn) throws IOException {
+        tWriterIn.write(sLineIn);
+        tWriterIn.newLine();
+    }
+
+    private static void moveInto(File tFromDirIn, File tToDirIn, String sFileNameIn) throws IOException {
+        Files.move(new File(tFromDirIn, sFileNameIn).toPath(), new File(tToDirIn, sFileNameIn).toPath(),
+                StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private void writePositionMap(List<VCFShardCheckpoint> tShardsIn, File tPositionMapFileIn) throws IOException {
+        FileWriter tWriter = new FileWriter(tPositionMapFileIn);
+        try {
+            tWriter.write(BZip2VCFConversionStrategy.VERSION_STRING + System.getProperty("line.separator"));
+            BZip2VCFConversionStrategy.writePositionMapEntries(tWriter, tShardsIn);
+        } finally {
+            tWriter.close();
+        }
+    }
+
+    private void writeMetrics(List<VCFShardCheckpoint> tShardsIn, String sVCFFileNameIn) throws IOException {
+
+        Map<String, VCFMetricsManager> tMapOfMetricsData = new LinkedHashMap<String, VCFMetricsManager>();
+        for (VCFShardCheckpoint tShard : tShardsIn) {
+            tMapOfMetricsData.put(tShard.getMetricsKey(), tShard.getMetrics());
+        }
+
+        FileWriter tWriter = new FileWriter(this.tMetricsFile);
+        try {
+            BZip2VCFConversionStrategy.writeMetricsData(tWriter, tMapOfMetricsData, sVCFFileNameIn);
+        } finally {
+            tWriter.close();
+        }
+    }
+
+}
@@ -0,0 +1,399 @@
+package org.renci.seqtools.converter;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.zip.Deflater;
+
+import org.apache.commons.compress.compressors.gzip.GzipCompressorInputStream;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorOutputStream;
+import org.apache.commons.compress.compressors.gzip.GzipParameters;
+
+import htsjdk.samtools.SAMSequenceDictionary;
+
+public class VCFExternalSorter implements Closeable {
+
+    private static final int MAX_RUNS_PER_MERGE = 256;
+
+    private static final int IO_BUFFER_SIZE = 1 << 16;
+
+    private SAMSequenceDictionary tDict;
+
+    private Map<String, Integer> tMapOfContigIndexes;
+
+    private File tTempDir;
+
+    private int iMaxRecordsInRam;
+
+    private List<File> tRunFiles;
+
+    private List<BufferedReader> tOpenRunReaders;
+
+    private VCFExternalSorter(SAMSequenceDictionary tDictIn, File tTempDirIn, int iMaxRecordsInRamIn) {
+        this.tDict = tDictIn;
+        this.tTempDir = tTempDirIn;
+        this.iMaxRecordsInRam = Math.max(1, iMaxRecordsInRamIn);
+        this.tMapOfContigIndexes = new HashMap<String, Integer>();
+        this.tRunFiles = new ArrayList<File>();
+        this.tOpenRunReaders = new ArrayList<BufferedReader>();
+    }
+
+    public static VCFExternalSorter getInstance(SAMSequenceDictionary tDictIn, File tTempDirIn, int iMaxRecordsInRamIn) {
+        return new VCFExternalSorter(tDictIn, tTempDirIn, iMaxRecordsInRamIn);
+    }
+
+    public BufferedReader sort(BufferedReader tReaderIn) throws IOException {
+
+        List<String> tHeaderLines = new ArrayList<String>();
+        List<SortRecord> tRecordBuffer = new ArrayList<SortRecord>(Math.min(this.iMaxRecordsInRam, 1 << 16));
+
+        boolean bInHeader = true;
+        long lSequence = 0;
+        String sLine = null;
+
+        try {
+            while ((sLine = tReaderIn.readLine()) != null) {
+
+                if (sLine.startsWith("#")) {
+                    // concatenated inputs repeat their header block, only the first one is kept
+                    if (bInHeader) {
+                        tHeaderLines.add(sLine);
+                    }
+                    continue;
+                }
+
+                bInHeader = false;
+
+                if (sLine.isEmpty()) {
+                    continue;
+                }
+
+                tRecordBuffer.add(this.makeSortRecord(sLine, lSequence++));
+
+                if (tRecordBuffer.size() >= this.iMaxRecordsInRam) {
+                    this.spillRun(tRecordBuffer);
+                    tRecordBuffer.clear();
+                }
+            }
+        } finally {
+            tReaderIn.close();
+        }
+
+        Iterator<String> tRecordIter = null;
+
+        if (this.tRunFiles.isEmpty()) {
+            Collections.sort(tRecordBuffer, SORT_RECORD_COMPARATOR);
+            tRecordIter = new SortRecordLineIterator(tRecordBuffer);
+        } else {
+            if (!tRecordBuffer.isEmpty()) {
+                this.spillRun(tRecordBuffer);
+                tRecordBuffer.clear();
+            }
+            tRecordBuffer = null;
+
+            System.out.println("\tConverter: merging " + this.tRunFiles.size() + " sorted run(s) of " + lSequence + " vcf records ...");
+
+            while (this.tRunFiles.size() > MAX_RUNS_PER_MERGE) {
+                this.mergeRunsOnePass();
+            }
+
+            tRecordIter = new MergeIterator(this.openRuns(this.tRunFiles));
+        }
+
+        return new BufferedReader(VCFLineIteratorReader.getInstance(new ConcatIterator(tHeaderLines.iterator(), tRecordIter), this),
+                IO_BUFFER_SIZE);
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (BufferedReader tReader : this.tOpenRunReaders) {
+            try {
+                tReader.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        this.tOpenRunReaders.clear();
+
+        for (File tRunFile : this.tRunFiles) {
+            tRunFile.delete();
+        }
+        this.tRunFiles.clear();
+    }
+
+    private SortRecord makeSortRecord(String sLineIn, long lSequenceIn) {
+
+        int iFirstTab = sLineIn.indexOf('\t');
+        String sContig = iFirstTab < 0 ? sLineIn : sLineIn.substring(0, iFirstTab);
+
+        long lPosition = Long.MAX_VALUE;
+        if (iFirstTab >= 0) {
+            int iSecondTab = sLineIn.indexOf('\t', iFirstTab + 1);
+            String sPosition = iSecondTab < 0 ? sLineIn.substring(iFirstTab + 1) : sLineIn.substring(iFirstTab + 1, iSecondTab);
+            try {
+                lPosition = Long.parseLong(sPosition.trim());
+            } catch (NumberFormatException e) {
+                lPosition = Long.MAX_VALUE;
+            }
+        }
+
+        return new SortRecord(sLineIn, this.getContigIndex(sContig), lPosition, lSequenceIn);
+    }
+
+    private int getContigIndex(String sContigIn) {
+
+        Integer tIndex = this.tMapOfContigIndexes.get(sContigIn);
+
+        if (tIndex == null) {
+            int iIndex = this.tDict != null ? this.tDict.getSequenceIndex(sContigIn) : -1;
+            if (iIndex < 0) {
+                // contigs missing from the bam header go after all known contigs, in order of first appearance
+                int iDictSize = this.tDict != null ? this.tDict.size() : 0;
+                iIndex = iDictSize + this.countUnknownContigs();
+            }
+            tIndex = Integer.valueOf(iIndex);
+            this.tMapOfContigIndexes.put(sContigIn, tIndex);
+        }
+
+        return tIndex.intValue();
+    }
+
+    private int countUnknownContigs() {
+        int iCount = 0;
+        int iDictSize = this.tDict != null ? this.tDict.size() : 0;
+        for (Integer tIndex : this.tMapOfContigIndexes.values()) {
+            if (tIndex.intValue() >= iDictSize) {
+                iCount++;
+            }
+        }
+        return iCount;
+    }
+
+    private void spillRun(List<SortRecord> tRecordsIn) throws IOException {
+
+        Collections.sort(tRecordsIn, SORT_RECORD_COMPARATOR);
+
+        File tRunFile = this.createRunFile();
+        this.tRunFiles.add(tRunFile);
+
+        try (BufferedWriter tWriter = this.openRunWriter(tRunFile)) {
+            for (SortRecord tRecord : tRecordsIn) {
+                tWriter.write(tRecord.sLine);
+                tWriter.write('\n');
+            }
+        }
+    }
+
+    private void mergeRunsOnePass() throws IOException {
+
+        List<File> tMergedRuns = new ArrayList<File>();
+
+        for (int ii = 0; ii < this.tRunFiles.size(); ii += MAX_RUNS_PER_MERGE) {
+
+            List<File> tGroup = new ArrayList<File>(this.tRunFiles.subList(ii, Math.min(ii + MAX_RUNS_PER_MERGE, this.tRunFiles.size())));
+
+            if (tGroup.size() == 1) {
+                tMergedRuns.add(tGroup.get(0));
+                continue;
+            }
+
+            File tMergedRunFile = this.createRunFile();
+
+            List<BufferedReader> tGroupReaders = this.openRuns(tGroup);
+            try (BufferedWriter tWriter = this.openRunWriter(tMergedRunFile)) {
+                MergeIterator tMergeIter = new MergeIterator(tGroupReaders);
+                while (tMergeIter.hasNext()) {
+                    tWriter.write(tMergeIter.next());
+                    tWriter.write('\n');
+                }
+            } finally {
+                for (BufferedReader tReader : tGroupReaders) {
+                    tReader.close();
+                    this.tOpenRunReaders.remove(tReader);
+                }
+            }
+
+            for (File tRunFile : tGroup) {
+                tRunFile.delete();
+            }
+
+            tMergedRuns.add(tMergedRunFile);
+        }
+
+        this.tRunFiles = tMergedRuns;
+    }
+
+    private File createRunFile() throws IOException {
+        File tRunFile = File.createTempFile("vcfsort", ".run.gz", this.tTempDir);
+        tRunFile.deleteOnExit();
+        return tRunFile;
+    }
+
+    private BufferedWriter openRunWriter(File tRunFileIn) throws IOException {
+        GzipParameters tParameters = new GzipParameters();
+        tParameters.setCompressionLevel(Deflater.BEST_SPEED);
+        return new BufferedWriter(new OutputStreamWriter(
+                new GzipCompressorOutputStream(new BufferedOutputStream(new FileOutputStream(tRunFileIn), IO_BUFFER_SIZE), tParameters)),
+                IO_BUFFER_SIZE);
+    }
+
+    private List<BufferedReader> openRuns(List<File> tRunFilesIn) throws IOException {
+        List<BufferedReader> tReaders = new ArrayList<BufferedReader>();
+        for (File tRunFile : tRunFilesIn) {
+            BufferedReader tReader = new BufferedReader(
+                    new InputStreamReader(new GzipCompressorInputStream(new BufferedInputStream(new FileInputStream(tRunFile), IO_BUFFER_SIZE))),
+                    IO_BUFFER_SIZE);
+            tReaders.add(tReader);
+            this.tOpenRunReaders.add(tReader);
+        }
+        return tReaders;
+    }
+
+    private static final Comparator<SortRecord> SORT_RECORD_COMPARATOR = new Comparator<SortRecord>() {
+
+        @Override
+        public int compare(SortRecord tFirst, SortRecord tSecond) {
+            int iResult = Integer.compare(tFirst.iContigIndex, tSecond.iContigIndex);
+            if (iResult == 0) {
+                iResult = Long.compare(tFirst.lPosition, tSecond.lPosition);
+            }
+            if (iResult == 0) {
+                iResult = Long.compare(tFirst.lSequence, tSecond.lSequence);
+            }
+            return iResult;
+        }
+
+    };
+
+    private static class SortRecord {
+
+        private String sLine;
+
+        private int iContigIndex;
+
+        private long lPosition;
+
+        private long lSequence;
+
+        private SortRecord(String sLineIn, int iContigIndexIn, long lPositionIn, long lSequenceIn) {
+            this.sLine = sLineIn;
+            this.iContigIndex = iContigIndexIn;
+            this.lPosition = lPositionIn;
+            this.lSequence = lSequenceIn;
+        }
+
+    }
+
+    private static class SortRecordLineIterator implements Iterator<String> {
+
+        private List<SortRecord> tRecords;
+
+        private int iNextIndex = 0;
+
+        private SortRecordLineIterator(List<SortRecord> tRecordsIn) {
+            this.tRecords = tRecordsIn;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return this.iNextIndex < this.tRecords.size();
+        }
+
+        @Override
+        public String next() {
+            if (!this.hasNext()) {
+                throw new NoSuchElementException();
+            }
+            // let the buffer release each line once it has been handed on
+            SortRecord tRecord = this.tRecords.set(this.iNextIndex++, null);
+            return tRecord.sLine;
+        }
+
+    }
+
+    private class MergeIterator implements Iterator<String> {
+
+        private PriorityQueue<SortRecord> tQueue;
+
+        private List<BufferedReader> tReaders;
+
+        private MergeIterator(List<BufferedReader> tReadersIn) throws IOException {
+            this.tReaders = tReadersIn;
+            // the run number stands in for the sequence so ties keep their input order
+            this.tQueue = new PriorityQueue<SortRecord>(Math.max(1, tReadersIn.size()), SORT_RECORD_COMPARATOR);
+            for (int ii = 0; ii < tReadersIn.size(); ii++) {
+                this.advance(ii);
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !this.tQueue.isEmpty();
+        }
+
+        @Override
+        public String next() {
+            SortRecord tRecord = this.tQueue.poll();
+            if (tRecord == null) {
+                throw new NoSuchElementException();
+            }
+            try {
+                this.advance((int) tRecord.lSequence);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return tRecord.sLine;
+        }
+
+        private void advance(int iRunIndexIn) throws IOException {
+            String sLine = this.tReaders.get(iRunIndexIn).readLine();
+            if (sLine != null) {
+                SortRecord tRecord = VCFExternalSorter.this.makeSortRecord(sLine, iRunIndexIn);
+                this.tQueue.add(tRecord);
+            }
+        }
+
+    }
+
+    private static class ConcatIterator implements Iterator<String> {
+
+        private Iterator<String> tFirstIter;
+
+        private Iterator<String> tSecondIter;
+
+        private ConcatIterator(Iterator<String> tFirstIterIn, Iterator<String> tSecondIterIn) {
+            this.tFirstIter = tFirstIterIn;
+            this.tSecondIter = tSecondIterIn;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return this.tFirstIter.hasNext() || this.tSecondIter.hasNext();
+        }
+
+        @Override
+        public String next() {
+            return this.tFirstIter.hasNext() ? this.tFirstIter.next() : this.tSecondIter.next();
+        }
+
+    }
+
+}
@@ -18,23 +18,23 @@ public class VCFLineDataProcessor {
 
     public static final int INT_VCF_DATA_COLUMN_POSITION = 9;
 
-    public static boolean bHasGenotype = false;
+    private boolean bHasGenotype = false;
 
-    public static boolean bHasSNPQualityScore = false;
+    private boolean bHasSNPQualityScore = false;
 
-    public static boolean bHasReadDepth = false;
+    private boolean bHasReadDepth = false;
 
-    public static boolean bHasConsensusQuailty = false;
+    private boolean bHasConsensusQuailty = false;
 
-    private static boolean bHasDotSlashDotSampleData = false;
+    private boolean bHasDotSlashDotSampleData = false;
 
-    public static int iGenotypeIndex = 0;
+    private int iGenotypeIndex = 0;
 
-    public static int iSNPQualityScoreIndex = 0;
+    private int iSNPQualityScoreIndex = 0;
 
-    public static int iReadDepthIndex = 0;
+    private int iReadDepthIndex = 0;
 
-    public static int iConsensusQualityIndex = 0;
+    private int iConsensusQualityIndex = 0;
 
     private static final String FORMAT_GT = "GT";
 
@@ -52,7 +52,7 @@ public class VCFLineDataProcessor {
 
     private static final String TAB = "\t";
 
-    private static String GENOTYPE = "Z";
+    private String sGenotype = "Z";
 
     private List<String> tBaseDataList = null;
 
@@ -62,6 +62,10 @@ public class VCFLineDataProcessor {
 
     private VCFDataManager tDataManager;
 
+    private VCFPileupSummary tPileupSummary;
+
+    private VCFPileupSummary[] tColumnPileupSummaries;
+
     private String[] sArrayOfRefAndAltData;
 
     private VCFLineDataProcessor() {
@@ -95,19 +99,23 @@ public class VCFLineDataProcessor {
 
         this.tDataManager = null;
 
+        this.tPileupSummary = null;
+
+        this.tColumnPileupSummaries = null;
+
         this.sArrayOfRefAndAltData = null;
 
-        VCFLineDataProcessor.bHasGenotype = false;
-        VCFLineDataProcessor.bHasSNPQualityScore = false;
-        VCFLineDataProcessor.bHasReadDepth = false;
-        VCFLineDataProcessor.bHasConsensusQuailty = false;
+        this.bHasGenotype = false;
+        this.bHasSNPQualityScore = false;
+        this.bHasReadDepth = false;
+        this.bHasConsensusQuailty = false;
 
-        VCFLineDataProcessor.bHasDotSlashDotSampleData = false;
+        this.bHasDotSlashDotSampleData = false;
 
-        VCFLineDataProcessor.iGenotypeIndex = 0;
-        VCFLineDataProcessor.iSNPQualityScoreIndex = 0;
-        VCFLineDataProcessor.iReadDepthIndex = 0;
-        VCFLineDataProcessor.iConsensusQualityIndex = 0;
+        this.iGenotypeIndex = 0;
+        this.iSNPQualityScoreIndex = 0;
+        this.iReadDepthIndex = 0;
+        this.iConsensusQualityIndex = 0;
 
         this.tBaseDataList = tOutputList;
         this.iFilePairNumber = iNumberOfFilePairs;
@@ -119,10 +127,10 @@ public class VCFLineDataProcessor {
 
     public void loadParsedVCFDataIntoMap() throws Exception {
 
-        this.tBAMTool.getRecord();
-
         for (int ii = 0; ii < this.iFilePairNumber; ii++) {
 
+            this.tPileupSummary = this.getPileupSummaryForColumn(ii);
+
             this.parseFormatColumn(this.tBaseDataList, ii);
 
             if (this.hasWeirdData(this.tBaseDataList, ii)) {
@@ -159,7 +167,7 @@ public class VCFLineDataProcessor {
 
         boolean bHasIndel = false;
         boolean bHasSNP = false;
-        boolean bIsReverseStrand = this.tBAMTool.getRecord().getReadNegativeStrandFlag();
+        boolean bIsReverseStrand = this.tPileupSummary.isReverseStrand();
         boolean bIsNoCall = false;
         boolean bHasNoReferenceData = true;
 
@@ -169,10 +177,10 @@ public class VCFLineDataProcessor {
 
         VCFRecord tRecord = VCFRecord.getInstance(iColumnIdIn, sPosition, sTotalGenotype, sRefGenotype,
                 this.getConsensusQualityScore(iColumnIdIn), this.getSNPQualityScore(iColumnIdIn),
-                Short.toString(this.tBAMTool.getMappingQuality()), this.getReadDepth(iColumnIdIn), this.tBAMTool.getReadQualityScores(),
-                this.tBAMTool.getReadBases(), bHasIndel, bHasSNP, bIsReverseStrand, bIsNoCall, bHasNoReferenceData);
+                Short.toString(this.tPileupSummary.getMeanMappingQuality()), this.getReadDepth(iColumnIdIn), null, null,
+                bHasIndel, bHasSNP, bIsReverseStrand, bIsNoCall, bHasNoReferenceData);
 
-        this.tDataManager.addRecord(tRecord, iColumnIdIn);
+        this.addRecord(tRecord, iColumnIdIn);
 
     }
 
@@ -209,14 +217,14 @@ public class VCFLineDataProcessor {
         boolean bIsNoCall = false;
         boolean bHasNoReferenceData = false;
 
-        boolean bIsReverseStrand = this.tBAMTool.getRecord().getReadNegativeStrandFlag();
+        boolean bIsReverseStrand = this.tPileupSummary.isReverseStrand();
 
         VCFRecord tRecord = VCFRecord.getInstance(iSampleColumnIn, sPosition, sTotalGenotype, sTotalGenotype,
                 this.getConsensusQualityScore(iSampleColumnIn), this.getSNPQualityScore(iSampleColumnIn),
-                Short.toString(this.tBAMTool.getMappingQuality()), this.getReadDepth(iSampleColumnIn), this.tBAMTool.getReadQualityScores(),
-                this.tBAMTool.getReadBases(), bHasIndel, bHasSNP, bIsReverseStrand, bIsNoCall, bHasNoReferenceData);
+                Short.toString(this.tPileupSummary.getMeanMappingQuality()), this.getReadDepth(iSampleColumnIn), null, null,
+                bHasIndel, bHasSNP, bIsReverseStrand, bIsNoCall, bHasNoReferenceData);
 
-        this.tDataManager.addRecord(tRecord, iSampleColumnIn);
+        this.addRecord(tRecord, iSampleColumnIn);
 
     }
 
@@ -254,7 +262,7 @@ public class VCFLineDataProcessor {
         int[] iByPosition = this.getZygosityArray(tBaseDataList2.get(iColumnToGet));
         boolean bHasIndel = false;
         boolean bHasSNP = true;
-        boolean bIsReverseStrand = this.tBAMTool.getRecord().getReadNegativeStrandFlag();
+        boolean bIsReverseStrand = this.tPileupSummary.isReverseStrand();
         boolean bIsNoCall = false;
         boolean bHasNoReferenceData = false;
 
@@ -264,10 +272,10 @@ public class VCFLineDataProcessor {
 
         VCFRecord tRecord = VCFRecord.getInstance(iColumnIdIn, sPosition, sTotalGenotype, sRefGenotype + " " + sAltGenotype,
                 this.getConsensusQualityScore(iColumnIdIn), this.getSNPQualityScore(iColumnIdIn),
-                Short.toString(this.tBAMTool.getMappingQuality()), this.getReadDepth(iColumnIdIn), this.tBAMTool.getReadQualityScores(),
-                this.tBAMTool.getReadBases(), bHasIndel, bHasSNP, bIsReverseStrand, bIsNoCall, bHasNoReferenceData);
+                Short.toString(this.tPileupSummary.getMeanMappingQuality()), this.getReadDepth(iColumnIdIn), null, null,
+                bHasIndel, bHasSNP, bIsReverseStrand, bIsNoCall, bHasNoReferenceData);
 
-        this.tDataManager.addRecord(tRecord, iColumnIdIn);
+        this.addRecord(tRecord, iColumnIdIn);
 
     }
 
@@ -279,7 +287,7 @@ public class VCFLineDataProcessor {
         int[] iByPosition = this.getZygosityArray(tBaseDataList2.get(iColumnToGet));
         boolean bHasIndel = false;
         boolean bHasSNP = true;
-        boolean bIsReverseStrand = this.tBAMTool.getRecord().getReadNegativeStrandFlag();
+        boolean bIsReverseStrand = this.tPileupSummary.isReverseStrand();
         boolean bIsNoCall = false;
         boolean bHasNoReferenceData = false;
 
@@ -289,10 +297,10 @@ public class VCFLineDataProcessor {
 
         VCFRecord tRecord = VCFRecord.getInstance(iColumnIdIn, sPosition, sTotalGenotype, sRefGenotype + " " + sAltGenotype,
                 this.getConsensusQualityScore(iColumnIdIn), this.getSNPQualityScore(iColumnIdIn),
-                Short.toString(this.tBAMTool.getMappingQuality()), this.getReadDepth(iColumnIdIn), this.tBAMTool.getReadQualityScores(),
-                this.tBAMTool.getReadBases(), bHasIndel, bHasSNP, bIsReverseStrand, bIsNoCall, bHasNoReferenceData);
+                Short.toString(this.tPileupSummary.getMeanMappingQuality()), this.getReadDepth(iColumnIdIn), null, null,
+                bHasIndel, bHasSNP, bIsReverseStrand, bIsNoCall, bHasNoReferenceData);
 
-        this.tDataManager.addRecord(tRecord, iColumnIdIn);
+        this.addRecord(tRecord, iColumnIdIn);
 
     }
 
@@ -319,7 +327,7 @@ public class VCFLineDataProcessor {
 
         boolean bHasIndel = false;
         boolean bHasSNP = false;
-        boolean bIsReverseStrand = this.tBAMTool.getRecord().getReadNegativeStrandFlag();
+        boolean bIsReverseStrand = this.tPileupSummary.isReverseStrand();
         boolean bIsNoCall = true;
         boolean bHasNoReferenceData = false;
 
@@ -329,10 +337,10 @@ public class VCFLineDataProcessor {
 
         VCFRecord tRecord = VCFRecord.getInstance(iColumnIdIn, sPosition, sTotalGenotype, sRefGenotype,
                 this.getConsensusQualityScore(iColumnIdIn), this.getSNPQualityScore(iColumnIdIn),
-                Short.toString(this.tBAMTool.getMappingQuality()), this.getReadDepth(iColumnIdIn), this.tBAMTool.getReadQualityScores(),
-                this.tBAMTool.getReadBases(), bHasIndel, bHasSNP, bIsReverseStrand, bIsNoCall, bHasNoReferenceData);
+                Short.toString(this.tPileupSummary.getMeanMappingQuality()), this.getReadDepth(iColumnIdIn), null, null,
+                bHasIndel, bHasSNP, bIsReverseStrand, bIsNoCall, bHasNoReferenceData);
 
-        this.tDataManager.addRecord(tRecord, iColumnIdIn);
+        this.addRecord(tRecord, iColumnIdIn);
 
     }
 
@@ -345,7 +353,7 @@ public class VCFLineDataProcessor {
 
         boolean bHasIndel = false;
         boolean bHasSNP = false;
-        boolean bIsReverseStrand = this.tBAMTool.getRecord().getReadNegativeStrandFlag();
+        boolean bIsReverseStrand = this.tPileupSummary.isReverseStrand();
         boolean bIsNoCall = false;
         boolean bHasNoReferenceData = false;
 
@@ -353,10 +361,10 @@ public class VCFLineDataProcessor {
 
         VCFRecord tRecord = VCFRecord.getInstance(iPairNumberIn, sPosition, this.getGenotype(), sTotalGenotype,
                 this.getConsensusQualityScore(iPairNumberIn), this.getSNPQualityScore(iPairNumberIn),
-                Short.toString(this.tBAMTool.getMappingQuality()), this.getReadDepth(iPairNumberIn), this.tBAMTool.getReadQualityScores(),
-                this.tBAMTool.getReadBases(), bHasIndel, bHasSNP, bIsReverseStrand, bIsNoCall, bHasNoReferenceData);
+                Short.toString(this.tPileupSummary.getMeanMappingQuality()), this.getReadDepth(iPairNumberIn), null, null,
+                bHasIndel, bHasSNP, bIsReverseStrand, bIsNoCall, bHasNoReferenceData);
 
-        this.tDataManager.addRecord(tRecord, iPairNumberIn);
+        this.addRecord(tRecord, iPairNumberIn);
 
     }
 
@@ -446,12 +454,12 @@ public class VCFLineDataProcessor {
 
         if ((iByPosition[0] == 0 && iByPosition[1] == 0) && (this.sArrayOfRefAndAltData[INDEX_REFERENCE].length() == 1)) {
 
-            VCFLineDataProcessor.GENOTYPE = this.sArrayOfRefAndAltData[INDEX_REFERENCE];
+            this.sGenotype = this.sArrayOfRefAndAltData[INDEX_REFERENCE];
 
         } else if ((iByPosition[0] == iByPosition[1])
                 && (this.sArrayOfRefAndAltData[iByPosition[0]].length() == this.sArrayOfRefAndAltData[iByPosition[1]].length())) {
 
-            VCFLineDataProcessor.GENOTYPE = this.sArrayOfRefAndAltData[iByPosition[0]];
+            this.sGenotype = this.sArrayOfRefAndAltData[iByPosition[0]];
         } else {
             throw new Exception("Don't know how to handle this line: " + Arrays.toString(tVCFLine.toArray()));
         }
@@ -467,13 +475,13 @@ public class VCFLineDataProcessor {
         String sSNPQualScore = tVCFLine.get(INT_QUAL_COLUMN_POSITION);
 
         if (sSNPQualScore.equalsIgnoreCase(".")) {
-            VCFLineDataProcessor.bHasSNPQualityScore = false;
+            this.bHasSNPQualityScore = false;
         } else if (VCFLineDataProcessor.isNumber(sSNPQualScore)) {
-            VCFLineDataProcessor.bHasSNPQualityScore = false;
+            this.bHasSNPQualityScore = false;
 
         } else {
-            VCFLineDataProcessor.bHasSNPQualityScore = true;
-            VCFLineDataProcessor.iSNPQualityScoreIndex = INT_QUAL_COLUMN_POSITION;
+            this.bHasSNPQualityScore = true;
+            this.iSNPQualityScoreIndex = INT_QUAL_COLUMN_POSITION;
         }
 
         if (sFormatElements.length == 0) {
@@ -487,17 +495,17 @@ public class VCFLineDataProcessor {
         for (int ii = 0; ii < sFormatElements.length; ii++) {
 
             if (sFormatElements[ii].equals(FORMAT_GT)) {
-                VCFLineDataProcessor.bHasGenotype = true;
-                VCFLineDataProcessor.iGenotypeIndex = ii;
+                this.bHasGenotype = true;
+                this.iGenotypeIndex = ii;
 
             } else if (sFormatElements[ii].equals(FORMAT_READ_DEPTH)) {
 
-                VCFLineDataProcessor.bHasReadDepth = true;
-                VCFLineDataProcessor.iReadDepthIndex = ii;
+                this.bHasReadDepth = true;
+                this.iReadDepthIndex = ii;
             } else if (sFormatElements[ii].equals(FORMAT_CONSENSUS_QUALITY)) {
 
-                VCFLineDataProcessor.bHasConsensusQuailty = true;
-                VCFLineDataProcessor.iConsensusQualityIndex = ii;
+                this.bHasConsensusQuailty = true;
+                this.iConsensusQualityIndex = ii;
             }
         }
 
@@ -535,16 +543,16 @@ public class VCFLineDataProcessor {
 
         boolean bHasIndel = true;
         boolean bHasSNP = false;
-        boolean bIsReverseStrand = this.tBAMTool.getRecord().getReadNegativeStrandFlag();
+        boolean bIsReverseStrand = this.tPileupSummary.isReverseStrand();
         boolean bIsNoCall = false;
         boolean bHasNoReferenceData = false;
 
         VCFRecord tRecord = VCFRecord.getInstance(iSampleColumnIn, tListIn.get(INT_POSITION_COLUMN_POSITION),
                 INSERTION_FLAG + Character.toString(sInsertionValue.charAt(0)), sRefGenotype,
                 this.getConsensusQualityScore(iSampleColumnIn), this.getSNPQualityScore(iSampleColumnIn),
-                Short.toString(this.tBAMTool.getMappingQuality()), this.getReadDepth(iSampleColumnIn), this.tBAMTool.getReadQualityScores(),
+                Short.toString(this.tPileupSummary.getMeanMappingQuality()), this.getReadDepth(iSampleColumnIn), null,
                 sRefGenotype + " " + sAltGenotype, bHasIndel, bHasSNP, bIsReverseStrand, bIsNoCall, bHasNoReferenceData);
-        this.tDataManager.addRecord(tRecord, iSampleColumnIn);
+        this.addRecord(tRecord, iSampleColumnIn);
 
     }
 
@@ -571,19 +579,35 @@ public class VCFLineDataProcessor {
         VCFRecord tRecord;
         boolean bHasIndel = true;
         boolean bHasSNP = false;
-        boolean bIsReverseStrand = this.tBAMTool.getRecord().getReadNegativeStrandFlag();
+        boolean bIsReverseStrand = this.tPileupSummary.isReverseStrand();
         boolean bIsNoCall = false;
         boolean bHasNoReferenceData = false;
 
         tRecord = VCFRecord.getInstance(iSampleColumnIn, tListIn.get(INT_POSITION_COLUMN_POSITION),
                 DELETION_FLAG + Character.toString(sDeletionValue.charAt(0)), sRefGenotype, this.getConsensusQualityScore(iSampleColumnIn),
-                this.getSNPQualityScore(iSampleColumnIn), Short.toString(this.tBAMTool.getMappingQuality()),
+                this.getSNPQualityScore(iSampleColumnIn), Short.toString(this.tPileupSummary.getMeanMappingQuality()),
 
-                this.getReadDepth(iSampleColumnIn), this.tBAMTool.getReadQualityScores(), sRefGenotype + " " + sAltGenotype, bHasIndel,
+                this.getReadDepth(iSampleColumnIn), null, sRefGenotype + " " + sAltGenotype, bHasIndel,
                 bHasSNP, bIsReverseStrand, bIsNoCall, bHasNoReferenceData);
 
-        this.tDataManager.addRecord(tRecord, iSampleColumnIn);
+        this.addRecord(tRecord, iSampleColumnIn);
+
+    }
+
+    public void setColumnPileupSummaries(VCFPileupSummary[] tColumnPileupSummariesIn) {
+        this.tColumnPileupSummaries = tColumnPileupSummariesIn;
+    }
+
+    private VCFPileupSummary getPileupSummaryForColumn(int iColumnIn) {
+        if (this.tColumnPileupSummaries != null && this.tColumnPileupSummaries[iColumnIn] != null) {
+            return this.tColumnPileupSummaries[iColumnIn];
+        }
+        return this.tBAMTool.getPileupSummary();
+    }
 
+    private void addRecord(VCFRecord tRecordIn, int iColumnIn) {
+        tRecordIn.setPileupSummary(this.tPileupSummary);
+        this.tDataManager.addRecord(tRecordIn, iColumnIn);
     }
 
     public String getColumnDataForIndividual(int iPairIdIn) {
@@ -593,7 +617,7 @@ public class VCFLineDataProcessor {
     }
 
     public String getGenotype() {
-        return VCFLineDataProcessor.GENOTYPE;
+        return this.sGenotype;
     }
 
     public String getConsensusQualityScore(int iFilePairNumberIn) {
@@ -601,9 +625,9 @@ public class VCFLineDataProcessor {
         if (this.hasDotSlashDotSampleData()) {
             sReturnVal = "0";
         } else {
-            if (VCFLineDataProcessor.bHasConsensusQuailty) {
+            if (this.bHasConsensusQuailty) {
                 String sConsensusQualityScore = this.getValueInIndividualColumnData(iFilePairNumberIn,
-                        VCFLineDataProcessor.iConsensusQualityIndex);
+                        this.iConsensusQualityIndex);
                 sReturnVal = sConsensusQualityScore;
             } else {
                 sReturnVal = "0";
@@ -627,8 +651,8 @@ public class VCFLineDataProcessor {
         if (this.hasDotSlashDotSampleData()) {
             sReturnVal = "0";
         } else {
-            if (VCFLineDataProcessor.bHasReadDepth) {
-                String sReadDepth = this.getValueInIndividualColumnData(iSampleColumnIn, VCFLineDataProcessor.iReadDepthIndex);
+            if (this.bHasReadDepth) {
+                String sReadDepth = this.getValueInIndividualColumnData(iSampleColumnIn, this.iReadDepthIndex);
                 sReturnVal = sReadDepth;
             } else {
                 sReturnVal = "0";
@@ -652,16 +676,16 @@ public class VCFLineDataProcessor {
 
     public int[] getZygosityArray(String sProcessStringIn) throws Exception {
 
-        VCFLineDataProcessor.bHasDotSlashDotSampleData = false;
+        this.bHasDotSlashDotSampleData = false;
         int[] iByPipe;
 
         if (sProcessStringIn.equalsIgnoreCase("./.") || sProcessStringIn.equalsIgnoreCase(".")) {
             iByPipe = new int[] { 0, 0 };
-            VCFLineDataProcessor.bHasDotSlashDotSampleData = true;
+            this.bHasDotSlashDotSampleData = true;
         } else {
             String[] sByColon = sProcessStringIn.split(":");
 
-            String[] sByPipe = sByColon[VCFLineDataProcessor.iGenotypeIndex].split("[|]|[/]");
+            String[] sByPipe = sByColon[this.iGenotypeIndex].split("[|]|[/]");
 
             iByPipe = new int[sByPipe.length];
             iByPipe[0] = Integer.parseInt(sByPipe[0]);
@@ -671,7 +695,7 @@ public class VCFLineDataProcessor {
     }
 
     public boolean hasDotSlashDotSampleData() {
-        return VCFLineDataProcessor.bHasDotSlashDotSampleData;
+        return this.bHasDotSlashDotSampleData;
     }
 
 }
@@ -0,0 +1,64 @@
+package org.renci.seqtools.converter;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Iterator;
+
+public class VCFLineIteratorReader extends Reader {
+
+    private static final String LINE_SEPARATOR = "\n";
+
+    private Iterator<String> tLineIter;
+
+    private Closeable tOnClose;
+
+    private String sCurrentLine;
+
+    private int iCurrentOffset = 0;
+
+    private VCFLineIteratorReader(Iterator<String> tLineIterIn, Closeable tOnCloseIn) {
+        this.tLineIter = tLineIterIn;
+        this.tOnClose = tOnCloseIn;
+    }
+
+    public static VCFLineIteratorReader getInstance(Iterator<String> tLineIterIn, Closeable tOnCloseIn) {
+        return new VCFLineIteratorReader(tLineIterIn, tOnCloseIn);
+    }
+
+    @Override
+    public int read(char[] cBufferIn, int iOffsetIn, int iLengthIn) throws IOException {
+
+        if (iLengthIn == 0) {
+            return 0;
+        }
+
+        int iWritten = 0;
+
+        while (iWritten < iLengthIn) {
+
+            if (this.sCurrentLine == null || this.iCurrentOffset == this.sCurrentLine.length()) {
+                if (!this.tLineIter.hasNext()) {
+                    break;
+                }
+                this.sCurrentLine = this.tLineIter.next() + LINE_SEPARATOR;
+                this.iCurrentOffset = 0;
+            }
+
+            int iToCopy = Math.min(iLengthIn - iWritten, this.sCurrentLine.length() - this.iCurrentOffset);
+            this.sCurrentLine.getChars(this.iCurrentOffset, this.iCurrentOffset + iToCopy, cBufferIn, iOffsetIn + iWritten);
+            this.iCurrentOffset += iToCopy;
+            iWritten += iToCopy;
+        }
+
+        return iWritten == 0 ? -1 : iWritten;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (this.tOnClose != null) {
+            this.tOnClose.close();
+        }
+    }
+
+}
@@ -6,14 +6,22 @@ import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.FileWriter;
+import java.io.FilterOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.List;
 
 import org.apache.commons.compress.compressors.bzip2.BZip2CompressorOutputStream;
+import org.apache.commons.io.output.CountingOutputStream;
+import org.renci.seqtools.commons.jfr.FlightEvents;
+import org.renci.seqtools.commons.metrics.MetricsRegistry;
+import org.renci.seqtools.commons.metrics.TimedOutputStream;
 
 public class VCFMasterDetailFileStreamManager {
 
+    private static final int INT_OUTPUT_BLOCK_SIZE = 64 * 1024;
+
     private String sMaster = "master-";
 
     private String sDetail = "detail-";
@@ -96,6 +104,46 @@ public class VCFMasterDetailFileStreamManager {
         return this.iSampleColumnNumber;
     }
 
+    private static DataOutputStream makeCompressedStream(final File tFileIn) throws IOException {
+
+        MetricsRegistry tMetrics = MetricsRegistry.getInstance();
+
+        OutputStream tFileStream = new FilterOutputStream(new TimedOutputStream(new FileOutputStream(tFileIn),
+                tMetrics.timer(MetricsRegistry.WRITE), tMetrics.counter("write.bytes"))) {
+            @Override
+            public void write(byte[] bBufferIn, int iOffsetIn, int iLengthIn) throws IOException {
+                Object tEvent = FlightEvents.beginBlockWrite();
+                this.out.write(bBufferIn, iOffsetIn, iLengthIn);
+                FlightEvents.commitBlockWrite(tEvent, tFileIn.getName(), iLengthIn);
+            }
+        };
+
+        // the compressor emits its output a byte at a time, so collect it into blocks before it reaches the file
+        final CountingOutputStream tCompressedStream = new CountingOutputStream(
+                new BufferedOutputStream(tFileStream, INT_OUTPUT_BLOCK_SIZE));
+
+        OutputStream tCompressorStream = new TimedOutputStream(new BZip2CompressorOutputStream(tCompressedStream),
+                tMetrics.timer(MetricsRegistry.COMPRESS), tMetrics.counter("compress.bytes")) {
+            @Override
+            public void write(byte[] bBufferIn, int iOffsetIn, int iLengthIn) throws IOException {
+                Object tEvent = FlightEvents.beginCompressFlush();
+                long lBytesOut = tCompressedStream.getByteCount();
+                super.write(bBufferIn, iOffsetIn, iLengthIn);
+                FlightEvents.commitCompressFlush(tEvent, tFileIn.getName(), iLengthIn, tCompressedStream.getByteCount() - lBytesOut);
+            }
+
+            @Override
+            public void close() throws IOException {
+                Object tEvent = FlightEvents.beginCompressFlush();
+                long lBytesOut = tCompressedStream.getByteCount();
+                super.close();
+                FlightEvents.commitCompressFlush(tEvent, tFileIn.getName(), 0, tCompressedStream.getByteCount() - lBytesOut);
+            }
+        };
+
+        return new DataOutputStream(new BufferedOutputStream(tCompressorStream));
+    }
+
     public void createFilesAndStreams2(String sChromosomeNameInDashSampleColumnIn) {
 
         try {
@@ -115,16 +163,15 @@ public class VCFMasterDetailFileStreamManager {
 
             this.tMasterFile2.createNewFile();
             this.tDetailFile2.createNewFile();
-            this.tMasterStream2 = new DataOutputStream(
-                    new BufferedOutputStream(new BZip2CompressorOutputStream(new FileOutputStream(this.tMasterFile2))));
-            this.tDetailStream2 = new DataOutputStream(
-                    new BufferedOutputStream(new BZip2CompressorOutputStream(new FileOutputStream(this.tDetailFile2))));
 
             String sTextConsensusFilePathAndFile = this.tOutputDir.getCanonicalPath() + File.separatorChar + "text-mode-"
                     + this.tVCFFile.getName() + "-" + sChromosomeNameInDashSampleColumnIn + ".txt";
             this.tTextModeTestFile = new File(sTextConsensusFilePathAndFile);
             this.tTextModeTestFile.createNewFile();
-            this.tTextModeWriter = new BufferedWriter(new FileWriter(this.tTextModeTestFile));
+
+            this.setStreams(VCFMasterDetailFileStreamManager.makeCompressedStream(this.tMasterFile2),
+                    VCFMasterDetailFileStreamManager.makeCompressedStream(this.tDetailFile2),
+                    new BufferedWriter(new FileWriter(this.tTextModeTestFile)));
 
         } catch (IOException e1) {
 
@@ -133,6 +180,16 @@ public class VCFMasterDetailFileStreamManager {
 
     }
 
+    /**
+     * Points the manager at already open streams instead of the bz2 files createFilesAndStreams2 makes; the benchmarks use this to
+     * write through other sinks.
+     */
+    void setStreams(DataOutputStream tMasterStreamIn, DataOutputStream tDetailStreamIn, BufferedWriter tTextModeWriterIn) {
+        this.tMasterStream2 = tMasterStreamIn;
+        this.tDetailStream2 = tDetailStreamIn;
+        this.tTextModeWriter = tTextModeWriterIn;
+    }
+
     public void writeGenomicData(VCFRecord tRecordIn) {
 
         if (this.bFirstWriteToStream) {
@@ -200,6 +257,10 @@ public class VCFMasterDetailFileStreamManager {
         return this.tDetailFile2;
     }
 
+    public File getTextModeFile() {
+        return this.tTextModeTestFile;
+    }
+
     public String getFirstPositionInFile() {
         return this.sFirstPosition;
     }
@@ -48,6 +48,17 @@ public class VCFMetricsManager {
         this.lReadDepth += lReadDepthCountIn;
     }
 
+    public long getReadDepth() {
+        return this.lReadDepth;
+    }
+
+    public void addCounts(long lSNPCountIn, long lIndelCountIn, long lTotalPositionsCountIn, long lReadDepthIn) {
+        this.lSNPCount += lSNPCountIn;
+        this.lIndelCount += lIndelCountIn;
+        this.lTotalPositionsCount += lTotalPositionsCountIn;
+        this.lReadDepth += lReadDepthIn;
+    }
+
     public long getAverageReadDepth() {
         if (this.lTotalPositionsCount != 0) {
             return this.lReadDepth / this.lTotalPositionsCount;
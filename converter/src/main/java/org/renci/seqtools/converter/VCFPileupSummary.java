@@ -0,0 +1,168 @@
+package org.renci.seqtools.converter;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+import htsjdk.samtools.AlignmentBlock;
+import htsjdk.samtools.SAMRecord;
+
+public class VCFPileupSummary {
+
+    private static final String BASE_LABELS = "ACGTN";
+
+    private static final int INT_N_BASE_INDEX = 4;
+
+    private static final VCFPileupSummary EMPTY_SUMMARY = new VCFPileupSummary();
+
+    private int[] iBaseCounts;
+
+    private int iDepth = 0;
+
+    private int iForwardCount = 0;
+
+    private int iReverseCount = 0;
+
+    private long lBaseQualitySum = 0;
+
+    private long lMappingQualitySum = 0;
+
+    private VCFPileupSummary() {
+        this.iBaseCounts = new int[BASE_LABELS.length()];
+    }
+
+    public static VCFPileupSummary getInstance(List<SAMRecord> tRecordsIn, int iPositionIn) {
+        VCFPileupSummary tSummary = new VCFPileupSummary();
+        for (SAMRecord tRecord : tRecordsIn) {
+            tSummary.addRecord(tRecord, iPositionIn);
+        }
+        return tSummary;
+    }
+
+    public static VCFPileupSummary getEmptyInstance() {
+        return EMPTY_SUMMARY;
+    }
+
+    public static VCFPileupSummary getInstanceForDecodedReads(List<VCFDecodedRead> tReadsIn, int iPositionIn) {
+        VCFPileupSummary tSummary = new VCFPileupSummary();
+        for (VCFDecodedRead tRead : tReadsIn) {
+            if (!tRead.isCounted()) {
+                continue;
+            }
+            tSummary.addBase(tRead.getBases(), tRead.getQualities(), tRead.getReadOffset(iPositionIn), tRead.getMappingQuality(),
+                    tRead.isReverseStrand());
+        }
+        return tSummary;
+    }
+
+    // unmapped, secondary, duplicate and QC-failed reads are left out of the pileup, as samtools mpileup leaves them out
+    public static boolean isCounted(SAMRecord tRecordIn) {
+        return !tRecordIn.getReadUnmappedFlag() && !tRecordIn.getNotPrimaryAlignmentFlag() && !tRecordIn.getDuplicateReadFlag()
+                && !tRecordIn.getReadFailsVendorQualityCheckFlag();
+    }
+
+    private void addRecord(SAMRecord tRecordIn, int iPositionIn) {
+        if (!VCFPileupSummary.isCounted(tRecordIn)) {
+            return;
+        }
+        this.addBase(tRecordIn.getReadBases(), tRecordIn.getBaseQualities(), VCFPileupSummary.getReadOffset(tRecordIn, iPositionIn),
+                tRecordIn.getMappingQuality(), tRecordIn.getReadNegativeStrandFlag());
+    }
+
+    private void addBase(byte[] bBasesIn, byte[] bQualitiesIn, int iReadOffsetIn, int iMappingQualityIn, boolean bIsReverseStrandIn) {
+
+        if (iReadOffsetIn < 0 || iReadOffsetIn >= bBasesIn.length) {
+            return;
+        }
+
+        this.iBaseCounts[VCFPileupSummary.getBaseIndex(bBasesIn[iReadOffsetIn])]++;
+
+        if (iReadOffsetIn < bQualitiesIn.length) {
+            this.lBaseQualitySum += bQualitiesIn[iReadOffsetIn];
+        }
+
+        this.lMappingQualitySum += iMappingQualityIn;
+
+        if (bIsReverseStrandIn) {
+            this.iReverseCount++;
+        } else {
+            this.iForwardCount++;
+        }
+
+        this.iDepth++;
+    }
+
+    private static int getReadOffset(SAMRecord tRecordIn, int iPositionIn) {
+        for (AlignmentBlock tBlock : tRecordIn.getAlignmentBlocks()) {
+            int iReferenceStart = tBlock.getReferenceStart();
+            if (iPositionIn < iReferenceStart) {
+                break;
+            }
+            if (iPositionIn < iReferenceStart + tBlock.getLength()) {
+                return tBlock.getReadStart() - 1 + (iPositionIn - iReferenceStart);
+            }
+        }
+        // the site falls in a deletion or skipped region of this read
+        return -1;
+    }
+
+    private static int getBaseIndex(byte bBaseIn) {
+        int iIndex = BASE_LABELS.indexOf(Character.toUpperCase((char) bBaseIn));
+        return iIndex < 0 ? INT_N_BASE_INDEX : iIndex;
+    }
+
+    public int getDepth() {
+        return this.iDepth;
+    }
+
+    public int getBaseCount(char cBaseIn) {
+        return this.iBaseCounts[VCFPileupSummary.getBaseIndex((byte) cBaseIn)];
+    }
+
+    public int getForwardCount() {
+        return this.iForwardCount;
+    }
+
+    public int getReverseCount() {
+        return this.iReverseCount;
+    }
+
+    public boolean isReverseStrand() {
+        return this.iReverseCount > this.iForwardCount;
+    }
+
+    public int getMeanBaseQuality() {
+        return this.iDepth == 0 ? 0 : (int) (this.lBaseQualitySum / this.iDepth);
+    }
+
+    public short getMeanMappingQuality() {
+        return this.iDepth == 0 ? 0 : (short) (this.lMappingQualitySum / this.iDepth);
+    }
+
+    public String getBaseCountsText() {
+        StringBuilder tBuilder = new StringBuilder();
+        for (int ii = 0; ii < this.iBaseCounts.length; ii++) {
+            if (ii > 0) {
+                tBuilder.append(",");
+            }
+            tBuilder.append(BASE_LABELS.charAt(ii)).append(":").append(this.iBaseCounts[ii]);
+        }
+        return tBuilder.toString();
+    }
+
+    public String getQualityText() {
+        return "F:" + this.iForwardCount + ",R:" + this.iReverseCount + ",BQ:" + this.getMeanBaseQuality() + ",MQ:"
+                + this.getMeanMappingQuality();
+    }
+
+    public void write(DataOutputStream tOutputStreamIn) throws IOException {
+        for (int ii = 0; ii < this.iBaseCounts.length; ii++) {
+            tOutputStreamIn.writeInt(this.iBaseCounts[ii]);
+        }
+        tOutputStreamIn.writeByte(Math.min(this.getMeanBaseQuality(), 255));
+        tOutputStreamIn.writeByte(Math.min(this.getMeanMappingQuality(), 255));
+        tOutputStreamIn.writeInt(this.iForwardCount);
+        tOutputStreamIn.writeInt(this.iReverseCount);
+    }
+
+}
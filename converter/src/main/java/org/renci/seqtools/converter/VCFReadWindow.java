@@ -0,0 +1,60 @@
+package org.renci.seqtools.converter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class VCFReadWindow {
+
+    private int iStart;
+
+    private int iEnd;
+
+    private List<VCFDecodedRead> tReads;
+
+    private long lEstimatedBytes = 0;
+
+    private VCFReadWindow(int iStartIn, int iEndIn) {
+        this.iStart = iStartIn;
+        this.iEnd = iEndIn;
+        this.tReads = new ArrayList<VCFDecodedRead>();
+    }
+
+    public static VCFReadWindow getInstance(int iStartIn, int iEndIn) {
+        return new VCFReadWindow(iStartIn, iEndIn);
+    }
+
+    public void addRead(VCFDecodedRead tReadIn) {
+        this.tReads.add(tReadIn);
+        this.lEstimatedBytes += tReadIn.getEstimatedBytes();
+    }
+
+    public int getStart() {
+        return this.iStart;
+    }
+
+    public int getEnd() {
+        return this.iEnd;
+    }
+
+    public int size() {
+        return this.tReads.size();
+    }
+
+    public long getEstimatedBytes() {
+        return this.lEstimatedBytes;
+    }
+
+    public List<VCFDecodedRead> getReadsOverlapping(int iPositionIn) {
+        List<VCFDecodedRead> tOverlapping = new ArrayList<VCFDecodedRead>();
+        for (VCFDecodedRead tRead : this.tReads) {
+            if (tRead.getAlignmentStart() > iPositionIn) {
+                break;
+            }
+            if (tRead.getAlignmentEnd() >= iPositionIn) {
+                tOverlapping.add(tRead);
+            }
+        }
+        return tOverlapping;
+    }
+
+}
@@ -0,0 +1,89 @@
+package org.renci.seqtools.converter;
+
+import java.io.File;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class VCFReadWindowCache {
+
+    public static final int INT_WINDOW_SHIFT = 14;
+
+    private LinkedHashMap<String, VCFReadWindow> tMapOfWindows;
+
+    private long lMemoryBudgetBytes;
+
+    private long lCachedBytes = 0;
+
+    private long lHits = 0;
+
+    private long lMisses = 0;
+
+    private long lEvictions = 0;
+
+    private VCFReadWindowCache(long lMemoryBudgetBytesIn) {
+        this.lMemoryBudgetBytes = lMemoryBudgetBytesIn;
+        this.tMapOfWindows = new LinkedHashMap<String, VCFReadWindow>(256, 0.75f, true);
+    }
+
+    public static VCFReadWindowCache getInstance(long lMemoryBudgetBytesIn) {
+        return new VCFReadWindowCache(lMemoryBudgetBytesIn);
+    }
+
+    public static String makeKey(File tBAMFileIn, long lBAMLastModifiedIn, int iContigIndexIn, int iWindowIndexIn) {
+        // the modification time keeps a long-lived cache from serving windows of a bam that was since rewritten
+        return tBAMFileIn.getAbsolutePath() + ":" + lBAMLastModifiedIn + ":" + iContigIndexIn + ":" + iWindowIndexIn;
+    }
+
+    public static int getWindowIndex(int iPositionIn) {
+        return iPositionIn >> INT_WINDOW_SHIFT;
+    }
+
+    public static int getWindowStart(int iWindowIndexIn) {
+        return Math.max(1, iWindowIndexIn << INT_WINDOW_SHIFT);
+    }
+
+    public static int getWindowEnd(int iWindowIndexIn) {
+        return ((iWindowIndexIn + 1) << INT_WINDOW_SHIFT) - 1;
+    }
+
+    public synchronized VCFReadWindow get(String sKeyIn) {
+        VCFReadWindow tWindow = this.tMapOfWindows.get(sKeyIn);
+        if (tWindow != null) {
+            this.lHits++;
+        } else {
+            this.lMisses++;
+        }
+        return tWindow;
+    }
+
+    public synchronized void put(String sKeyIn, VCFReadWindow tWindowIn) {
+
+        VCFReadWindow tReplaced = this.tMapOfWindows.put(sKeyIn, tWindowIn);
+        if (tReplaced != null) {
+            this.lCachedBytes -= tReplaced.getEstimatedBytes();
+        }
+        this.lCachedBytes += tWindowIn.getEstimatedBytes();
+
+        Iterator<Map.Entry<String, VCFReadWindow>> tIter = this.tMapOfWindows.entrySet().iterator();
+        while (this.lCachedBytes > this.lMemoryBudgetBytes && tIter.hasNext()) {
+            Map.Entry<String, VCFReadWindow> tEntry = tIter.next();
+            if (tEntry.getValue() == tWindowIn) {
+                continue;
+            }
+            this.lCachedBytes -= tEntry.getValue().getEstimatedBytes();
+            tIter.remove();
+            this.lEvictions++;
+        }
+    }
+
+    public synchronized long getCachedBytes() {
+        return this.lCachedBytes;
+    }
+
+    public synchronized String getStatistics() {
+        return "Read window cache hits: " + this.lHits + ", misses: " + this.lMisses + ", evictions: " + this.lEvictions + ", cached MB: "
+                + (this.lCachedBytes / (1024L * 1024L));
+    }
+
+}
@@ -38,6 +38,8 @@ public class VCFRecord {
 
     private boolean bHasNoReferenceData;
 
+    private VCFPileupSummary tPileupSummary = VCFPileupSummary.getEmptyInstance();
+
     
     private VCFRecord(int iColumnIn, String sPositionIn, String sGenotypeIn, String sReferenceGenotypeIn, String sConsensusQualityIn,
             String sSNPQualityIn, String sMappingQualityIn, String sReadDepthIn, String sReadQualityScoresIn, String sReadBasesIn,
@@ -172,6 +174,14 @@ public class VCFRecord {
         return this.bHasNoReferenceData;
     } 
 
+    public VCFPileupSummary getPileupSummary() {
+        return this.tPileupSummary;
+    }
+
+    public void setPileupSummary(VCFPileupSummary tPileupSummaryIn) {
+        this.tPileupSummary = tPileupSummaryIn;
+    }
+
     public List<String> getVCFRecordAsList() {
         this.tListToReturn.clear();
         tListToReturn.add(this.getPosition());
@@ -0,0 +1,191 @@
+package org.renci.seqtools.converter;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.CRC32;
+
+public class VCFShardCheckpoint {
+
+    public static final String LINE_TAG = "shard";
+
+    private static final int INT_FIELD_COUNT = 16;
+
+    private static final int INT_IO_BUFFER_SIZE = 64 * 1024;
+
+    private static final String NO_POSITION = ".";
+
+    private String sContig;
+
+    private String sSample;
+
+    private String sShardKey;
+
+    private String sMasterFileName;
+
+    private long lMasterCRC;
+
+    private String sDetailFileName;
+
+    private long lDetailCRC;
+
+    private String sTextModeFileName;
+
+    private long lTextModeCRC;
+
+    private String sFirstPosition;
+
+    private String sLastPosition;
+
+    private long lSNPCount;
+
+    private long lIndelCount;
+
+    private long lTotalPositionsCount;
+
+    private long lReadDepth;
+
+    private VCFShardCheckpoint() {
+    }
+
+    public static VCFShardCheckpoint getInstance(String sContigIn, String sSampleIn, String sShardKeyIn,
+            VCFMasterDetailFileStreamManager tManagerIn, VCFMetricsManager tMetricsIn) throws IOException {
+
+        VCFShardCheckpoint tShard = new VCFShardCheckpoint();
+        tShard.sContig = sContigIn;
+        tShard.sSample = sSampleIn;
+        tShard.sShardKey = sShardKeyIn;
+        tShard.sMasterFileName = tManagerIn.getMasterFile().getName();
+        tShard.lMasterCRC = VCFShardCheckpoint.getCRC(tManagerIn.getMasterFile());
+        tShard.sDetailFileName = tManagerIn.getDetailFile().getName();
+        tShard.lDetailCRC = VCFShardCheckpoint.getCRC(tManagerIn.getDetailFile());
+        tShard.sTextModeFileName = tManagerIn.getTextModeFile().getName();
+        tShard.lTextModeCRC = VCFShardCheckpoint.getCRC(tManagerIn.getTextModeFile());
+        tShard.sFirstPosition = tManagerIn.getFirstPositionInFile();
+        tShard.sLastPosition = tManagerIn.getLastPositionInFile();
+
+        if (tMetricsIn != null) {
+            tShard.lSNPCount = tMetricsIn.getSNPCount();
+            tShard.lIndelCount = tMetricsIn.getIndelCount();
+            tShard.lTotalPositionsCount = tMetricsIn.getTotalPositionsCount();
+            tShard.lReadDepth = tMetricsIn.getReadDepth();
+        }
+
+        return tShard;
+    }
+
+    public static VCFShardCheckpoint getInstanceForLine(String sLineIn) {
+
+        String[] sFields = sLineIn.split("\t", -1);
+        if (sFields.length != INT_FIELD_COUNT || !LINE_TAG.equals(sFields[0])) {
+            return null;
+        }
+
+        try {
+            VCFShardCheckpoint tShard = new VCFShardCheckpoint();
+            tShard.sContig = sFields[1];
+            tShard.sSample = sFields[2];
+            tShard.sShardKey = sFields[3];
+            tShard.sMasterFileName = sFields[4];
+            tShard.lMasterCRC = Long.parseLong(sFields[5]);
+            tShard.sDetailFileName = sFields[6];
+            tShard.lDetailCRC = Long.parseLong(sFields[7]);
+            tShard.sTextModeFileName = sFields[8];
+            tShard.lTextModeCRC = Long.parseLong(sFields[9]);
+            tShard.sFirstPosition = NO_POSITION.equals(sFields[10]) ? null : sFields[10];
+            tShard.sLastPosition = NO_POSITION.equals(sFields[11]) ? null : sFields[11];
+            tShard.lSNPCount = Long.parseLong(sFields[12]);
+            tShard.lIndelCount = Long.parseLong(sFields[13]);
+            tShard.lTotalPositionsCount = Long.parseLong(sFields[14]);
+            tShard.lReadDepth = Long.parseLong(sFields[15]);
+            return tShard;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    public String toLine() {
+        return LINE_TAG + "\t" + this.sContig + "\t" + this.sSample + "\t" + this.sShardKey + "\t" + this.sMasterFileName + "\t"
+                + this.lMasterCRC + "\t" + this.sDetailFileName + "\t" + this.lDetailCRC + "\t" + this.sTextModeFileName + "\t"
+                + this.lTextModeCRC + "\t" + (this.sFirstPosition == null ? NO_POSITION : this.sFirstPosition) + "\t"
+                + (this.sLastPosition == null ? NO_POSITION : this.sLastPosition) + "\t" + this.lSNPCount + "\t" + this.lIndelCount
+                + "\t" + this.lTotalPositionsCount + "\t" + this.lReadDepth;
+    }
+
+    public boolean isIntact(File tOutputDirIn) {
+        try {
+            return VCFShardCheckpoint.hasCRC(new File(tOutputDirIn, this.sMasterFileName), this.lMasterCRC)
+                    && VCFShardCheckpoint.hasCRC(new File(tOutputDirIn, this.sDetailFileName), this.lDetailCRC)
+                    && VCFShardCheckpoint.hasCRC(new File(tOutputDirIn, this.sTextModeFileName), this.lTextModeCRC);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    public VCFMetricsManager getMetrics() {
+        VCFMetricsManager tMetrics = VCFMetricsManager.getInstance(this.getMetricsKey());
+        tMetrics.addCounts(this.lSNPCount, this.lIndelCount, this.lTotalPositionsCount, this.lReadDepth);
+        return tMetrics;
+    }
+
+    public String getMetricsKey() {
+        return this.sContig + "-" + this.sSample;
+    }
+
+    public String getContig() {
+        return this.sContig;
+    }
+
+    public String getSample() {
+        return this.sSample;
+    }
+
+    public String getShardKey() {
+        return this.sShardKey;
+    }
+
+    public String getMasterFileName() {
+        return this.sMasterFileName;
+    }
+
+    public String getDetailFileName() {
+        return this.sDetailFileName;
+    }
+
+    public String getTextModeFileName() {
+        return this.sTextModeFileName;
+    }
+
+    public String getFirstPosition() {
+        return this.sFirstPosition;
+    }
+
+    public String getLastPosition() {
+        return this.sLastPosition;
+    }
+
+    private static boolean hasCRC(File tFileIn, long lExpectedCRCIn) throws IOException {
+        return tFileIn.isFile() && VCFShardCheckpoint.getCRC(tFileIn) == lExpectedCRCIn;
+    }
+
+    private static long getCRC(File tFileIn) throws IOException {
+
+        CRC32 tCRC = new CRC32();
+        byte[] bBuffer = new byte[INT_IO_BUFFER_SIZE];
+
+        InputStream tInputStream = new FileInputStream(tFileIn);
+        try {
+            int iRead = 0;
+            while ((iRead = tInputStream.read(bBuffer)) > 0) {
+                tCRC.update(bBuffer, 0, iRead);
+            }
+        } finally {
+            tInputStream.close();
+        }
+
+        return tCRC.getValue();
+    }
+
+}
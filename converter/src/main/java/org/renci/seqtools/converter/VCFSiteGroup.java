@@ -0,0 +1,47 @@
+package org.renci.seqtools.converter;
+
+import java.util.List;
+
+public class VCFSiteGroup {
+
+    private String sChromosome;
+
+    private long lPosition;
+
+    private List<List<String>> tLines;
+
+    private VCFSiteGroup(String sChromosomeIn, long lPositionIn, List<List<String>> tLinesIn) {
+        this.sChromosome = sChromosomeIn;
+        this.lPosition = lPositionIn;
+        this.tLines = tLinesIn;
+    }
+
+    public static VCFSiteGroup getInstance(String sChromosomeIn, long lPositionIn, List<List<String>> tLinesIn) {
+        return new VCFSiteGroup(sChromosomeIn, lPositionIn, tLinesIn);
+    }
+
+    public String getChromosome() {
+        return this.sChromosome;
+    }
+
+    public long getPosition() {
+        return this.lPosition;
+    }
+
+    public List<List<String>> getLines() {
+        return this.tLines;
+    }
+
+    public int size() {
+        return this.tLines.size();
+    }
+
+    public boolean hasDuplicatePositions() {
+        return this.tLines.size() > 1;
+    }
+
+    public List<String> getLastLine() {
+        return this.tLines.get(this.tLines.size() - 1);
+    }
+
+}
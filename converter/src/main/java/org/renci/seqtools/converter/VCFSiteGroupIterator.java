@@ -0,0 +1,127 @@
+package org.renci.seqtools.converter;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.apache.commons.lang3.text.StrTokenizer;
+
+public class VCFSiteGroupIterator implements Iterator<VCFSiteGroup> {
+
+    private static final long UNKNOWN_POSITION = -1L;
+
+    private BufferedReader tReader;
+
+    private StrTokenizer tSTokenizer;
+
+    private List<String> tLookAheadLine;
+
+    private VCFSiteGroup tNextGroup;
+
+    private long lLinesRead = 0;
+
+    private VCFSiteGroupIterator(BufferedReader tReaderIn) {
+        this.tReader = tReaderIn;
+        this.tSTokenizer = new StrTokenizer();
+        this.tSTokenizer.setDelimiterString("\t");
+    }
+
+    public static VCFSiteGroupIterator getInstance(BufferedReader tReaderIn) {
+        return new VCFSiteGroupIterator(tReaderIn);
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (this.tNextGroup == null) {
+            this.tNextGroup = this.readGroup();
+        }
+        return this.tNextGroup != null;
+    }
+
+    @Override
+    public VCFSiteGroup next() {
+        if (!this.hasNext()) {
+            throw new NoSuchElementException();
+        }
+        VCFSiteGroup tGroup = this.tNextGroup;
+        this.tNextGroup = null;
+        return tGroup;
+    }
+
+    public long getLinesRead() {
+        return this.lLinesRead;
+    }
+
+    private VCFSiteGroup readGroup() {
+
+        if (this.tLookAheadLine == null) {
+            this.tLookAheadLine = this.readDataLine();
+            if (this.tLookAheadLine == null) {
+                return null;
+            }
+        }
+
+        List<String> tFirstLine = this.tLookAheadLine;
+        this.tLookAheadLine = null;
+
+        String sChromosome = tFirstLine.isEmpty() ? "" : tFirstLine.get(0);
+        long lPosition = VCFSiteGroupIterator.getPosition(tFirstLine);
+
+        List<List<String>> tGroupLines = new ArrayList<List<String>>(2);
+        tGroupLines.add(tFirstLine);
+
+        List<String> tLine = null;
+        while ((tLine = this.readDataLine()) != null) {
+            if (lPosition != UNKNOWN_POSITION && lPosition == VCFSiteGroupIterator.getPosition(tLine)
+                    && sChromosome.equals(tLine.get(0))) {
+                tGroupLines.add(tLine);
+            } else {
+                this.tLookAheadLine = tLine;
+                break;
+            }
+        }
+
+        return VCFSiteGroup.getInstance(sChromosome, lPosition, tGroupLines);
+    }
+
+    private List<String> readDataLine() {
+        try {
+            String sLine = null;
+            while ((sLine = this.tReader.readLine()) != null) {
+                if (sLine.isEmpty() || sLine.startsWith("#")) {
+                    continue;
+                }
+                this.lLinesRead++;
+                return this.parseLine(sLine);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return null;
+    }
+
+    private List<String> parseLine(String sLineOfDataIn) {
+        List<String> tList = new ArrayList<String>();
+        this.tSTokenizer.reset(sLineOfDataIn);
+        while (this.tSTokenizer.hasNext()) {
+            tList.add(this.tSTokenizer.nextToken());
+        }
+        return tList;
+    }
+
+    private static long getPosition(List<String> tLineIn) {
+        if (tLineIn.size() < 2) {
+            return UNKNOWN_POSITION;
+        }
+        try {
+            return Long.parseLong(tLineIn.get(1));
+        } catch (NumberFormatException e) {
+            return UNKNOWN_POSITION;
+        }
+    }
+
+}
@@ -7,17 +7,20 @@ import java.util.TreeMap;
 
 public class GenotypeMap {
 
-    private static Map<String, Byte> tMapOfBytes = new TreeMap<String, Byte>();
+    private static final Map<String, Byte> tMapOfBytes = new TreeMap<String, Byte>();
 
-    private GenotypeMap() {
+    static {
         setUpGenotypeMap();
     }
 
+    private GenotypeMap() {
+    }
+
     public static GenotypeMap getInstance() {
         return new GenotypeMap();
     }
 
-    private void setUpGenotypeMap() {
+    private static void setUpGenotypeMap() {
 
         BigInteger tAValue = new BigInteger("00000001", 2);
         BigInteger tCValue = new BigInteger("00000010", 2);
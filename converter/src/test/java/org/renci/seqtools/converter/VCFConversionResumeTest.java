@@ -0,0 +1,127 @@
+package org.renci.seqtools.converter;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class VCFConversionResumeTest {
+
+    @Rule
+    public TemporaryFolder tTemporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void resumeAfterFirstContigMatchesUninterruptedRun() throws Exception {
+
+        File tDataDir = this.tTemporaryFolder.newFolder("data");
+        VCFDeltaConversionStrategyTest.generate(tDataDir);
+        File tBAMFile = new File(tDataDir, "synthetic.S1.bam");
+
+        // drop the last sample from every 500th site, so each contig writes a few lines to the error file
+        List<String> sLines = new ArrayList<String>();
+        int iSites = 0;
+        for (String sLine : Files.readAllLines(new File(tDataDir, "synthetic.vcf").toPath(), StandardCharsets.UTF_8)) {
+            if (!sLine.startsWith("#") && iSites++ % 500 == 0) {
+                sLine = sLine.substring(0, sLine.lastIndexOf('\t'));
+            }
+            sLines.add(sLine);
+        }
+        File tVCFFile = new File(tDataDir, "resume.vcf");
+        Files.write(tVCFFile.toPath(), sLines, StandardCharsets.UTF_8);
+
+        File tFullDir = this.tTemporaryFolder.newFolder("full");
+        VCFDeltaConversionStrategyTest.convert(tVCFFile, tBAMFile, tFullDir, new File(tFullDir, "metrics.txt"));
+
+        File tResumedDir = this.tTemporaryFolder.newFolder("resumed");
+        VCFDeltaConversionStrategyTest.convert(tVCFFile, tBAMFile, tResumedDir, new File(tResumedDir, "metrics.txt"));
+        VCFConversionResumeTest.interruptAfterFirstContig(tResumedDir, tVCFFile.getName());
+        ConversionSettings tSettings = ConversionSettings.getInstance();
+        tSettings.setResume(true);
+        VCFDeltaConversionStrategyTest.convert(tVCFFile, tBAMFile, tResumedDir, new File(tResumedDir, "metrics.txt"), tSettings);
+
+        // the checkpoints hold each shard's crcs and each contig's variants and error file offsets
+        File tCheckpointFile = new File(tFullDir, tVCFFile.getName() + "-checkpoint.txt");
+        List<String> sCheckpointLines = Files.readAllLines(tCheckpointFile.toPath(), StandardCharsets.UTF_8);
+        assertEquals(sCheckpointLines,
+                Files.readAllLines(new File(tResumedDir, tCheckpointFile.getName()).toPath(), StandardCharsets.UTF_8));
+        long lFirstErrorBytes = Long.parseLong(VCFConversionResumeTest.getContigLines(sCheckpointLines).get(0).split("\t")[4]);
+        assertTrue(lFirstErrorBytes > 0);
+        assertTrue(lFirstErrorBytes < new File(tFullDir, tVCFFile.getName() + "-errorFile.txt").length());
+
+        int iCompared = 0;
+        for (File tFullFile : tFullDir.listFiles()) {
+            String sName = tFullFile.getName();
+            if (sName.equals("metrics.txt")) {
+                assertEquals(VCFDeltaConversionStrategyTest.sortedLines(tFullFile),
+                        VCFDeltaConversionStrategyTest.sortedLines(new File(tResumedDir, sName)));
+            } else if (sName.endsWith("-errorFile.txt")) {
+                // the header line holds the time of the first run
+                List<String> sFullErrors = Files.readAllLines(tFullFile.toPath(), StandardCharsets.UTF_8);
+                List<String> sResumedErrors = Files.readAllLines(new File(tResumedDir, sName).toPath(), StandardCharsets.UTF_8);
+                assertEquals(sFullErrors.subList(1, sFullErrors.size()), sResumedErrors.subList(1, sResumedErrors.size()));
+            } else {
+                assertArrayEquals(sName, VCFDeltaConversionStrategyTest.read(tFullFile),
+                        VCFDeltaConversionStrategyTest.read(new File(tResumedDir, sName)));
+            }
+            iCompared++;
+        }
+        assertEquals(iCompared, tResumedDir.list().length);
+    }
+
+    /**
+     * Leaves the output of a finished run as a run killed partway through the second contig would: the checkpoint ends after the
+     * first contig, the second contig's shards are cut short, and the variants and error files carry lines past the checkpoint.
+     */
+    private static void interruptAfterFirstContig(File tOutputDirIn, String sVCFFileNameIn) throws IOException {
+
+        File tCheckpointFile = new File(tOutputDirIn, sVCFFileNameIn + "-checkpoint.txt");
+        List<String> sKeptLines = new ArrayList<String>();
+        String sSecondContig = null;
+        for (String sLine : Files.readAllLines(tCheckpointFile.toPath(), StandardCharsets.UTF_8)) {
+            if (VCFConversionResumeTest.getContigLines(sKeptLines).isEmpty()) {
+                sKeptLines.add(sLine);
+            } else if (sSecondContig == null) {
+                sSecondContig = sLine.split("\t")[1];
+            }
+        }
+        Files.write(tCheckpointFile.toPath(), sKeptLines, StandardCharsets.UTF_8);
+
+        int iCutShards = 0;
+        for (File tFile : tOutputDirIn.listFiles()) {
+            String sName = tFile.getName();
+            if ((sName.startsWith("master-") || sName.startsWith("detail-")) && sName.contains("-" + sSecondContig + "-")) {
+                VCFConversionCheckpoint.truncate(tFile, tFile.length() / 2);
+                iCutShards++;
+            }
+        }
+        assertTrue(iCutShards > 0);
+
+        for (String sName : new String[] { "variants-only.gz", sVCFFileNameIn + "-errorFile.txt" }) {
+            try (FileOutputStream tStream = new FileOutputStream(new File(tOutputDirIn, sName), true)) {
+                tStream.write("partial line of the second contig".getBytes(StandardCharsets.UTF_8));
+            }
+        }
+    }
+
+    private static List<String> getContigLines(List<String> sCheckpointLinesIn) {
+        List<String> sContigLines = new ArrayList<String>();
+        for (String sLine : sCheckpointLinesIn) {
+            if (sLine.startsWith("contig\t")) {
+                sContigLines.add(sLine);
+            }
+        }
+        return sContigLines;
+    }
+
+}
@@ -0,0 +1,140 @@
+package org.renci.seqtools.converter;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.renci.seqtools.commons.StreamUtils;
+import org.renci.seqtools.generator.SyntheticDataGenerator;
+
+public class VCFDeltaConversionStrategyTest {
+
+    @Rule
+    public TemporaryFolder tTemporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void deltaMatchesFullReconversion() throws Exception {
+
+        File tDataDir = this.tTemporaryFolder.newFolder("data");
+        VCFDeltaConversionStrategyTest.generate(tDataDir);
+        File tBaseVCFFile = new File(tDataDir, "synthetic.vcf");
+        File tBAMFile = new File(tDataDir, "synthetic.S1.bam");
+
+        // flip S1 and S2 at every 60th site of contig 2, far more lines than a reader buffers
+        List<String> sBaseLines = Files.readAllLines(tBaseVCFFile.toPath(), StandardCharsets.UTF_8);
+        List<String> sEditedLines = new ArrayList<String>();
+        List<String> sDeltaLines = new ArrayList<String>();
+        int iContigTwoSites = 0;
+        for (String sLine : sBaseLines) {
+            String[] sFields = sLine.split("\t");
+            if (sLine.startsWith("##")) {
+                sEditedLines.add(sLine);
+                sDeltaLines.add(sLine);
+            } else if (sLine.startsWith("#")) {
+                sEditedLines.add(sLine);
+                sDeltaLines.add(String.join("\t", Arrays.copyOf(sFields, 11)));
+            } else if (sFields[0].equals("2") && iContigTwoSites++ % 60 == 0) {
+                sFields[9] = VCFDeltaConversionStrategyTest.flip(sFields[9]);
+                sFields[10] = VCFDeltaConversionStrategyTest.flip(sFields[10]);
+                sEditedLines.add(String.join("\t", sFields));
+                sDeltaLines.add(String.join("\t", Arrays.copyOf(sFields, 11)));
+            } else {
+                sEditedLines.add(sLine);
+            }
+        }
+        assertTrue(iContigTwoSites > 2000);
+        File tDeltaVCFFile = new File(tDataDir, "delta.vcf");
+        Files.write(tDeltaVCFFile.toPath(), sDeltaLines, StandardCharsets.UTF_8);
+        // same file name as the base, so the shards are named alike
+        File tEditedVCFFile = new File(this.tTemporaryFolder.newFolder("edited"), tBaseVCFFile.getName());
+        Files.write(tEditedVCFFile.toPath(), sEditedLines, StandardCharsets.UTF_8);
+
+        File tDeltaDir = this.tTemporaryFolder.newFolder("delta");
+        File tDeltaMetricsFile = new File(tDeltaDir, "metrics.txt");
+        VCFDeltaConversionStrategyTest.convert(tBaseVCFFile, tBAMFile, tDeltaDir, tDeltaMetricsFile);
+        ConversionSettings tDeltaSettings = ConversionSettings.getInstance();
+        tDeltaSettings.setDeltaVCFFile(tDeltaVCFFile);
+        // options meant for the base run, which the delta must not pass on to the merged conversion
+        tDeltaSettings.setResume(true);
+        tDeltaSettings.setSortInput(true);
+        new VCFDeltaConversionStrategy(ConversionFormatFactory.makeVCFFormat(GenomeType.WHOLE_GENOME, false), tBaseVCFFile,
+                tDeltaVCFFile, tBAMFile, tDeltaDir, GenomeType.WHOLE_GENOME, tDeltaMetricsFile, tDeltaSettings).convert();
+
+        File tFullDir = this.tTemporaryFolder.newFolder("full");
+        File tFullMetricsFile = new File(tFullDir, "metrics.txt");
+        VCFDeltaConversionStrategyTest.convert(tEditedVCFFile, tBAMFile, tFullDir, tFullMetricsFile);
+
+        int iCompared = 0;
+        for (File tFullFile : tFullDir.listFiles()) {
+            String sName = tFullFile.getName();
+            if (sName.startsWith("master-") || sName.startsWith("detail-") || sName.endsWith("-positionmap.txt")) {
+                assertArrayEquals(sName, VCFDeltaConversionStrategyTest.read(tFullFile),
+                        VCFDeltaConversionStrategyTest.read(new File(tDeltaDir, sName)));
+                iCompared++;
+            }
+        }
+        // a master and a detail file per contig and sample, and the position map
+        assertEquals(2 * 2 * 10 + 1, iCompared);
+
+        // the full conversion writes the per-sample metrics in hash order, the delta in shard order
+        assertEquals(VCFDeltaConversionStrategyTest.sortedLines(tFullMetricsFile),
+                VCFDeltaConversionStrategyTest.sortedLines(tDeltaMetricsFile));
+    }
+
+    /**
+     * Two contigs of 6000 sites for 10 samples, with reads for the first sample in synthetic.S1.bam.
+     */
+    static void generate(File tDataDirIn) throws Exception {
+        SyntheticDataGenerator tGenerator = new SyntheticDataGenerator();
+        tGenerator.setOutputDir(tDataDirIn);
+        tGenerator.setContigs(2);
+        tGenerator.setSites(6000);
+        tGenerator.setSamples(10);
+        tGenerator.setBamSamples(1);
+        tGenerator.call();
+    }
+
+    static void convert(File tVCFFileIn, File tBAMFileIn, File tOutputDirIn, File tMetricsFileIn) throws Exception {
+        VCFDeltaConversionStrategyTest.convert(tVCFFileIn, tBAMFileIn, tOutputDirIn, tMetricsFileIn, ConversionSettings.getInstance());
+    }
+
+    static void convert(File tVCFFileIn, File tBAMFileIn, File tOutputDirIn, File tMetricsFileIn, ConversionSettings tSettingsIn)
+            throws Exception {
+        new BZip2VCFConversionStrategy(ConversionFormatFactory.makeVCFFormat(GenomeType.WHOLE_GENOME, false), tVCFFileIn, tBAMFileIn,
+                tOutputDirIn, "1", GenomeType.WHOLE_GENOME, tMetricsFileIn, new File(tOutputDirIn, "variants-only.gz"), tSettingsIn)
+                .convert();
+    }
+
+    private static String flip(String sSampleIn) {
+        String sGenotype = sSampleIn.split(":", 2)[0];
+        String sFlipped = "0/1".equals(sGenotype) ? "1/1" : "1/1".equals(sGenotype) ? "0/0" : "0/1";
+        return sFlipped + sSampleIn.substring(sGenotype.length());
+    }
+
+    static List<String> sortedLines(File tFileIn) throws IOException {
+        List<String> sLines = Files.readAllLines(tFileIn.toPath(), StandardCharsets.UTF_8);
+        Collections.sort(sLines);
+        return sLines;
+    }
+
+    static byte[] read(File tFileIn) throws IOException {
+        try (InputStream tStream = StreamUtils.openInputStream(tFileIn)) {
+            return IOUtils.toByteArray(tStream);
+        }
+    }
+
+}
@@ -0,0 +1,81 @@
+package org.renci.seqtools.converter;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import htsjdk.samtools.SAMSequenceDictionary;
+import htsjdk.samtools.SAMSequenceRecord;
+
+public class VCFExternalSorterTest {
+
+    @Rule
+    public TemporaryFolder tTemporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void mergesManyRunsStablyWithUnknownContigsLast() throws Exception {
+
+        SAMSequenceDictionary tDict = new SAMSequenceDictionary(
+                Arrays.asList(new SAMSequenceRecord("1", 100000), new SAMSequenceRecord("2", 100000)));
+        // GL2 shows up before GL1, so it sorts before it; both go after the contigs in the dictionary
+        final List<String> sContigOrder = Arrays.asList("1", "2", "GL2", "GL1");
+        List<String> sShuffledContigs = Arrays.asList("2", "GL2", "1", "GL1");
+
+        Random tRandom = new Random(1L);
+        List<String> sRecords = new ArrayList<String>();
+        for (int ii = 0; ii < 1500; ii++) {
+            String sContig = ii == 0 ? "GL2" : sShuffledContigs.get(tRandom.nextInt(sShuffledContigs.size()));
+            // few positions, so most records tie with others and keep their input order by the ID
+            sRecords.add(sContig + "\t" + (1 + tRandom.nextInt(40)) + "\trecord" + ii + "\tA\tC\t50\tPASS\t.");
+        }
+
+        StringBuilder tVCF = new StringBuilder("##fileformat=VCFv4.1\n#CHROM\tPOS\tID\tREF\tALT\tQUAL\tFILTER\tINFO\n");
+        for (int ii = 0; ii < sRecords.size(); ii++) {
+            tVCF.append(sRecords.get(ii)).append('\n');
+            if (ii == 700) {
+                // a concatenated input repeats its header, which is dropped
+                tVCF.append("#CHROM\tPOS\tID\tREF\tALT\tQUAL\tFILTER\tINFO\n");
+            }
+        }
+
+        List<String> sExpected = new ArrayList<String>(sRecords);
+        Collections.sort(sExpected, new Comparator<String>() {
+            @Override
+            public int compare(String sFirst, String sSecond) {
+                String[] sFirstFields = sFirst.split("\t");
+                String[] sSecondFields = sSecond.split("\t");
+                int iResult = Integer.compare(sContigOrder.indexOf(sFirstFields[0]), sContigOrder.indexOf(sSecondFields[0]));
+                return iResult != 0 ? iResult : Integer.compare(Integer.parseInt(sFirstFields[1]), Integer.parseInt(sSecondFields[1]));
+            }
+        });
+        sExpected.add(0, "##fileformat=VCFv4.1");
+        sExpected.add(1, "#CHROM\tPOS\tID\tREF\tALT\tQUAL\tFILTER\tINFO");
+
+        // two records per run is 750 runs, more than one merge takes, so they are merged down before the final merge
+        File tTempDir = this.tTemporaryFolder.newFolder("runs");
+        List<String> sActual = new ArrayList<String>();
+        try (BufferedReader tReader = VCFExternalSorter.getInstance(tDict, tTempDir, 2)
+                .sort(new BufferedReader(new StringReader(tVCF.toString())))) {
+            String sLine;
+            while ((sLine = tReader.readLine()) != null) {
+                sActual.add(sLine);
+            }
+        }
+
+        assertEquals(sExpected, sActual);
+        assertEquals(0, tTempDir.list().length);
+    }
+
+}
@@ -0,0 +1,128 @@
+package org.renci.seqtools.daemon;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import org.renci.seqtools.commons.metrics.MetricsRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * One client connection. Each request is a single line holding a JSON object with a "command" field and is answered with a single
+ * line holding a JSON object whose "status" is "ok" or "error".
+ */
+public class DaemonConnection implements Runnable {
+
+    private static final Logger logger = LoggerFactory.getLogger(DaemonConnection.class);
+
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    private final Socket socket;
+
+    private final SeqToolsDaemon daemon;
+
+    public DaemonConnection(Socket socket, SeqToolsDaemon daemon) {
+        super();
+        this.socket = socket;
+        this.daemon = daemon;
+    }
+
+    @Override
+    public void run() {
+        try (Socket s = socket;
+                BufferedReader br = new BufferedReader(new InputStreamReader(s.getInputStream(), StandardCharsets.UTF_8));
+                BufferedWriter bw = new BufferedWriter(new OutputStreamWriter(s.getOutputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+                ObjectNode response = handle(line);
+                bw.write(mapper.writeValueAsString(response));
+                bw.newLine();
+                bw.flush();
+                if ("shutdown".equals(response.path("command").asText())) {
+                    daemon.shutdown();
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            logger.warn("connection closed: {}", e.getMessage());
+        }
+    }
+
+    private ObjectNode handle(String line) {
+        ObjectNode response = mapper.createObjectNode();
+        try {
+            JsonNode request = mapper.readTree(line);
+            if (request == null || !request.isObject()) {
+                throw new DaemonException("request must be a JSON object");
+            }
+            String command = request.path("command").asText();
+            response.put("command", command);
+
+            DaemonJobRegistry registry = daemon.getRegistry();
+            switch (command) {
+                case "ping":
+                    break;
+                case "submit":
+                    if (daemon.isShuttingDown()) {
+                        throw new DaemonException("daemon is shutting down");
+                    }
+                    response.set("job", registry.submit(request).toJSON());
+                    break;
+                case "status":
+                    DaemonJob job = registry.get(request.path("job").asLong(-1));
+                    if (job == null) {
+                        throw new DaemonException(String.format("unknown job: %s", request.path("job").asText()));
+                    }
+                    response.set("job", job.toJSON());
+                    break;
+                case "list":
+                    ArrayNode jobs = response.putArray("jobs");
+                    registry.list().forEach(a -> jobs.add(a.toJSON()));
+                    break;
+                case "stats":
+                    response.set("stats", stats(registry));
+                    break;
+                case "shutdown":
+                    break;
+                default:
+                    throw new DaemonException(String.format("unknown command: %s", command));
+            }
+            response.put("status", "ok");
+        } catch (IOException | DaemonException e) {
+            response.put("status", "error");
+            response.put("message", e.getMessage());
+        }
+        return response;
+    }
+
+    private ObjectNode stats(DaemonJobRegistry registry) throws IOException {
+        ObjectNode stats = mapper.createObjectNode();
+        Runtime runtime = Runtime.getRuntime();
+        stats.put("uptimeMillis", System.currentTimeMillis() - daemon.getStarted());
+        stats.put("heapUsedBytes", runtime.totalMemory() - runtime.freeMemory());
+        stats.put("heapMaxBytes", runtime.maxMemory());
+        ObjectNode states = stats.putObject("jobs");
+        for (Map.Entry<DaemonJobState, Integer> entry : registry.countByState().entrySet()) {
+            states.put(entry.getKey().name(), entry.getValue());
+        }
+        stats.put("caches", daemon.getResources().getStatistics());
+        // stage timings and counters summed over every job since the daemon started
+        stats.set("metrics", mapper.readTree(MetricsRegistry.getInstance().toJSON("daemon")));
+        return stats;
+    }
+
+}
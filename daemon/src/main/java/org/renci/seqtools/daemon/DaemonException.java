@@ -0,0 +1,27 @@
+package org.renci.seqtools.daemon;
+
+public class DaemonException extends Exception {
+
+    private static final long serialVersionUID = 4721098634519205317L;
+
+    public DaemonException() {
+        super();
+    }
+
+    public DaemonException(String message, Throwable cause, boolean enableSuppression, boolean writableStackTrace) {
+        super(message, cause, enableSuppression, writableStackTrace);
+    }
+
+    public DaemonException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    public DaemonException(String message) {
+        super(message);
+    }
+
+    public DaemonException(Throwable cause) {
+        super(cause);
+    }
+
+}
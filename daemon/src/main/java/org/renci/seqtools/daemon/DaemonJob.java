@@ -0,0 +1,244 @@
+package org.renci.seqtools.daemon;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.renci.seqtools.commons.metrics.ProgressReporter;
+import org.renci.seqtools.conversion.SAMToolsDepthToGATKDepthOfCoverageFormatConverter;
+import org.renci.seqtools.converter.ConversionJob;
+import org.renci.seqtools.converter.ConversionJobResult;
+import org.renci.seqtools.converter.ConversionSettings;
+import org.renci.seqtools.filter.vcf.FilterVCF;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+public class DaemonJob implements Runnable {
+
+    private static final Logger logger = LoggerFactory.getLogger(DaemonJob.class);
+
+    private final long id;
+
+    private final DaemonJobType type;
+
+    private final JsonNode request;
+
+    private final DaemonResources resources;
+
+    private volatile DaemonJobState state = DaemonJobState.QUEUED;
+
+    private final long submitted = System.currentTimeMillis();
+
+    private volatile long started;
+
+    private volatile long finished;
+
+    private volatile String message = "";
+
+    private final Map<String, Long> metrics = new ConcurrentHashMap<String, Long>();
+
+    private volatile ProgressReporter progress;
+
+    public DaemonJob(long id, JsonNode request, DaemonResources resources) throws DaemonException {
+        super();
+        this.id = id;
+        this.type = DaemonJobType.fromName(request.path("type").asText());
+        this.request = request;
+        this.resources = resources;
+        validate();
+    }
+
+    private void validate() throws DaemonException {
+        switch (type) {
+            case CONVERT:
+                requireExisting("vcf");
+                requireExisting("bam");
+                requireField("output");
+                break;
+            case FILTER_VCF:
+                requireExisting("input");
+                requireExisting("intervals");
+                requireField("output");
+                break;
+            case DEPTH_OF_COVERAGE:
+                requireExisting("input");
+                requireExisting("intervals");
+                requireField("output");
+                break;
+        }
+    }
+
+    @Override
+    public void run() {
+        started = System.currentTimeMillis();
+        state = DaemonJobState.RUNNING;
+        logger.info("starting job {}: {}", id, request);
+        // record counters are shared by every job in the daemon, so only the input position is tracked per job
+        File input = new File(request.get(type == DaemonJobType.CONVERT ? "vcf" : "input").asText());
+        progress = new ProgressReporter(type.getName(), Collections.singletonList(input), null, System.err);
+        try {
+            switch (type) {
+                case CONVERT:
+                    convert();
+                    break;
+                case FILTER_VCF:
+                    filterVCF();
+                    break;
+                case DEPTH_OF_COVERAGE:
+                    depthOfCoverage();
+                    break;
+            }
+            if (state == DaemonJobState.RUNNING) {
+                state = DaemonJobState.SUCCEEDED;
+            }
+        } catch (Throwable e) {
+            logger.error(String.format("job %d failed", id), e);
+            message = String.valueOf(e.getMessage());
+            state = DaemonJobState.FAILED;
+        } finally {
+            progress.close();
+            finished = System.currentTimeMillis();
+            metrics.put("elapsedMillis", finished - started);
+            logger.info("finished job {}: {} in {} ms", id, state, finished - started);
+        }
+    }
+
+    private void convert() {
+        ConversionSettings settings = resources.newConversionSettings();
+        settings.setSortInput(request.path("sort").asBoolean(false));
+        settings.setResume(request.path("resume").asBoolean(false));
+        if (request.hasNonNull("tmpDir")) {
+            settings.setTempDir(new File(request.get("tmpDir").asText()));
+        }
+        if (request.hasNonNull("bamManifest")) {
+            settings.setBAMManifestFile(new File(request.get("bamManifest").asText()));
+        }
+        if (request.hasNonNull("delta")) {
+            settings.setDeltaVCFFile(new File(request.get("delta").asText()));
+        }
+
+        ConversionJob job = ConversionJob.getInstance(new File(request.get("vcf").asText()), new File(request.get("bam").asText()),
+                new File(request.get("output").asText()), request.path("genome").asBoolean(false), request.path("test").asBoolean(false),
+                request.path("metrics").asBoolean(false), settings);
+        ConversionJobResult result = job.call();
+
+        metrics.put("inputBytes", result.getInputBytes());
+        metrics.put("outputBytes", sizeOf(result.getOutputDir()));
+        if (!result.isSucceeded()) {
+            message = result.getMessage();
+            state = DaemonJobState.FAILED;
+        }
+    }
+
+    private void filterVCF() throws Exception {
+        File input = new File(request.get("input").asText());
+        File intervalList = new File(request.get("intervals").asText());
+        File output = new File(request.get("output").asText());
+
+        FilterVCF filter = new FilterVCF(input, output, intervalList);
+        filter.setIntervals(resources.getIntervals(intervalList));
+        filter.setWithMissing(request.path("missing").asBoolean(false));
+        filter.call();
+
+        metrics.put("inputBytes", input.length());
+        metrics.put("outputBytes", output.length());
+    }
+
+    private void depthOfCoverage() throws Exception {
+        File input = new File(request.get("input").asText());
+        File output = new File(request.get("output").asText());
+
+        new SAMToolsDepthToGATKDepthOfCoverageFormatConverter(input, new File(request.get("intervals").asText()), output).call();
+
+        metrics.put("inputBytes", input.length());
+        metrics.put("outputBytes", output.length());
+    }
+
+    private void requireField(String field) throws DaemonException {
+        if (!request.hasNonNull(field) || request.get(field).asText().trim().isEmpty()) {
+            throw new DaemonException(String.format("%s job requires \"%s\"", type.getName(), field));
+        }
+    }
+
+    private void requireExisting(String field) throws DaemonException {
+        requireField(field);
+        File file = new File(request.get(field).asText());
+        if (!file.exists()) {
+            throw new DaemonException(String.format("%s does not exist: %s", field, file));
+        }
+    }
+
+    private static long sizeOf(File file) {
+        if (file.isFile()) {
+            return file.length();
+        }
+        long size = 0;
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                size += sizeOf(child);
+            }
+        }
+        return size;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public DaemonJobType getType() {
+        return type;
+    }
+
+    public DaemonJobState getState() {
+        return state;
+    }
+
+    public long getFinished() {
+        return finished;
+    }
+
+    public ObjectNode toJSON() {
+        ObjectNode node = JsonNodeFactory.instance.objectNode();
+        node.put("id", id);
+        node.put("type", type.getName());
+        node.put("state", state.name());
+        node.put("submitted", submitted);
+        if (started > 0) {
+            node.put("started", started);
+        }
+        if (finished > 0) {
+            node.put("finished", finished);
+        }
+        if (!message.isEmpty()) {
+            node.put("message", message);
+        }
+        ObjectNode metricsNode = node.putObject("metrics");
+        metrics.forEach((key, value) -> metricsNode.put(key, value));
+        if (state == DaemonJobState.RUNNING) {
+            metricsNode.put("elapsedMillis", System.currentTimeMillis() - started);
+            ProgressReporter current = progress;
+            if (current != null) {
+                ObjectNode progressNode = node.putObject("progress");
+                progressNode.put("percent", current.getPercent());
+                progressNode.put("bytes", current.getBytes());
+                progressNode.put("totalBytes", current.getTotalBytes());
+                progressNode.put("bytesPerSecond", current.getBytesPerSecond());
+                progressNode.put("etaSeconds", current.getEtaSeconds());
+            }
+        }
+        node.set("request", request);
+        return node;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("DaemonJob [id=%s, type=%s, state=%s]", id, type, state);
+    }
+
+}
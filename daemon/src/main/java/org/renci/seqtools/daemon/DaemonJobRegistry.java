@@ -0,0 +1,79 @@
+package org.renci.seqtools.daemon;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+public class DaemonJobRegistry {
+
+    private final ConcurrentSkipListMap<Long, DaemonJob> jobs = new ConcurrentSkipListMap<Long, DaemonJob>();
+
+    private final AtomicLong nextId = new AtomicLong(1);
+
+    private final ExecutorService executor;
+
+    private final DaemonResources resources;
+
+    private final int retainedJobs;
+
+    public DaemonJobRegistry(int threads, int retainedJobs, DaemonResources resources) {
+        super();
+        this.resources = resources;
+        this.retainedJobs = retainedJobs;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(threads, r -> new Thread(r, "daemon-job-" + threadCount.incrementAndGet()));
+    }
+
+    public DaemonJob submit(JsonNode request) throws DaemonException {
+        DaemonJob job = new DaemonJob(nextId.getAndIncrement(), request, resources);
+        jobs.put(job.getId(), job);
+        executor.execute(job);
+        prune();
+        return job;
+    }
+
+    public DaemonJob get(long id) {
+        return jobs.get(id);
+    }
+
+    public List<DaemonJob> list() {
+        return new ArrayList<DaemonJob>(jobs.values());
+    }
+
+    public Map<DaemonJobState, Integer> countByState() {
+        Map<DaemonJobState, Integer> counts = new EnumMap<DaemonJobState, Integer>(DaemonJobState.class);
+        for (DaemonJobState state : DaemonJobState.values()) {
+            counts.put(state, 0);
+        }
+        jobs.values().forEach(job -> counts.merge(job.getState(), 1, Integer::sum));
+        return counts;
+    }
+
+    private void prune() {
+        // forget the oldest finished jobs once more than retainedJobs are held
+        int excess = jobs.size() - retainedJobs;
+        Iterator<DaemonJob> iter = jobs.values().iterator();
+        while (excess > 0 && iter.hasNext()) {
+            if (iter.next().getState().isFinished()) {
+                iter.remove();
+                excess--;
+            }
+        }
+    }
+
+    public void shutdown(long timeout, TimeUnit unit) throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(timeout, unit);
+    }
+
+}
@@ -0,0 +1,17 @@
+package org.renci.seqtools.daemon;
+
+public enum DaemonJobState {
+
+    QUEUED,
+
+    RUNNING,
+
+    SUCCEEDED,
+
+    FAILED;
+
+    public boolean isFinished() {
+        return this == SUCCEEDED || this == FAILED;
+    }
+
+}
@@ -0,0 +1,30 @@
+package org.renci.seqtools.daemon;
+
+public enum DaemonJobType {
+
+    CONVERT("convert"),
+
+    FILTER_VCF("filter-vcf"),
+
+    DEPTH_OF_COVERAGE("depth-of-coverage");
+
+    private final String name;
+
+    private DaemonJobType(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public static DaemonJobType fromName(String name) throws DaemonException {
+        for (DaemonJobType type : values()) {
+            if (type.name.equals(name)) {
+                return type;
+            }
+        }
+        throw new DaemonException(String.format("unknown job type: %s", name));
+    }
+
+}
@@ -0,0 +1,119 @@
+package org.renci.seqtools.daemon;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.renci.seqtools.converter.ConversionSettings;
+import org.renci.seqtools.converter.VCFBAMQueryToolCache;
+import org.renci.seqtools.converter.VCFReadWindowCache;
+import org.renci.seqtools.converter.genotypemap.GenotypeMap;
+import org.renci.seqtools.filter.vcf.IntervalIndex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class DaemonResources {
+
+    private static final Logger logger = LoggerFactory.getLogger(DaemonResources.class);
+
+    private final ExecutorService inflaterPool;
+
+    private final VCFBAMQueryToolCache bamQueryToolCache;
+
+    private final VCFReadWindowCache readCache;
+
+    private final int readAheadBlocks;
+
+    private final Map<String, CachedIntervals> intervalCache = new ConcurrentHashMap<String, CachedIntervals>();
+
+    private final AtomicInteger intervalCacheHits = new AtomicInteger();
+
+    private final AtomicInteger intervalCacheMisses = new AtomicInteger();
+
+    public DaemonResources(int bamThreads, int readAheadBlocks, int idleBAMReaders, long readCacheMemoryBytes) {
+        super();
+        this.readAheadBlocks = readAheadBlocks;
+        if (bamThreads > 0) {
+            AtomicInteger threadCount = new AtomicInteger();
+            this.inflaterPool = Executors.newFixedThreadPool(bamThreads, r -> {
+                Thread thread = new Thread(r, "bgzf-inflater-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        } else {
+            this.inflaterPool = null;
+        }
+        this.bamQueryToolCache = VCFBAMQueryToolCache.getInstance(idleBAMReaders, inflaterPool, readAheadBlocks);
+        this.readCache = readCacheMemoryBytes > 0 ? VCFReadWindowCache.getInstance(readCacheMemoryBytes) : null;
+
+        // load the genotype table up front rather than on the first job
+        GenotypeMap.getInstance();
+    }
+
+    public ConversionSettings newConversionSettings() {
+        ConversionSettings settings = ConversionSettings.getInstance();
+        settings.setBAMQueryToolCache(bamQueryToolCache);
+        settings.setSharedReadCache(readCache);
+        settings.setBAMReadAheadBlocks(readAheadBlocks);
+        return settings;
+    }
+
+    public IntervalIndex getIntervals(File intervalList) throws IOException {
+        String key = intervalList.getAbsolutePath();
+        long lastModified = intervalList.lastModified();
+        long length = intervalList.length();
+
+        CachedIntervals cached = intervalCache.get(key);
+        if (cached != null && cached.lastModified == lastModified && cached.length == length) {
+            intervalCacheHits.incrementAndGet();
+            return cached.intervals;
+        }
+
+        intervalCacheMisses.incrementAndGet();
+        logger.info("parsing interval list {}", intervalList);
+        cached = new CachedIntervals(IntervalIndex.read(intervalList), lastModified, length);
+        intervalCache.put(key, cached);
+        return cached.intervals;
+    }
+
+    public String getStatistics() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(bamQueryToolCache.getStatistics());
+        if (readCache != null) {
+            sb.append("; ").append(readCache.getStatistics());
+        }
+        sb.append(String.format("; Interval cache hits: %d, misses: %d, lists: %d", intervalCacheHits.get(), intervalCacheMisses.get(),
+                intervalCache.size()));
+        return sb.toString();
+    }
+
+    public void close() {
+        bamQueryToolCache.close();
+        if (inflaterPool != null) {
+            inflaterPool.shutdown();
+        }
+        intervalCache.clear();
+    }
+
+    private static class CachedIntervals {
+
+        private final IntervalIndex intervals;
+
+        private final long lastModified;
+
+        private final long length;
+
+        public CachedIntervals(IntervalIndex intervals, long lastModified, long length) {
+            super();
+            this.intervals = intervals;
+            this.lastModified = lastModified;
+            this.length = length;
+        }
+
+    }
+
+}
@@ -0,0 +1,252 @@
+package org.renci.seqtools.daemon;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.CommandLineParser;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.renci.seqtools.commons.metrics.MetricsRegistry;
+import org.renci.seqtools.converter.ConversionSettings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class SeqToolsDaemon implements Callable<Void> {
+
+    private static final Logger logger = LoggerFactory.getLogger(SeqToolsDaemon.class);
+
+    private static final HelpFormatter helpFormatter = new HelpFormatter();
+
+    private static final Options cliOptions = new Options();
+
+    public static final int DEFAULT_PORT = 7357;
+
+    private int port = DEFAULT_PORT;
+
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    private int bamThreads = 0;
+
+    private int readAheadBlocks = ConversionSettings.DEFAULT_BAM_READ_AHEAD_BLOCKS;
+
+    private int idleBAMReaders = 64;
+
+    private long readCacheMemoryBytes = 0;
+
+    private int retainedJobs = 1000;
+
+    private volatile boolean shuttingDown = false;
+
+    private long started;
+
+    private ServerSocket serverSocket;
+
+    private DaemonResources resources;
+
+    private DaemonJobRegistry registry;
+
+    public SeqToolsDaemon() {
+        super();
+    }
+
+    @Override
+    public Void call() throws Exception {
+        logger.info(this.toString());
+        started = System.currentTimeMillis();
+        MetricsRegistry.getInstance().registerMBean();
+
+        resources = new DaemonResources(bamThreads, readAheadBlocks, idleBAMReaders, readCacheMemoryBytes);
+        registry = new DaemonJobRegistry(threads, retainedJobs, resources);
+
+        AtomicInteger connectionCount = new AtomicInteger();
+        ExecutorService connections = Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, "daemon-connection-" + connectionCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        // loopback only: anyone who can reach the socket can read and write files as this user
+        serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        logger.info("listening on {}:{}", serverSocket.getInetAddress().getHostAddress(), serverSocket.getLocalPort());
+
+        try {
+            while (!shuttingDown) {
+                Socket socket;
+                try {
+                    socket = serverSocket.accept();
+                } catch (SocketException e) {
+                    if (shuttingDown) {
+                        break;
+                    }
+                    throw e;
+                }
+                connections.execute(new DaemonConnection(socket, this));
+            }
+        } finally {
+            logger.info("waiting for running jobs to finish");
+            registry.shutdown(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+            connections.shutdownNow();
+            resources.close();
+            logger.info("stopped");
+        }
+
+        return null;
+    }
+
+    public void shutdown() {
+        shuttingDown = true;
+        try {
+            serverSocket.close();
+        } catch (IOException e) {
+            logger.error(e.getMessage(), e);
+        }
+    }
+
+    public boolean isShuttingDown() {
+        return shuttingDown;
+    }
+
+    public long getStarted() {
+        return started;
+    }
+
+    public DaemonResources getResources() {
+        return resources;
+    }
+
+    public DaemonJobRegistry getRegistry() {
+        return registry;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    public void setPort(int port) {
+        this.port = port;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
+    public int getBamThreads() {
+        return bamThreads;
+    }
+
+    public void setBamThreads(int bamThreads) {
+        this.bamThreads = bamThreads;
+    }
+
+    public int getReadAheadBlocks() {
+        return readAheadBlocks;
+    }
+
+    public void setReadAheadBlocks(int readAheadBlocks) {
+        this.readAheadBlocks = readAheadBlocks;
+    }
+
+    public int getIdleBAMReaders() {
+        return idleBAMReaders;
+    }
+
+    public void setIdleBAMReaders(int idleBAMReaders) {
+        this.idleBAMReaders = idleBAMReaders;
+    }
+
+    public long getReadCacheMemoryBytes() {
+        return readCacheMemoryBytes;
+    }
+
+    public void setReadCacheMemoryBytes(long readCacheMemoryBytes) {
+        this.readCacheMemoryBytes = readCacheMemoryBytes;
+    }
+
+    public int getRetainedJobs() {
+        return retainedJobs;
+    }
+
+    public void setRetainedJobs(int retainedJobs) {
+        this.retainedJobs = retainedJobs;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("SeqToolsDaemon [port=%s, threads=%s, bamThreads=%s, readAheadBlocks=%s, idleBAMReaders=%s, "
+                + "readCacheMemoryBytes=%s, retainedJobs=%s]", port, threads, bamThreads, readAheadBlocks, idleBAMReaders,
+                readCacheMemoryBytes, retainedJobs);
+    }
+
+    public static void main(String[] args) {
+        cliOptions.addOption(Option.builder("p").longOpt("port")
+                .desc("loopback port to listen on (default " + DEFAULT_PORT + ", 0 picks a free one)").hasArg().build());
+        cliOptions.addOption(
+                Option.builder("t").longOpt("threads").desc("concurrent jobs (default: available processors)").hasArg().build());
+        cliOptions.addOption(Option.builder().longOpt("bam-threads")
+                .desc("shared threads for inflating bam bgzf blocks (default 0: read on the job thread)").hasArg().build());
+        cliOptions.addOption(
+                Option.builder().longOpt("bam-read-ahead").desc("bgzf blocks to inflate ahead of each bam cursor").hasArg().build());
+        cliOptions.addOption(
+                Option.builder().longOpt("idle-bam-readers").desc("open bam readers kept between jobs (default 64)").hasArg().build());
+        cliOptions.addOption(Option.builder().longOpt("read-cache-memory")
+                .desc("memory budget in MB for decoded bam read windows shared by all jobs (default 0: no cache)").hasArg().build());
+        cliOptions.addOption(
+                Option.builder().longOpt("retained-jobs").desc("finished jobs whose status is kept (default 1000)").hasArg().build());
+        cliOptions.addOption(Option.builder("h").longOpt("help").desc("print this help message").build());
+        SeqToolsDaemon app = new SeqToolsDaemon();
+        try {
+            CommandLineParser commandLineParser = new DefaultParser();
+            CommandLine commandLine = commandLineParser.parse(cliOptions, args);
+            if (commandLine.hasOption("help")) {
+                helpFormatter.printHelp("SeqToolsDaemon", cliOptions);
+                return;
+            }
+            if (commandLine.hasOption("port")) {
+                app.setPort(Integer.valueOf(commandLine.getOptionValue("port")));
+            }
+            if (commandLine.hasOption("threads")) {
+                app.setThreads(Integer.valueOf(commandLine.getOptionValue("threads")));
+            }
+            if (commandLine.hasOption("bam-threads")) {
+                app.setBamThreads(Integer.valueOf(commandLine.getOptionValue("bam-threads")));
+            }
+            if (commandLine.hasOption("bam-read-ahead")) {
+                app.setReadAheadBlocks(Integer.valueOf(commandLine.getOptionValue("bam-read-ahead")));
+            }
+            if (commandLine.hasOption("idle-bam-readers")) {
+                app.setIdleBAMReaders(Integer.valueOf(commandLine.getOptionValue("idle-bam-readers")));
+            }
+            if (commandLine.hasOption("read-cache-memory")) {
+                app.setReadCacheMemoryBytes(Long.valueOf(commandLine.getOptionValue("read-cache-memory")) * 1024L * 1024L);
+            }
+            if (commandLine.hasOption("retained-jobs")) {
+                app.setRetainedJobs(Integer.valueOf(commandLine.getOptionValue("retained-jobs")));
+            }
+            app.call();
+        } catch (ParseException | NumberFormatException e) {
+            logger.error(e.getMessage());
+            helpFormatter.printHelp("SeqToolsDaemon", cliOptions);
+            System.exit(-1);
+        } catch (Exception e) {
+            logger.error(e.getMessage(), e);
+            System.exit(-1);
+        }
+    }
+
+}
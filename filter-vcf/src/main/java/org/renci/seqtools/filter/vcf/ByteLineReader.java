@@ -0,0 +1,105 @@
+package org.renci.seqtools.filter.vcf;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+import org.renci.seqtools.commons.StreamUtils;
+
+/**
+ * Reads lines from a stream as views into one reusable buffer, without decoding them: {@link #next()} moves to the next line, which
+ * stays valid until the following call. Lines end at \n and a \r before it is dropped, as with BufferedReader. The buffer grows to
+ * hold the longest line.
+ */
+public class ByteLineReader implements Closeable {
+
+    private final InputStream is;
+
+    private byte[] buffer;
+
+    private int start;
+
+    private int limit;
+
+    private boolean eof;
+
+    private int lineOffset;
+
+    private int lineLength;
+
+    public ByteLineReader(InputStream is) {
+        this(is, StreamUtils.BUFFER_SIZE);
+    }
+
+    public ByteLineReader(InputStream is, int bufferSize) {
+        super();
+        this.is = is;
+        this.buffer = new byte[bufferSize];
+    }
+
+    /**
+     * Moves to the next line, false at the end of the stream.
+     */
+    public boolean next() throws IOException {
+        int scan = start;
+        while (true) {
+            for (int i = scan; i < limit; i++) {
+                if (buffer[i] == '\n') {
+                    setLine(start, i);
+                    start = i + 1;
+                    return true;
+                }
+            }
+            if (eof) {
+                if (start < limit) {
+                    setLine(start, limit);
+                    start = limit;
+                    return true;
+                }
+                return false;
+            }
+            scan = limit - start;
+            if (start > 0) {
+                System.arraycopy(buffer, start, buffer, 0, limit - start);
+                limit -= start;
+                start = 0;
+            }
+            if (limit == buffer.length) {
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            }
+            int count = is.read(buffer, limit, buffer.length - limit);
+            if (count < 0) {
+                eof = true;
+            } else {
+                limit += count;
+            }
+        }
+    }
+
+    private void setLine(int from, int to) {
+        if (to > from && buffer[to - 1] == '\r') {
+            to--;
+        }
+        lineOffset = from;
+        lineLength = to - from;
+    }
+
+    public byte[] getBuffer() {
+        return buffer;
+    }
+
+    public int getOffset() {
+        return lineOffset;
+    }
+
+    public int getLength() {
+        return lineLength;
+    }
+
+    @Override
+    public void close() throws IOException {
+        is.close();
+    }
+
+}
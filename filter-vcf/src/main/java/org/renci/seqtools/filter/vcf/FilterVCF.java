@@ -4,10 +4,12 @@ import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -22,8 +24,16 @@ import org.apache.commons.cli.HelpFormatter;
 import org.apache.commons.cli.Option;
 import org.apache.commons.cli.Options;
 import org.apache.commons.cli.ParseException;
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.Range;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.tuple.Pair;
+import org.renci.seqtools.commons.StreamUtils;
+import org.renci.seqtools.commons.jfr.FlightEvents;
+import org.renci.seqtools.commons.metrics.Counter;
+import org.renci.seqtools.commons.metrics.MetricsRegistry;
+import org.renci.seqtools.commons.metrics.ProgressReporter;
+import org.renci.seqtools.commons.metrics.StageTimer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -35,6 +45,16 @@ public class FilterVCF implements Callable<Long> {
 
     private static final Options cliOptions = new Options();
 
+    private static final StageTimer filterTimer = MetricsRegistry.getInstance().timer(MetricsRegistry.FILTER);
+
+    private static final Counter linesRead = MetricsRegistry.getInstance().counter("filter.lines.read");
+
+    private static final Counter linesKept = MetricsRegistry.getInstance().counter("filter.lines.kept");
+
+    static final byte[] LINE_SEPARATOR = System.lineSeparator().getBytes(StandardCharsets.UTF_8);
+
+    private static final Pattern GATK_INTERVAL_PATTERN = Pattern.compile("(.+):(\\d+)-?(\\d+)?");
+
     private File input;
 
     private File output;
@@ -43,6 +63,16 @@ public class FilterVCF implements Callable<Long> {
 
     private Boolean withMissing = Boolean.FALSE;
 
+    private Boolean sorted = Boolean.FALSE;
+
+    private int maxIndexedIntervals = TabixVCFFilter.DEFAULT_MAX_INTERVALS;
+
+    private int threads = 1;
+
+    private IntervalIndex intervals;
+
+    private long progressInterval = 0;
+
     public FilterVCF() {
         super();
     }
@@ -59,122 +89,258 @@ public class FilterVCF implements Callable<Long> {
         logger.info(this.toString());
 
         long startTime = System.currentTimeMillis();
-        Map<String, List<Range<Integer>>> map = new HashMap<String, List<Range<Integer>>>();
 
-        Pattern gatkPattern = Pattern.compile("(.+):(\\d+)-?(\\d+)?");
-
-        // interval list could be picard format or gatk format...try to handle both
-        try (FileReader fr = new FileReader(intervalList); BufferedReader br = new BufferedReader(fr)) {
-            String line;
-            while ((line = br.readLine()) != null) {
-                if (StringUtils.isEmpty(line.trim()) || line.startsWith("#") || line.startsWith("@")) {
-                    continue;
+        IntervalIndex index = intervals;
+        if (!withMissing && maxIndexedIntervals > 0) {
+            File tabixIndex = TabixVCFFilter.findTabixIndex(input);
+            if (tabixIndex != null) {
+                if (index == null) {
+                    index = readIntervalIndex();
                 }
-                Matcher gatkMatcher = gatkPattern.matcher(line);
-                if (gatkMatcher.matches()) {
-                    String[] lineArray = line.split(":");
-                    String chromosome = lineArray[0];
-                    map.put(chromosome, new ArrayList<Range<Integer>>());
-                } else {
-                    String[] lineArray = line.split("\t");
-                    String chromosome = lineArray[0];
-                    map.put(chromosome, new ArrayList<Range<Integer>>());
+                if (index.getIntervalCount() <= maxIndexedIntervals) {
+                    logger.info("reading the {} merged intervals through {}", index.getIntervalCount(), tabixIndex.getName());
+                    try (BufferedWriter bw = StreamUtils.newBufferedWriter(output)) {
+                        new TabixVCFFilter(input, tabixIndex, index).filter(this, bw);
+                    } catch (IOException e) {
+                        throw new FilterVCFException(e);
+                    }
+                    return System.currentTimeMillis() - startTime;
                 }
+                logger.info("{} merged intervals is more than {}, streaming instead of seeking through {}", index.getIntervalCount(),
+                        maxIndexedIntervals, tabixIndex.getName());
+            } else if (TabixVCFFilter.findCSIIndex(input) != null) {
+                logger.info("csi indexes cannot be read yet, streaming all of {}", input.getName());
             }
-        } catch (IOException e) {
-            e.printStackTrace();
         }
 
-        try (FileReader fr = new FileReader(intervalList); BufferedReader br = new BufferedReader(fr)) {
-            String line;
-            while ((line = br.readLine()) != null) {
-                if (StringUtils.isEmpty(line.trim()) || line.startsWith("#") || line.startsWith("@")) {
-                    continue;
+        if (threads > 1 && !sorted) {
+            if (ParallelVCFFilter.isSplittable(input)) {
+                if (index == null) {
+                    index = readIntervalIndex();
                 }
+                logger.info("filtering {} in chunks on {} threads", input.getName(), threads);
+                ProgressReporter progress = new ProgressReporter("filter-vcf", Collections.singletonList(input), "filter.lines.read",
+                        System.err).start(progressInterval);
+                try {
+                    new ParallelVCFFilter(input, index, threads, ParallelVCFFilter.DEFAULT_CHUNK_SIZE).filter(this, output);
+                } catch (IOException e) {
+                    throw new FilterVCFException(e);
+                } finally {
+                    progress.close();
+                }
+                return System.currentTimeMillis() - startTime;
+            }
+            logger.info("{} cannot be split into chunks, filtering it on one thread", input.getName());
+        }
 
-                String chromosome = null;
-                Integer start, end;
-                Matcher gatkMatcher = gatkPattern.matcher(line);
-                if (gatkMatcher.matches()) {
-                    String[] lineArray = line.split(":");
-                    chromosome = lineArray[0];
-                    String position = lineArray[1];
-                    if (position.contains("-")) {
-                        String[] positionSplit = position.split("-");
-                        start = Integer.valueOf(positionSplit[0]);
-                        end = Integer.valueOf(positionSplit[1]);
-                    } else {
-                        start = Integer.valueOf(position);
-                        end = start;
+        boolean autoSorted;
+        SortedIntervalJoin join = null;
+        IntervalLookup lookup;
+        try {
+            // a picard list that says it is sorted is merge-joined unless the vcf turns out not to be
+            autoSorted = !sorted && index == null && SortedIntervalJoin.isCoordinateSorted(intervalList);
+            if (sorted || autoSorted) {
+                logger.info("merge-joining the vcf with the sorted interval list");
+                join = new SortedIntervalJoin(intervalList);
+                lookup = join;
+            } else {
+                lookup = (index != null ? index : IntervalIndex.read(intervalList)).newCursor();
+            }
+        } catch (IOException e) {
+            throw new FilterVCFException(e);
+        }
+
+        ProgressReporter progress = new ProgressReporter("filter-vcf", Collections.singletonList(input), "filter.lines.read", System.err)
+                .start(progressInterval);
+        try (OutputStream os = StreamUtils.openOutputStream(output);
+                ByteLineReader reader = new ByteLineReader(StreamUtils.openInputStream(input))) {
+
+            // lines are filtered and copied as bytes; only --missing decodes the ones outside the intervals
+            VCFLineParser parser = new VCFLineParser();
+            while (reader.next()) {
+                byte[] line = reader.getBuffer();
+                int offset = reader.getOffset();
+                int length = reader.getLength();
+                boolean include;
+                try {
+                    include = includeLine(lookup, parser, line, offset, length);
+                } catch (UnsortedInputException e) {
+                    if (!autoSorted || join == null) {
+                        throw e;
                     }
-                } else {
-                    String[] lineArray = line.split("\t");
-                    chromosome = lineArray[0];
-                    start = Integer.valueOf(lineArray[1]);
-                    end = Integer.valueOf(lineArray[2]);
+                    logger.warn("{}; filtering the rest against an interval index", e.getMessage());
+                    join.close();
+                    join = null;
+                    lookup = IntervalIndex.read(intervalList).newCursor();
+                    // the line was counted by the failed attempt
+                    linesRead.add(-1);
+                    include = includeLine(lookup, parser, line, offset, length);
+                }
+                if (include) {
+                    os.write(line, offset, length);
+                    os.write(LINE_SEPARATOR);
                 }
-                Range<Integer> range = Range.between(start, end);
-                map.get(chromosome).add(range);
             }
         } catch (IOException e) {
-            e.printStackTrace();
+            throw new FilterVCFException(e);
+        } finally {
+            progress.close();
+            IOUtils.closeQuietly(join);
         }
 
-        try (FileWriter fw = new FileWriter(output);
-                BufferedWriter bw = new BufferedWriter(fw);
-                FileReader fr = new FileReader(input);
-                BufferedReader br = new BufferedReader(fr)) {
+        long endTime = System.currentTimeMillis();
 
-            String line;
-            line: while ((line = br.readLine()) != null) {
-
-                if (line.startsWith("#")) {
-                    bw.write(line);
-                    bw.newLine();
-                } else {
-                    String[] lineSplit = line.split("\t");
-                    String chromosome = lineSplit[0];
-                    String position = lineSplit[1];
-
-                    List<Range<Integer>> rangeList = map.get(chromosome);
-                    if (rangeList != null) {
-                        for (Range<Integer> range : rangeList) {
-                            if (range.contains(Integer.valueOf(position.trim()))) {
-                                bw.write(line);
-                                bw.newLine();
-                                continue line;
-                            }
-                        }
-                    }
+        return endTime - startTime;
+    }
 
-                    if (withMissing && lineSplit.length > 3) {
+    public boolean includeLine(IntervalLookup lookup, String line) throws FilterVCFException {
+        linesRead.increment();
+        filterTimer.start();
+        try {
+            boolean include = matches(lookup, line);
+            if (include) {
+                linesKept.increment();
+            }
+            return include;
+        } finally {
+            filterTimer.stop();
+        }
+    }
 
-                        String alternateAllele = lineSplit[4];
+    /**
+     * The byte form of {@link #includeLine(IntervalLookup, String)}: CHROM and POS are read from the raw line by the parser, and the
+     * line is decoded only when --missing has to look at ALT and GT.
+     */
+    public boolean includeLine(IntervalLookup lookup, VCFLineParser parser, byte[] line, int offset, int length)
+            throws FilterVCFException {
+        linesRead.increment();
+        filterTimer.start();
+        try {
+            boolean include;
+            if (length > 0 && line[offset] == '#') {
+                include = true;
+            } else {
+                parser.parse(line, offset, length);
+                include = inInterval(lookup, parser.getContig(), parser.getPosition())
+                        || (withMissing && hasMissing(new String(line, offset, length, StandardCharsets.UTF_8)));
+            }
+            if (include) {
+                linesKept.increment();
+            }
+            return include;
+        } finally {
+            filterTimer.stop();
+        }
+    }
 
-                        List<String> formatKeyList = Arrays.asList(lineSplit[8].split(":"));
-                        List<String> formatValueList = Arrays.asList(lineSplit[9].split(":"));
+    private boolean matches(IntervalLookup lookup, String line) throws FilterVCFException {
 
-                        if (!".".equals(alternateAllele.trim())) {
-                            bw.write(line);
-                            bw.newLine();
-                        } else if (formatValueList.get(formatKeyList.indexOf("GT")).contains(".")) {
-                            bw.write(line);
-                            bw.newLine();
-                        }
+        if (line.startsWith("#")) {
+            return true;
+        }
 
-                    }
+        int first = line.indexOf('\t');
+        if (first < 0) {
+            throw new FilterVCFException("no CHROM and POS in vcf line: " + StringUtils.left(line, 80));
+        }
+        int second = line.indexOf('\t', first + 1);
+        String chromosome = line.substring(0, first);
+        String position = line.substring(first + 1, second < 0 ? line.length() : second);
 
-                }
+        return inInterval(lookup, chromosome, Integer.parseInt(position.trim())) || (withMissing && hasMissing(line));
+    }
+
+    private boolean inInterval(IntervalLookup lookup, String chromosome, int pos) throws FilterVCFException {
+        Object event = FlightEvents.beginIntervalLookup();
+        boolean inInterval = lookup.contains(chromosome, pos);
+        if (event != null) {
+            FlightEvents.commitIntervalLookup(event, chromosome, pos, lookup.getIntervalCount(chromosome), inInterval);
+        }
+        return inInterval;
+    }
+
+    private boolean hasMissing(String line) {
 
-                bw.flush();
+        String[] lineSplit = line.split("\t");
+        if (lineSplit.length > 3) {
+
+            String alternateAllele = lineSplit[4];
+
+            List<String> formatKeyList = Arrays.asList(lineSplit[8].split(":"));
+            List<String> formatValueList = Arrays.asList(lineSplit[9].split(":"));
+
+            if (!".".equals(alternateAllele.trim())) {
+                return true;
+            } else if (formatValueList.get(formatKeyList.indexOf("GT")).contains(".")) {
+                return true;
             }
-        } catch (Exception e) {
-            e.printStackTrace();
+
         }
 
-        long endTime = System.currentTimeMillis();
+        return false;
+    }
 
-        return endTime - startTime;
+    private IntervalIndex readIntervalIndex() throws FilterVCFException {
+        try {
+            return IntervalIndex.read(intervalList);
+        } catch (IOException e) {
+            throw new FilterVCFException(e);
+        }
+    }
+
+    public static Map<String, List<Range<Integer>>> readIntervals(File intervalList) throws IOException {
+        Map<String, List<Range<Integer>>> map = new HashMap<String, List<Range<Integer>>>();
+
+        try (FileReader fr = new FileReader(intervalList); BufferedReader br = new BufferedReader(fr)) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                Pair<String, Range<Integer>> interval = parseInterval(line);
+                if (interval == null) {
+                    continue;
+                }
+                List<Range<Integer>> ranges = map.get(interval.getLeft());
+                if (ranges == null) {
+                    ranges = new ArrayList<Range<Integer>>();
+                    map.put(interval.getLeft(), ranges);
+                }
+                ranges.add(interval.getRight());
+            }
+        }
+
+        return map;
+    }
+
+    /**
+     * The contig and range of an interval list line, or null for blank, comment and header lines.
+     */
+    static Pair<String, Range<Integer>> parseInterval(String line) {
+        if (StringUtils.isEmpty(line.trim()) || line.startsWith("#") || line.startsWith("@")) {
+            return null;
+        }
+
+        // interval list could be picard format or gatk format...try to handle both
+        String chromosome = null;
+        Integer start, end;
+        Matcher gatkMatcher = GATK_INTERVAL_PATTERN.matcher(line);
+        if (gatkMatcher.matches()) {
+            String[] lineArray = line.split(":");
+            chromosome = lineArray[0];
+            String position = lineArray[1];
+            if (position.contains("-")) {
+                String[] positionSplit = position.split("-");
+                start = Integer.valueOf(positionSplit[0]);
+                end = Integer.valueOf(positionSplit[1]);
+            } else {
+                start = Integer.valueOf(position);
+                end = start;
+            }
+        } else {
+            String[] lineArray = line.split("\t");
+            chromosome = lineArray[0];
+            start = Integer.valueOf(lineArray[1]);
+            end = Integer.valueOf(lineArray[2]);
+        }
+        return Pair.of(chromosome, Range.between(start, end));
     }
 
     public File getIntervalList() {
@@ -201,6 +367,46 @@ public class FilterVCF implements Callable<Long> {
         this.output = output;
     }
 
+    public IntervalIndex getIntervals() {
+        return intervals;
+    }
+
+    public void setIntervals(IntervalIndex intervals) {
+        this.intervals = intervals;
+    }
+
+    public long getProgressInterval() {
+        return progressInterval;
+    }
+
+    public void setProgressInterval(long progressInterval) {
+        this.progressInterval = progressInterval;
+    }
+
+    public Boolean getSorted() {
+        return sorted;
+    }
+
+    public void setSorted(Boolean sorted) {
+        this.sorted = sorted;
+    }
+
+    public int getMaxIndexedIntervals() {
+        return maxIndexedIntervals;
+    }
+
+    public void setMaxIndexedIntervals(int maxIndexedIntervals) {
+        this.maxIndexedIntervals = maxIndexedIntervals;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
     public Boolean getWithMissing() {
         return withMissing;
     }
@@ -211,14 +417,30 @@ public class FilterVCF implements Callable<Long> {
 
     @Override
     public String toString() {
-        return String.format("FilterVCF [intervalList=%s, input=%s, output=%s, withMissing=%s]", intervalList, input, output, withMissing);
+        return String.format("FilterVCF [intervalList=%s, input=%s, output=%s, withMissing=%s, sorted=%s, threads=%s]", intervalList,
+                input, output, withMissing, sorted, threads);
     }
 
     public static void main(String[] args) {
-        cliOptions.addOption(Option.builder("i").longOpt("input").desc("Absolute path to VCF").required().hasArg().build());
-        cliOptions.addOption(Option.builder("o").longOpt("output").desc("Absolute path to Output File").required().hasArg().build());
+        cliOptions.addOption(Option.builder("i").longOpt("input").desc("Absolute path to VCF, or - for stdin").required().hasArg().build());
+        cliOptions.addOption(Option.builder("o").longOpt("output").desc("Absolute path to Output File, or - for stdout").required().hasArg().build());
         cliOptions.addOption(Option.builder("l").longOpt("interval-list").desc("Interval List File").required().hasArg().build());
         cliOptions.addOption(Option.builder("m").longOpt("missing").desc("Include Missing Alleles").build());
+        cliOptions.addOption(Option.builder("s").longOpt("sorted")
+                .desc("VCF and interval list are coordinate sorted: walk them together instead of loading the interval list, failing on"
+                        + " out-of-order input (default: on for picard lists with SO:coordinate, falling back if the VCF is unsorted)")
+                .build());
+        cliOptions.addOption(Option.builder().longOpt("max-indexed-intervals")
+                .desc("Read a bgzipped VCF with a .tbi index by seeking to each merged interval when there are at most this many"
+                        + " (default " + TabixVCFFilter.DEFAULT_MAX_INTERVALS + ", 0 to always stream; ignored with --missing)")
+                .hasArg().build());
+        cliOptions.addOption(Option.builder("t").longOpt("threads")
+                .desc("Filter a plain or bgzipped VCF in chunks on this many threads (default 1; not with --sorted)").hasArg().build());
+        cliOptions.addOption(Option.builder().longOpt("progress-interval")
+                .desc("print percent done, lines/s, MB/s and the ETA to stderr every this many seconds (default 0: off)").hasArg()
+                .build());
+        cliOptions.addOption(Option.builder().longOpt("run-report")
+                .desc("write a json report of per-stage timings and line and byte counts to this file at exit").hasArg().build());
         cliOptions.addOption(Option.builder("h").longOpt("help").desc("print this help message").build());
         FilterVCF app = new FilterVCF();
         try {
@@ -228,9 +450,13 @@ public class FilterVCF implements Callable<Long> {
                 helpFormatter.printHelp("FilterVCF", cliOptions);
                 return;
             }
+            MetricsRegistry.getInstance().registerMBean();
+            if (commandLine.hasOption("run-report")) {
+                MetricsRegistry.getInstance().writeReportOnExit("filter-vcf", new File(commandLine.getOptionValue("run-report")));
+            }
             if (commandLine.hasOption("input")) {
                 File input = new File(commandLine.getOptionValue("input"));
-                if (!input.exists()) {
+                if (!StreamUtils.exists(input)) {
                     throw new FilterVCFException("input vcf does not exist");
                 }
                 app.setInput(input);
@@ -249,9 +475,21 @@ public class FilterVCF implements Callable<Long> {
             if (commandLine.hasOption("missing")) {
                 app.setWithMissing(Boolean.TRUE);
             }
+            if (commandLine.hasOption("sorted")) {
+                app.setSorted(Boolean.TRUE);
+            }
+            if (commandLine.hasOption("max-indexed-intervals")) {
+                app.setMaxIndexedIntervals(Integer.valueOf(commandLine.getOptionValue("max-indexed-intervals")));
+            }
+            if (commandLine.hasOption("threads")) {
+                app.setThreads(Integer.valueOf(commandLine.getOptionValue("threads")));
+            }
+            if (commandLine.hasOption("progress-interval")) {
+                app.setProgressInterval(Long.valueOf(commandLine.getOptionValue("progress-interval")));
+            }
             Long duration = app.call();
             logger.info("Duration {} seconds", duration / 1000);
-        } catch (ParseException | FilterVCFException e) {
+        } catch (ParseException | FilterVCFException | NumberFormatException e) {
             logger.error(e.getMessage());
             helpFormatter.printHelp("FilterVCF", cliOptions);
             System.exit(-1);
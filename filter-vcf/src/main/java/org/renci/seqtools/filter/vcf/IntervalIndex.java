@@ -0,0 +1,189 @@
+package org.renci.seqtools.filter.vcf;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.lang3.Range;
+
+/**
+ * An interval list sorted and merged per contig into primitive start and end arrays (1-based, inclusive). Overlapping and adjacent
+ * intervals are merged, so both arrays are strictly increasing and a position is covered exactly when the first interval ending at
+ * or after it also starts at or before it: one binary search, no boxing.
+ * <p>
+ * The index is immutable and can be shared between threads; a {@link Cursor} is not, and each reader should take its own.
+ */
+public class IntervalIndex {
+
+    private final Map<String, ContigIntervals> contigs;
+
+    private IntervalIndex(Map<String, ContigIntervals> contigs) {
+        super();
+        this.contigs = contigs;
+    }
+
+    public static IntervalIndex getInstance(Map<String, List<Range<Integer>>> intervals) {
+        Map<String, ContigIntervals> contigs = new HashMap<String, ContigIntervals>();
+        for (Map.Entry<String, List<Range<Integer>>> entry : intervals.entrySet()) {
+            contigs.put(entry.getKey(), merge(entry.getValue()));
+        }
+        return new IntervalIndex(contigs);
+    }
+
+    public static IntervalIndex read(File intervalList) throws IOException {
+        return getInstance(FilterVCF.readIntervals(intervalList));
+    }
+
+    private static ContigIntervals merge(List<Range<Integer>> ranges) {
+        List<Range<Integer>> sorted = new ArrayList<Range<Integer>>(ranges);
+        Collections.sort(sorted, new Comparator<Range<Integer>>() {
+            @Override
+            public int compare(Range<Integer> a, Range<Integer> b) {
+                return Integer.compare(a.getMinimum(), b.getMinimum());
+            }
+        });
+
+        int[] starts = new int[sorted.size()];
+        int[] ends = new int[sorted.size()];
+        int count = 0;
+        for (Range<Integer> range : sorted) {
+            int start = range.getMinimum();
+            int end = range.getMaximum();
+            if (count > 0 && start <= ends[count - 1] + 1L) {
+                ends[count - 1] = Math.max(ends[count - 1], end);
+            } else {
+                starts[count] = start;
+                ends[count] = end;
+                count++;
+            }
+        }
+        return new ContigIntervals(Arrays.copyOf(starts, count), Arrays.copyOf(ends, count));
+    }
+
+    public boolean contains(String contig, int position) {
+        ContigIntervals intervals = contigs.get(contig);
+        if (intervals == null) {
+            return false;
+        }
+        int index = intervals.seek(0, position);
+        return intervals.covers(index, position);
+    }
+
+    /**
+     * Merged intervals on a contig, 0 if the contig is not in the list.
+     */
+    public int getIntervalCount(String contig) {
+        ContigIntervals intervals = contigs.get(contig);
+        return intervals != null ? intervals.starts.length : 0;
+    }
+
+    public int getIntervalCount() {
+        int count = 0;
+        for (ContigIntervals intervals : contigs.values()) {
+            count += intervals.starts.length;
+        }
+        return count;
+    }
+
+    public Set<String> getContigs() {
+        return Collections.unmodifiableSet(contigs.keySet());
+    }
+
+    /**
+     * Merged interval starts on a contig, in order; shared with the index, so not to be modified.
+     */
+    int[] getStarts(String contig) {
+        ContigIntervals intervals = contigs.get(contig);
+        return intervals != null ? intervals.starts : new int[0];
+    }
+
+    int[] getEnds(String contig) {
+        ContigIntervals intervals = contigs.get(contig);
+        return intervals != null ? intervals.ends : new int[0];
+    }
+
+    public Cursor newCursor() {
+        return new Cursor();
+    }
+
+    private static class ContigIntervals {
+
+        private final int[] starts;
+
+        private final int[] ends;
+
+        public ContigIntervals(int[] starts, int[] ends) {
+            super();
+            this.starts = starts;
+            this.ends = ends;
+        }
+
+        /**
+         * The first interval at or after from that ends at or after the position, or the interval count if there is none.
+         */
+        public int seek(int from, int position) {
+            int index = Arrays.binarySearch(ends, from, ends.length, position);
+            return index >= 0 ? index : -index - 1;
+        }
+
+        public boolean covers(int index, int position) {
+            return index < starts.length && starts[index] <= position;
+        }
+
+    }
+
+    /**
+     * Lookups that remember where the last one landed. Lines in coordinate order mostly stay in the same interval or step to the next
+     * one, so they cost a comparison or two; a new contig or a step backwards falls back to a binary search, so unsorted input still
+     * gets the right answer.
+     */
+    public class Cursor implements IntervalLookup {
+
+        private String contig;
+
+        private ContigIntervals intervals;
+
+        private int index;
+
+        private int lastPosition;
+
+        private Cursor() {
+            super();
+        }
+
+        @Override
+        public boolean contains(String contig, int position) {
+            if (!contig.equals(this.contig)) {
+                this.contig = contig;
+                this.intervals = contigs.get(contig);
+                this.index = 0;
+                this.lastPosition = Integer.MIN_VALUE;
+            }
+            if (intervals == null) {
+                return false;
+            }
+            if (position < lastPosition) {
+                index = intervals.seek(0, position);
+            } else if (index < intervals.ends.length && intervals.ends[index] < position) {
+                int next = index + 1;
+                index = next < intervals.ends.length && intervals.ends[next] >= position ? next : intervals.seek(next, position);
+            }
+            lastPosition = position;
+            return intervals.covers(index, position);
+        }
+
+        @Override
+        public int getIntervalCount(String contig) {
+            return IntervalIndex.this.getIntervalCount(contig);
+        }
+
+    }
+
+}
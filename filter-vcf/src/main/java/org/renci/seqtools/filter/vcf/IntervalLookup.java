@@ -0,0 +1,16 @@
+package org.renci.seqtools.filter.vcf;
+
+/**
+ * Answers whether a vcf record position falls in the interval list. Implementations keep per-reader state, so each reading thread
+ * needs its own.
+ */
+public interface IntervalLookup {
+
+    boolean contains(String contig, int position) throws FilterVCFException;
+
+    /**
+     * Intervals on the contig, or -1 if the lookup does not know without reading ahead.
+     */
+    int getIntervalCount(String contig);
+
+}
@@ -0,0 +1,384 @@
+package org.renci.seqtools.filter.vcf;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import org.renci.seqtools.commons.StreamUtils;
+import org.renci.seqtools.commons.metrics.Counter;
+import org.renci.seqtools.commons.metrics.InputProgress;
+import org.renci.seqtools.commons.metrics.MetricsRegistry;
+import org.renci.seqtools.commons.metrics.StageTimer;
+
+/**
+ * Filters a vcf in chunks on a fork/join pool. A plain file is cut into byte ranges and a bgzipped one into runs of whole bgzf
+ * blocks, so each chunk is read and inflated on its own; every chunk is filtered against the shared {@link IntervalIndex} through
+ * its own cursor, and the kept lines are written in input order through one large buffer.
+ * <p>
+ * A chunk owns the lines starting inside it and the one starting exactly at its end: every chunk but the first skips through its
+ * first newline, and each reads past its end to finish its last line. Gzip that is not bgzf, bzip2 and stdin cannot be cut.
+ */
+public class ParallelVCFFilter {
+
+    public static final int DEFAULT_CHUNK_SIZE = 4 * 1024 * 1024;
+
+    private static final int OUTPUT_BUFFER_SIZE = 8 * 1024 * 1024;
+
+    private static final int OVERRUN_READ_SIZE = 64 * 1024;
+
+    private static final int BGZF_FIXED_HEADER_LENGTH = 12;
+
+    private static final int BGZF_FOOTER_LENGTH = 8;
+
+    private static final StageTimer readTimer = MetricsRegistry.getInstance().timer(MetricsRegistry.READ);
+
+    private static final StageTimer decompressTimer = MetricsRegistry.getInstance().timer(MetricsRegistry.DECOMPRESS);
+
+    private static final Counter readBytes = MetricsRegistry.getInstance().counter("read.bytes");
+
+    private static final Counter decompressBytes = MetricsRegistry.getInstance().counter("decompress.bytes");
+
+    private static final ThreadLocal<Inflater> inflaters = ThreadLocal.withInitial(() -> new Inflater(true));
+
+    private final File input;
+
+    private final IntervalIndex intervals;
+
+    private final int threads;
+
+    private final int chunkSize;
+
+    private final boolean bgzf;
+
+    public ParallelVCFFilter(File input, IntervalIndex intervals, int threads, int chunkSize) throws IOException {
+        super();
+        this.input = input;
+        this.intervals = intervals;
+        this.threads = threads;
+        this.chunkSize = chunkSize;
+        this.bgzf = isBGZF(readMagic(input));
+    }
+
+    /**
+     * Whether a vcf can be cut into chunks: a plain or bgzipped file, not stdin, plain gzip or bzip2.
+     */
+    public static boolean isSplittable(File input) {
+        if (StreamUtils.isStandardStream(input) || !input.isFile()) {
+            return false;
+        }
+        try {
+            byte[] magic = readMagic(input);
+            if ((magic[0] & 0xFF) == 0x1f && (magic[1] & 0xFF) == 0x8b) {
+                return isBGZF(magic);
+            }
+            return !(magic[0] == 'B' && magic[1] == 'Z' && magic[2] == 'h');
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return false;
+    }
+
+    private static byte[] readMagic(File input) throws IOException {
+        byte[] magic = new byte[BGZF_FIXED_HEADER_LENGTH + 6];
+        try (InputStream is = new FileInputStream(input)) {
+            int read = 0;
+            int count;
+            while (read < magic.length && (count = is.read(magic, read, magic.length - read)) >= 0) {
+                read += count;
+            }
+        }
+        return magic;
+    }
+
+    private static boolean isBGZF(byte[] header) {
+        return (header[0] & 0xFF) == 0x1f && (header[1] & 0xFF) == 0x8b && (header[3] & 4) != 0 && getBlockSize(header, 0) > 0;
+    }
+
+    public void filter(FilterVCF filter, File output) throws IOException, FilterVCFException {
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        InputProgress progress = InputProgress.acquire(input);
+        ArrayDeque<ForkJoinTask<Chunk>> pending = new ArrayDeque<ForkJoinTask<Chunk>>();
+        try (FileChannel channel = FileChannel.open(input.toPath(), StandardOpenOption.READ);
+                OutputStream os = new BufferedOutputStream(StreamUtils.openOutputStream(output), OUTPUT_BUFFER_SIZE)) {
+            long size = channel.size();
+            long start = 0L;
+            long uncompressed = 0L;
+            while (start < size || !pending.isEmpty()) {
+                // a couple of chunks per thread in flight keeps the pool busy while the head is written
+                while (start < size && pending.size() < threads * 2) {
+                    long end = bgzf ? nextBlockRun(channel, start, size) : Math.min(size, start + chunkSize);
+                    pending.add(pool.submit(new Chunk(filter, channel, size, start, end)));
+                    start = end;
+                }
+                Chunk chunk = await(pending.poll());
+                chunk.kept.writeTo(os);
+                uncompressed += chunk.owned;
+                progress.advanceCompressed(chunk.end);
+                progress.advanceUncompressed(uncompressed);
+            }
+        } finally {
+            for (ForkJoinTask<Chunk> task : pending) {
+                task.cancel(false);
+            }
+            pool.shutdownNow();
+            progress.release();
+        }
+    }
+
+    private Chunk await(ForkJoinTask<Chunk> task) throws IOException, FilterVCFException {
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new FilterVCFException("interrupted while filtering " + input, e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof FilterVCFException) {
+                throw (FilterVCFException) cause;
+            }
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new FilterVCFException(cause);
+        }
+    }
+
+    /**
+     * The address of the first bgzf block at least chunkSize past start, or the end of the file.
+     */
+    private long nextBlockRun(FileChannel channel, long start, long size) throws IOException {
+        long address = start;
+        while (address < size && address - start < chunkSize) {
+            address += readBlockSize(channel, address);
+        }
+        return address;
+    }
+
+    private int readBlockSize(FileChannel channel, long address) throws IOException {
+        byte[] header = new byte[BGZF_FIXED_HEADER_LENGTH];
+        readFully(channel, header, 0, header.length, address);
+        int extraLength = readUnsignedShort(header, 10);
+        header = Arrays.copyOf(header, BGZF_FIXED_HEADER_LENGTH + extraLength);
+        readFully(channel, header, BGZF_FIXED_HEADER_LENGTH, extraLength, address + BGZF_FIXED_HEADER_LENGTH);
+        int blockSize = getBlockSize(header, 0);
+        if (blockSize < 0) {
+            throw new IOException(String.format("no bgzf block at %d of %s", address, input));
+        }
+        return blockSize;
+    }
+
+    /**
+     * The size of the bgzf block starting at offset, from the BC subfield of its gzip header, or -1 if it is not a bgzf block.
+     */
+    private static int getBlockSize(byte[] block, int offset) {
+        if ((block[offset] & 0xFF) != 0x1f || (block[offset + 1] & 0xFF) != 0x8b || (block[offset + 3] & 4) == 0) {
+            return -1;
+        }
+        int extraLength = readUnsignedShort(block, offset + 10);
+        int extra = offset + BGZF_FIXED_HEADER_LENGTH;
+        for (int i = extra; i + 4 <= extra + extraLength && i + 4 <= block.length;) {
+            int subfieldLength = readUnsignedShort(block, i + 2);
+            if (block[i] == 'B' && block[i + 1] == 'C' && subfieldLength == 2 && i + 6 <= block.length) {
+                return readUnsignedShort(block, i + 4) + 1;
+            }
+            i += 4 + subfieldLength;
+        }
+        return -1;
+    }
+
+    private static void readFully(FileChannel channel, byte[] buffer, int offset, int length, long position) throws IOException {
+        ByteBuffer bb = ByteBuffer.wrap(buffer, offset, length);
+        while (bb.hasRemaining()) {
+            if (channel.read(bb, position + bb.position() - offset) < 0) {
+                throw new EOFException(String.format("end of file reading %d bytes at %d", length, position));
+            }
+        }
+    }
+
+    private static int readUnsignedShort(byte[] buffer, int offset) {
+        return (buffer[offset] & 0xFF) | ((buffer[offset + 1] & 0xFF) << 8);
+    }
+
+    private static int readInt(byte[] buffer, int offset) {
+        return (buffer[offset] & 0xFF) | ((buffer[offset + 1] & 0xFF) << 8) | ((buffer[offset + 2] & 0xFF) << 16)
+                | ((buffer[offset + 3] & 0xFF) << 24);
+    }
+
+    private class Chunk implements Callable<Chunk> {
+
+        private final FilterVCF filter;
+
+        private final FileChannel channel;
+
+        private final long size;
+
+        private final long start;
+
+        private final long end;
+
+        private final ByteArrayOutputStream kept = new ByteArrayOutputStream();
+
+        private byte[] data = new byte[0];
+
+        private int length;
+
+        /** Uncompressed bytes in [start, end), before the overrun that finishes the last line. */
+        private int owned;
+
+        public Chunk(FilterVCF filter, FileChannel channel, long size, long start, long end) {
+            super();
+            this.filter = filter;
+            this.channel = channel;
+            this.size = size;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        public Chunk call() throws IOException, FilterVCFException {
+            if (bgzf) {
+                inflate();
+            } else {
+                read();
+            }
+
+            IntervalLookup lookup = intervals.newCursor();
+            VCFLineParser parser = new VCFLineParser();
+            int position = 0;
+            if (start > 0) {
+                int newline = indexOf(0);
+                position = newline < 0 ? length : newline + 1;
+            }
+            while (position <= owned && position < length) {
+                int newline = indexOf(position);
+                int next = newline < 0 ? length : newline + 1;
+                int lineEnd = newline < 0 ? length : newline;
+                if (lineEnd > position && data[lineEnd - 1] == '\r') {
+                    lineEnd--;
+                }
+                if (filter.includeLine(lookup, parser, data, position, lineEnd - position)) {
+                    kept.write(data, position, lineEnd - position);
+                    kept.write(FilterVCF.LINE_SEPARATOR);
+                }
+                position = next;
+            }
+            data = null;
+            return this;
+        }
+
+        private void read() throws IOException {
+            readTimer.start();
+            try {
+                owned = (int) (end - start);
+                data = new byte[owned + OVERRUN_READ_SIZE];
+                readFully(channel, data, 0, owned, start);
+                length = owned;
+                long position = end;
+                int scanned = owned;
+                while (indexOf(scanned) < 0 && position < size) {
+                    scanned = length;
+                    int count = (int) Math.min(OVERRUN_READ_SIZE, size - position);
+                    ensureCapacity(length + count);
+                    readFully(channel, data, length, count, position);
+                    length += count;
+                    position += count;
+                }
+                readBytes.add(position - start);
+            } finally {
+                readTimer.stop();
+            }
+        }
+
+        private void inflate() throws IOException {
+            byte[] compressed = new byte[(int) (end - start)];
+            readTimer.start();
+            try {
+                readFully(channel, compressed, 0, compressed.length, start);
+            } finally {
+                readTimer.stop();
+            }
+            readBytes.add(compressed.length);
+            data = new byte[compressed.length * 4];
+            for (int offset = 0; offset < compressed.length;) {
+                offset += inflateBlock(compressed, offset);
+            }
+            owned = length;
+
+            long address = end;
+            int scanned = owned;
+            while (indexOf(scanned) < 0 && address < size) {
+                scanned = length;
+                byte[] block = new byte[readBlockSize(channel, address)];
+                readFully(channel, block, 0, block.length, address);
+                readBytes.add(block.length);
+                inflateBlock(block, 0);
+                address += block.length;
+            }
+        }
+
+        /**
+         * Appends the inflated bgzf block at offset to the data and returns the block's compressed size.
+         */
+        private int inflateBlock(byte[] compressed, int offset) throws IOException {
+            int blockSize = getBlockSize(compressed, offset);
+            if (blockSize < 0 || offset + blockSize > compressed.length) {
+                throw new IOException(String.format("no bgzf block at %d of %s", start + offset, input));
+            }
+            int headerLength = BGZF_FIXED_HEADER_LENGTH + readUnsignedShort(compressed, offset + 10);
+            int uncompressedSize = readInt(compressed, offset + blockSize - 4);
+            ensureCapacity(length + uncompressedSize);
+
+            decompressTimer.start();
+            try {
+                Inflater inflater = inflaters.get();
+                inflater.reset();
+                inflater.setInput(compressed, offset + headerLength, blockSize - headerLength - BGZF_FOOTER_LENGTH);
+                int inflated = inflater.inflate(data, length, uncompressedSize);
+                if (inflated != uncompressedSize) {
+                    throw new IOException(String.format("inflated %d bytes of a %d byte bgzf block at %d of %s", inflated,
+                            uncompressedSize, start + offset, input));
+                }
+            } catch (DataFormatException e) {
+                throw new IOException(e);
+            } finally {
+                decompressTimer.stop();
+            }
+            decompressBytes.add(uncompressedSize);
+            length += uncompressedSize;
+            return blockSize;
+        }
+
+        private void ensureCapacity(int capacity) {
+            if (capacity > data.length) {
+                data = Arrays.copyOf(data, Math.max(capacity, data.length * 2));
+            }
+        }
+
+        private int indexOf(int from) {
+            for (int i = from; i < length; i++) {
+                if (data[i] == '\n') {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+    }
+
+}
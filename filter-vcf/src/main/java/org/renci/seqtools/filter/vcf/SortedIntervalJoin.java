@@ -0,0 +1,169 @@
+package org.renci.seqtools.filter.vcf;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.commons.lang3.Range;
+import org.apache.commons.lang3.tuple.Pair;
+
+/**
+ * Filters a coordinate-sorted vcf against a coordinate-sorted interval list by walking both with one cursor each, reading the
+ * interval list as it goes instead of holding it. Memory is the contig order alone, whatever the size of the list.
+ * <p>
+ * The contig order is the order contigs first appear in the interval list, read up front. Records on contigs the list does not
+ * mention are never included and do not move the interval cursor. Both inputs are checked as they are read: a contig that comes
+ * back after another one, or a position (or interval start) that goes backwards, throws an {@link UnsortedInputException}.
+ */
+public class SortedIntervalJoin implements IntervalLookup, Closeable {
+
+    private final File intervalList;
+
+    private final Map<String, Integer> contigOrder;
+
+    private final BufferedReader reader;
+
+    private Pair<String, Range<Integer>> pending;
+
+    private int pendingRank = -1;
+
+    private int intervalRank = -1;
+
+    private int intervalStart;
+
+    private int intervalEnd;
+
+    private int lastIntervalRank = -1;
+
+    private int lastIntervalStart = Integer.MIN_VALUE;
+
+    private int recordRank = -1;
+
+    private int recordPosition = Integer.MIN_VALUE;
+
+    private String recordContig;
+
+    public SortedIntervalJoin(File intervalList) throws IOException {
+        super();
+        this.intervalList = intervalList;
+        this.contigOrder = readContigOrder(intervalList);
+        this.reader = new BufferedReader(new FileReader(intervalList));
+    }
+
+    /**
+     * Whether a picard interval list says it is coordinate sorted (SO:coordinate in its @HD line). GATK lists carry no header, so
+     * sorted mode has to be asked for.
+     */
+    public static boolean isCoordinateSorted(File intervalList) throws IOException {
+        try (FileReader fr = new FileReader(intervalList); BufferedReader br = new BufferedReader(fr)) {
+            String line;
+            while ((line = br.readLine()) != null && line.startsWith("@")) {
+                if (line.startsWith("@HD") && line.contains("\tSO:coordinate")) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static Map<String, Integer> readContigOrder(File intervalList) throws IOException {
+        Map<String, Integer> order = new HashMap<String, Integer>();
+        try (FileReader fr = new FileReader(intervalList); BufferedReader br = new BufferedReader(fr)) {
+            String line;
+            String last = null;
+            while ((line = br.readLine()) != null) {
+                Pair<String, Range<Integer>> interval = FilterVCF.parseInterval(line);
+                if (interval == null || interval.getLeft().equals(last)) {
+                    continue;
+                }
+                last = interval.getLeft();
+                if (!order.containsKey(last)) {
+                    order.put(last, order.size());
+                }
+            }
+        }
+        return order;
+    }
+
+    @Override
+    public boolean contains(String contig, int position) throws FilterVCFException {
+        Integer rank = contigOrder.get(contig);
+        if (rank == null) {
+            return false;
+        }
+        if (rank < recordRank || (rank == recordRank && position < recordPosition)) {
+            throw new UnsortedInputException(String.format("vcf is not sorted like %s: %s:%d comes after %s:%d", intervalList.getName(),
+                    contig, position, recordContig, recordPosition));
+        }
+        recordRank = rank;
+        recordPosition = position;
+        recordContig = contig;
+
+        while (intervalRank != Integer.MAX_VALUE && (intervalRank < rank || (intervalRank == rank && intervalEnd < position))) {
+            nextInterval();
+        }
+        return intervalRank == rank && intervalStart <= position;
+    }
+
+    @Override
+    public int getIntervalCount(String contig) {
+        return -1;
+    }
+
+    /**
+     * Moves to the next interval, merged with any that overlap or abut it; the rank is Integer.MAX_VALUE past the end.
+     */
+    private void nextInterval() throws FilterVCFException {
+        if (pending == null && !readPending()) {
+            intervalRank = Integer.MAX_VALUE;
+            return;
+        }
+        intervalRank = pendingRank;
+        intervalStart = pending.getRight().getMinimum();
+        intervalEnd = pending.getRight().getMaximum();
+        pending = null;
+        while (readPending() && pendingRank == intervalRank && pending.getRight().getMinimum() <= intervalEnd + 1L) {
+            intervalEnd = Math.max(intervalEnd, pending.getRight().getMaximum());
+            pending = null;
+        }
+    }
+
+    private boolean readPending() throws FilterVCFException {
+        if (pending != null) {
+            return true;
+        }
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                Pair<String, Range<Integer>> interval = FilterVCF.parseInterval(line);
+                if (interval == null) {
+                    continue;
+                }
+                int rank = contigOrder.get(interval.getLeft());
+                int start = interval.getRight().getMinimum();
+                if (rank < lastIntervalRank || (rank == lastIntervalRank && start < lastIntervalStart)) {
+                    throw new UnsortedInputException(String.format("%s is not coordinate sorted: %s:%d comes after a later interval",
+                            intervalList.getName(), interval.getLeft(), start));
+                }
+                lastIntervalRank = rank;
+                lastIntervalStart = start;
+                pending = interval;
+                pendingRank = rank;
+                return true;
+            }
+        } catch (IOException e) {
+            throw new FilterVCFException(e);
+        }
+        return false;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+}
@@ -0,0 +1,122 @@
+package org.renci.seqtools.filter.vcf;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import org.renci.seqtools.commons.StreamUtils;
+
+import htsjdk.tribble.readers.TabixReader;
+
+/**
+ * Filters a bgzipped vcf through its tabix index: the header is copied from the top of the file, then each merged interval is
+ * queried in turn, so only the bgzf blocks overlapping the intervals are read and inflated. Contigs are visited in index order,
+ * which is the order they appear in the file, and intervals in position order, so the output is the same as a streaming pass.
+ * <p>
+ * Tabix returns every record whose REF overlaps the query, so a record is kept only by the interval holding its POS; a deletion
+ * reaching into an interval from before it is neither kept twice nor kept when a streaming pass would drop it.
+ */
+public class TabixVCFFilter {
+
+    /** Past this many merged intervals a streaming pass is usually cheaper than a seek per interval. */
+    public static final int DEFAULT_MAX_INTERVALS = 10000;
+
+    private final File input;
+
+    private final File index;
+
+    private final IntervalIndex intervals;
+
+    public TabixVCFFilter(File input, File index, IntervalIndex intervals) {
+        super();
+        this.input = input;
+        this.index = index;
+        this.intervals = intervals;
+    }
+
+    /**
+     * The tabix index next to a bgzipped vcf (input.tbi), or null.
+     */
+    public static File findTabixIndex(File input) {
+        if (StreamUtils.isStandardStream(input) || !input.getName().endsWith(".gz")) {
+            return null;
+        }
+        File index = new File(input.getPath() + ".tbi");
+        return index.isFile() ? index : null;
+    }
+
+    /**
+     * The csi index next to a bgzipped vcf (input.csi), or null. The htsjdk we build against only reads tabix indexes.
+     */
+    public static File findCSIIndex(File input) {
+        if (StreamUtils.isStandardStream(input) || !input.getName().endsWith(".gz")) {
+            return null;
+        }
+        File index = new File(input.getPath() + ".csi");
+        return index.isFile() ? index : null;
+    }
+
+    public void filter(FilterVCF filter, BufferedWriter bw) throws IOException, FilterVCFException {
+        IntervalLookup lookup = intervals.newCursor();
+
+        try (BufferedReader br = StreamUtils.newBufferedReader(input)) {
+            String line;
+            while ((line = br.readLine()) != null && line.startsWith("#")) {
+                if (filter.includeLine(lookup, line)) {
+                    bw.write(line);
+                    bw.newLine();
+                }
+            }
+        }
+
+        final TabixReader reader = new TabixReader(input.getAbsolutePath(), index.getAbsolutePath());
+        try {
+            List<String> contigs = new ArrayList<String>();
+            for (String contig : intervals.getContigs()) {
+                if (reader.chr2tid(contig) >= 0) {
+                    contigs.add(contig);
+                }
+            }
+            Collections.sort(contigs, new Comparator<String>() {
+                @Override
+                public int compare(String a, String b) {
+                    return Integer.compare(reader.chr2tid(a), reader.chr2tid(b));
+                }
+            });
+
+            for (String contig : contigs) {
+                int[] starts = intervals.getStarts(contig);
+                int[] ends = intervals.getEnds(contig);
+                for (int i = 0; i < starts.length; i++) {
+                    // tabix regions are 0-based, end exclusive
+                    TabixReader.Iterator iterator = reader.query(contig, starts[i] - 1, ends[i]);
+                    String line;
+                    while ((line = iterator.next()) != null) {
+                        int position = getPosition(line);
+                        if (position < starts[i] || position > ends[i]) {
+                            continue;
+                        }
+                        if (filter.includeLine(lookup, line)) {
+                            bw.write(line);
+                            bw.newLine();
+                        }
+                    }
+                }
+            }
+        } finally {
+            reader.close();
+        }
+    }
+
+    private static int getPosition(String line) {
+        int first = line.indexOf('\t');
+        int second = line.indexOf('\t', first + 1);
+        return Integer.parseInt(line.substring(first + 1, second < 0 ? line.length() : second).trim());
+    }
+
+}
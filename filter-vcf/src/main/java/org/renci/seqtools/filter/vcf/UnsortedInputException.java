@@ -0,0 +1,14 @@
+package org.renci.seqtools.filter.vcf;
+
+/**
+ * The vcf or the interval list broke the coordinate order a sorted merge-join relies on.
+ */
+public class UnsortedInputException extends FilterVCFException {
+
+    private static final long serialVersionUID = 4427861270915286843L;
+
+    public UnsortedInputException(String message) {
+        super(message);
+    }
+
+}
@@ -0,0 +1,89 @@
+package org.renci.seqtools.filter.vcf;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Reads CHROM and POS from the raw bytes of a vcf record, scanning only to the end of POS. The contig name is decoded only when it
+ * differs from the previous record's, so a sorted vcf decodes it once per contig. Not thread-safe; each reader takes its own.
+ */
+public class VCFLineParser {
+
+    private byte[] contigBytes = new byte[0];
+
+    private String contig;
+
+    private int position;
+
+    public VCFLineParser() {
+        super();
+    }
+
+    public void parse(byte[] line, int offset, int length) throws FilterVCFException {
+        int end = offset + length;
+        int tab = offset;
+        while (tab < end && line[tab] != '\t') {
+            tab++;
+        }
+        if (tab == end) {
+            throw malformed(line, offset, length);
+        }
+        if (contig == null || !sameContig(line, offset, tab)) {
+            contigBytes = Arrays.copyOfRange(line, offset, tab);
+            contig = new String(contigBytes, StandardCharsets.UTF_8);
+        }
+
+        // the same leniency as Integer.parseInt(column.trim())
+        int i = tab + 1;
+        while (i < end && isSpace(line[i])) {
+            i++;
+        }
+        long value = 0;
+        int digits = 0;
+        while (i < end && line[i] >= '0' && line[i] <= '9') {
+            value = value * 10 + (line[i] - '0');
+            if (value > Integer.MAX_VALUE) {
+                throw malformed(line, offset, length);
+            }
+            digits++;
+            i++;
+        }
+        while (i < end && isSpace(line[i])) {
+            i++;
+        }
+        if (digits == 0 || (i < end && line[i] != '\t')) {
+            throw malformed(line, offset, length);
+        }
+        position = (int) value;
+    }
+
+    private static boolean isSpace(byte b) {
+        return b >= 0 && b <= ' ' && b != '\t';
+    }
+
+    private boolean sameContig(byte[] line, int from, int to) {
+        if (to - from != contigBytes.length) {
+            return false;
+        }
+        for (int i = from; i < to; i++) {
+            if (line[i] != contigBytes[i - from]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static FilterVCFException malformed(byte[] line, int offset, int length) {
+        return new FilterVCFException("no CHROM and POS in vcf line: "
+                + new String(line, offset, Math.min(length, 80), StandardCharsets.UTF_8));
+    }
+
+    public String getContig() {
+        return contig;
+    }
+
+    public int getPosition() {
+        return position;
+    }
+
+}
@@ -0,0 +1,80 @@
+package org.renci.seqtools.filter.vcf;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.apache.commons.lang3.Range;
+import org.junit.Test;
+
+public class IntervalIndexTest {
+
+    @Test
+    public void mergesOverlappingAndAdjacentIntervals() {
+        Map<String, List<Range<Integer>>> map = new HashMap<String, List<Range<Integer>>>();
+        map.put("1", new ArrayList<Range<Integer>>(Arrays.asList(Range.between(50, 60), Range.between(10, 20), Range.between(15, 30),
+                Range.between(31, 40), Range.between(61, 61))));
+        IntervalIndex index = IntervalIndex.getInstance(map);
+
+        assertEquals(2, index.getIntervalCount("1"));
+        assertEquals(0, index.getIntervalCount("2"));
+        assertFalse(index.contains("1", 9));
+        assertTrue(index.contains("1", 10));
+        assertTrue(index.contains("1", 31));
+        assertTrue(index.contains("1", 40));
+        assertFalse(index.contains("1", 41));
+        assertTrue(index.contains("1", 61));
+        assertFalse(index.contains("1", 62));
+        assertFalse(index.contains("2", 10));
+    }
+
+    @Test
+    public void agreesWithRangeScan() {
+        Random random = new Random(1L);
+        Map<String, List<Range<Integer>>> map = new HashMap<String, List<Range<Integer>>>();
+        for (String contig : Arrays.asList("1", "2")) {
+            List<Range<Integer>> ranges = new ArrayList<Range<Integer>>();
+            for (int i = 0; i < 200; i++) {
+                int start = 1 + random.nextInt(100000);
+                ranges.add(Range.between(start, start + random.nextInt(300)));
+            }
+            map.put(contig, ranges);
+        }
+        IntervalIndex index = IntervalIndex.getInstance(map);
+
+        // a sorted walk over both contigs, then random positions, through one cursor
+        IntervalIndex.Cursor cursor = index.newCursor();
+        for (String contig : Arrays.asList("1", "2", "3")) {
+            for (int position = 1; position <= 101000; position += 1 + random.nextInt(50)) {
+                boolean expected = scan(map.get(contig), position);
+                assertEquals(contig + ":" + position, expected, cursor.contains(contig, position));
+                assertEquals(contig + ":" + position, expected, index.contains(contig, position));
+            }
+        }
+        for (int i = 0; i < 20000; i++) {
+            String contig = random.nextBoolean() ? "1" : "2";
+            int position = 1 + random.nextInt(101000);
+            assertEquals(contig + ":" + position, scan(map.get(contig), position), cursor.contains(contig, position));
+        }
+    }
+
+    private static boolean scan(List<Range<Integer>> ranges, int position) {
+        if (ranges == null) {
+            return false;
+        }
+        for (Range<Integer> range : ranges) {
+            if (range.contains(position)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+}
@@ -0,0 +1,108 @@
+package org.renci.seqtools.filter.vcf;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.apache.commons.lang3.Range;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import htsjdk.samtools.util.BlockCompressedOutputStream;
+
+public class ParallelVCFFilterTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void plainChunksMatchSingleThread() throws Exception {
+        byte[] vcf = makeVCF(new Random(1L), 500, false);
+        File input = temporaryFolder.newFile("plain.vcf");
+        Files.write(input.toPath(), vcf);
+        // chunks shorter than a line, a few lines long, and holding the whole file
+        for (int chunkSize : Arrays.asList(5, 37, 1000, vcf.length)) {
+            assertMatchesSingleThread(input, chunkSize);
+        }
+    }
+
+    @Test
+    public void plainChunksMatchWithoutTrailingNewline() throws Exception {
+        byte[] vcf = makeVCF(new Random(2L), 300, true);
+        File input = temporaryFolder.newFile("unterminated.vcf");
+        Files.write(input.toPath(), Arrays.copyOf(vcf, vcf.length - 1));
+        for (int chunkSize : Arrays.asList(3, 41, 1000)) {
+            assertMatchesSingleThread(input, chunkSize);
+        }
+    }
+
+    @Test
+    public void bgzfChunksMatchSingleThread() throws Exception {
+        // about half a megabyte, so several 64k bgzf blocks with lines running across their edges
+        byte[] vcf = makeVCF(new Random(3L), 12000, false);
+        File input = temporaryFolder.newFile("bgzf.vcf.gz");
+        try (OutputStream os = new BlockCompressedOutputStream(input)) {
+            os.write(vcf);
+        }
+        assertTrue(ParallelVCFFilter.isSplittable(input));
+        // a chunk of one byte still takes a whole block
+        for (int chunkSize : Arrays.asList(1, 100000)) {
+            assertMatchesSingleThread(input, chunkSize);
+        }
+    }
+
+    private void assertMatchesSingleThread(File input, int chunkSize) throws Exception {
+        File intervalList = temporaryFolder.newFile();
+        Files.write(intervalList.toPath(), Arrays.asList("1:100-5000", "1:9000-9100", "2:1-20000", "X:500-600"), StandardCharsets.UTF_8);
+        Map<String, List<Range<Integer>>> map = new HashMap<String, List<Range<Integer>>>();
+        map.put("1", new ArrayList<Range<Integer>>(Arrays.asList(Range.between(100, 5000), Range.between(9000, 9100))));
+        map.put("2", new ArrayList<Range<Integer>>(Arrays.asList(Range.between(1, 20000))));
+        map.put("X", new ArrayList<Range<Integer>>(Arrays.asList(Range.between(500, 600))));
+        IntervalIndex index = IntervalIndex.getInstance(map);
+
+        FilterVCF single = new FilterVCF(input, temporaryFolder.newFile(), intervalList);
+        single.setIntervals(index);
+        single.call();
+
+        FilterVCF parallel = new FilterVCF(input, temporaryFolder.newFile(), intervalList);
+        new ParallelVCFFilter(input, index, 3, chunkSize).filter(parallel, parallel.getOutput());
+
+        byte[] expected = Files.readAllBytes(single.getOutput().toPath());
+        assertTrue(expected.length > 1000);
+        assertArrayEquals("chunk size " + chunkSize, expected, Files.readAllBytes(parallel.getOutput().toPath()));
+    }
+
+    /**
+     * Sorted records of random length on three contigs, with CRLF line ends mixed in if asked for.
+     */
+    private static byte[] makeVCF(Random random, int records, boolean crlf) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("##fileformat=VCFv4.1\n");
+        sb.append("#CHROM\tPOS\tID\tREF\tALT\tQUAL\tFILTER\tINFO\tFORMAT\tS1\n");
+        for (String contig : Arrays.asList("1", "2", "X")) {
+            int position = 0;
+            for (int i = 0; i < records / 3; i++) {
+                position += 1 + random.nextInt(60);
+                sb.append(contig).append('\t').append(position).append("\t.\tA\tC\t50\tPASS\t");
+                for (int j = random.nextInt(30); j >= 0; j--) {
+                    sb.append((char) ('a' + random.nextInt(26)));
+                }
+                sb.append("\tGT\t0/1");
+                sb.append(crlf && random.nextBoolean() ? "\r\n" : "\n");
+            }
+        }
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+}
@@ -0,0 +1,112 @@
+package org.renci.seqtools.filter.vcf;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.renci.seqtools.commons.metrics.Counter;
+import org.renci.seqtools.commons.metrics.MetricsRegistry;
+
+public class SortedIntervalJoinTest {
+
+    private static final String VCF_HEADER = "##fileformat=VCFv4.1\n#CHROM\tPOS\tID\tREF\tALT\tQUAL\tFILTER\tINFO\tFORMAT\tS1";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void agreesWithIntervalIndexOnSortedVCF() throws Exception {
+        Random random = new Random(1L);
+        List<String> intervals = new ArrayList<String>();
+        intervals.add("@HD\tVN:1.0\tSO:coordinate");
+        for (String contig : Arrays.asList("1", "2")) {
+            int start = 1;
+            for (int i = 0; i < 200; i++) {
+                // up to 300 long every 0 to 400, so some overlap or abut and some do not
+                start += random.nextInt(400);
+                intervals.add(String.format("%s\t%d\t%d\t+\tt%d", contig, start, start + random.nextInt(300), i));
+            }
+        }
+        File intervalList = write("sorted.interval_list", intervals);
+
+        // contig 3 is not in the interval list and sits between the two that are
+        List<String> vcf = new ArrayList<String>(Arrays.asList(VCF_HEADER.split("\n")));
+        for (String contig : Arrays.asList("1", "3", "2")) {
+            for (int position = 1; position <= 50000; position += 1 + random.nextInt(40)) {
+                vcf.add(String.format("%s\t%d\t.\tA\tC\t50\tPASS\t.\tGT\t0/1", contig, position));
+            }
+        }
+        File input = write("sorted.vcf", vcf);
+
+        FilterVCF sorted = new FilterVCF(input, temporaryFolder.newFile("sorted-join.vcf"), intervalList);
+        sorted.setSorted(Boolean.TRUE);
+        sorted.call();
+
+        FilterVCF indexed = new FilterVCF(input, temporaryFolder.newFile("indexed.vcf"), intervalList);
+        indexed.setIntervals(IntervalIndex.read(intervalList));
+        indexed.call();
+
+        byte[] expected = Files.readAllBytes(indexed.getOutput().toPath());
+        assertTrue(expected.length > VCF_HEADER.length() * 10);
+        assertArrayEquals(expected, Files.readAllBytes(sorted.getOutput().toPath()));
+    }
+
+    @Test(expected = UnsortedInputException.class)
+    public void throwsWhenContigComesBack() throws Exception {
+        File intervalList = write("two-contigs.interval_list", Arrays.asList("1\t1\t100\t+\ta", "2\t1\t100\t+\tb"));
+        try (SortedIntervalJoin join = new SortedIntervalJoin(intervalList)) {
+            assertTrue(join.contains("1", 10));
+            assertTrue(join.contains("2", 10));
+            join.contains("1", 20);
+        }
+    }
+
+    @Test(expected = UnsortedInputException.class)
+    public void throwsWhenPositionGoesBackwards() throws Exception {
+        File intervalList = write("one-contig.interval_list", Arrays.asList("1\t1\t100\t+\ta", "1\t200\t300\t+\tb"));
+        try (SortedIntervalJoin join = new SortedIntervalJoin(intervalList)) {
+            assertTrue(join.contains("1", 250));
+            join.contains("1", 50);
+        }
+    }
+
+    @Test
+    public void fallsBackToIndexWhenVCFIsNotSorted() throws Exception {
+        File intervalList = write("declared-sorted.interval_list",
+                Arrays.asList("@HD\tVN:1.0\tSO:coordinate", "1\t10\t20\t+\ta", "2\t10\t20\t+\tb"));
+        List<String> vcf = new ArrayList<String>(Arrays.asList(VCF_HEADER.split("\n")));
+        vcf.addAll(Arrays.asList("2\t15\t.\tA\tC\t50\tPASS\t.\tGT\t0/1", "2\t30\t.\tA\tC\t50\tPASS\t.\tGT\t0/1",
+                "1\t12\t.\tA\tC\t50\tPASS\t.\tGT\t0/1", "1\t25\t.\tA\tC\t50\tPASS\t.\tGT\t0/1", "2\t11\t.\tA\tC\t50\tPASS\t.\tGT\t0/1"));
+        File input = write("unsorted.vcf", vcf);
+
+        Counter linesRead = MetricsRegistry.getInstance().counter("filter.lines.read");
+        long before = linesRead.get();
+        FilterVCF filter = new FilterVCF(input, temporaryFolder.newFile("fallback.vcf"), intervalList);
+        filter.call();
+
+        // the line that tripped the join is counted once
+        assertEquals(vcf.size(), linesRead.get() - before);
+        List<String> expected = new ArrayList<String>(Arrays.asList(VCF_HEADER.split("\n")));
+        expected.addAll(Arrays.asList(vcf.get(2), vcf.get(4), vcf.get(6)));
+        assertEquals(expected, Files.readAllLines(filter.getOutput().toPath(), StandardCharsets.UTF_8));
+    }
+
+    private File write(String name, List<String> lines) throws IOException {
+        File file = temporaryFolder.newFile(name);
+        Files.write(file.toPath(), lines, StandardCharsets.UTF_8);
+        return file;
+    }
+
+}
@@ -0,0 +1,127 @@
+package org.renci.seqtools.filter.vcf;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.lang3.Range;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.renci.seqtools.commons.StreamUtils;
+import org.renci.seqtools.generator.TabixIndexWriter;
+
+import htsjdk.samtools.SAMSequenceDictionary;
+import htsjdk.samtools.SAMSequenceRecord;
+import htsjdk.samtools.util.BlockCompressedOutputStream;
+
+public class TabixVCFFilterTest {
+
+    private static final int CONTIG_LENGTH = 120000;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void agreesWithStreamingPass() throws Exception {
+        Map<String, List<Range<Integer>>> map = new HashMap<String, List<Range<Integer>>>();
+        List<String> intervals = new ArrayList<String>();
+        List<String> vcf = new ArrayList<String>();
+        vcf.add("##fileformat=VCFv4.1");
+        vcf.add("#CHROM\tPOS\tID\tREF\tALT\tQUAL\tFILTER\tINFO");
+        for (String contig : Arrays.asList("1", "2")) {
+            List<Range<Integer>> ranges = new ArrayList<Range<Integer>>();
+            List<Object[]> records = new ArrayList<Object[]>();
+            for (int position = 1; position <= CONTIG_LENGTH; position += 10) {
+                records.add(new Object[] { position, ".", "A" });
+            }
+            // pairs of intervals five bases apart, which stay two merged intervals and two tabix queries
+            for (int start = 1000; start + 200 < CONTIG_LENGTH; start += 2000) {
+                ranges.add(Range.between(start, start + 100));
+                ranges.add(Range.between(start + 106, start + 200));
+                records.add(new Object[] { start - 3, "del-before", "ACGTACGTAC" });
+                records.add(new Object[] { start - 1, "before-start", "A" });
+                records.add(new Object[] { start, "at-start", "A" });
+                records.add(new Object[] { start + 98, "del-across", "ACGTACGTACGT" });
+                records.add(new Object[] { start + 200, "at-end", "A" });
+                records.add(new Object[] { start + 201, "after-end", "A" });
+            }
+            Collections.sort(records, new Comparator<Object[]>() {
+                @Override
+                public int compare(Object[] a, Object[] b) {
+                    return Integer.compare((Integer) a[0], (Integer) b[0]);
+                }
+            });
+            for (Object[] record : records) {
+                vcf.add(String.format("%s\t%d\t%s\t%s\tC\t50\tPASS\t.", contig, record[0], record[1], record[2]));
+            }
+            for (Range<Integer> range : ranges) {
+                intervals.add(String.format("%s:%d-%d", contig, range.getMinimum(), range.getMaximum()));
+            }
+            map.put(contig, ranges);
+        }
+        IntervalIndex index = IntervalIndex.getInstance(map);
+        File intervalList = temporaryFolder.newFile("tabix.intervals");
+        Files.write(intervalList.toPath(), intervals, StandardCharsets.UTF_8);
+
+        File input = temporaryFolder.newFile("tabix.vcf.gz");
+        try (BufferedWriter bw = new BufferedWriter(
+                new OutputStreamWriter(new BlockCompressedOutputStream(input), StandardCharsets.UTF_8))) {
+            for (String line : vcf) {
+                bw.write(line);
+                bw.newLine();
+            }
+        }
+        SAMSequenceDictionary dictionary = new SAMSequenceDictionary(
+                Arrays.asList(new SAMSequenceRecord("1", CONTIG_LENGTH), new SAMSequenceRecord("2", CONTIG_LENGTH)));
+        File tabixIndex = new TabixIndexWriter(dictionary).write(input);
+        assertEquals(tabixIndex, TabixVCFFilter.findTabixIndex(input));
+
+        FilterVCF streaming = new FilterVCF(input, temporaryFolder.newFile("streaming.vcf"), intervalList);
+        streaming.setIntervals(index);
+        streaming.setMaxIndexedIntervals(0);
+        streaming.call();
+
+        FilterVCF tabix = new FilterVCF(input, temporaryFolder.newFile("tabix.vcf"), intervalList);
+        try (BufferedWriter bw = StreamUtils.newBufferedWriter(tabix.getOutput())) {
+            new TabixVCFFilter(input, tabixIndex, index).filter(tabix, bw);
+        }
+
+        List<String> expected = Files.readAllLines(streaming.getOutput().toPath(), StandardCharsets.UTF_8);
+        List<String> actual = Files.readAllLines(tabix.getOutput().toPath(), StandardCharsets.UTF_8);
+        assertEquals(expected, actual);
+
+        // per contig: 60 interval pairs, each keeping the record at its start and end and the deletion reaching across the gap once
+        assertEquals(2 * 60, count(actual, "at-start"));
+        assertEquals(2 * 60, count(actual, "at-end"));
+        assertEquals(2 * 60, count(actual, "del-across"));
+        assertEquals(0, count(actual, "before-start"));
+        assertEquals(0, count(actual, "after-end"));
+        // a deletion reaching into an interval from before its start is returned by tabix but not owned by the interval
+        assertEquals(0, count(actual, "del-before"));
+        assertTrue(actual.size() > 2 * 60 * 20);
+    }
+
+    private static int count(List<String> lines, String id) {
+        int count = 0;
+        for (String line : lines) {
+            if (!line.startsWith("#") && line.split("\t")[2].equals(id)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+}
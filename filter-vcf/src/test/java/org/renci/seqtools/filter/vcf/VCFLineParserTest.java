@@ -0,0 +1,61 @@
+package org.renci.seqtools.filter.vcf;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+public class VCFLineParserTest {
+
+    @Test
+    public void readsLinesLongerThanTheBuffer() throws IOException {
+        StringBuilder longLine = new StringBuilder("2\t100");
+        for (int i = 0; i < 100; i++) {
+            longLine.append("\t0/1");
+        }
+        String vcf = "#CHROM\tPOS\r\n1\t5\tx\n" + longLine + "\n\n1\t7";
+        ByteLineReader reader = new ByteLineReader(new ByteArrayInputStream(vcf.getBytes(StandardCharsets.UTF_8)), 8);
+
+        String[] expected = { "#CHROM\tPOS", "1\t5\tx", longLine.toString(), "", "1\t7" };
+        for (String line : expected) {
+            assertTrue(reader.next());
+            assertEquals(line, new String(reader.getBuffer(), reader.getOffset(), reader.getLength(), StandardCharsets.UTF_8));
+        }
+        assertFalse(reader.next());
+        reader.close();
+    }
+
+    @Test
+    public void parsesContigAndPosition() throws FilterVCFException {
+        VCFLineParser parser = new VCFLineParser();
+        byte[] line = "xx\tchr1\t 12345 \tA\tC".getBytes(StandardCharsets.UTF_8);
+
+        parser.parse(line, 3, line.length - 3);
+        assertEquals("chr1", parser.getContig());
+        assertEquals(12345, parser.getPosition());
+        String contig = parser.getContig();
+
+        byte[] next = "chr1\t12346".getBytes(StandardCharsets.UTF_8);
+        parser.parse(next, 0, next.length);
+        assertSame(contig, parser.getContig());
+        assertEquals(12346, parser.getPosition());
+
+        for (String bad : new String[] { "chr1", "chr1\t", "chr1\t12a\tA", "chr1\t99999999999" }) {
+            byte[] bytes = bad.getBytes(StandardCharsets.UTF_8);
+            try {
+                parser.parse(bytes, 0, bytes.length);
+                fail(bad);
+            } catch (FilterVCFException e) {
+                // expected
+            }
+        }
+    }
+
+}
@@ -1,11 +1,12 @@
 package org.renci.seqtools.conversion;
 
+import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Map;
 import java.util.SortedSet;
 import java.util.TreeSet;
@@ -21,6 +22,9 @@ import org.apache.commons.cli.Option;
 import org.apache.commons.cli.Options;
 import org.apache.commons.cli.ParseException;
 import org.apache.commons.lang3.tuple.Pair;
+import org.renci.seqtools.commons.StreamUtils;
+import org.renci.seqtools.commons.metrics.MetricsRegistry;
+import org.renci.seqtools.commons.metrics.ProgressReporter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -38,6 +42,8 @@ public class SAMToolsDepthToGATKDepthOfCoverageFormatConverter implements Callab
 
     private File output;
 
+    private long progressInterval = 0;
+
     public SAMToolsDepthToGATKDepthOfCoverageFormatConverter() {
         super();
     }
@@ -69,7 +75,9 @@ public class SAMToolsDepthToGATKDepthOfCoverageFormatConverter implements Callab
 
         logger.info("reading samtools depth file");
         Map<Pair<String, Integer>, SAMToolsDepthInterval> samtoolsDepthIntervalMap = new ConcurrentHashMap<>();
-        try (Stream<String> stream = Files.lines(this.input.toPath())) {
+        ProgressReporter progress = new ProgressReporter("samtools-depth-converter", Collections.singletonList(this.input), null,
+                System.err).start(progressInterval);
+        try (BufferedReader br = StreamUtils.newBufferedReader(this.input); Stream<String> stream = br.lines()) {
             stream.parallel().forEach(line -> {
 
                 SAMToolsDepthInterval samtoolsDepthInterval = new SAMToolsDepthInterval(line);
@@ -79,6 +87,8 @@ public class SAMToolsDepthToGATKDepthOfCoverageFormatConverter implements Callab
             });
         } catch (IOException e) {
             logger.error(e.getMessage(), e);
+        } finally {
+            progress.close();
         }
         logger.info("samtoolsDepthIntervalMap.size(): {}", samtoolsDepthIntervalMap.size());
 
@@ -133,7 +143,7 @@ public class SAMToolsDepthToGATKDepthOfCoverageFormatConverter implements Callab
         });
 
         logger.info("writing output");
-        try (FileWriter fw = new FileWriter(output); BufferedWriter bw = new BufferedWriter(fw)) {
+        try (BufferedWriter bw = StreamUtils.newBufferedWriter(output)) {
             bw.write("Target\ttotal_coverage\taverage_coverage");
 
             Arrays.asList(1, 2, 5, 8, 10, 15, 20, 30, 50).forEach(a -> {
@@ -145,11 +155,9 @@ public class SAMToolsDepthToGATKDepthOfCoverageFormatConverter implements Callab
             });
 
             bw.newLine();
-            bw.flush();
 
             for (GATKDepthInterval gatkDepthInterval : allIntervalSet) {
-                fw.write(gatkDepthInterval.toStringTrimmed());
-                bw.flush();
+                bw.write(gatkDepthInterval.toStringTrimmed());
             }
 
         } catch (IOException e) {
@@ -186,6 +194,14 @@ public class SAMToolsDepthToGATKDepthOfCoverageFormatConverter implements Callab
         this.output = output;
     }
 
+    public long getProgressInterval() {
+        return progressInterval;
+    }
+
+    public void setProgressInterval(long progressInterval) {
+        this.progressInterval = progressInterval;
+    }
+
     @Override
     public String toString() {
         return String.format("SAMToolsDepthToGATKDepthOfCoverageFormatConverter [input=%s, intervals=%s, output=%s]", input, intervals,
@@ -194,9 +210,14 @@ public class SAMToolsDepthToGATKDepthOfCoverageFormatConverter implements Callab
 
     public static void main(String[] args) {
 
-        cliOptions.addOption(Option.builder("i").longOpt("input").desc("absolute path to SAMTools Depth file").required().hasArg().build());
-        cliOptions.addOption(Option.builder("o").longOpt("output").desc("absolute path to Output file").required().hasArg().build());
+        cliOptions.addOption(Option.builder("i").longOpt("input").desc("absolute path to SAMTools Depth file, or - for stdin").required().hasArg().build());
+        cliOptions.addOption(Option.builder("o").longOpt("output").desc("absolute path to Output file, or - for stdout").required().hasArg().build());
         cliOptions.addOption(Option.builder("l").longOpt("intervals").desc("all intervals file").required().hasArg().build());
+        cliOptions.addOption(Option.builder().longOpt("progress-interval")
+                .desc("print percent of the depth file read, MB/s and the ETA to stderr every this many seconds (default 0: off)").hasArg()
+                .build());
+        cliOptions.addOption(Option.builder().longOpt("run-report")
+                .desc("write a json report of per-stage timings and byte counts to this file at exit").hasArg().build());
         cliOptions.addOption(Option.builder("h").longOpt("help").desc("print this help message").build());
         SAMToolsDepthToGATKDepthOfCoverageFormatConverter app = new SAMToolsDepthToGATKDepthOfCoverageFormatConverter();
         try {
@@ -206,9 +227,14 @@ public class SAMToolsDepthToGATKDepthOfCoverageFormatConverter implements Callab
                 helpFormatter.printHelp("FilterVCF", cliOptions);
                 return;
             }
+            MetricsRegistry.getInstance().registerMBean();
+            if (commandLine.hasOption("run-report")) {
+                File runReport = new File(commandLine.getOptionValue("run-report"));
+                MetricsRegistry.getInstance().writeReportOnExit("samtools-depth-converter", runReport);
+            }
             if (commandLine.hasOption("input")) {
                 File input = new File(commandLine.getOptionValue("input"));
-                if (!input.exists()) {
+                if (!StreamUtils.exists(input)) {
                     throw new ParseException("samtools depth file does not exist");
                 }
                 app.setInput(input);
@@ -224,6 +250,9 @@ public class SAMToolsDepthToGATKDepthOfCoverageFormatConverter implements Callab
                 File output = new File(commandLine.getOptionValue("output"));
                 app.setOutput(output);
             }
+            if (commandLine.hasOption("progress-interval")) {
+                app.setProgressInterval(Long.valueOf(commandLine.getOptionValue("progress-interval")));
+            }
             app.call();
             System.exit(0);
         } catch (Exception e) {
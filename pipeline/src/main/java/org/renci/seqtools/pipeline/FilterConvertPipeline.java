@@ -0,0 +1,260 @@
+package org.renci.seqtools.pipeline;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.concurrent.Callable;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.CommandLineParser;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.renci.seqtools.commons.metrics.MetricsRegistry;
+import org.renci.seqtools.commons.metrics.ProgressReporter;
+import org.renci.seqtools.converter.ConversionJob;
+import org.renci.seqtools.converter.ConversionJobResult;
+import org.renci.seqtools.converter.ConversionSettings;
+import org.renci.seqtools.filter.vcf.FilterVCF;
+import org.renci.seqtools.filter.vcf.IntervalIndex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class FilterConvertPipeline implements Callable<ConversionJobResult> {
+
+    private static final Logger logger = LoggerFactory.getLogger(FilterConvertPipeline.class);
+
+    private static final HelpFormatter helpFormatter = new HelpFormatter();
+
+    private static final Options cliOptions = new Options();
+
+    private File input;
+
+    private File intervalList;
+
+    private Boolean withMissing = Boolean.FALSE;
+
+    private File bam;
+
+    private File outputDir;
+
+    private Boolean genome = Boolean.FALSE;
+
+    private Boolean metrics = Boolean.FALSE;
+
+    private Boolean testMode = Boolean.FALSE;
+
+    private int queuedBatches = FilteredVCFLineSource.DEFAULT_QUEUED_BATCHES;
+
+    private ConversionSettings settings = ConversionSettings.getInstance();
+
+    public FilterConvertPipeline() {
+        super();
+    }
+
+    public FilterConvertPipeline(File input, File intervalList, File bam, File outputDir) {
+        super();
+        this.input = input;
+        this.intervalList = intervalList;
+        this.bam = bam;
+        this.outputDir = outputDir;
+    }
+
+    @Override
+    public ConversionJobResult call() throws Exception {
+        logger.info(this.toString());
+
+        long startTime = System.currentTimeMillis();
+
+        FilterVCF filter = new FilterVCF(input, null, intervalList);
+        filter.setWithMissing(withMissing);
+        IntervalIndex intervals = IntervalIndex.read(intervalList);
+
+        FilteredVCFLineSource source = new FilteredVCFLineSource(input, filter, intervals, FilteredVCFLineSource.DEFAULT_BATCH_SIZE,
+                queuedBatches);
+        settings.setInputSource(source);
+
+        // output files are still named after the unfiltered input
+        ConversionJobResult result;
+        ProgressReporter progress = new ProgressReporter("filter-convert-pipeline", Collections.singletonList(input), "converter.sites",
+                System.err).start(settings.getProgressIntervalSeconds());
+        try {
+            result = ConversionJob.getInstance(input, bam, outputDir, genome, testMode, metrics, settings).call();
+        } finally {
+            progress.close();
+            source.close();
+            settings.setInputSource(null);
+        }
+
+        logger.info("kept {} of {} lines", source.getLinesKept(), source.getLinesRead());
+        logger.info("duration {} seconds", (System.currentTimeMillis() - startTime) / 1000);
+        return result;
+    }
+
+    public File getInput() {
+        return input;
+    }
+
+    public void setInput(File input) {
+        this.input = input;
+    }
+
+    public File getIntervalList() {
+        return intervalList;
+    }
+
+    public void setIntervalList(File intervalList) {
+        this.intervalList = intervalList;
+    }
+
+    public Boolean getWithMissing() {
+        return withMissing;
+    }
+
+    public void setWithMissing(Boolean withMissing) {
+        this.withMissing = withMissing;
+    }
+
+    public File getBam() {
+        return bam;
+    }
+
+    public void setBam(File bam) {
+        this.bam = bam;
+    }
+
+    public File getOutputDir() {
+        return outputDir;
+    }
+
+    public void setOutputDir(File outputDir) {
+        this.outputDir = outputDir;
+    }
+
+    public Boolean getGenome() {
+        return genome;
+    }
+
+    public void setGenome(Boolean genome) {
+        this.genome = genome;
+    }
+
+    public Boolean getMetrics() {
+        return metrics;
+    }
+
+    public void setMetrics(Boolean metrics) {
+        this.metrics = metrics;
+    }
+
+    public Boolean getTestMode() {
+        return testMode;
+    }
+
+    public void setTestMode(Boolean testMode) {
+        this.testMode = testMode;
+    }
+
+    public int getQueuedBatches() {
+        return queuedBatches;
+    }
+
+    public void setQueuedBatches(int queuedBatches) {
+        this.queuedBatches = queuedBatches;
+    }
+
+    public ConversionSettings getSettings() {
+        return settings;
+    }
+
+    public void setSettings(ConversionSettings settings) {
+        this.settings = settings;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("FilterConvertPipeline [input=%s, intervalList=%s, withMissing=%s, bam=%s, outputDir=%s, genome=%s]", input,
+                intervalList, withMissing, bam, outputDir, genome);
+    }
+
+    public static void main(String[] args) {
+        cliOptions.addOption(
+                Option.builder("i").longOpt("input").desc("Absolute path to VCF (.vcf or .vcf.gz)").required().hasArg().build());
+        cliOptions.addOption(Option.builder("l").longOpt("interval-list").desc("Interval List File").required().hasArg().build());
+        cliOptions.addOption(Option.builder("m").longOpt("missing").desc("Include Missing Alleles").build());
+        cliOptions.addOption(Option.builder("b").longOpt("bam").desc("Absolute path to BAM").required().hasArg().build());
+        cliOptions.addOption(Option.builder("o").longOpt("output").desc("Output directory").required().hasArg().build());
+        cliOptions.addOption(Option.builder("g").longOpt("genome").desc("Convert genome (default: exome)").build());
+        cliOptions.addOption(Option.builder().longOpt("metrics").desc("Generate metrics file").build());
+        cliOptions.addOption(
+                Option.builder("t").longOpt("test").desc("Output a text-based consensus file for verifying output").build());
+        cliOptions.addOption(
+                Option.builder("s").longOpt("sort").desc("Sort filtered records into the bam sequence dictionary order").build());
+        cliOptions.addOption(Option.builder().longOpt("queued-batches")
+                .desc("Batches of " + FilteredVCFLineSource.DEFAULT_BATCH_SIZE + " filtered lines held between filter and converter (default "
+                        + FilteredVCFLineSource.DEFAULT_QUEUED_BATCHES + ")")
+                .hasArg().build());
+        cliOptions.addOption(Option.builder().longOpt("progress-interval")
+                .desc("print percent done, records/s, MB/s and the ETA to stderr every this many seconds (default 0: off)").hasArg()
+                .build());
+        cliOptions.addOption(Option.builder().longOpt("run-report")
+                .desc("write a json report of per-stage timings, record and byte counts and queue depths to this file at exit").hasArg()
+                .build());
+        cliOptions.addOption(Option.builder("h").longOpt("help").desc("print this help message").build());
+        FilterConvertPipeline app = new FilterConvertPipeline();
+        try {
+            CommandLineParser commandLineParser = new DefaultParser();
+            CommandLine commandLine = commandLineParser.parse(cliOptions, args);
+            if (commandLine.hasOption("help")) {
+                helpFormatter.printHelp("FilterConvertPipeline", cliOptions);
+                return;
+            }
+            MetricsRegistry.getInstance().registerMBean();
+            if (commandLine.hasOption("run-report")) {
+                File runReport = new File(commandLine.getOptionValue("run-report"));
+                MetricsRegistry.getInstance().writeReportOnExit("filter-convert-pipeline", runReport);
+            }
+            File input = new File(commandLine.getOptionValue("input"));
+            if (!input.exists()) {
+                throw new ParseException("input vcf does not exist");
+            }
+            app.setInput(input);
+            File intervalList = new File(commandLine.getOptionValue("interval-list"));
+            if (!intervalList.exists()) {
+                throw new ParseException("intervalList does not exist");
+            }
+            app.setIntervalList(intervalList);
+            File bam = new File(commandLine.getOptionValue("bam"));
+            if (!bam.exists()) {
+                throw new ParseException("bam does not exist");
+            }
+            app.setBam(bam);
+            app.setOutputDir(new File(commandLine.getOptionValue("output")));
+            app.setWithMissing(commandLine.hasOption("missing"));
+            app.setGenome(commandLine.hasOption("genome"));
+            app.setMetrics(commandLine.hasOption("metrics"));
+            app.setTestMode(commandLine.hasOption("test"));
+            app.getSettings().setSortInput(commandLine.hasOption("sort"));
+            if (commandLine.hasOption("queued-batches")) {
+                app.setQueuedBatches(Integer.valueOf(commandLine.getOptionValue("queued-batches")));
+            }
+            if (commandLine.hasOption("progress-interval")) {
+                app.getSettings().setProgressIntervalSeconds(Long.valueOf(commandLine.getOptionValue("progress-interval")));
+            }
+            ConversionJobResult result = app.call();
+            if (!result.isSucceeded()) {
+                logger.error(result.getMessage());
+                System.exit(-1);
+            }
+        } catch (ParseException | NumberFormatException e) {
+            logger.error(e.getMessage());
+            helpFormatter.printHelp("FilterConvertPipeline", cliOptions);
+            System.exit(-1);
+        } catch (Exception e) {
+            logger.error(e.getMessage(), e);
+            System.exit(-1);
+        }
+    }
+
+}
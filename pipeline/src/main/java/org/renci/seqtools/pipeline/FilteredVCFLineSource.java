@@ -0,0 +1,171 @@
+package org.renci.seqtools.pipeline;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.renci.seqtools.commons.StreamUtils;
+import org.renci.seqtools.commons.metrics.Gauge;
+import org.renci.seqtools.commons.metrics.MetricsRegistry;
+import org.renci.seqtools.converter.IVCFInputSource;
+import org.renci.seqtools.converter.VCFLineIteratorReader;
+import org.renci.seqtools.filter.vcf.FilterVCF;
+import org.renci.seqtools.filter.vcf.IntervalIndex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class FilteredVCFLineSource implements IVCFInputSource {
+
+    private static final Logger logger = LoggerFactory.getLogger(FilteredVCFLineSource.class);
+
+    private static final List<String> END_OF_LINES = Collections.emptyList();
+
+    public static final int DEFAULT_BATCH_SIZE = 1024;
+
+    public static final int DEFAULT_QUEUED_BATCHES = 64;
+
+    private static final Gauge queuedBatches = MetricsRegistry.getInstance().gauge("queue.filtered-line-batches");
+
+    private final File input;
+
+    private final FilterVCF filter;
+
+    private final IntervalIndex intervals;
+
+    private final int batchSize;
+
+    private final BlockingQueue<List<String>> queue;
+
+    private final AtomicLong linesRead = new AtomicLong();
+
+    private final AtomicLong linesKept = new AtomicLong();
+
+    private volatile boolean closed = false;
+
+    private volatile Throwable failure;
+
+    private Thread producer;
+
+    public FilteredVCFLineSource(File input, FilterVCF filter, IntervalIndex intervals, int batchSize, int queuedBatches) {
+        super();
+        this.input = input;
+        this.filter = filter;
+        this.intervals = intervals;
+        this.batchSize = batchSize;
+        this.queue = new ArrayBlockingQueue<List<String>>(queuedBatches);
+    }
+
+    @Override
+    public synchronized BufferedReader openReader() throws IOException {
+        if (producer != null) {
+            throw new IOException("filtered line stream can only be read once");
+        }
+        producer = new Thread(() -> produce(), "filter-vcf-producer");
+        producer.setDaemon(true);
+        producer.start();
+        return new BufferedReader(VCFLineIteratorReader.getInstance(new QueueIterator(), () -> close()));
+    }
+
+    private void produce() {
+        try (BufferedReader br = StreamUtils.newBufferedReader(input)) {
+            IntervalIndex.Cursor cursor = intervals.newCursor();
+            List<String> batch = new ArrayList<String>(batchSize);
+            String line;
+            while (!closed && (line = br.readLine()) != null) {
+                linesRead.incrementAndGet();
+                if (filter.includeLine(cursor, line)) {
+                    linesKept.incrementAndGet();
+                    batch.add(line);
+                    if (batch.size() == batchSize) {
+                        put(batch);
+                        batch = new ArrayList<String>(batchSize);
+                    }
+                }
+            }
+            if (!batch.isEmpty() && !closed) {
+                put(batch);
+            }
+        } catch (InterruptedException e) {
+            return;
+        } catch (Throwable e) {
+            // an Error too has to reach the reader, or it waits forever for the end of the lines
+            failure = e;
+        }
+
+        try {
+            put(END_OF_LINES);
+        } catch (InterruptedException e) {
+            return;
+        }
+    }
+
+    private void put(List<String> batch) throws InterruptedException {
+        queue.put(batch);
+        queuedBatches.increment();
+    }
+
+    public long getLinesRead() {
+        return linesRead.get();
+    }
+
+    public long getLinesKept() {
+        return linesKept.get();
+    }
+
+    public void close() {
+        closed = true;
+        if (producer != null) {
+            producer.interrupt();
+        }
+        queuedBatches.add(-queue.drainTo(new ArrayList<List<String>>()));
+    }
+
+    private class QueueIterator implements Iterator<String> {
+
+        private List<String> batch;
+
+        private int index = 0;
+
+        private boolean finished = false;
+
+        @Override
+        public boolean hasNext() {
+            while (!finished && (batch == null || index == batch.size())) {
+                try {
+                    batch = queue.take();
+                    queuedBatches.decrement();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("interrupted while waiting for filtered lines of " + input, e);
+                }
+                index = 0;
+                if (batch == END_OF_LINES) {
+                    finished = true;
+                    if (failure != null) {
+                        logger.error(failure.getMessage(), failure);
+                        throw new IllegalStateException("could not filter " + input, failure);
+                    }
+                }
+            }
+            return !finished;
+        }
+
+        @Override
+        public String next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return batch.get(index++);
+        }
+
+    }
+
+}
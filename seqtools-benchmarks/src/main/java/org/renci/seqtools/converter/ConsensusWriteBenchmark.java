@@ -0,0 +1,298 @@
+package org.renci.seqtools.converter;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorOutputStream;
+import org.apache.commons.io.output.CountingOutputStream;
+import org.apache.commons.io.output.NullOutputStream;
+import org.apache.commons.lang3.text.StrTokenizer;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.renci.seqtools.converter.genotypemap.GenotypeMap;
+import org.renci.seqtools.generator.SyntheticGenome;
+import org.renci.seqtools.generator.VCFGenerator;
+
+/**
+ * Cost of encoding consensus records into the master and detail streams. One operation is one record, so the score is records/s;
+ * the encodedBytes and sinkBytes counters give bytes/s before and after the sink (after compression for bzip2).
+ * <ul>
+ * <li>manager: VCFMasterDetailFileStreamManager with the chosen format, dispatched the way BZip2VCFConversionStrategy does</li>
+ * <li>withoutFlush: the same master/detail layout, still parsing the String fields, but without the flush around every record</li>
+ * <li>primitiveFields: the same layout from fields parsed up front, without flushes</li>
+ * </ul>
+ * The sinks sit under the same 8K DataOutputStream buffer the manager uses: null discards, buffered writes an uncompressed file
+ * through a 64K buffer, and bzip2 is the compressor chain VCFMasterDetailFileStreamManager writes with, less its metrics.
+ *
+ * <pre>
+ * java -jar seqtools-benchmarks/target/benchmarks.jar ConsensusWriteBenchmark -p sSink=null,bzip2
+ * </pre>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConsensusWriteBenchmark {
+
+    static final int INT_RECORDS = 4096;
+
+    private static final int INT_OUTPUT_BLOCK_SIZE = 64 * 1024;
+
+    @Param({ "genome", "exome" })
+    public String sFormat;
+
+    @Param({ "genome", "exome" })
+    public String sMix;
+
+    @Param({ "null", "buffered", "bzip2" })
+    public String sSink;
+
+    private VCFRecord[] tRecords;
+
+    private byte[] tGenotypes;
+
+    private int[] iConsensusQualities;
+
+    private int[] iSNPQualities;
+
+    private short[] iMappingQualities;
+
+    private int[] iReadDepths;
+
+    private long[] lPositions;
+
+    private GenotypeMap tGMap;
+
+    private File tMasterFile;
+
+    private File tDetailFile;
+
+    private CountingOutputStream tMasterSink;
+
+    private CountingOutputStream tDetailSink;
+
+    private DataOutputStream tMasterStream;
+
+    private DataOutputStream tDetailStream;
+
+    private VCFMasterDetailFileStreamManager tManager;
+
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class WriteCounters {
+
+        public long encodedBytes;
+
+        public long sinkBytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            this.encodedBytes = 0;
+            this.sinkBytes = 0;
+        }
+
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+
+        VCFGenerator tGenerator = new VCFGenerator(new SyntheticGenome(42L, 1, Integer.MAX_VALUE), 1, 0, INT_RECORDS,
+                "exome".equals(this.sMix) ? VCFGenerator.EXOME_MIX : VCFGenerator.GENOME_MIX);
+        // one sample, so a line makes one record
+        Iterator<String> tLines = tGenerator.getLines(null, INT_RECORDS).iterator();
+        VCFLineDataProcessor tLDProcessor = VCFLineDataProcessor.getInstance();
+        VCFPileupSummary[] tPileupSummaries = new VCFPileupSummary[] { VCFPileupSummary.getEmptyInstance() };
+        StrTokenizer tSTokenizer = new StrTokenizer();
+        tSTokenizer.setDelimiterString("\t");
+
+        List<VCFRecord> tRecordList = new ArrayList<VCFRecord>(INT_RECORDS);
+        while (tRecordList.size() < INT_RECORDS) {
+            String sLine = tLines.next();
+            tSTokenizer.reset(sLine);
+            List<String> tParsedLine = BZip2VCFConversionStrategy.parseLine(sLine, new ArrayList<String>(), tSTokenizer);
+            String sPosition = tParsedLine.get(VCFLineDataProcessor.INT_POSITION_COLUMN_POSITION);
+            tLDProcessor.setInputs(tParsedLine, 1, null, sPosition, sPosition);
+            tLDProcessor.setColumnPileupSummaries(tPileupSummaries);
+            tLDProcessor.loadParsedVCFDataIntoMap();
+            tRecordList.addAll(tLDProcessor.getVCFRecordListForColumn(0));
+        }
+        this.tRecords = tRecordList.subList(0, INT_RECORDS).toArray(new VCFRecord[0]);
+
+        this.tGMap = GenotypeMap.getInstance();
+        this.tGenotypes = new byte[INT_RECORDS];
+        this.iConsensusQualities = new int[INT_RECORDS];
+        this.iSNPQualities = new int[INT_RECORDS];
+        this.iMappingQualities = new short[INT_RECORDS];
+        this.iReadDepths = new int[INT_RECORDS];
+        this.lPositions = new long[INT_RECORDS];
+        for (int ii = 0; ii < INT_RECORDS; ii++) {
+            VCFRecord tRecord = this.tRecords[ii];
+            this.tGenotypes[ii] = this.getGenotype(tRecord.getGenotype());
+            this.iConsensusQualities[ii] = Integer.parseInt(tRecord.getConsensusquality());
+            this.iSNPQualities[ii] = Integer.parseInt(tRecord.getSnpquality());
+            this.iMappingQualities[ii] = Short.parseShort(tRecord.getMappingquality());
+            this.iReadDepths[ii] = Integer.parseInt(tRecord.getReaddepth());
+            this.lPositions[ii] = Long.parseLong(tRecord.getPosition());
+        }
+
+        this.tMasterFile = File.createTempFile("master-benchmark-", ".dat");
+        this.tDetailFile = File.createTempFile("detail-benchmark-", ".dat");
+    }
+
+    @Setup(Level.Iteration)
+    public void openStreams() throws IOException {
+        this.tMasterSink = this.openSink(this.tMasterFile);
+        this.tDetailSink = this.openSink(this.tDetailFile);
+        this.tMasterStream = this.openStream(this.tMasterSink);
+        this.tDetailStream = this.openStream(this.tDetailSink);
+
+        IConversionFormat tFormat = "exome".equals(this.sFormat) ? new BZip2VCFExomeConversionFormat()
+                : new BZip2VCFConversionFormat(false);
+        this.tManager = VCFMasterDetailFileStreamManager.getInstance("benchmark", 0, this.tMasterFile, this.tMasterFile.getParentFile(),
+                tFormat);
+        this.tManager.setStreams(this.tMasterStream, this.tDetailStream, null);
+    }
+
+    @TearDown(Level.Iteration)
+    public void closeStreams() throws IOException {
+        this.tMasterStream.close();
+        this.tDetailStream.close();
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteFiles() {
+        this.tMasterFile.delete();
+        this.tDetailFile.delete();
+    }
+
+    private CountingOutputStream openSink(File tFileIn) throws IOException {
+        if ("null".equals(this.sSink)) {
+            return new CountingOutputStream(new NullOutputStream());
+        } else if ("buffered".equals(this.sSink) || "bzip2".equals(this.sSink)) {
+            return new CountingOutputStream(new BufferedOutputStream(new FileOutputStream(tFileIn), INT_OUTPUT_BLOCK_SIZE));
+        }
+        throw new IllegalArgumentException("unknown sink: " + this.sSink);
+    }
+
+    private DataOutputStream openStream(CountingOutputStream tSinkIn) throws IOException {
+        OutputStream tStream = "bzip2".equals(this.sSink) ? new BZip2CompressorOutputStream(tSinkIn) : tSinkIn;
+        return new DataOutputStream(new BufferedOutputStream(tStream));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(INT_RECORDS)
+    public void manager(WriteCounters tCountersIn) {
+        long lEncodedBytes = this.getEncodedBytes();
+        long lSinkBytes = this.getSinkBytes();
+        for (VCFRecord tRecord : this.tRecords) {
+            if (tRecord.isIndel() || tRecord.isNoCall()) {
+                this.tManager.writeIndelData(tRecord);
+            } else if (tRecord.isSNP()) {
+                this.tManager.writeSNPData(tRecord);
+            } else if (tRecord.hasNoReferenceData()) {
+                this.tManager.writeNoReferenceData(tRecord);
+            } else {
+                this.tManager.writeGenomicData(tRecord);
+            }
+        }
+        this.count(tCountersIn, lEncodedBytes, lSinkBytes);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(INT_RECORDS)
+    public void withoutFlush(WriteCounters tCountersIn) throws IOException {
+        long lEncodedBytes = this.getEncodedBytes();
+        long lSinkBytes = this.getSinkBytes();
+        boolean bWritePosition = "exome".equals(this.sFormat);
+        for (VCFRecord tRecord : this.tRecords) {
+            if (bWritePosition) {
+                this.tMasterStream.writeLong(Long.parseLong(tRecord.getPosition()));
+            }
+            this.tMasterStream.writeByte(this.getGenotype(tRecord.getGenotype()));
+            this.tMasterStream.writeInt(Integer.parseInt(tRecord.getConsensusquality()));
+            this.tMasterStream.writeInt(Integer.parseInt(tRecord.getSnpquality()));
+            this.tMasterStream.writeShort(Short.parseShort(tRecord.getMappingquality()));
+            this.tMasterStream.writeInt(Integer.parseInt(tRecord.getReaddepth()));
+            this.writeDetail(tRecord);
+        }
+        this.count(tCountersIn, lEncodedBytes, lSinkBytes);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(INT_RECORDS)
+    public void primitiveFields(WriteCounters tCountersIn) throws IOException {
+        long lEncodedBytes = this.getEncodedBytes();
+        long lSinkBytes = this.getSinkBytes();
+        boolean bWritePosition = "exome".equals(this.sFormat);
+        for (int ii = 0; ii < INT_RECORDS; ii++) {
+            if (bWritePosition) {
+                this.tMasterStream.writeLong(this.lPositions[ii]);
+            }
+            this.tMasterStream.writeByte(this.tGenotypes[ii]);
+            this.tMasterStream.writeInt(this.iConsensusQualities[ii]);
+            this.tMasterStream.writeInt(this.iSNPQualities[ii]);
+            this.tMasterStream.writeShort(this.iMappingQualities[ii]);
+            this.tMasterStream.writeInt(this.iReadDepths[ii]);
+            this.writeDetail(this.tRecords[ii]);
+        }
+        this.count(tCountersIn, lEncodedBytes, lSinkBytes);
+    }
+
+    /**
+     * Variant records point into the detail stream and write their alleles and pileup there; the others write -1.
+     */
+    private void writeDetail(VCFRecord tRecordIn) throws IOException {
+        if (tRecordIn.isIndel() || tRecordIn.isNoCall() || tRecordIn.isSNP()) {
+            this.tMasterStream.writeLong(this.tDetailStream.size());
+            this.tDetailStream.writeUTF(tRecordIn.isIndel() ? tRecordIn.getReadbases() : tRecordIn.getReferenceGenotype());
+            tRecordIn.getPileupSummary().write(this.tDetailStream);
+        } else {
+            this.tMasterStream.writeLong(-1);
+        }
+    }
+
+    private byte getGenotype(String sGenotypeIn) {
+        byte tByteToReturn = 0;
+        if (this.tGMap.containsKey(sGenotypeIn)) {
+            tByteToReturn = this.tGMap.get(sGenotypeIn).byteValue();
+        }
+        return tByteToReturn;
+    }
+
+    private long getEncodedBytes() {
+        return (long) this.tMasterStream.size() + this.tDetailStream.size();
+    }
+
+    private long getSinkBytes() {
+        return this.tMasterSink.getByteCount() + this.tDetailSink.getByteCount();
+    }
+
+    private void count(WriteCounters tCountersIn, long lEncodedBytesIn, long lSinkBytesIn) {
+        tCountersIn.encodedBytes += this.getEncodedBytes() - lEncodedBytesIn;
+        tCountersIn.sinkBytes += this.getSinkBytes() - lSinkBytesIn;
+    }
+
+}
@@ -0,0 +1,85 @@
+package org.renci.seqtools.converter;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.renci.seqtools.converter.genotypemap.GenotypeMap;
+
+/**
+ * GenotypeMap lookups as the conversion formats make them: containsKey then get for every record written, and the reverse
+ * byte-to-key lookups readers of the master files use. The keys are the genotype strings VCFLineDataProcessor produces, plus a
+ * few that miss.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GenotypeMapBenchmark {
+
+    private static final String[] GENOTYPES = { "A", "C", "G", "T", "A/G", "C/T", "G/A", "T/C", "A/C", "G/T", "null", "N", "-/A",
+            "+/T", "-/C", "+/G", "*", "a/g", "AT/A", "./." };
+
+    private static final int INT_KEYS = 20;
+
+    private GenotypeMap tGMap;
+
+    private String[] sKeys;
+
+    private byte[] tBytes;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        this.tGMap = GenotypeMap.getInstance();
+        this.sKeys = new String[INT_KEYS];
+        this.tBytes = new byte[INT_KEYS];
+        for (int ii = 0; ii < INT_KEYS; ii++) {
+            // copies, so equals is measured rather than the identity shortcut on interned literals
+            this.sKeys[ii] = new String(GENOTYPES[ii]);
+            Byte tByte = this.tGMap.get(GENOTYPES[ii]);
+            this.tBytes[ii] = tByte == null ? 0 : tByte.byteValue();
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(INT_KEYS)
+    public void containsKeyThenGet(Blackhole tBlackholeIn) {
+        for (String sKey : this.sKeys) {
+            byte tByteToReturn = 0;
+            if (this.tGMap.containsKey(sKey)) {
+                tByteToReturn = this.tGMap.get(sKey).byteValue();
+            }
+            tBlackholeIn.consume(tByteToReturn);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(INT_KEYS)
+    public void getNonIndelKey(Blackhole tBlackholeIn) {
+        for (byte tByte : this.tBytes) {
+            tBlackholeIn.consume(this.tGMap.getNonIndelKey(tByte));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(INT_KEYS)
+    public void getKeyForVCFBasedGenotype(Blackhole tBlackholeIn) {
+        for (byte tByte : this.tBytes) {
+            tBlackholeIn.consume(this.tGMap.getKeyForVCFBasedGenotype(tByte));
+        }
+    }
+
+}
@@ -0,0 +1,141 @@
+package org.renci.seqtools.converter;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang3.text.StrTokenizer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.renci.seqtools.generator.SyntheticGenome;
+import org.renci.seqtools.generator.SyntheticSite;
+import org.renci.seqtools.generator.VCFGenerator;
+
+/**
+ * Per-line cost of tokenizing a VCF data line and classifying its samples into VCFRecords, the two steps that run for every site
+ * before anything is encoded. One operation is one line; run with -prof gc to see bytes allocated per line, e.g.
+ *
+ * <pre>
+ * java -jar seqtools-benchmarks/target/benchmarks.jar VCFParseBenchmark -p iSamples=100 -prof gc
+ * </pre>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VCFParseBenchmark {
+
+    static final int INT_LINES = 64;
+
+    private static final String KIND_MIXED = "MIXED";
+
+    @Param({ "1", "100", "10000" })
+    public int iSamples;
+
+    @Param({ KIND_MIXED, "SNP", "INDEL", "NO_CALL", "REFERENCE" })
+    public String sKind;
+
+    private String[] sLines;
+
+    private String sJoinedLines;
+
+    private List<List<String>> tParsedLines;
+
+    private List<String> tLineList;
+
+    private StrTokenizer tSTokenizer;
+
+    private VCFLineDataProcessor tLDProcessor;
+
+    private VCFPileupSummary[] tPileupSummaries;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+
+        VCFGenerator tGenerator = new VCFGenerator(new SyntheticGenome(42L, 1, Integer.MAX_VALUE), this.iSamples, 0, INT_LINES,
+                VCFGenerator.GENOME_MIX);
+        this.sLines = tGenerator.getLines(KIND_MIXED.equals(this.sKind) ? null : SyntheticSite.Kind.valueOf(this.sKind), INT_LINES)
+                .toArray(new String[0]);
+
+        StringBuilder tBuilder = new StringBuilder();
+        for (String sLine : this.sLines) {
+            tBuilder.append(sLine).append('\n');
+        }
+        this.sJoinedLines = tBuilder.toString();
+
+        this.tLineList = new ArrayList<String>();
+        this.tSTokenizer = new StrTokenizer();
+        this.tSTokenizer.setDelimiterString("\t");
+
+        this.tParsedLines = new ArrayList<List<String>>(INT_LINES);
+        for (String sLine : this.sLines) {
+            this.tSTokenizer.reset(sLine);
+            this.tParsedLines.add(new ArrayList<String>(BZip2VCFConversionStrategy.parseLine(sLine, this.tLineList, this.tSTokenizer)));
+        }
+
+        // no bam behind the benchmark, so every sample gets the summary of an empty pileup
+        this.tPileupSummaries = new VCFPileupSummary[this.iSamples];
+        Arrays.fill(this.tPileupSummaries, VCFPileupSummary.getEmptyInstance());
+        this.tLDProcessor = VCFLineDataProcessor.getInstance();
+
+        // fail the trial rather than measure the exception path if the generator and the classifier disagree
+        for (List<String> tParsedLine : this.tParsedLines) {
+            this.classify(tParsedLine);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(INT_LINES)
+    public void parseLine(Blackhole tBlackholeIn) throws Exception {
+        for (String sLine : this.sLines) {
+            this.tSTokenizer.reset(sLine);
+            tBlackholeIn.consume(BZip2VCFConversionStrategy.parseLine(sLine, this.tLineList, this.tSTokenizer));
+        }
+    }
+
+    /**
+     * The tokenizing the conversion loop does today: a fresh list per line, grouped by site.
+     */
+    @Benchmark
+    @OperationsPerInvocation(INT_LINES)
+    public void siteGroupIterator(Blackhole tBlackholeIn) {
+        VCFSiteGroupIterator tIterator = VCFSiteGroupIterator.getInstance(new BufferedReader(new StringReader(this.sJoinedLines)));
+        while (tIterator.hasNext()) {
+            tBlackholeIn.consume(tIterator.next());
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(INT_LINES)
+    public void loadParsedVCFDataIntoMap(Blackhole tBlackholeIn) throws Exception {
+        for (List<String> tParsedLine : this.tParsedLines) {
+            tBlackholeIn.consume(this.classify(tParsedLine));
+        }
+    }
+
+    private List<VCFRecord> classify(List<String> tParsedLineIn) throws Exception {
+        String sPosition = tParsedLineIn.get(VCFLineDataProcessor.INT_POSITION_COLUMN_POSITION);
+        this.tLDProcessor.setInputs(tParsedLineIn, this.iSamples, null, sPosition, sPosition);
+        this.tLDProcessor.setColumnPileupSummaries(this.tPileupSummaries);
+        this.tLDProcessor.loadParsedVCFDataIntoMap();
+        return this.tLDProcessor.getVCFRecordListForColumn(this.iSamples - 1);
+    }
+
+}
@@ -0,0 +1,169 @@
+package org.renci.seqtools.generator;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+import htsjdk.samtools.SAMFileHeader;
+import htsjdk.samtools.SAMFileWriter;
+import htsjdk.samtools.SAMFileWriterFactory;
+import htsjdk.samtools.SAMReadGroupRecord;
+import htsjdk.samtools.SAMRecord;
+
+/**
+ * Writes a coordinate-sorted, indexed bam for one sample with reads piled up on the VCF sites. Reads start up to a read length
+ * before their site and carry the sample's alleles at every SNP they cover: hom alt reads all show the alt base, het reads show it
+ * about half the time. Indels are not spelled out in the reads.
+ * <p>
+ * Sites arrive in order. Reads for a site are drawn once every site they could cover is known, and held in a queue until no later
+ * read can start before them, so the bam comes out sorted without holding more than a couple of read lengths of it.
+ */
+public class BAMReadGenerator implements AutoCloseable {
+
+    private final SyntheticGenome genome;
+
+    private final int sample;
+
+    private final int coverage;
+
+    private final int readLength;
+
+    private final SAMFileHeader header;
+
+    private final SAMFileWriter writer;
+
+    private final String readGroup;
+
+    private final List<SyntheticSite> window = new ArrayList<SyntheticSite>();
+
+    private final PriorityQueue<SAMRecord> reads = new PriorityQueue<SAMRecord>(Comparator.comparingInt(SAMRecord::getAlignmentStart));
+
+    private int next = 0;
+
+    private Random random;
+
+    private int contig = -1;
+
+    private long readCount = 0;
+
+    public BAMReadGenerator(SyntheticGenome genome, int sample, int coverage, int readLength, File output) {
+        super();
+        this.genome = genome;
+        this.sample = sample;
+        this.coverage = coverage;
+        this.readLength = readLength;
+        this.readGroup = VCFGenerator.getSampleName(sample);
+
+        this.header = new SAMFileHeader();
+        header.setSortOrder(SAMFileHeader.SortOrder.coordinate);
+        header.setSequenceDictionary(genome.getSequenceDictionary());
+        SAMReadGroupRecord readGroupRecord = new SAMReadGroupRecord(readGroup);
+        readGroupRecord.setSample(readGroup);
+        readGroupRecord.setPlatform("ILLUMINA");
+        header.addReadGroup(readGroupRecord);
+
+        this.writer = new SAMFileWriterFactory().setCreateIndex(true).makeBAMWriter(header, true, output);
+    }
+
+    public void addSite(SyntheticSite site) {
+        if (site.getContig() != contig) {
+            finishContig();
+            contig = site.getContig();
+            random = genome.newRandom("reads-" + sample, contig);
+        }
+        window.add(site);
+        while (next < window.size() && window.get(next).getPosition() + readLength <= site.getPosition()) {
+            drawReads(window.get(next++));
+        }
+        flush(window.get(next).getPosition() - readLength + 1);
+        trimWindow();
+    }
+
+    public void finishContig() {
+        while (next < window.size()) {
+            drawReads(window.get(next++));
+        }
+        flush(Integer.MAX_VALUE);
+        window.clear();
+        next = 0;
+    }
+
+    public long getReadCount() {
+        return readCount;
+    }
+
+    @Override
+    public void close() {
+        finishContig();
+        writer.close();
+    }
+
+    private void drawReads(SyntheticSite site) {
+        for (int i = 0; i < coverage; i++) {
+            int start = Math.max(1, site.getPosition() - random.nextInt(readLength));
+            int length = Math.min(readLength, genome.getContigLength() - start + 1);
+
+            byte[] bases = new byte[length];
+            genome.getBases(contig, start, bases);
+            for (SyntheticSite covered : window) {
+                int offset = covered.getPosition() - start;
+                if (covered.getKind() == SyntheticSite.Kind.SNP && offset >= 0 && offset < length && showsAlt(covered)) {
+                    bases[offset] = (byte) covered.getAlt().charAt(0);
+                }
+            }
+            byte[] qualities = new byte[length];
+            for (int j = 0; j < length; j++) {
+                qualities[j] = (byte) (20 + random.nextInt(21));
+            }
+
+            SAMRecord read = new SAMRecord(header);
+            read.setReadName(String.format("%s-%s-%d-%d", readGroup, genome.getContigName(contig), site.getPosition(), i));
+            read.setReferenceName(genome.getContigName(contig));
+            read.setAlignmentStart(start);
+            read.setCigarString(length + "M");
+            read.setReadBases(bases);
+            read.setBaseQualities(qualities);
+            read.setMappingQuality(60);
+            read.setReadNegativeStrandFlag(random.nextBoolean());
+            read.setAttribute("RG", readGroup);
+            reads.add(read);
+        }
+    }
+
+    private boolean showsAlt(SyntheticSite site) {
+        switch (site.getDosage(sample)) {
+            case 2:
+                return true;
+            case 1:
+                return random.nextBoolean();
+            default:
+                return false;
+        }
+    }
+
+    private void flush(int before) {
+        while (!reads.isEmpty() && reads.peek().getAlignmentStart() < before) {
+            writer.addAlignment(reads.poll());
+            readCount++;
+        }
+    }
+
+    /**
+     * Drops sites no read drawn from here on can reach: those before the next site to draw by a read length or more.
+     */
+    private void trimWindow() {
+        int lowest = window.get(next).getPosition() - readLength + 1;
+        int drop = 0;
+        while (drop < next && window.get(drop).getPosition() < lowest) {
+            drop++;
+        }
+        if (drop > 0) {
+            window.subList(0, drop).clear();
+            next -= drop;
+        }
+    }
+
+}
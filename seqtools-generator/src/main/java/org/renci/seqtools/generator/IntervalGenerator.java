@@ -0,0 +1,97 @@
+package org.renci.seqtools.generator;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Exome-like targets: sorted, non-overlapping intervals of 50 to 300 bases spread evenly over each contig. The same seed always
+ * gives the same targets, so the picard and GATK lists and the depth file describe the same intervals.
+ */
+public class IntervalGenerator {
+
+    private static final int MIN_LENGTH = 50;
+
+    private static final int MAX_LENGTH = 300;
+
+    private final SyntheticGenome genome;
+
+    private final long intervals;
+
+    public IntervalGenerator(SyntheticGenome genome, long intervals) {
+        super();
+        this.genome = genome;
+        this.intervals = intervals;
+    }
+
+    /**
+     * The targets on one contig as 1-based inclusive {start, end} pairs.
+     */
+    public List<int[]> getIntervals(int contig) {
+        long count = intervals / genome.getContigs() + (contig < intervals % genome.getContigs() ? 1 : 0);
+        List<int[]> list = new ArrayList<int[]>((int) Math.min(count, 1 << 20));
+        if (count == 0) {
+            return list;
+        }
+        Random random = genome.newRandom("intervals", contig);
+        int spacing = (int) Math.max(2, genome.getContigLength() / count);
+        for (long i = 0; i < count; i++) {
+            int slot = (int) (i * spacing);
+            int length = Math.min(spacing - 1, MIN_LENGTH + random.nextInt(MAX_LENGTH - MIN_LENGTH + 1));
+            int start = slot + 1 + random.nextInt(spacing - length);
+            list.add(new int[] { start, start + length - 1 });
+        }
+        return list;
+    }
+
+    /**
+     * Picard interval list: a sam-style header with the sequence dictionary, then contig, start, end, strand and name per line.
+     */
+    public void writePicard(Writer writer) throws IOException {
+        writer.write("@HD\tVN:1.0\tSO:coordinate\n");
+        for (int contig = 0; contig < genome.getContigs(); contig++) {
+            writer.write(String.format("@SQ\tSN:%s\tLN:%d\n", genome.getContigName(contig), genome.getContigLength()));
+        }
+        long target = 0;
+        for (int contig = 0; contig < genome.getContigs(); contig++) {
+            for (int[] interval : getIntervals(contig)) {
+                writer.write(String.format("%s\t%d\t%d\t+\ttarget_%d\n", genome.getContigName(contig), interval[0], interval[1], ++target));
+            }
+        }
+    }
+
+    /**
+     * GATK interval list: one contig:start-end per line.
+     */
+    public void writeGATK(Writer writer) throws IOException {
+        for (int contig = 0; contig < genome.getContigs(); contig++) {
+            for (int[] interval : getIntervals(contig)) {
+                writer.write(String.format("%s:%d-%d\n", genome.getContigName(contig), interval[0], interval[1]));
+            }
+        }
+    }
+
+    /**
+     * samtools depth output over every targeted base: contig, position and depth, with depth scattered around the given coverage and
+     * an occasional uncovered base.
+     */
+    public void writeDepth(Writer writer, int coverage) throws IOException {
+        StringBuilder line = new StringBuilder(32);
+        for (int contig = 0; contig < genome.getContigs(); contig++) {
+            Random random = genome.newRandom("depth", contig);
+            String name = genome.getContigName(contig);
+            for (int[] interval : getIntervals(contig)) {
+                for (int position = interval[0]; position <= interval[1]; position++) {
+                    int depth = random.nextInt(50) == 0 ? 0
+                            : (int) Math.max(0, Math.round(coverage + random.nextGaussian() * coverage / 4));
+                    line.setLength(0);
+                    line.append(name).append('\t').append(position).append('\t').append(depth).append('\n');
+                    writer.append(line);
+                }
+            }
+        }
+    }
+
+}
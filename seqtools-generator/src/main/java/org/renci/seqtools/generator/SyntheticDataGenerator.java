@@ -0,0 +1,367 @@
+package org.renci.seqtools.generator;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.CommandLineParser;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.renci.seqtools.commons.StreamUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import htsjdk.samtools.util.BlockCompressedOutputStream;
+
+/**
+ * Writes a matching set of test inputs from a seed: a multi-sample VCF (plain, or bgzipped with an optional tabix index), an indexed
+ * bam per sample asked for with a manifest the converter can read, picard and GATK interval lists, and a samtools depth file over
+ * the intervals. Everything is streamed, so the size is bounded only by disk.
+ * <p>
+ * The depth file is drawn around the coverage option and is not computed from the bams.
+ */
+public class SyntheticDataGenerator implements Callable<List<File>> {
+
+    private static final Logger logger = LoggerFactory.getLogger(SyntheticDataGenerator.class);
+
+    private static final HelpFormatter helpFormatter = new HelpFormatter();
+
+    private static final Options cliOptions = new Options();
+
+    private File outputDir;
+
+    private String prefix = "synthetic";
+
+    private long seed = 1L;
+
+    private int contigs = 2;
+
+    private int contigLength = 1000000;
+
+    private long sites = 10000L;
+
+    private int samples = 1;
+
+    private Boolean exome = Boolean.FALSE;
+
+    private Boolean bgzip = Boolean.FALSE;
+
+    private Boolean tabix = Boolean.FALSE;
+
+    private int bamSamples = 0;
+
+    private int coverage = 10;
+
+    private int readLength = 100;
+
+    private long intervals = 0L;
+
+    private Boolean depth = Boolean.FALSE;
+
+    public SyntheticDataGenerator() {
+        super();
+    }
+
+    @Override
+    public List<File> call() throws Exception {
+        logger.info(this.toString());
+        long startTime = System.currentTimeMillis();
+
+        outputDir.mkdirs();
+        List<File> files = new ArrayList<File>();
+        SyntheticGenome genome = new SyntheticGenome(seed, contigs, contigLength);
+
+        List<BAMReadGenerator> bams = new ArrayList<BAMReadGenerator>();
+        File manifest = new File(outputDir, prefix + ".bam-manifest.tsv");
+        if (bamSamples > 0) {
+            try (BufferedWriter bw = StreamUtils.newBufferedWriter(manifest)) {
+                for (int sample = 0; sample < bamSamples; sample++) {
+                    File bam = new File(outputDir, String.format("%s.%s.bam", prefix, VCFGenerator.getSampleName(sample)));
+                    bams.add(new BAMReadGenerator(genome, sample, coverage, readLength, bam));
+                    bw.write(String.format("%s\t%s%n", VCFGenerator.getSampleName(sample), bam.getName()));
+                    files.add(bam);
+                }
+            }
+            files.add(manifest);
+        }
+
+        File vcf = new File(outputDir, prefix + (bgzip ? ".vcf.gz" : ".vcf"));
+        VCFGenerator vcfGenerator = new VCFGenerator(genome, samples, bamSamples, sites, exome ? VCFGenerator.EXOME_MIX
+                : VCFGenerator.GENOME_MIX);
+        long written;
+        try (Writer writer = newWriter(vcf)) {
+            written = vcfGenerator.write(writer, bams);
+        } finally {
+            for (BAMReadGenerator bam : bams) {
+                bam.close();
+            }
+        }
+        files.add(0, vcf);
+        logger.info("wrote {} sites for {} samples to {}", written, samples, vcf.getAbsolutePath());
+        if (tabix) {
+            // indexing re-reads the vcf, which is cheaper than flushing the writer for a file pointer on every site
+            files.add(1, new TabixIndexWriter(genome.getSequenceDictionary()).write(vcf));
+        }
+        for (BAMReadGenerator bam : bams) {
+            logger.info("wrote {} reads", bam.getReadCount());
+        }
+
+        if (intervals > 0) {
+            IntervalGenerator intervalGenerator = new IntervalGenerator(genome, intervals);
+            File picard = new File(outputDir, prefix + ".interval_list");
+            try (Writer writer = newWriter(picard)) {
+                intervalGenerator.writePicard(writer);
+            }
+            files.add(picard);
+            File gatk = new File(outputDir, prefix + ".intervals");
+            try (Writer writer = newWriter(gatk)) {
+                intervalGenerator.writeGATK(writer);
+            }
+            files.add(gatk);
+            if (depth) {
+                File depthFile = new File(outputDir, prefix + ".depth");
+                try (Writer writer = newWriter(depthFile)) {
+                    intervalGenerator.writeDepth(writer, coverage);
+                }
+                files.add(depthFile);
+            }
+        }
+
+        for (File file : files) {
+            logger.info("{} ({} bytes)", file.getAbsolutePath(), file.length());
+        }
+        logger.info("duration {} seconds", (System.currentTimeMillis() - startTime) / 1000);
+        return files;
+    }
+
+    private Writer newWriter(File file) throws IOException {
+        if (file.getName().endsWith(".gz")) {
+            return new BufferedWriter(new OutputStreamWriter(new BlockCompressedOutputStream(file)), StreamUtils.BUFFER_SIZE);
+        }
+        return StreamUtils.newBufferedWriter(file);
+    }
+
+    public File getOutputDir() {
+        return outputDir;
+    }
+
+    public void setOutputDir(File outputDir) {
+        this.outputDir = outputDir;
+    }
+
+    public String getPrefix() {
+        return prefix;
+    }
+
+    public void setPrefix(String prefix) {
+        this.prefix = prefix;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    public int getContigs() {
+        return contigs;
+    }
+
+    public void setContigs(int contigs) {
+        this.contigs = contigs;
+    }
+
+    public int getContigLength() {
+        return contigLength;
+    }
+
+    public void setContigLength(int contigLength) {
+        this.contigLength = contigLength;
+    }
+
+    public long getSites() {
+        return sites;
+    }
+
+    public void setSites(long sites) {
+        this.sites = sites;
+    }
+
+    public int getSamples() {
+        return samples;
+    }
+
+    public void setSamples(int samples) {
+        this.samples = samples;
+    }
+
+    public Boolean getExome() {
+        return exome;
+    }
+
+    public void setExome(Boolean exome) {
+        this.exome = exome;
+    }
+
+    public Boolean getBgzip() {
+        return bgzip;
+    }
+
+    public void setBgzip(Boolean bgzip) {
+        this.bgzip = bgzip;
+    }
+
+    public Boolean getTabix() {
+        return tabix;
+    }
+
+    public void setTabix(Boolean tabix) {
+        this.tabix = tabix;
+    }
+
+    public int getBamSamples() {
+        return bamSamples;
+    }
+
+    public void setBamSamples(int bamSamples) {
+        this.bamSamples = bamSamples;
+    }
+
+    public int getCoverage() {
+        return coverage;
+    }
+
+    public void setCoverage(int coverage) {
+        this.coverage = coverage;
+    }
+
+    public int getReadLength() {
+        return readLength;
+    }
+
+    public void setReadLength(int readLength) {
+        this.readLength = readLength;
+    }
+
+    public long getIntervals() {
+        return intervals;
+    }
+
+    public void setIntervals(long intervals) {
+        this.intervals = intervals;
+    }
+
+    public Boolean getDepth() {
+        return depth;
+    }
+
+    public void setDepth(Boolean depth) {
+        this.depth = depth;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "SyntheticDataGenerator [outputDir=%s, prefix=%s, seed=%s, contigs=%s, contigLength=%s, sites=%s, samples=%s, exome=%s, "
+                        + "bgzip=%s, tabix=%s, bamSamples=%s, coverage=%s, readLength=%s, intervals=%s, depth=%s]",
+                outputDir, prefix, seed, contigs, contigLength, sites, samples, exome, bgzip, tabix, bamSamples, coverage, readLength,
+                intervals, depth);
+    }
+
+    public static void main(String[] args) {
+        cliOptions.addOption(Option.builder("o").longOpt("output").desc("Output directory").required().hasArg().build());
+        cliOptions.addOption(Option.builder("p").longOpt("prefix").desc("File name prefix (default: synthetic)").hasArg().build());
+        cliOptions.addOption(Option.builder().longOpt("seed").desc("Random seed; the same seed gives the same files (default: 1)")
+                .hasArg().build());
+        cliOptions.addOption(Option.builder().longOpt("contigs").desc("Number of contigs, named 1..n (default: 2)").hasArg().build());
+        cliOptions.addOption(Option.builder().longOpt("contig-length").desc("Length of each contig (default: 1000000)").hasArg().build());
+        cliOptions.addOption(Option.builder("n").longOpt("sites").desc("Number of VCF sites (default: 10000)").hasArg().build());
+        cliOptions.addOption(Option.builder("s").longOpt("samples").desc("Number of VCF samples (default: 1)").hasArg().build());
+        cliOptions.addOption(Option.builder().longOpt("exome")
+                .desc("Mostly variant sites, like a target-filtered exome (default: mostly reference, like a gVCF)").build());
+        cliOptions.addOption(Option.builder("z").longOpt("bgzip").desc("Write the VCF bgzipped (.vcf.gz)").build());
+        cliOptions.addOption(Option.builder().longOpt("tabix").desc("Write a tabix index (.vcf.gz.tbi) for the bgzipped VCF").build());
+        cliOptions.addOption(Option.builder("b").longOpt("bam-samples")
+                .desc("Write an indexed bam for each of the first n samples and a bam manifest (default: 0)").hasArg().build());
+        cliOptions.addOption(Option.builder().longOpt("coverage").desc("Reads per site, and mean depth in the depth file (default: 10)")
+                .hasArg().build());
+        cliOptions.addOption(Option.builder().longOpt("read-length").desc("Read length (default: 100)").hasArg().build());
+        cliOptions.addOption(Option.builder().longOpt("intervals")
+                .desc("Write this many targets as picard (.interval_list) and GATK (.intervals) lists (default: 0)").hasArg().build());
+        cliOptions.addOption(Option.builder().longOpt("depth").desc("Write a samtools depth file over the intervals").build());
+        cliOptions.addOption(Option.builder("h").longOpt("help").desc("print this help message").build());
+        SyntheticDataGenerator app = new SyntheticDataGenerator();
+        try {
+            CommandLineParser commandLineParser = new DefaultParser();
+            CommandLine commandLine = commandLineParser.parse(cliOptions, args);
+            if (commandLine.hasOption("help")) {
+                helpFormatter.printHelp("SyntheticDataGenerator", cliOptions);
+                return;
+            }
+            app.setOutputDir(new File(commandLine.getOptionValue("output")));
+            if (commandLine.hasOption("prefix")) {
+                app.setPrefix(commandLine.getOptionValue("prefix"));
+            }
+            if (commandLine.hasOption("seed")) {
+                app.setSeed(Long.valueOf(commandLine.getOptionValue("seed")));
+            }
+            if (commandLine.hasOption("contigs")) {
+                app.setContigs(Integer.valueOf(commandLine.getOptionValue("contigs")));
+            }
+            if (commandLine.hasOption("contig-length")) {
+                app.setContigLength(Integer.valueOf(commandLine.getOptionValue("contig-length")));
+            }
+            if (commandLine.hasOption("sites")) {
+                app.setSites(Long.valueOf(commandLine.getOptionValue("sites")));
+            }
+            if (commandLine.hasOption("samples")) {
+                app.setSamples(Integer.valueOf(commandLine.getOptionValue("samples")));
+            }
+            app.setExome(commandLine.hasOption("exome"));
+            app.setBgzip(commandLine.hasOption("bgzip"));
+            app.setTabix(commandLine.hasOption("tabix"));
+            if (app.getTabix() && !app.getBgzip()) {
+                throw new ParseException("tabix needs bgzip");
+            }
+            if (commandLine.hasOption("bam-samples")) {
+                app.setBamSamples(Integer.valueOf(commandLine.getOptionValue("bam-samples")));
+            }
+            if (app.getBamSamples() > app.getSamples()) {
+                throw new ParseException("bam-samples must not exceed samples");
+            }
+            if (commandLine.hasOption("coverage")) {
+                app.setCoverage(Integer.valueOf(commandLine.getOptionValue("coverage")));
+            }
+            if (commandLine.hasOption("read-length")) {
+                app.setReadLength(Integer.valueOf(commandLine.getOptionValue("read-length")));
+            }
+            if (commandLine.hasOption("intervals")) {
+                app.setIntervals(Long.valueOf(commandLine.getOptionValue("intervals")));
+            }
+            app.setDepth(commandLine.hasOption("depth"));
+            if (app.getDepth() && app.getIntervals() == 0) {
+                throw new ParseException("depth needs intervals");
+            }
+            app.call();
+        } catch (ParseException | NumberFormatException e) {
+            logger.error(e.getMessage());
+            helpFormatter.printHelp("SyntheticDataGenerator", cliOptions);
+            System.exit(-1);
+        } catch (Exception e) {
+            logger.error(e.getMessage(), e);
+            System.exit(-1);
+        }
+    }
+
+}
@@ -0,0 +1,80 @@
+package org.renci.seqtools.generator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import htsjdk.samtools.SAMSequenceDictionary;
+import htsjdk.samtools.SAMSequenceRecord;
+
+/**
+ * A reference that is never stored: contigs named 1..n of equal length, with the base at each position a hash of the seed, contig
+ * and position. Everything generated from the same seed agrees on it, so VCF REF alleles match the bases of the generated reads.
+ */
+public class SyntheticGenome {
+
+    private static final byte[] BASES = { 'A', 'C', 'G', 'T' };
+
+    private final long seed;
+
+    private final int contigs;
+
+    private final int contigLength;
+
+    public SyntheticGenome(long seed, int contigs, int contigLength) {
+        super();
+        this.seed = seed;
+        this.contigs = contigs;
+        this.contigLength = contigLength;
+    }
+
+    public int getContigs() {
+        return contigs;
+    }
+
+    public int getContigLength() {
+        return contigLength;
+    }
+
+    public long getLength() {
+        return (long) contigs * contigLength;
+    }
+
+    public String getContigName(int contig) {
+        return Integer.toString(contig + 1);
+    }
+
+    public byte getBase(int contig, int position) {
+        return BASES[(int) (mix(seed ^ mix(((long) contig << 32) | position)) >>> 62)];
+    }
+
+    public void getBases(int contig, int start, byte[] bases) {
+        for (int i = 0; i < bases.length; i++) {
+            bases[i] = getBase(contig, start + i);
+        }
+    }
+
+    /**
+     * A random source for one kind of output on one contig. Each output draws from its own stream, so changing one option (say the
+     * interval count) leaves the other files unchanged.
+     */
+    public Random newRandom(String stream, int contig) {
+        return new Random(mix(seed ^ mix(stream.hashCode() * 31L + contig)));
+    }
+
+    public SAMSequenceDictionary getSequenceDictionary() {
+        List<SAMSequenceRecord> records = new ArrayList<SAMSequenceRecord>(contigs);
+        for (int contig = 0; contig < contigs; contig++) {
+            records.add(new SAMSequenceRecord(getContigName(contig), contigLength));
+        }
+        return new SAMSequenceDictionary(records);
+    }
+
+    private static long mix(long z) {
+        // splitmix64 finalizer
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+}
@@ -0,0 +1,60 @@
+package org.renci.seqtools.generator;
+
+public class SyntheticSite {
+
+    public enum Kind {
+        REFERENCE, SNP, INDEL, NO_CALL
+    }
+
+    public static final int NO_CALL_DOSAGE = -1;
+
+    private final int contig;
+
+    private final int position;
+
+    private final Kind kind;
+
+    private final String ref;
+
+    private final String alt;
+
+    private final int[] dosages;
+
+    public SyntheticSite(int contig, int position, Kind kind, String ref, String alt, int[] dosages) {
+        super();
+        this.contig = contig;
+        this.position = position;
+        this.kind = kind;
+        this.ref = ref;
+        this.alt = alt;
+        this.dosages = dosages;
+    }
+
+    public int getContig() {
+        return contig;
+    }
+
+    public int getPosition() {
+        return position;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public String getRef() {
+        return ref;
+    }
+
+    public String getAlt() {
+        return alt;
+    }
+
+    /**
+     * Alt allele count (0, 1 or 2, or {@link #NO_CALL_DOSAGE}) of each sample that gets a bam, in sample order.
+     */
+    public int getDosage(int bamSample) {
+        return dosages[bamSample];
+    }
+
+}
@@ -0,0 +1,87 @@
+package org.renci.seqtools.generator;
+
+import java.io.File;
+import java.io.IOException;
+
+import htsjdk.samtools.SAMSequenceDictionary;
+import htsjdk.samtools.util.BlockCompressedInputStream;
+import htsjdk.tribble.Feature;
+import htsjdk.tribble.index.tabix.TabixFormat;
+import htsjdk.tribble.index.tabix.TabixIndexCreator;
+
+/**
+ * Writes a tabix index for a bgzipped, coordinate sorted vcf by re-reading it. The htsjdk index factory reads the file without
+ * inflating it, so it cannot index a .vcf.gz; this walks the bgzf blocks itself and hands each record's virtual file pointer to a
+ * {@link TabixIndexCreator}.
+ */
+public class TabixIndexWriter {
+
+    private final SAMSequenceDictionary sequenceDictionary;
+
+    public TabixIndexWriter(SAMSequenceDictionary sequenceDictionary) {
+        super();
+        this.sequenceDictionary = sequenceDictionary;
+    }
+
+    /**
+     * Indexes vcf and writes the index next to it (vcf.tbi), which is returned.
+     */
+    public File write(File vcf) throws IOException {
+        TabixIndexCreator creator = new TabixIndexCreator(sequenceDictionary, TabixFormat.VCF);
+        // no block is loaded before the first read, so the first pointer is the start of the file
+        long pointer = 0L;
+        try (BlockCompressedInputStream in = new BlockCompressedInputStream(vcf)) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (!line.startsWith("#")) {
+                    String[] columns = line.split("\t", 5);
+                    int position = Integer.parseInt(columns[1]);
+                    creator.addFeature(new Site(columns[0], position, position + columns[3].length() - 1), pointer);
+                }
+                pointer = in.getFilePointer();
+            }
+        }
+        creator.finalizeIndex(pointer).writeBasedOnFeatureFile(vcf);
+        return new File(vcf.getPath() + ".tbi");
+    }
+
+    private static class Site implements Feature {
+
+        private final String contig;
+
+        private final int start;
+
+        private final int end;
+
+        public Site(String contig, int start, int end) {
+            super();
+            this.contig = contig;
+            this.start = start;
+            this.end = end;
+        }
+
+        // still abstract in this htsjdk
+        @Override
+        @SuppressWarnings("deprecation")
+        public String getChr() {
+            return contig;
+        }
+
+        @Override
+        public String getContig() {
+            return contig;
+        }
+
+        @Override
+        public int getStart() {
+            return start;
+        }
+
+        @Override
+        public int getEnd() {
+            return end;
+        }
+
+    }
+
+}
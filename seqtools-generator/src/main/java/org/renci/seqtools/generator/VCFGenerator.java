@@ -0,0 +1,183 @@
+package org.renci.seqtools.generator;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Writes a coordinate-sorted multi-sample VCF one site at a time, so memory does not grow with the file. Called sites carry
+ * GT:GQ:DP; no-call sites carry a bare ./. per sample under a GT-only FORMAT, the one shape the converter reads as a no-call. Each
+ * site is also handed to the bam generators so their reads carry the genotypes of the samples they stand for.
+ */
+public class VCFGenerator {
+
+    /** Cumulative percentages of reference, SNP and no-call sites; the rest are indels. Mostly reference, like a gVCF. */
+    public static final int[] GENOME_MIX = { 70, 85, 95 };
+
+    /** Mostly variant sites, like a target-filtered exome call set. */
+    public static final int[] EXOME_MIX = { 20, 80, 88 };
+
+    private static final byte[] BASES = { 'A', 'C', 'G', 'T' };
+
+    private static final String[] CALLED_GENOTYPES = { "0/0", "0/1", "1/1" };
+
+    private static final int[] VARIANT_DOSAGES = { 0, 0, 1, 1, 1, 2, 2 };
+
+    private final SyntheticGenome genome;
+
+    private final int samples;
+
+    private final int bamSamples;
+
+    private final long sites;
+
+    private final int[] mix;
+
+    public VCFGenerator(SyntheticGenome genome, int samples, int bamSamples, long sites, int[] mix) {
+        super();
+        this.genome = genome;
+        this.samples = samples;
+        this.bamSamples = bamSamples;
+        this.sites = sites;
+        this.mix = mix;
+    }
+
+    public static String getSampleName(int sample) {
+        return "S" + (sample + 1);
+    }
+
+    public long write(Writer writer, List<BAMReadGenerator> bams) throws IOException {
+        writeHeader(writer);
+
+        long written = 0;
+        StringBuilder line = new StringBuilder(128 + samples * 12);
+        for (int contig = 0; contig < genome.getContigs(); contig++) {
+            long contigSites = sites / genome.getContigs() + (contig < sites % genome.getContigs() ? 1 : 0);
+            if (contigSites == 0) {
+                continue;
+            }
+            Random random = genome.newRandom("sites", contig);
+            int spacing = (int) Math.max(2, genome.getContigLength() / contigSites);
+            int position = 0;
+            for (long i = 0; i < contigSites; i++) {
+                position += 1 + random.nextInt(2 * spacing - 1);
+                // a deletion needs the base after it
+                if (position >= genome.getContigLength()) {
+                    break;
+                }
+                SyntheticSite site = nextSite(random, contig, position, nextKind(random), line);
+                writer.append(line).append('\n');
+                written++;
+                for (BAMReadGenerator bam : bams) {
+                    bam.addSite(site);
+                }
+            }
+            for (BAMReadGenerator bam : bams) {
+                bam.finishContig();
+            }
+        }
+        return written;
+    }
+
+    /**
+     * Data lines of the first contig, in memory and without bams, for benchmarks: every site of the given kind or, with a null kind,
+     * each drawn from the mix. Sites are 1 to 20 bases apart.
+     */
+    public List<String> getLines(SyntheticSite.Kind kind, int count) {
+        Random random = genome.newRandom("lines", 0);
+        List<String> lines = new ArrayList<String>(count);
+        StringBuilder line = new StringBuilder(128 + samples * 12);
+        int position = 0;
+        for (int i = 0; i < count; i++) {
+            position += 1 + random.nextInt(20);
+            nextSite(random, 0, position, kind != null ? kind : nextKind(random), line);
+            lines.add(line.toString());
+        }
+        return lines;
+    }
+
+    private void writeHeader(Writer writer) throws IOException {
+        writer.write("##fileformat=VCFv4.1\n");
+        writer.write("##source=seqtools-generator\n");
+        for (int contig = 0; contig < genome.getContigs(); contig++) {
+            writer.write(String.format("##contig=<ID=%s,length=%d>\n", genome.getContigName(contig), genome.getContigLength()));
+        }
+        writer.write("##INFO=<ID=DP,Number=1,Type=Integer,Description=\"Approximate read depth\">\n");
+        writer.write("##FORMAT=<ID=GT,Number=1,Type=String,Description=\"Genotype\">\n");
+        writer.write("##FORMAT=<ID=GQ,Number=1,Type=Integer,Description=\"Genotype Quality\">\n");
+        writer.write("##FORMAT=<ID=DP,Number=1,Type=Integer,Description=\"Approximate read depth\">\n");
+        writer.write("#CHROM\tPOS\tID\tREF\tALT\tQUAL\tFILTER\tINFO\tFORMAT");
+        for (int sample = 0; sample < samples; sample++) {
+            writer.write('\t');
+            writer.write(getSampleName(sample));
+        }
+        writer.write('\n');
+    }
+
+    private SyntheticSite nextSite(Random random, int contig, int position, SyntheticSite.Kind kind, StringBuilder line) {
+        byte refBase = genome.getBase(contig, position);
+        String ref = String.valueOf((char) refBase);
+        String alt;
+        switch (kind) {
+            case SNP:
+                alt = String.valueOf((char) nextOtherBase(random, refBase));
+                break;
+            case INDEL:
+                if (random.nextBoolean()) {
+                    alt = ref + (char) nextOtherBase(random, refBase);
+                } else {
+                    alt = ref;
+                    ref = ref + (char) genome.getBase(contig, position + 1);
+                }
+                break;
+            default:
+                alt = ".";
+        }
+
+        line.setLength(0);
+        line.append(genome.getContigName(contig)).append('\t').append(position).append("\t.\t").append(ref).append('\t').append(alt)
+                .append('\t').append(20 + random.nextInt(80)).append("\tPASS\tDP=").append(samples * 10)
+                .append(kind == SyntheticSite.Kind.NO_CALL ? "\tGT" : "\tGT:GQ:DP");
+
+        int[] dosages = new int[bamSamples];
+        for (int sample = 0; sample < samples; sample++) {
+            int dosage;
+            if (kind == SyntheticSite.Kind.NO_CALL) {
+                dosage = SyntheticSite.NO_CALL_DOSAGE;
+                line.append("\t./.");
+            } else {
+                dosage = kind == SyntheticSite.Kind.REFERENCE ? 0 : VARIANT_DOSAGES[random.nextInt(VARIANT_DOSAGES.length)];
+                line.append('\t').append(CALLED_GENOTYPES[dosage]).append(':').append(random.nextInt(100)).append(':')
+                        .append(random.nextInt(60));
+            }
+            if (sample < bamSamples) {
+                dosages[sample] = dosage;
+            }
+        }
+
+        return new SyntheticSite(contig, position, kind, ref, alt, dosages);
+    }
+
+    private SyntheticSite.Kind nextKind(Random random) {
+        int draw = random.nextInt(100);
+        if (draw < mix[0]) {
+            return SyntheticSite.Kind.REFERENCE;
+        } else if (draw < mix[1]) {
+            return SyntheticSite.Kind.SNP;
+        } else if (draw < mix[2]) {
+            return SyntheticSite.Kind.NO_CALL;
+        }
+        return SyntheticSite.Kind.INDEL;
+    }
+
+    static byte nextOtherBase(Random random, byte base) {
+        byte other;
+        do {
+            other = BASES[random.nextInt(BASES.length)];
+        } while (other == base);
+        return other;
+    }
+
+}
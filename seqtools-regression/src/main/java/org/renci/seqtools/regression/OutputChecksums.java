@@ -0,0 +1,79 @@
+package org.renci.seqtools.regression;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.renci.seqtools.commons.StreamUtils;
+
+/**
+ * MD5 of a tool's output. Directories are digested file by file in name order, each file's name then its content. Compressed files
+ * are digested as {@link StreamUtils#openInputStream(File)} reads them, decompressed, so a change of compression level or block
+ * layout is not a change of output. Files that carry a run timestamp (the converter's error file and checkpoint) are skipped.
+ */
+public class OutputChecksums {
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private OutputChecksums() {
+        super();
+    }
+
+    public static String getChecksum(File output) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+        List<File> files = new ArrayList<File>();
+        listFiles(output, files);
+        byte[] buffer = new byte[StreamUtils.BUFFER_SIZE];
+        for (File file : files) {
+            digest.update(output.toPath().relativize(file.toPath()).toString().getBytes(StandardCharsets.UTF_8));
+            try (InputStream is = StreamUtils.openInputStream(file)) {
+                int read;
+                while ((read = is.read(buffer)) != -1) {
+                    digest.update(buffer, 0, read);
+                }
+            }
+        }
+        byte[] bytes = digest.digest();
+        char[] hex = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            hex[i * 2] = HEX[(bytes[i] >> 4) & 0xF];
+            hex[i * 2 + 1] = HEX[bytes[i] & 0xF];
+        }
+        return new String(hex);
+    }
+
+    private static void listFiles(File file, List<File> files) {
+        if (file.isFile()) {
+            if (!isSkipped(file.getName())) {
+                files.add(file);
+            }
+            return;
+        }
+        File[] children = file.listFiles();
+        if (children == null) {
+            return;
+        }
+        List<File> sorted = new ArrayList<File>();
+        Collections.addAll(sorted, children);
+        Collections.sort(sorted);
+        for (File child : sorted) {
+            listFiles(child, files);
+        }
+    }
+
+    private static boolean isSkipped(String name) {
+        return name.endsWith("-errorFile.txt") || name.endsWith("-checkpoint.txt");
+    }
+
+}
@@ -0,0 +1,490 @@
+package org.renci.seqtools.regression;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.CommandLineParser;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.apache.commons.io.FileUtils;
+import org.renci.seqtools.conversion.SAMToolsDepthToGATKDepthOfCoverageFormatConverter;
+import org.renci.seqtools.converter.Converter;
+import org.renci.seqtools.filter.vcf.FilterVCF;
+import org.renci.seqtools.generator.SyntheticDataGenerator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * End-to-end regression run: generates seeded datasets at each size, runs the converter (at each thread count), FilterVCF (on one
+ * thread and chunked at each count above one) and the samtools depth converter on them in child JVMs, and checks every output
+ * against the golden checksums. Wall time, throughput, peak RSS and GC time of the best of the repeats are written to
+ * regression-results.tsv in the work directory and, given a baseline, compared with it: a run fails if any output changed or any
+ * throughput fell by more than the threshold.
+ * <p>
+ * Golden checksums ship for the default sizes and sample count; a baseline is machine-specific and made with --update-baseline.
+ */
+public class RegressionHarness implements Callable<Boolean> {
+
+    private static final Logger logger = LoggerFactory.getLogger(RegressionHarness.class);
+
+    private static final HelpFormatter helpFormatter = new HelpFormatter();
+
+    private static final Options cliOptions = new Options();
+
+    private static final String GOLDEN_CHECKSUMS = "golden-checksums.tsv";
+
+    private static final String RESULTS = "regression-results.tsv";
+
+    private static final String DATASET_DONE = "dataset.done";
+
+    private static final long SEED = 1L;
+
+    private static final Pattern EXCEPTION = Pattern.compile("\\b(?:[a-z]\\w*\\.)+[A-Z][\\w$]*(?:Exception|Error)\\b");
+
+    private static final int CONTIGS = 4;
+
+    private File workDir;
+
+    private List<Long> sizes = Arrays.asList(10000L, 100000L);
+
+    private int samples = 10;
+
+    private List<Integer> threads = Arrays.asList(0, 4);
+
+    private int repeats = 3;
+
+    private File baseline;
+
+    private Boolean updateBaseline = Boolean.FALSE;
+
+    private double threshold = 10D;
+
+    private List<String> jvmArgs = Arrays.asList("-Xmx2g");
+
+    public RegressionHarness() {
+        super();
+    }
+
+    @Override
+    public Boolean call() throws Exception {
+        logger.info(this.toString());
+
+        Map<String, String> golden = readGoldenChecksums();
+        Map<String, RegressionResult> baselineResults = baseline != null && baseline.exists() ? readResults(baseline)
+                : new LinkedHashMap<String, RegressionResult>();
+
+        List<RegressionResult> results = new ArrayList<RegressionResult>();
+        boolean passed = true;
+        for (Long size : sizes) {
+            File data = prepareDataset(size);
+            for (RegressionScenario scenario : getScenarios(data, size)) {
+                RegressionResult result = runScenario(scenario);
+                results.add(result);
+                passed &= check(scenario, result, golden.get(scenario.getGoldenKey()), baselineResults.get(scenario.getName()));
+            }
+        }
+
+        writeResults(new File(workDir, RESULTS), results);
+        if (updateBaseline && baseline != null) {
+            for (RegressionResult result : results) {
+                baselineResults.put(result.getScenario(), result);
+            }
+            writeResults(baseline, new ArrayList<RegressionResult>(baselineResults.values()));
+            logger.info("updated baseline {}", baseline.getAbsolutePath());
+        }
+        logger.info(passed ? "regression run passed" : "regression run FAILED");
+        return passed;
+    }
+
+    private File prepareDataset(long size) throws Exception {
+        File data = new File(workDir, String.format("data-%dx%d", size, samples));
+        if (new File(data, DATASET_DONE).exists()) {
+            return data;
+        }
+        FileUtils.deleteDirectory(data);
+        SyntheticDataGenerator generator = new SyntheticDataGenerator();
+        generator.setOutputDir(data);
+        generator.setSeed(SEED);
+        generator.setContigs(CONTIGS);
+        generator.setContigLength((int) Math.max(1000000L, size * 50 / CONTIGS));
+        generator.setSites(size);
+        generator.setSamples(samples);
+        generator.setBamSamples(1);
+        generator.setIntervals(Math.max(1, size / 20));
+        generator.setDepth(Boolean.TRUE);
+        generator.call();
+        FileUtils.touch(new File(data, DATASET_DONE));
+        return data;
+    }
+
+    private List<RegressionScenario> getScenarios(File data, long size) {
+        String dataset = String.format("%dx%d", size, samples);
+        File vcf = new File(data, "synthetic.vcf");
+        File runs = new File(workDir, "runs-" + dataset);
+        List<RegressionScenario> scenarios = new ArrayList<RegressionScenario>();
+
+        for (Integer threadCount : threads) {
+            File output = new File(runs, "converter-t" + threadCount);
+            scenarios.add(new RegressionScenario(String.format("converter-%s-t%d", dataset, threadCount), "converter-" + dataset,
+                    Converter.class.getName(), Arrays.asList("-v", vcf.getAbsolutePath(), "-b",
+                            new File(data, "synthetic.S1.bam").getAbsolutePath(), "-o", output.getAbsolutePath(), "-g", "--bam-threads",
+                            threadCount.toString()),
+                    vcf, output));
+        }
+
+        File filtered = new File(runs, "filter-vcf");
+        scenarios.add(new RegressionScenario("filter-vcf-" + dataset, "filter-vcf-" + dataset, FilterVCF.class.getName(),
+                Arrays.asList("-i", vcf.getAbsolutePath(), "-o", new File(filtered, "filtered.vcf").getAbsolutePath(), "-l",
+                        new File(data, "synthetic.interval_list").getAbsolutePath()),
+                vcf, filtered));
+        for (Integer threadCount : threads) {
+            if (threadCount > 1) {
+                File chunked = new File(runs, "filter-vcf-t" + threadCount);
+                scenarios.add(new RegressionScenario(String.format("filter-vcf-%s-t%d", dataset, threadCount), "filter-vcf-" + dataset,
+                        FilterVCF.class.getName(), Arrays.asList("-i", vcf.getAbsolutePath(), "-o",
+                                new File(chunked, "filtered.vcf").getAbsolutePath(), "-l",
+                                new File(data, "synthetic.interval_list").getAbsolutePath(), "-t", threadCount.toString()),
+                        vcf, chunked));
+            }
+        }
+
+        File depth = new File(data, "synthetic.depth");
+        File coverage = new File(runs, "depth");
+        scenarios.add(new RegressionScenario("depth-" + dataset, "depth-" + dataset,
+                SAMToolsDepthToGATKDepthOfCoverageFormatConverter.class.getName(),
+                Arrays.asList("-i", depth.getAbsolutePath(), "-o", new File(coverage, "coverage.txt").getAbsolutePath(), "-l",
+                        new File(data, "synthetic.intervals").getAbsolutePath()),
+                depth, coverage));
+        return scenarios;
+    }
+
+    /**
+     * Runs a scenario {@link #repeats} times and keeps the fastest run. Every repeat has to produce the same output.
+     */
+    private RegressionResult runScenario(RegressionScenario scenario) throws Exception {
+        logger.info(scenario.toString());
+        File output = scenario.getOutput();
+        File stats = new File(output.getParentFile(), scenario.getName() + ".stats");
+        File log = new File(output.getParentFile(), scenario.getName() + ".log");
+
+        RegressionResult best = null;
+        for (int repeat = 0; repeat < repeats; repeat++) {
+            FileUtils.deleteDirectory(output);
+            output.mkdirs();
+            stats.delete();
+
+            List<String> command = new ArrayList<String>();
+            command.add(new File(new File(System.getProperty("java.home"), "bin"), "java").getAbsolutePath());
+            command.addAll(jvmArgs);
+            command.add("-D" + RegressionProbe.STATS_PROPERTY + "=" + stats.getAbsolutePath());
+            command.add("-cp");
+            command.add(System.getProperty("java.class.path"));
+            command.add(RegressionProbe.class.getName());
+            command.add(scenario.getMainClass());
+            command.addAll(scenario.getArgs());
+
+            Process process = new ProcessBuilder(command).redirectErrorStream(true).redirectOutput(log).start();
+            int exitValue = process.waitFor();
+            if (exitValue != 0) {
+                throw new IOException(String.format("%s exited with %d, see %s", scenario.getName(), exitValue, log.getAbsolutePath()));
+            }
+            // the converter reports some failures and still exits 0, so an empty output or a logged exception fails the run too
+            String[] produced = output.list();
+            if (produced == null || produced.length == 0) {
+                throw new IOException(String.format("%s wrote nothing to %s, see %s", scenario.getName(), output.getAbsolutePath(),
+                        log.getAbsolutePath()));
+            }
+            String exception = findException(log);
+            if (exception != null) {
+                throw new IOException(String.format("%s logged %s, see %s", scenario.getName(), exception, log.getAbsolutePath()));
+            }
+
+            String[] fields;
+            try (BufferedReader br = new BufferedReader(new FileReader(stats))) {
+                fields = br.readLine().trim().split("\t");
+            }
+            long wallMillis = Long.valueOf(fields[0]);
+            double megabytesPerSecond = scenario.getInput().length() / (1024D * 1024D) / (Math.max(1L, wallMillis) / 1000D);
+            RegressionResult result = new RegressionResult(scenario.getName(), OutputChecksums.getChecksum(output),
+                    wallMillis, megabytesPerSecond, Long.valueOf(fields[1]), Long.valueOf(fields[2]));
+            logger.info(result.toString());
+
+            if (best != null && !best.getChecksum().equals(result.getChecksum())) {
+                throw new IOException(String.format("%s output changed between repeats: %s, then %s", scenario.getName(),
+                        best.getChecksum(), result.getChecksum()));
+            }
+            if (best == null || result.getWallMillis() < best.getWallMillis()) {
+                best = result;
+            }
+        }
+        return best;
+    }
+
+    private static String findException(File log) throws IOException {
+        try (BufferedReader br = new BufferedReader(new FileReader(log))) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                Matcher matcher = EXCEPTION.matcher(line);
+                if (matcher.find()) {
+                    return matcher.group();
+                }
+            }
+        }
+        return null;
+    }
+
+    private boolean check(RegressionScenario scenario, RegressionResult result, String goldenChecksum, RegressionResult baselineResult) {
+        boolean passed = true;
+        if (goldenChecksum == null) {
+            logger.warn("{}: no golden checksum for {}, output {} is unverified", scenario.getName(), scenario.getGoldenKey(),
+                    result.getChecksum());
+        } else if (!goldenChecksum.equals(result.getChecksum())) {
+            logger.error("{}: output checksum {} does not match golden {}", scenario.getName(), result.getChecksum(), goldenChecksum);
+            passed = false;
+        }
+        if (baselineResult == null) {
+            if (baseline != null) {
+                logger.warn("{}: not in the baseline", scenario.getName());
+            }
+            return passed;
+        }
+        if (!baselineResult.getChecksum().equals(result.getChecksum())) {
+            logger.error("{}: output checksum {} does not match baseline {}", scenario.getName(), result.getChecksum(),
+                    baselineResult.getChecksum());
+            passed = false;
+        }
+        double change = (result.getMegabytesPerSecond() / baselineResult.getMegabytesPerSecond() - 1D) * 100D;
+        if (change < -threshold) {
+            logger.error("{}: throughput {} MB/s is {}% below the baseline {} MB/s", scenario.getName(),
+                    String.format("%.2f", result.getMegabytesPerSecond()), String.format("%.1f", -change),
+                    String.format("%.2f", baselineResult.getMegabytesPerSecond()));
+            passed = false;
+        } else {
+            logger.info("{}: throughput {} MB/s, {}% against the baseline; peak rss {} kB (baseline {}), gc {} ms (baseline {})",
+                    scenario.getName(), String.format("%.2f", result.getMegabytesPerSecond()), String.format("%+.1f", change),
+                    result.getPeakRSSKilobytes(), baselineResult.getPeakRSSKilobytes(), result.getGCMillis(),
+                    baselineResult.getGCMillis());
+        }
+        return passed;
+    }
+
+    private Map<String, String> readGoldenChecksums() throws IOException {
+        Map<String, String> golden = new LinkedHashMap<String, String>();
+        InputStream is = RegressionHarness.class.getResourceAsStream(GOLDEN_CHECKSUMS);
+        if (is == null) {
+            return golden;
+        }
+        try (BufferedReader br = new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                if (line.startsWith("#") || line.trim().isEmpty()) {
+                    continue;
+                }
+                String[] fields = line.split("\t");
+                golden.put(fields[0], fields[1]);
+            }
+        }
+        return golden;
+    }
+
+    private static Map<String, RegressionResult> readResults(File file) throws IOException {
+        Map<String, RegressionResult> results = new LinkedHashMap<String, RegressionResult>();
+        try (Reader reader = new FileReader(file); BufferedReader br = new BufferedReader(reader)) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                if (line.startsWith("#") || line.trim().isEmpty()) {
+                    continue;
+                }
+                RegressionResult result = RegressionResult.parse(line);
+                results.put(result.getScenario(), result);
+            }
+        }
+        return results;
+    }
+
+    private static void writeResults(File file, List<RegressionResult> results) throws IOException {
+        try (BufferedWriter bw = new BufferedWriter(new FileWriter(file))) {
+            bw.write(RegressionResult.HEADER);
+            bw.newLine();
+            for (RegressionResult result : results) {
+                bw.write(result.toLine());
+                bw.newLine();
+            }
+        }
+    }
+
+    public File getWorkDir() {
+        return workDir;
+    }
+
+    public void setWorkDir(File workDir) {
+        this.workDir = workDir;
+    }
+
+    public List<Long> getSizes() {
+        return sizes;
+    }
+
+    public void setSizes(List<Long> sizes) {
+        this.sizes = sizes;
+    }
+
+    public int getSamples() {
+        return samples;
+    }
+
+    public void setSamples(int samples) {
+        this.samples = samples;
+    }
+
+    public List<Integer> getThreads() {
+        return threads;
+    }
+
+    public void setThreads(List<Integer> threads) {
+        this.threads = threads;
+    }
+
+    public int getRepeats() {
+        return repeats;
+    }
+
+    public void setRepeats(int repeats) {
+        this.repeats = repeats;
+    }
+
+    public File getBaseline() {
+        return baseline;
+    }
+
+    public void setBaseline(File baseline) {
+        this.baseline = baseline;
+    }
+
+    public Boolean getUpdateBaseline() {
+        return updateBaseline;
+    }
+
+    public void setUpdateBaseline(Boolean updateBaseline) {
+        this.updateBaseline = updateBaseline;
+    }
+
+    public double getThreshold() {
+        return threshold;
+    }
+
+    public void setThreshold(double threshold) {
+        this.threshold = threshold;
+    }
+
+    public List<String> getJvmArgs() {
+        return jvmArgs;
+    }
+
+    public void setJvmArgs(List<String> jvmArgs) {
+        this.jvmArgs = jvmArgs;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "RegressionHarness [workDir=%s, sizes=%s, samples=%s, threads=%s, repeats=%s, baseline=%s, threshold=%s, jvmArgs=%s]",
+                workDir, sizes, samples, threads, repeats, baseline, threshold, jvmArgs);
+    }
+
+    public static void main(String[] args) {
+        cliOptions.addOption(Option.builder("w").longOpt("work").desc("Work directory for datasets, outputs and results").required()
+                .hasArg().build());
+        cliOptions.addOption(Option.builder().longOpt("sizes").desc("Comma-separated VCF site counts (default: 10000,100000)").hasArg()
+                .build());
+        cliOptions.addOption(Option.builder().longOpt("samples").desc("VCF samples per dataset (default: 10)").hasArg().build());
+        cliOptions.addOption(Option.builder().longOpt("threads")
+                .desc("Comma-separated thread counts: a converter run with each as --bam-threads, and a FilterVCF run with each above 1"
+                        + " as --threads (default: 0,4)").hasArg().build());
+        cliOptions.addOption(Option.builder().longOpt("repeats").desc("Runs per scenario, the fastest is kept (default: 3)").hasArg()
+                .build());
+        cliOptions.addOption(Option.builder("b").longOpt("baseline").desc("Baseline results file to compare against").hasArg().build());
+        cliOptions.addOption(Option.builder().longOpt("update-baseline").desc("Write this run's results into the baseline file").build());
+        cliOptions.addOption(Option.builder().longOpt("threshold")
+                .desc("Fail when throughput falls more than this percent below the baseline (default: 10)").hasArg().build());
+        cliOptions.addOption(Option.builder().longOpt("jvm-args").desc("Arguments for the child JVMs (default: -Xmx2g)").hasArg().build());
+        cliOptions.addOption(Option.builder("h").longOpt("help").desc("print this help message").build());
+        RegressionHarness app = new RegressionHarness();
+        try {
+            CommandLineParser commandLineParser = new DefaultParser();
+            CommandLine commandLine = commandLineParser.parse(cliOptions, args);
+            if (commandLine.hasOption("help")) {
+                helpFormatter.printHelp("RegressionHarness", cliOptions);
+                return;
+            }
+            File workDir = new File(commandLine.getOptionValue("work"));
+            workDir.mkdirs();
+            app.setWorkDir(workDir);
+            if (commandLine.hasOption("sizes")) {
+                List<Long> sizes = new ArrayList<Long>();
+                for (String size : commandLine.getOptionValue("sizes").split(",")) {
+                    sizes.add(Long.valueOf(size.trim()));
+                }
+                app.setSizes(sizes);
+            }
+            if (commandLine.hasOption("samples")) {
+                app.setSamples(Integer.valueOf(commandLine.getOptionValue("samples")));
+            }
+            if (commandLine.hasOption("threads")) {
+                List<Integer> threads = new ArrayList<Integer>();
+                for (String threadCount : commandLine.getOptionValue("threads").split(",")) {
+                    threads.add(Integer.valueOf(threadCount.trim()));
+                }
+                app.setThreads(threads);
+            }
+            if (commandLine.hasOption("repeats")) {
+                app.setRepeats(Integer.valueOf(commandLine.getOptionValue("repeats")));
+            }
+            if (commandLine.hasOption("baseline")) {
+                app.setBaseline(new File(commandLine.getOptionValue("baseline")));
+            }
+            app.setUpdateBaseline(commandLine.hasOption("update-baseline"));
+            if (app.getUpdateBaseline() && app.getBaseline() == null) {
+                throw new ParseException("update-baseline needs a baseline file");
+            }
+            if (commandLine.hasOption("threshold")) {
+                app.setThreshold(Double.valueOf(commandLine.getOptionValue("threshold")));
+            }
+            if (commandLine.hasOption("jvm-args")) {
+                String jvmArgs = commandLine.getOptionValue("jvm-args").trim();
+                app.setJvmArgs(jvmArgs.isEmpty() ? new ArrayList<String>() : Arrays.asList(jvmArgs.split("\\s+")));
+            }
+            if (!app.call()) {
+                System.exit(1);
+            }
+        } catch (ParseException | NumberFormatException e) {
+            logger.error(e.getMessage());
+            helpFormatter.printHelp("RegressionHarness", cliOptions);
+            System.exit(-1);
+        } catch (Exception e) {
+            logger.error(e.getMessage(), e);
+            System.exit(-1);
+        }
+    }
+
+}
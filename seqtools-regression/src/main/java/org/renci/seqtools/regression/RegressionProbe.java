@@ -0,0 +1,75 @@
+package org.renci.seqtools.regression;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+
+/**
+ * Runs a tool's main in a child JVM and, as the JVM exits, writes its wall time, peak resident set size and total GC time to the
+ * file named by the {@link #STATS_PROPERTY} system property. The numbers are taken in a shutdown hook because several tools end
+ * with System.exit.
+ * <p>
+ * Usage: RegressionProbe &lt;main class&gt; [tool arguments...]
+ */
+public class RegressionProbe {
+
+    public static final String STATS_PROPERTY = "seqtools.regression.stats";
+
+    public static final long UNKNOWN = -1L;
+
+    private static final File PROC_STATUS = new File("/proc/self/status");
+
+    public static void main(String[] args) throws Exception {
+        final File stats = new File(System.getProperty(STATS_PROPERTY));
+        final long startTime = System.nanoTime();
+        Runtime.getRuntime().addShutdownHook(new Thread() {
+            @Override
+            public void run() {
+                long wallMillis = (System.nanoTime() - startTime) / 1000000L;
+                try (Writer writer = new FileWriter(stats)) {
+                    writer.write(String.format("%d\t%d\t%d%n", wallMillis, getPeakRSSKilobytes(), getGCMillis()));
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        });
+        Method main = Class.forName(args[0]).getMethod("main", String[].class);
+        main.invoke(null, (Object) Arrays.copyOfRange(args, 1, args.length));
+    }
+
+    /**
+     * VmHWM from /proc, so only on Linux; {@link #UNKNOWN} elsewhere.
+     */
+    static long getPeakRSSKilobytes() {
+        if (!PROC_STATUS.canRead()) {
+            return UNKNOWN;
+        }
+        try (BufferedReader br = new BufferedReader(new FileReader(PROC_STATUS))) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                if (line.startsWith("VmHWM:")) {
+                    return Long.valueOf(line.substring(6).replace("kB", "").trim());
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            e.printStackTrace();
+        }
+        return UNKNOWN;
+    }
+
+    static long getGCMillis() {
+        long total = 0;
+        for (GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0, bean.getCollectionTime());
+        }
+        return total;
+    }
+
+}
@@ -0,0 +1,79 @@
+package org.renci.seqtools.regression;
+
+import java.util.Locale;
+
+/**
+ * The measurements of one scenario, and a line of the results and baseline files.
+ */
+public class RegressionResult {
+
+    public static final String HEADER = "#scenario\tchecksum\twall_ms\tmb_per_s\tpeak_rss_kb\tgc_ms";
+
+    private final String scenario;
+
+    private final String checksum;
+
+    private final long wallMillis;
+
+    private final double megabytesPerSecond;
+
+    private final long peakRSSKilobytes;
+
+    private final long gcMillis;
+
+    public RegressionResult(String scenario, String checksum, long wallMillis, double megabytesPerSecond, long peakRSSKilobytes,
+            long gcMillis) {
+        super();
+        this.scenario = scenario;
+        this.checksum = checksum;
+        this.wallMillis = wallMillis;
+        this.megabytesPerSecond = megabytesPerSecond;
+        this.peakRSSKilobytes = peakRSSKilobytes;
+        this.gcMillis = gcMillis;
+    }
+
+    public static RegressionResult parse(String line) {
+        String[] fields = line.split("\t");
+        if (fields.length != 6) {
+            throw new IllegalArgumentException("expected 6 fields in result line: " + line);
+        }
+        return new RegressionResult(fields[0], fields[1], Long.valueOf(fields[2]), Double.valueOf(fields[3]), Long.valueOf(fields[4]),
+                Long.valueOf(fields[5]));
+    }
+
+    public String toLine() {
+        return String.format(Locale.US, "%s\t%s\t%d\t%.3f\t%d\t%d", scenario, checksum, wallMillis, megabytesPerSecond, peakRSSKilobytes,
+                gcMillis);
+    }
+
+    public String getScenario() {
+        return scenario;
+    }
+
+    public String getChecksum() {
+        return checksum;
+    }
+
+    public long getWallMillis() {
+        return wallMillis;
+    }
+
+    public double getMegabytesPerSecond() {
+        return megabytesPerSecond;
+    }
+
+    public long getPeakRSSKilobytes() {
+        return peakRSSKilobytes;
+    }
+
+    public long getGCMillis() {
+        return gcMillis;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("RegressionResult [scenario=%s, checksum=%s, wallMillis=%s, megabytesPerSecond=%.3f, peakRSSKilobytes=%s, "
+                + "gcMillis=%s]", scenario, checksum, wallMillis, megabytesPerSecond, peakRSSKilobytes, gcMillis);
+    }
+
+}
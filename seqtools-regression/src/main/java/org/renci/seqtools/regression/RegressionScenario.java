@@ -0,0 +1,64 @@
+package org.renci.seqtools.regression;
+
+import java.io.File;
+import java.util.List;
+
+/**
+ * One timed tool run: the main class and arguments, the input its throughput is measured against, and the output directory, whose
+ * checksum must not change. Scenarios of the same tool on the same dataset share a golden key, so every thread count has to
+ * produce the same output.
+ */
+public class RegressionScenario {
+
+    private final String name;
+
+    private final String goldenKey;
+
+    private final String mainClass;
+
+    private final List<String> args;
+
+    private final File input;
+
+    private final File output;
+
+    public RegressionScenario(String name, String goldenKey, String mainClass, List<String> args, File input, File output) {
+        super();
+        this.name = name;
+        this.goldenKey = goldenKey;
+        this.mainClass = mainClass;
+        this.args = args;
+        this.input = input;
+        this.output = output;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getGoldenKey() {
+        return goldenKey;
+    }
+
+    public String getMainClass() {
+        return mainClass;
+    }
+
+    public List<String> getArgs() {
+        return args;
+    }
+
+    public File getInput() {
+        return input;
+    }
+
+    public File getOutput() {
+        return output;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("RegressionScenario [name=%s, mainClass=%s, args=%s]", name, mainClass, args);
+    }
+
+}